@@ -1,22 +1,65 @@
 package com.chamathka.bathikpos;
 
+import com.chamathka.bathikpos.controller.CachedView;
+import com.chamathka.bathikpos.service.CustomerSegmentationService;
+import com.chamathka.bathikpos.service.OutboxService;
+import com.chamathka.bathikpos.service.ReplicationService;
+import com.chamathka.bathikpos.service.SaleArchiveService;
+import com.chamathka.bathikpos.service.StockLedgerService;
 import com.chamathka.bathikpos.util.HibernateUtil;
+import com.chamathka.bathikpos.util.SessionManager;
+import com.chamathka.bathikpos.util.TaskExecutor;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Group;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Main Application class for Batik POS System.
  * This is the entry point for the JavaFX application.
+ *
+ * Startup shows the login screen first and bootstraps Hibernate in the background
+ * while it renders. Screens whose controller is a {@link CachedView} (POS and
+ * Dashboard) are built once per login, ahead of time, and kept: navigating back
+ * to one reuses its scene and calls its onShow hook, which applies only what
+ * changed while it was hidden. The cache is dropped at logout. The background
+ * jobs (outbox, stock snapshots, RFM, head-office sync, archiving) are started
+ * once the bootstrap completes. Startup and navigation times are logged.
+ *
+ * Started with -Dbatikpos.cds.training=true, the app exits as soon as the
+ * database is bootstrapped; the cds build profile uses this to record the
+ * class-data-sharing archive of the shaded jar.
  */
 public class BatikPOSApplication extends Application {
 
     private static final Logger logger = LoggerFactory.getLogger(BatikPOSApplication.class);
+
+    public static final String LOGIN_VIEW = "/fxml/LoginView.fxml";
+    public static final String DASHBOARD_VIEW = "/fxml/MainDashboard.fxml";
+    public static final String POS_VIEW = "/fxml/POSView.fxml";
+
+    /** Cached screens built ahead of time once a user is logged in. */
+    private static final List<String> PRELOADED_VIEWS = List.of(DASHBOARD_VIEW, POS_VIEW);
+    private static final long PRELOAD_DELAY_MS = 500; // Lets the screen just shown render first
+
     private static Stage primaryStage;
+    private static Object currentController; // Owner of the current screen's background tasks
+    private static String currentView;
+    private static final Map<String, LoadedView> viewCache = new HashMap<>(); // FX thread only
+    private static boolean backgroundJobsStopped; // Guarded by the class lock
 
     @Override
     public void start(Stage stage) {
@@ -25,13 +68,27 @@ public class BatikPOSApplication extends Application {
             primaryStage = stage;
 
             // Load the login view
-            Parent root = FXMLLoader.load(getClass().getResource("/fxml/LoginView.fxml"));
+            LoadedView login = loadView(LOGIN_VIEW);
+            currentController = login.controller;
+            currentView = LOGIN_VIEW;
 
-            Scene scene = new Scene(root);
             stage.setTitle("Batik POS System - Login");
-            stage.setScene(scene);
+            stage.setScene(login.scene);
             stage.setResizable(false);
             stage.show();
+            logger.info("Login screen shown {} ms after launch", millisSinceLaunch());
+
+            // Bootstrap the database while the user types their password
+            CompletableFuture<Void> database = HibernateUtil.bootstrapAsync();
+            database.thenRun(() -> logger.info("Database ready {} ms after launch", millisSinceLaunch()));
+            if (Boolean.getBoolean("batikpos.cds.training")) {
+                database.whenComplete((ignored, error) -> Platform.runLater(Platform::exit));
+                return;
+            }
+
+            // Background jobs start once the database is up, so they neither slow the
+            // login screen down nor queue behind the bootstrap for its lock
+            database.whenComplete((ignored, error) -> startBackgroundJobs(error));
 
             logger.info("Batik POS System started successfully");
 
@@ -44,10 +101,48 @@ public class BatikPOSApplication extends Application {
     @Override
     public void stop() {
         logger.info("Shutting down Batik POS System...");
+        stopBackgroundJobs();
+        TaskExecutor.getInstance().shutdown();
         HibernateUtil.shutdown();
         logger.info("Batik POS System shut down successfully");
     }
 
+    /**
+     * Start the background jobs on the bootstrap thread once the database is up.
+     * If the bootstrap failed they start anyway and reach the database on their
+     * first run, as the first login does.
+     * @param bootstrapError The bootstrap failure, or null
+     */
+    private static synchronized void startBackgroundJobs(Throwable bootstrapError) {
+        if (backgroundJobsStopped) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        if (bootstrapError != null) {
+            logger.warn("Starting background jobs although the database bootstrap failed: {}",
+                bootstrapError.getMessage());
+        }
+        StockLedgerService.startSnapshotScheduler();
+        CustomerSegmentationService.startSegmentationScheduler();
+        OutboxService.startDispatcher();
+        ReplicationService.startSyncAgent();
+        SaleArchiveService.startArchiveScheduler();
+        logger.info("Background jobs started {} ms after launch (in {} ms)", millisSinceLaunch(),
+            System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Stop the background jobs, and keep them from starting if the bootstrap is still running.
+     */
+    private static synchronized void stopBackgroundJobs() {
+        backgroundJobsStopped = true;
+        StockLedgerService.stopSnapshotScheduler();
+        CustomerSegmentationService.stopSegmentationScheduler();
+        OutboxService.stopDispatcher();
+        ReplicationService.stopSyncAgent();
+        SaleArchiveService.stopArchiveScheduler();
+    }
+
     /**
      * Get the primary stage of the application.
      * @return The primary stage
@@ -58,22 +153,120 @@ public class BatikPOSApplication extends Application {
 
     /**
      * Navigate to a different view.
+     * Background tasks still running for the screen being left are cancelled.
+     * A cached screen is shown again as is and told to refresh through onShow.
      * @param fxmlPath Path to the FXML file (relative to resources)
      * @param title Window title
      */
     public static void navigateTo(String fxmlPath, String title) {
         try {
-            Parent root = FXMLLoader.load(
-                BatikPOSApplication.class.getResource(fxmlPath));
-            Scene scene = new Scene(root);
-            primaryStage.setScene(scene);
+            long startTime = System.nanoTime();
+            if (currentController instanceof CachedView) {
+                ((CachedView) currentController).onHide();
+            }
+            if (currentController != null) {
+                TaskExecutor.getInstance().cancelAll(currentController);
+            }
+            if (!SessionManager.getInstance().isLoggedIn()) {
+                discardCachedViews();
+            }
+
+            LoadedView view = viewCache.get(fxmlPath);
+            boolean cached = view != null;
+            if (view == null) {
+                view = loadView(fxmlPath);
+                if (view.controller instanceof CachedView && SessionManager.getInstance().isLoggedIn()) {
+                    viewCache.put(fxmlPath, view);
+                }
+            }
+            currentController = view.controller;
+            currentView = fxmlPath;
+            primaryStage.setScene(view.scene);
             primaryStage.setTitle(title);
+            if (view.controller instanceof CachedView) {
+                ((CachedView) view.controller).onShow();
+            }
+            logger.info("Showed {} in {} ms{}", fxmlPath, (System.nanoTime() - startTime) / 1_000_000,
+                cached ? " (cached)" : "");
+
+            schedulePreload();
         } catch (Exception e) {
             logger.error("Failed to navigate to: {}", fxmlPath, e);
             throw new RuntimeException("Navigation failed: " + e.getMessage(), e);
         }
     }
 
+    private static LoadedView loadView(String fxmlPath) throws IOException {
+        FXMLLoader loader = new FXMLLoader(BatikPOSApplication.class.getResource(fxmlPath));
+        Parent root = loader.load();
+        return new LoadedView(new Scene(root), loader.getController());
+    }
+
+    /**
+     * Build the cached screens that are missing, once the screen just shown has
+     * rendered. Screens show the logged-in user, so the cache is dropped at logout.
+     */
+    private static void schedulePreload() {
+        if (!SessionManager.getInstance().isLoggedIn()) {
+            return;
+        }
+        PauseTransition delay = new PauseTransition(Duration.millis(PRELOAD_DELAY_MS));
+        delay.setOnFinished(event -> {
+            for (String fxmlPath : PRELOADED_VIEWS) {
+                if (!SessionManager.getInstance().isLoggedIn()) {
+                    return;
+                }
+                if (fxmlPath.equals(currentView) || viewCache.containsKey(fxmlPath)) {
+                    continue;
+                }
+                try {
+                    long startTime = System.nanoTime();
+                    LoadedView view = loadView(fxmlPath);
+                    if (!(view.controller instanceof CachedView)) {
+                        continue;
+                    }
+                    viewCache.put(fxmlPath, view);
+                    logger.info("Preloaded {} in {} ms", fxmlPath, (System.nanoTime() - startTime) / 1_000_000);
+                } catch (Exception e) {
+                    logger.warn("Failed to preload {}: {}", fxmlPath, e.getMessage());
+                }
+            }
+        });
+        delay.play();
+    }
+
+    private static void discardCachedViews() {
+        for (LoadedView view : viewCache.values()) {
+            ((CachedView) view.controller).onDispose();
+            TaskExecutor.getInstance().cancelAll(view.controller);
+            view.scene.setRoot(new Group()); // Detaches the screen so it releases its listeners
+        }
+        viewCache.clear();
+    }
+
+    /**
+     * Get the time since the JVM was launched, for the startup timings.
+     * @return Milliseconds since launch, or -1 if the platform does not report it
+     */
+    public static long millisSinceLaunch() {
+        return ProcessHandle.current().info().startInstant()
+            .map(start -> System.currentTimeMillis() - start.toEpochMilli())
+            .orElse(-1L);
+    }
+
+    /**
+     * A screen loaded from FXML.
+     */
+    private static class LoadedView {
+        private final Scene scene;
+        private final Object controller;
+
+        private LoadedView(Scene scene, Object controller) {
+            this.scene = scene;
+            this.controller = controller;
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
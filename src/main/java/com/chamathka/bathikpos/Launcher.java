@@ -0,0 +1,13 @@
+package com.chamathka.bathikpos;
+
+/**
+ * Entry point of the shaded jar.
+ * On the classpath the JavaFX launcher refuses a main class that extends
+ * Application, so the jar starts here and hands over to BatikPOSApplication.
+ */
+public class Launcher {
+
+    public static void main(String[] args) {
+        BatikPOSApplication.main(args);
+    }
+}
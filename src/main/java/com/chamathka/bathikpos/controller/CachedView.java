@@ -0,0 +1,29 @@
+package com.chamathka.bathikpos.controller;
+
+/**
+ * A screen that is built once per login and kept by the navigation cache.
+ *
+ * BatikPOSApplication.navigateTo reuses the cached scene and controller instead of
+ * reloading the FXML, and calls these hooks around each visit. onShow must only
+ * apply what changed while the screen was hidden, never reload everything.
+ */
+public interface CachedView {
+
+    /**
+     * Called every time the screen is shown, including the first time.
+     */
+    void onShow();
+
+    /**
+     * Called when navigation leaves the screen. It stays in the cache.
+     */
+    default void onHide() {
+    }
+
+    /**
+     * Called when the screen is dropped from the cache at logout. Release
+     * subscriptions here.
+     */
+    default void onDispose() {
+    }
+}
@@ -2,7 +2,9 @@ package com.chamathka.bathikpos.controller;
 
 import com.chamathka.bathikpos.BatikPOSApplication;
 import com.chamathka.bathikpos.entity.Customer;
+import com.chamathka.bathikpos.service.CustomerSegmentationService;
 import com.chamathka.bathikpos.service.CustomerService;
+import com.chamathka.bathikpos.util.TaskExecutor;
 import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXTextField;
 import javafx.application.Platform;
@@ -18,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -27,16 +30,21 @@ import java.util.Optional;
 public class CustomerManagementController {
 
     private static final Logger logger = LoggerFactory.getLogger(CustomerManagementController.class);
+    private static final String ALL_SEGMENTS = "All Segments";
+    private static final int SEGMENT_FILTER_LIMIT = 500;
 
+    @FXML private ComboBox<String> segmentFilter;
     @FXML private JFXTextField searchField;
     @FXML private TableView<Customer> customerTable;
     @FXML private Label statusLabel;
 
     private final CustomerService customerService;
+    private final CustomerSegmentationService segmentationService;
     private final ObservableList<Customer> customerList;
 
     public CustomerManagementController() {
         this.customerService = new CustomerService();
+        this.segmentationService = new CustomerSegmentationService();
         this.customerList = FXCollections.observableArrayList();
     }
 
@@ -61,7 +69,7 @@ public class CustomerManagementController {
         });
 
         // Set up action column
-        TableColumn<Customer, Void> actionColumn = (TableColumn<Customer, Void>) customerTable.getColumns().get(6);
+        TableColumn<Customer, Void> actionColumn = (TableColumn<Customer, Void>) customerTable.getColumns().get(8);
         actionColumn.setCellFactory(param -> new TableCell<>() {
             private final JFXButton editBtn = new JFXButton("Edit");
             private final JFXButton deleteBtn = new JFXButton("Delete");
@@ -86,11 +94,19 @@ public class CustomerManagementController {
         // Bind table to observable list
         customerTable.setItems(customerList);
 
-        // Load customers
-        loadCustomers();
+        // Set up segment filter; selecting the default fires handleSegmentFilter, which loads the customers
+        segmentFilter.getItems().add(ALL_SEGMENTS);
+        segmentFilter.getItems().addAll(Customer.SEGMENTS);
+        segmentFilter.setValue(ALL_SEGMENTS);
     }
 
     private void loadCustomers() {
+        String segment = segmentFilter.getValue();
+        if (segment != null && !ALL_SEGMENTS.equals(segment)) {
+            loadSegment(segment);
+            return;
+        }
+
         Task<List<Customer>> loadTask = new Task<>() {
             @Override
             protected List<Customer> call() {
@@ -110,7 +126,43 @@ public class CustomerManagementController {
             showError("Failed to load customers", loadTask.getException().getMessage());
         });
 
-        new Thread(loadTask).start();
+        TaskExecutor.getInstance().submit(this, loadTask);
+    }
+
+    /**
+     * Load one RFM segment from the segment index, with the segment sizes for the status line.
+     */
+    private void loadSegment(String segment) {
+        Task<List<Customer>> loadTask = new Task<>() {
+            private Map<String, Long> counts;
+
+            @Override
+            protected List<Customer> call() {
+                counts = segmentationService.getSegmentCounts();
+                return segmentationService.getCustomersInSegment(segment, SEGMENT_FILTER_LIMIT);
+            }
+
+            @Override
+            protected void succeeded() {
+                customerList.setAll(getValue());
+                statusLabel.setText(String.format("Showing %d of %d customers in segment %s",
+                    customerList.size(), counts.getOrDefault(segment, 0L), segment));
+                logger.info("Loaded {} customers in segment {}", customerList.size(), segment);
+            }
+        };
+
+        loadTask.setOnFailed(e -> {
+            logger.error("Failed to load customer segment", loadTask.getException());
+            showError("Failed to load customers", loadTask.getException().getMessage());
+        });
+
+        TaskExecutor.getInstance().submit(this, loadTask);
+    }
+
+    @FXML
+    private void handleSegmentFilter() {
+        searchField.clear();
+        loadCustomers();
     }
 
     @FXML
@@ -135,7 +187,7 @@ public class CustomerManagementController {
             statusLabel.setText(String.format("Found %d customers matching '%s'", customerList.size(), searchTerm));
         });
 
-        new Thread(searchTask).start();
+        TaskExecutor.getInstance().submit(this, searchTask);
     }
 
     @FXML
@@ -162,7 +214,7 @@ public class CustomerManagementController {
                 showError("Failed to add customer", saveTask.getException().getMessage());
             });
 
-            new Thread(saveTask).start();
+            TaskExecutor.getInstance().submitDetached(saveTask);
         });
     }
 
@@ -190,7 +242,7 @@ public class CustomerManagementController {
                 showError("Failed to update customer", updateTask.getException().getMessage());
             });
 
-            new Thread(updateTask).start();
+            TaskExecutor.getInstance().submitDetached(updateTask);
         });
     }
 
@@ -222,7 +274,7 @@ public class CustomerManagementController {
                 showError("Failed to delete customer", deleteTask.getException().getMessage());
             });
 
-            new Thread(deleteTask).start();
+            TaskExecutor.getInstance().submitDetached(deleteTask);
         }
     }
 
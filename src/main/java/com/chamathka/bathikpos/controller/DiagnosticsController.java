@@ -0,0 +1,212 @@
+package com.chamathka.bathikpos.controller;
+
+import com.chamathka.bathikpos.BatikPOSApplication;
+import com.chamathka.bathikpos.util.DatabaseBackup;
+import com.chamathka.bathikpos.util.Diagnostics;
+import com.chamathka.bathikpos.util.Diagnostics.PoolMetrics;
+import com.chamathka.bathikpos.util.Diagnostics.QuerySummary;
+import com.chamathka.bathikpos.util.TaskExecutor;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.stage.FileChooser;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controller for the Diagnostics screen (Admin only).
+ * Shows connection pool state, acquisition times and leak counts, Hibernate
+ * statistics and the slowest queries. Everything is read from memory, so a
+ * refresh never touches the database. Also takes online database backups.
+ */
+public class DiagnosticsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiagnosticsController.class);
+    private static final int SLOW_QUERY_LIMIT = 20;
+
+    @FXML private Label statusLabel;
+    @FXML private TableView<String[]> metricsTable;
+    @FXML private TableView<QuerySummary> queriesTable;
+    @FXML private Button backupButton;
+
+    private final Diagnostics diagnostics;
+
+    public DiagnosticsController() {
+        this.diagnostics = Diagnostics.getInstance();
+    }
+
+    @FXML
+    @SuppressWarnings("unchecked")
+    private void initialize() {
+        logger.info("Diagnostics initialized");
+
+        TableColumn<String[], String> metricColumn = (TableColumn<String[], String>) metricsTable.getColumns().get(0);
+        TableColumn<String[], String> valueColumn = (TableColumn<String[], String>) metricsTable.getColumns().get(1);
+        metricColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue()[0]));
+        valueColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue()[1]));
+
+        TableColumn<QuerySummary, String> queryColumn = (TableColumn<QuerySummary, String>) queriesTable.getColumns().get(0);
+        queryColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getQuery()));
+        ((TableColumn<QuerySummary, Long>) queriesTable.getColumns().get(1))
+            .setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getExecutions()));
+        ((TableColumn<QuerySummary, Long>) queriesTable.getColumns().get(2))
+            .setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getAvgMillis()));
+        ((TableColumn<QuerySummary, Long>) queriesTable.getColumns().get(3))
+            .setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getMaxMillis()));
+        ((TableColumn<QuerySummary, Long>) queriesTable.getColumns().get(4))
+            .setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getRows()));
+
+        refresh();
+    }
+
+    private void refresh() {
+        if (!Diagnostics.isEnabled()) {
+            statusLabel.setText("Diagnostics are disabled. Start the application with -Dbatikpos.diagnostics=true " +
+                "(or BATIKPOS_DIAGNOSTICS=true) to collect pool and query statistics.");
+            metricsTable.setItems(FXCollections.observableArrayList());
+            queriesTable.setItems(FXCollections.observableArrayList());
+            return;
+        }
+
+        List<String[]> rows = new ArrayList<>();
+        for (PoolMetrics pool : diagnostics.getPools()) {
+            addPoolRows(rows, pool);
+        }
+        for (Map.Entry<String, Statistics> entry : diagnostics.getStatistics().entrySet()) {
+            addStatisticsRows(rows, entry.getKey(), entry.getValue());
+        }
+        metricsTable.setItems(FXCollections.observableArrayList(rows));
+        queriesTable.setItems(FXCollections.observableArrayList(diagnostics.getSlowestQueries(SLOW_QUERY_LIMIT)));
+
+        statusLabel.setText(String.format("Connections held longer than %,d ms are logged by the pool as possible " +
+            "leaks, with the stack trace of the code that borrowed them.", Diagnostics.getLeakThresholdMillis()));
+    }
+
+    private void addPoolRows(List<String[]> rows, PoolMetrics pool) {
+        String prefix = "[" + pool.getName() + " pool] ";
+        rows.add(row(prefix + "Active / idle / waiting / max connections", String.format("%d / %d / %d / %d",
+            pool.getActiveConnections(), pool.getIdleConnections(), pool.getPendingThreads(), pool.getMaxConnections())));
+        rows.add(row(prefix + "Acquisitions (avg / max wait)", String.format("%,d (%.2f ms / %.2f ms)",
+            pool.getAcquisitionCount(), pool.getAverageAcquisitionMillis(), pool.getMaxAcquisitionMillis())));
+
+        List<String> labels = PoolMetrics.getAcquisitionBucketLabels();
+        long[] histogram = pool.getAcquisitionHistogram();
+        StringBuilder buckets = new StringBuilder();
+        for (int i = 0; i < histogram.length; i++) {
+            if (i > 0) {
+                buckets.append(",  ");
+            }
+            buckets.append(labels.get(i)).append(": ").append(histogram[i]);
+        }
+        rows.add(row(prefix + "Acquisition time histogram", buckets.toString()));
+        rows.add(row(prefix + "Connections held past the leak threshold", String.format("%d (longest %,d ms)",
+            pool.getLongHeldConnections(), pool.getMaxUsageMillis())));
+        rows.add(row(prefix + "Acquisition timeouts", String.valueOf(pool.getTimeouts())));
+    }
+
+    private void addStatisticsRows(List<String[]> rows, String name, Statistics statistics) {
+        String prefix = "[" + name + " Hibernate] ";
+        rows.add(row(prefix + "Queries executed (slowest)", String.format("%,d (%,d ms)",
+            statistics.getQueryExecutionCount(), statistics.getQueryExecutionMaxTime())));
+        rows.add(row(prefix + "Statements prepared", String.format("%,d", statistics.getPrepareStatementCount())));
+        rows.add(row(prefix + "Entities loaded / fetched", String.format("%,d / %,d",
+            statistics.getEntityLoadCount(), statistics.getEntityFetchCount())));
+        rows.add(row(prefix + "Collections loaded / fetched", String.format("%,d / %,d",
+            statistics.getCollectionLoadCount(), statistics.getCollectionFetchCount())));
+        rows.add(row(prefix + "Second-level cache hits / misses / puts", String.format("%,d / %,d / %,d",
+            statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+            statistics.getSecondLevelCachePutCount())));
+        rows.add(row(prefix + "Sessions opened / transactions", String.format("%,d / %,d",
+            statistics.getSessionOpenCount(), statistics.getTransactionCount())));
+    }
+
+    private static String[] row(String metric, String value) {
+        return new String[] {metric, value};
+    }
+
+    @FXML
+    private void handleRefresh() {
+        refresh();
+    }
+
+    @FXML
+    private void handleReset() {
+        diagnostics.reset();
+        refresh();
+    }
+
+    @FXML
+    private void handleBackup() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Back Up Database");
+        fileChooser.setInitialFileName("batikpos-" +
+            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmm")) + ".bpbak.gz");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Batik POS backups", "*.bpbak.gz"));
+        File file = fileChooser.showSaveDialog(backupButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        // Tills keep trading while the backup reads its snapshot
+        Task<DatabaseBackup.Result> task = new Task<>() {
+            @Override
+            protected DatabaseBackup.Result call() {
+                return DatabaseBackup.forCurrentDatabase().backup(file.toPath());
+            }
+        };
+
+        backupButton.setDisable(true);
+        statusLabel.setText("Backing up the database to " + file.getName() + "...");
+        task.setOnSucceeded(e -> {
+            backupButton.setDisable(false);
+            statusLabel.setText("Backup complete: " + task.getValue());
+            showInfo("Backup Complete", "Saved to " + file + "\n\n" + task.getValue());
+        });
+        task.setOnFailed(e -> {
+            backupButton.setDisable(false);
+            statusLabel.setText("Backup failed");
+            logger.error("Database backup failed", task.getException());
+            showError("Backup Error", "Failed to back up the database: " + task.getException().getMessage());
+        });
+
+        // Detached: a backup keeps running if the admin leaves this screen
+        TaskExecutor.getInstance().submitDetached(task);
+    }
+
+    @FXML
+    private void handleBackToDashboard() {
+        try {
+            BatikPOSApplication.navigateTo("/fxml/MainDashboard.fxml", "Batik POS - Dashboard");
+        } catch (Exception e) {
+            logger.error("Failed to navigate to dashboard", e);
+            showError("Navigation Error", "Failed to return to dashboard");
+        }
+    }
+
+    private void showInfo(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+
+    private void showError(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(title);
+        alert.setHeaderText("An error occurred");
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
\ No newline at end of file
@@ -2,10 +2,12 @@ package com.chamathka.bathikpos.controller;
 
 import com.chamathka.bathikpos.BatikPOSApplication;
 import com.chamathka.bathikpos.entity.*;
+import com.chamathka.bathikpos.service.GRNImportService;
 import com.chamathka.bathikpos.service.GRNService;
 import com.chamathka.bathikpos.service.ProductService;
 import com.chamathka.bathikpos.service.SupplierService;
 import com.chamathka.bathikpos.util.SessionManager;
+import com.chamathka.bathikpos.util.TaskExecutor;
 import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXComboBox;
 import com.jfoenix.controls.JFXTextField;
@@ -19,10 +21,15 @@ import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
@@ -48,6 +55,7 @@ public class GRNManagementController {
     @FXML private Label totalCostLabel;
 
     private final GRNService grnService;
+    private final GRNImportService grnImportService;
     private final SupplierService supplierService;
     private final ProductService productService;
     private final SessionManager sessionManager;
@@ -58,6 +66,7 @@ public class GRNManagementController {
 
     public GRNManagementController() {
         this.grnService = new GRNService();
+        this.grnImportService = new GRNImportService();
         this.supplierService = new SupplierService();
         this.productService = new ProductService();
         this.sessionManager = SessionManager.getInstance();
@@ -151,6 +160,32 @@ public class GRNManagementController {
                 }
             }
         });
+
+        TableColumn<GRN, Void> actionCol = (TableColumn<GRN, Void>) grnTable.getColumns().get(6);
+        actionCol.setCellFactory(param -> new TableCell<>() {
+            private final JFXButton confirmBtn = new JFXButton("✓ Confirm");
+
+            {
+                confirmBtn.setStyle("-fx-background-color: #10b981; -fx-text-fill: white; -fx-background-radius: 3;");
+                confirmBtn.setOnAction(e -> {
+                    GRN grn = getTableRow().getItem();
+                    if (grn != null) {
+                        handleConfirmPendingGRN(grn);
+                    }
+                });
+            }
+
+            @Override
+            protected void updateItem(Void item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || getTableRow() == null || getTableRow().getItem() == null
+                        || !getTableRow().getItem().isPending()) {
+                    setGraphic(null);
+                } else {
+                    setGraphic(confirmBtn);
+                }
+            }
+        });
     }
 
     private void setupGRNItemsTableCells() {
@@ -247,7 +282,7 @@ public class GRNManagementController {
             supplierCombo.getItems().addAll(task.getValue());
         });
 
-        new Thread(task).start();
+        TaskExecutor.getInstance().submit(this, task);
     }
 
     private void loadGRNHistory() {
@@ -275,7 +310,7 @@ public class GRNManagementController {
             showError("Failed to load GRNs", task.getException().getMessage());
         });
 
-        new Thread(task).start();
+        TaskExecutor.getInstance().submit(this, task);
     }
 
     @FXML
@@ -337,7 +372,7 @@ public class GRNManagementController {
         loadTask.setOnSucceeded(e -> {
             variantCombo.getItems().addAll(loadTask.getValue());
         });
-        new Thread(loadTask).start();
+        TaskExecutor.getInstance().submit(this, loadTask);
 
         JFXTextField quantityField = new JFXTextField();
         quantityField.setPromptText("Quantity Received");
@@ -387,6 +422,109 @@ public class GRNManagementController {
         return dialog;
     }
 
+    @FXML
+    private void handleImportInvoice() {
+        Dialog<Supplier> dialog = new Dialog<>();
+        dialog.setTitle("Import Supplier Invoice");
+        dialog.setHeaderText("Select the supplier, then choose a CSV file with\nitemCode, quantity, cost on each line");
+
+        ButtonType chooseButtonType = new ButtonType("Choose File...", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(chooseButtonType, ButtonType.CANCEL);
+
+        ComboBox<Supplier> importSupplierCombo = new ComboBox<>(supplierCombo.getItems());
+        importSupplierCombo.setPromptText("Select Supplier");
+        importSupplierCombo.setPrefWidth(300);
+
+        JFXTextField importInvoiceField = new JFXTextField();
+        importInvoiceField.setPromptText("Supplier Invoice No (optional)");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.add(new Label("Supplier:"), 0, 0);
+        grid.add(importSupplierCombo, 1, 0);
+        grid.add(new Label("Invoice No:"), 0, 1);
+        grid.add(importInvoiceField, 1, 1);
+
+        dialog.getDialogPane().setContent(grid);
+        Platform.runLater(importSupplierCombo::requestFocus);
+        dialog.setResultConverter(dialogButton ->
+            dialogButton == chooseButtonType ? importSupplierCombo.getValue() : null);
+
+        Optional<Supplier> supplier = dialog.showAndWait();
+        if (supplier.isEmpty()) {
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Select Supplier Invoice CSV");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("CSV Files", "*.csv"),
+            new FileChooser.ExtensionFilter("All Files", "*.*"));
+        File file = fileChooser.showOpenDialog(grnTable.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        importInvoice(supplier.get(), importInvoiceField.getText(), file);
+    }
+
+    private void importInvoice(Supplier supplier, String invoiceNo, File file) {
+        statusLabel.setText("Importing " + file.getName() + "...");
+
+        Task<GRNImportService.ImportResult> importTask = new Task<>() {
+            @Override
+            protected GRNImportService.ImportResult call() throws Exception {
+                try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    return grnImportService.importSupplierInvoice(supplier, invoiceNo, reader);
+                }
+            }
+        };
+
+        importTask.setOnSucceeded(e -> {
+            GRNImportService.ImportResult result = importTask.getValue();
+            if (result.hasErrors()) {
+                statusLabel.setText(String.format("Import rejected: %d line(s) with errors", result.getErrors().size()));
+                showImportErrors(file.getName(), result);
+                return;
+            }
+
+            GRN grn = result.getGrn();
+            logger.info("Invoice imported as pending GRN: {}", grn.getGrnId());
+            showInfo("Import Complete",
+                String.format("Imported %d items from %s in %d ms.\n\nPending GRN #%d created for %s.\nTotal Cost: Rs. %.2f",
+                    result.getItemsImported(), file.getName(), result.getElapsedMillis(),
+                    grn.getGrnId(), supplier.getSupplierName(), grn.getTotalCost()));
+            loadGRNHistory();
+        });
+
+        importTask.setOnFailed(e -> {
+            logger.error("Failed to import invoice", importTask.getException());
+            statusLabel.setText("Import failed");
+            showError("Import Failed",
+                     "Failed to import invoice: " + importTask.getException().getMessage() +
+                     "\n\nThe transaction has been rolled back. No changes were made.");
+        });
+
+        TaskExecutor.getInstance().submitDetached(importTask);
+    }
+
+    private void showImportErrors(String fileName, GRNImportService.ImportResult result) {
+        TextArea report = new TextArea(result.getErrorReport());
+        report.setEditable(false);
+        report.setWrapText(false);
+        report.setPrefSize(600, 300);
+
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Import Rejected");
+        alert.setHeaderText(String.format("%d of %d lines in %s failed validation",
+            result.getErrors().size(), result.getLinesRead(), fileName));
+        alert.setContentText("Nothing was imported. Fix the lines below and import the file again.");
+        alert.getDialogPane().setExpandableContent(report);
+        alert.getDialogPane().setExpanded(true);
+        alert.showAndWait();
+    }
+
     @FXML
     private void handleConfirmGRN() {
         // Validate
@@ -457,7 +595,50 @@ public class GRNManagementController {
                      "\n\nThe transaction has been rolled back. No changes were made.");
         });
 
-        new Thread(confirmTask).start();
+        TaskExecutor.getInstance().submitDetached(confirmTask);
+    }
+
+    private void handleConfirmPendingGRN(GRN grn) {
+        Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmation.setTitle("Confirm GRN");
+        confirmation.setHeaderText("Confirm Pending GRN #" + grn.getGrnId());
+        confirmation.setContentText(
+            String.format("Supplier: %s\nInvoice No: %s\nTotal Cost: Rs. %.2f\n\n" +
+                         "This will add stock to inventory. Continue?",
+                         grn.getSupplier() != null ? grn.getSupplier().getSupplierName() : "N/A",
+                         grn.getSupplierInvoiceNo() != null ? grn.getSupplierInvoiceNo() : "-",
+                         grn.getTotalCost())
+        );
+
+        Optional<ButtonType> result = confirmation.showAndWait();
+        if (result.isEmpty() || result.get() != ButtonType.OK) {
+            return;
+        }
+
+        Task<GRN> confirmTask = new Task<>() {
+            @Override
+            protected GRN call() {
+                return grnService.confirmPendingGRN(grn.getGrnId());
+            }
+        };
+
+        confirmTask.setOnSucceeded(e -> {
+            GRN confirmed = confirmTask.getValue();
+            logger.info("Pending GRN confirmed successfully: {}", confirmed.getGrnId());
+            showInfo("Success", String.format("GRN #%d confirmed successfully!\n%d items added to inventory.",
+                confirmed.getGrnId(), confirmed.getItems().size()));
+            loadGRNHistory();
+        });
+
+        confirmTask.setOnFailed(e -> {
+            logger.error("Failed to confirm pending GRN", confirmTask.getException());
+            showError("GRN Confirmation Failed",
+                     "Failed to confirm GRN: " + confirmTask.getException().getMessage() +
+                     "\n\nThe transaction has been rolled back. No changes were made.");
+            loadGRNHistory();
+        });
+
+        TaskExecutor.getInstance().submitDetached(confirmTask);
     }
 
     @FXML
@@ -3,6 +3,7 @@ package com.chamathka.bathikpos.controller;
 import com.chamathka.bathikpos.BatikPOSApplication;
 import com.chamathka.bathikpos.entity.User;
 import com.chamathka.bathikpos.service.AuthenticationService;
+import com.chamathka.bathikpos.util.TaskExecutor;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
@@ -101,6 +102,7 @@ public class LoginController {
         loginButton.setText("Logging in...");
 
         // Perform authentication in background thread
+        long loginStartTime = System.nanoTime();
         Task<User> loginTask = new Task<>() {
             @Override
             protected User call() {
@@ -116,6 +118,7 @@ public class LoginController {
             if (user != null) {
                 logger.info("Login successful for user: {} ({})", user.getUsername(), user.getRole());
                 navigateToDashboard();
+                logger.info("Login to dashboard in {} ms", (System.nanoTime() - loginStartTime) / 1_000_000);
             } else {
                 logger.warn("Login failed for username: {}", username);
                 showError("Invalid username or password");
@@ -133,7 +136,7 @@ public class LoginController {
         });
 
         // Start the background task
-        new Thread(loginTask).start();
+        TaskExecutor.getInstance().submitDetached(loginTask);
     }
 
     /**
@@ -1,12 +1,11 @@
 package com.chamathka.bathikpos.controller;
 
 import com.chamathka.bathikpos.BatikPOSApplication;
-import com.chamathka.bathikpos.dao.CustomerDAO;
-import com.chamathka.bathikpos.dao.ProductVariantDAO;
+import com.chamathka.bathikpos.event.EventBus;
+import com.chamathka.bathikpos.service.DashboardMetrics;
 import com.chamathka.bathikpos.util.SessionManager;
 import com.jfoenix.controls.JFXButton;
 import javafx.application.Platform;
-import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
@@ -23,8 +22,11 @@ import java.util.Optional;
  * Implements role-based UI - shows different menus for ADMIN vs CASHIER.
  *
  * As per SRS: Admin has full access, Cashier has restricted access.
+ *
+ * The screen is cached for the session; the live statistics are only followed
+ * while it is shown.
  */
-public class MainDashboardController {
+public class MainDashboardController implements CachedView {
 
     private static final Logger logger = LoggerFactory.getLogger(MainDashboardController.class);
 
@@ -42,6 +44,10 @@ public class MainDashboardController {
     @FXML private Label lblTotalProducts;
     @FXML private Label lblLowStock;
     @FXML private Label lblTotalCustomers;
+    @FXML private HBox todayStatsContainer;
+    @FXML private Label lblTodayRevenue;
+    @FXML private Label lblTodayTransactions;
+    @FXML private Label lblAvgBasket;
 
     // Navigation buttons
     @FXML private JFXButton btnPOS;
@@ -51,15 +57,15 @@ public class MainDashboardController {
     @FXML private JFXButton btnGRN;
     @FXML private JFXButton btnReports;
     @FXML private JFXButton btnReturns;
+    @FXML private JFXButton btnDiagnostics;
 
     private final SessionManager sessionManager;
-    private final ProductVariantDAO variantDAO;
-    private final CustomerDAO customerDAO;
+    private final DashboardMetrics dashboardMetrics;
+    private EventBus.Subscription metricsSubscription;
 
     public MainDashboardController() {
         this.sessionManager = SessionManager.getInstance();
-        this.variantDAO = new ProductVariantDAO();
-        this.customerDAO = new CustomerDAO();
+        this.dashboardMetrics = DashboardMetrics.getInstance();
     }
 
     @FXML
@@ -79,51 +85,65 @@ public class MainDashboardController {
         adminSection.setManaged(isAdmin);
         statsContainer.setVisible(isAdmin);
         statsContainer.setManaged(isAdmin);
+        todayStatsContainer.setVisible(isAdmin);
+        todayStatsContainer.setManaged(isAdmin);
 
         logger.info("Dashboard loaded for user: {} ({})", username, role);
 
-        // Load dashboard statistics if admin
-        if (isAdmin) {
-            loadDashboardStats();
-        }
-
         // Apply button hover effects
         setupButtonHoverEffects();
     }
 
+    @Override
+    public void onShow() {
+        // Subscribe to live dashboard statistics if admin, reseeding them to pick up other tills
+        if (sessionManager.isAdmin()) {
+            subscribeToDashboardStats();
+            dashboardMetrics.refresh();
+        }
+    }
+
+    @Override
+    public void onHide() {
+        unsubscribeFromDashboardStats();
+    }
+
+    @Override
+    public void onDispose() {
+        unsubscribeFromDashboardStats();
+    }
+
     /**
-     * Load dashboard statistics (Admin only).
+     * Subscribe to live dashboard statistics (Admin only).
+     * The counters are maintained from sale, return, GRN and CRUD events and
+     * reseeded in the background, so the listener receives the current snapshot
+     * straight away and the refreshed one when the reseed finishes.
      */
-    private void loadDashboardStats() {
-        Task<Void> statsTask = new Task<>() {
-            private long totalProducts;
-            private long lowStockCount;
-            private long totalCustomers;
-
-            @Override
-            protected Void call() {
-                totalProducts = variantDAO.count();
-                lowStockCount = variantDAO.getLowStockVariants().size();
-                totalCustomers = customerDAO.count();
-                return null;
-            }
-
-            @Override
-            protected void succeeded() {
-                lblTotalProducts.setText(String.valueOf(totalProducts));
-                lblLowStock.setText(String.valueOf(lowStockCount));
-                lblTotalCustomers.setText(String.valueOf(totalCustomers));
-                logger.debug("Dashboard stats loaded: Products={}, LowStock={}, Customers={}",
-                    totalProducts, lowStockCount, totalCustomers);
-            }
+    private void subscribeToDashboardStats() {
+        if (metricsSubscription != null) {
+            return;
+        }
+        dashboardMetrics.start();
+        metricsSubscription = dashboardMetrics.addListener(
+            snapshot -> Platform.runLater(() -> showDashboardStats(snapshot)));
+    }
 
-            @Override
-            protected void failed() {
-                logger.error("Failed to load dashboard stats", getException());
-            }
-        };
+    private void showDashboardStats(DashboardMetrics.Snapshot snapshot) {
+        lblTotalProducts.setText(String.valueOf(snapshot.getTotalProducts()));
+        lblLowStock.setText(String.valueOf(snapshot.getLowStockCount()));
+        lblTotalCustomers.setText(String.valueOf(snapshot.getTotalCustomers()));
+        lblTodayRevenue.setText(String.format("%,.2f", snapshot.getTodayRevenue()));
+        lblTodayTransactions.setText(String.valueOf(snapshot.getTodayTransactions()));
+        lblAvgBasket.setText(String.format("%,.2f", snapshot.getAverageBasket()));
+        logger.debug("Dashboard stats updated: {}", snapshot);
+    }
 
-        new Thread(statsTask).start();
+    private void unsubscribeFromDashboardStats() {
+        if (metricsSubscription != null) {
+            metricsSubscription.close();
+            metricsSubscription = null;
+            logger.debug("Dashboard stats subscription closed");
+        }
     }
 
     /**
@@ -131,7 +151,7 @@ public class MainDashboardController {
      */
     private void setupButtonHoverEffects() {
         JFXButton[] buttons = {btnPOS, btnCustomers, btnProducts, btnSuppliers,
-                              btnGRN, btnReports, btnReturns};
+                              btnGRN, btnReports, btnReturns, btnDiagnostics};
 
         for (JFXButton button : buttons) {
             if (button != null) {
@@ -242,6 +262,21 @@ public class MainDashboardController {
         }
     }
 
+    @FXML
+    private void handleOpenDiagnostics() {
+        if (!sessionManager.isAdmin()) {
+            showAccessDenied();
+            return;
+        }
+        logger.info("Opening Diagnostics");
+        try {
+            BatikPOSApplication.navigateTo("/fxml/Diagnostics.fxml", "Batik POS - Diagnostics");
+        } catch (Exception e) {
+            logger.error("Failed to open Diagnostics", e);
+            showError("Failed to open Diagnostics", "Could not load Diagnostics module: " + e.getMessage());
+        }
+    }
+
     @FXML
     private void handleLogout() {
         logger.info("Logout requested");
@@ -254,6 +289,7 @@ public class MainDashboardController {
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
             String username = sessionManager.getCurrentUsername();
+            unsubscribeFromDashboardStats();
             sessionManager.logout();
             logger.info("User logged out: {}", username);
 
@@ -2,16 +2,24 @@ package com.chamathka.bathikpos.controller;
 
 import com.chamathka.bathikpos.BatikPOSApplication;
 import com.chamathka.bathikpos.entity.Customer;
+import com.chamathka.bathikpos.entity.Product;
 import com.chamathka.bathikpos.entity.ProductVariant;
 import com.chamathka.bathikpos.entity.Sale;
 import com.chamathka.bathikpos.entity.SaleItem;
+import com.chamathka.bathikpos.event.EntityChangedEvent;
+import com.chamathka.bathikpos.event.EventBus;
+import com.chamathka.bathikpos.event.StockChangeEvent;
+import com.chamathka.bathikpos.service.CustomerLookupService;
 import com.chamathka.bathikpos.service.CustomerService;
 import com.chamathka.bathikpos.service.ProductService;
 import com.chamathka.bathikpos.service.SaleService;
+import com.chamathka.bathikpos.util.ReceiptCode;
 import com.chamathka.bathikpos.util.SessionManager;
+import com.chamathka.bathikpos.util.TaskExecutor;
 import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXComboBox;
 import com.jfoenix.controls.JFXTextField;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -21,20 +29,29 @@ import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+import javafx.util.StringConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Controller for Point of Sale (POS).
  * Handles the complete sales process with ATOMIC checkout transaction.
+ *
+ * The screen is cached for the session, so the cart survives a trip to the
+ * dashboard. The product list is loaded once and then kept current from stock
+ * events: new stock levels are applied in place, and only variants that came
+ * back into stock are fetched. Product edits trigger a full reload.
  */
-public class POSController {
+public class POSController implements CachedView {
 
     private static final Logger logger = LoggerFactory.getLogger(POSController.class);
+    private static final int CUSTOMER_MATCH_LIMIT = 10;
+    private static final Duration CUSTOMER_SEARCH_DELAY = Duration.millis(200);
 
     // Product Panel
     @FXML private JFXTextField productSearchField;
@@ -59,15 +76,28 @@ public class POSController {
     private final SaleService saleService;
     private final ProductService productService;
     private final CustomerService customerService;
+    private final CustomerLookupService customerLookup;
     private final SessionManager sessionManager;
 
     private final ObservableList<ProductVariant> productList;
     private final ObservableList<SaleItem> cartItems;
 
+    private final PauseTransition customerSearchDelay = new PauseTransition(CUSTOMER_SEARCH_DELAY);
+    private Task<List<Customer>> customerSearchTask;
+    private String lastCustomerQuery = "";
+
+    private final List<EventBus.Subscription> subscriptions = new ArrayList<>();
+    private final Map<Long, Integer> pendingStock = new ConcurrentHashMap<>(); // Variant ID -> new quantity
+    private volatile boolean catalogChanged;
+    private volatile boolean showing;
+    private Task<List<ProductVariant>> productsTask;
+    private boolean productsLoaded;
+
     public POSController() {
         this.saleService = new SaleService();
         this.productService = new ProductService();
         this.customerService = new CustomerService();
+        this.customerLookup = CustomerLookupService.getInstance();
         this.sessionManager = SessionManager.getInstance();
         this.productList = FXCollections.observableArrayList();
         this.cartItems = FXCollections.observableArrayList();
@@ -86,6 +116,9 @@ public class POSController {
         // Set up cart table cell factories
         setupCartTableCells();
 
+        // Set up customer type-ahead
+        setupCustomerPicker();
+
         // Bind tables
         productTable.setItems(productList);
         cartTable.setItems(cartItems);
@@ -100,6 +133,11 @@ public class POSController {
             splitPaymentPanel.setManaged(isSplit);
         });
 
+        // Keep the product list current while the screen is cached
+        EventBus bus = EventBus.getInstance();
+        subscriptions.add(bus.subscribe(StockChangeEvent.class, this::onStockChanged));
+        subscriptions.add(bus.subscribe(EntityChangedEvent.class, this::onEntityChanged));
+
         // Load initial data
         loadProducts();
         loadCustomers();
@@ -205,7 +243,139 @@ public class POSController {
         });
     }
 
+    @Override
+    public void onShow() {
+        showing = true;
+        if (!productsLoaded && (productsTask == null || productsTask.isDone())) {
+            loadProducts(); // The last load was cancelled when the screen was left
+        } else {
+            applyPendingChanges();
+        }
+    }
+
+    @Override
+    public void onHide() {
+        showing = false;
+    }
+
+    @Override
+    public void onDispose() {
+        subscriptions.forEach(EventBus.Subscription::close);
+        subscriptions.clear();
+    }
+
+    /**
+     * Record new stock levels. Called on the thread that changed the stock.
+     */
+    private void onStockChanged(StockChangeEvent event) {
+        event.getStockLevels().forEach((variantId, level) -> pendingStock.put(variantId, level.getQuantityInStock()));
+        if (showing) {
+            Platform.runLater(this::applyPendingChanges);
+        }
+    }
+
+    private void onEntityChanged(EntityChangedEvent event) {
+        if (event.isAbout(Product.class) || event.isAbout(ProductVariant.class)) {
+            catalogChanged = true;
+            if (showing) {
+                Platform.runLater(this::applyPendingChanges);
+            }
+        }
+    }
+
+    /**
+     * Bring the product list up to date with the changes recorded since it was
+     * loaded: stock levels are set in place and sold-out variants dropped, and
+     * only the variants that came back into stock are read from the database.
+     */
+    private void applyPendingChanges() {
+        if (!showing || !productsLoaded) {
+            return;
+        }
+        if (catalogChanged) {
+            catalogChanged = false;
+            handleProductSearch(); // Reloads everything, or reruns the search
+            return;
+        }
+        if (pendingStock.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> changes = new HashMap<>();
+        for (Long variantId : pendingStock.keySet()) {
+            Integer quantity = pendingStock.remove(variantId);
+            if (quantity != null) {
+                changes.put(variantId, quantity);
+            }
+        }
+
+        Set<Long> listed = new HashSet<>();
+        Iterator<ProductVariant> iterator = productList.iterator();
+        while (iterator.hasNext()) {
+            ProductVariant variant = iterator.next();
+            Integer quantity = changes.get(variant.getVariantId());
+            if (quantity == null) {
+                continue;
+            }
+            listed.add(variant.getVariantId());
+            variant.setQuantityInStock(quantity);
+            if (quantity <= 0) {
+                iterator.remove();
+            }
+        }
+        productTable.refresh();
+
+        Set<Long> backInStock = new HashSet<>();
+        changes.forEach((variantId, quantity) -> {
+            if (quantity > 0 && !listed.contains(variantId)) {
+                backInStock.add(variantId);
+            }
+        });
+        if (backInStock.isEmpty()) {
+            return;
+        }
+        if (!productSearchField.getText().trim().isEmpty()) {
+            handleProductSearch(); // The search decides which of them to show
+            return;
+        }
+
+        Task<List<ProductVariant>> task = new Task<>() {
+            @Override
+            protected List<ProductVariant> call() {
+                return productService.getInStockVariantsByIds(backInStock);
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            Set<Long> present = new HashSet<>();
+            productList.forEach(variant -> present.add(variant.getVariantId()));
+            for (ProductVariant variant : task.getValue()) {
+                if (present.add(variant.getVariantId())) {
+                    productList.add(variant);
+                }
+            }
+            FXCollections.sort(productList, Comparator
+                .comparing((ProductVariant variant) -> variant.getProduct().getName(), String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(ProductVariant::getItemCode));
+            logger.debug("Added {} variants back in stock", task.getValue().size());
+        });
+
+        // Keep the changes for the next visit if the screen is left first
+        Runnable requeue = () -> backInStock.forEach(variantId -> pendingStock.putIfAbsent(variantId, changes.get(variantId)));
+        task.setOnCancelled(e -> requeue.run());
+        task.setOnFailed(e -> {
+            logger.error("Failed to load variants back in stock", task.getException());
+            requeue.run();
+        });
+
+        TaskExecutor.getInstance().submit(this, task);
+    }
+
     private void loadProducts() {
+        productsLoaded = false;
+        catalogChanged = false;
+        pendingStock.clear(); // The load reads the current levels
+
         Task<List<ProductVariant>> task = new Task<>() {
             @Override
             protected List<ProductVariant> call() {
@@ -216,7 +386,9 @@ public class POSController {
         task.setOnSucceeded(e -> {
             productList.clear();
             productList.addAll(task.getValue());
+            productsLoaded = true;
             logger.info("Loaded {} products with stock", productList.size());
+            applyPendingChanges(); // Stock that changed while loading
         });
 
         task.setOnFailed(e -> {
@@ -224,23 +396,97 @@ public class POSController {
             showError("Failed to load products", task.getException().getMessage());
         });
 
-        new Thread(task).start();
+        productsTask = task;
+        TaskExecutor.getInstance().submit(this, task);
     }
 
     private void loadCustomers() {
+        // Warm the lookup index in the background; the picker only ever holds the top matches
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() {
+                customerLookup.warmUp();
+                return null;
+            }
+        };
+
+        task.setOnFailed(e -> logger.error("Failed to load customer lookup index", task.getException()));
+
+        TaskExecutor.getInstance().submitDetached(task);
+    }
+
+    private void setupCustomerPicker() {
+        customerCombo.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(Customer customer) {
+                return customer == null ? "" : customer.getName() + " (" + customer.getPhoneNumber() + ")";
+            }
+
+            @Override
+            public Customer fromString(String text) {
+                return customerCombo.getItems().stream()
+                        .filter(customer -> toString(customer).equals(text))
+                        .findFirst()
+                        .orElse(null);
+            }
+        });
+
+        // Search as the cashier types, once typing pauses
+        customerCombo.getEditor().textProperty().addListener((obs, oldText, newText) -> {
+            Customer selected = customerCombo.getValue();
+            if (selected != null && customerCombo.getConverter().toString(selected).equals(newText)) {
+                return; // Text was set by picking a customer
+            }
+            customerSearchDelay.setOnFinished(e -> searchCustomers(newText));
+            customerSearchDelay.playFromStart();
+        });
+    }
+
+    private void searchCustomers(String text) {
+        String query = text == null ? "" : text.trim();
+        if (query.equals(lastCustomerQuery)) {
+            return;
+        }
+        lastCustomerQuery = query;
+
+        if (customerSearchTask != null) {
+            customerSearchTask.cancel();
+        }
+        if (query.isEmpty()) {
+            customerCombo.hide();
+            customerCombo.getItems().clear();
+            return;
+        }
+
         Task<List<Customer>> task = new Task<>() {
             @Override
             protected List<Customer> call() {
-                return customerService.getAllCustomers();
+                return customerLookup.search(query, CUSTOMER_MATCH_LIMIT);
             }
         };
 
         task.setOnSucceeded(e -> {
-            customerCombo.getItems().clear();
-            customerCombo.getItems().addAll(task.getValue());
+            if (task != customerSearchTask) {
+                return; // A newer search has started
+            }
+            // Replacing the items can clear the editor; keep what the cashier typed
+            String typed = customerCombo.getEditor().getText();
+            customerCombo.getItems().setAll(task.getValue());
+            if (!customerCombo.getEditor().getText().equals(typed)) {
+                customerCombo.getEditor().setText(typed);
+                customerCombo.getEditor().positionCaret(typed.length());
+            }
+            if (task.getValue().isEmpty()) {
+                customerCombo.hide();
+            } else if (customerCombo.getEditor().isFocused()) {
+                customerCombo.show();
+            }
         });
 
-        new Thread(task).start();
+        task.setOnFailed(e -> logger.error("Customer search failed", task.getException()));
+
+        customerSearchTask = task;
+        TaskExecutor.getInstance().submit(this, task);
     }
 
     @FXML
@@ -267,7 +513,7 @@ public class POSController {
             productList.addAll(results);
         });
 
-        new Thread(task).start();
+        TaskExecutor.getInstance().submit(this, task);
     }
 
     @FXML
@@ -421,7 +667,7 @@ public class POSController {
                 showError("Failed to add customer", saveTask.getException().getMessage());
             });
 
-            new Thread(saveTask).start();
+            TaskExecutor.getInstance().submitDetached(saveTask);
         });
     }
 
@@ -488,8 +734,9 @@ public class POSController {
             success.setTitle("Sale Complete");
             success.setHeaderText("Sale completed successfully!");
             success.setContentText(String.format(
-                "Receipt ID: %d\nTotal: Rs. %.2f\n\nThank you!",
-                completedSale.getSaleId(), completedSale.getTotalAmount()));
+                "Receipt ID: %d\nReceipt Code: %s\nTotal: Rs. %.2f\n\nThank you!",
+                completedSale.getSaleId(), ReceiptCode.format(completedSale.getSaleId()),
+                completedSale.getTotalAmount()));
             success.showAndWait();
 
             // Clear cart and reset form
@@ -507,18 +754,19 @@ public class POSController {
             error.showAndWait();
         });
 
-        new Thread(checkoutTask).start();
+        TaskExecutor.getInstance().submitDetached(checkoutTask);
     }
 
     private void resetPOS() {
         cartItems.clear();
         customerCombo.setValue(null);
+        customerCombo.getItems().clear();
         paymentTypeCombo.setValue("Cash");
         discountField.setText("0");
         cashAmountField.clear();
         cardAmountField.clear();
         updateTotals();
-        loadProducts(); // Reload to get updated stock
+        // The stock of the sold items was already updated from the sale event
     }
 
     private void updateTotals() {
@@ -553,18 +801,7 @@ public class POSController {
 
     @FXML
     private void handleBackToDashboard() {
-        if (!cartItems.isEmpty()) {
-            Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
-            confirmation.setTitle("Unsaved Changes");
-            confirmation.setHeaderText("Cart has items");
-            confirmation.setContentText("Are you sure you want to leave? Cart will be cleared.");
-
-            Optional<ButtonType> result = confirmation.showAndWait();
-            if (result.isEmpty() || result.get() != ButtonType.OK) {
-                return;
-            }
-        }
-
+        // The cart is kept until logout
         try {
             BatikPOSApplication.navigateTo("/fxml/MainDashboard.fxml", "Batik POS - Dashboard");
         } catch (Exception e) {
@@ -6,6 +6,7 @@ import com.chamathka.bathikpos.entity.ProductVariant;
 import com.chamathka.bathikpos.entity.Supplier;
 import com.chamathka.bathikpos.service.ProductService;
 import com.chamathka.bathikpos.service.SupplierService;
+import com.chamathka.bathikpos.util.TaskExecutor;
 import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXTextField;
 import javafx.application.Platform;
@@ -136,7 +137,7 @@ public class ProductManagementController {
             showError("Failed to load products", loadTask.getException().getMessage());
         });
 
-        new Thread(loadTask).start();
+        TaskExecutor.getInstance().submit(this, loadTask);
     }
 
     @FXML
@@ -161,7 +162,7 @@ public class ProductManagementController {
             statusLabel.setText(String.format("Found %d products matching '%s'", productList.size(), searchTerm));
         });
 
-        new Thread(searchTask).start();
+        TaskExecutor.getInstance().submit(this, searchTask);
     }
 
     @FXML
@@ -188,7 +189,7 @@ public class ProductManagementController {
                 showError("Failed to add product", saveTask.getException().getMessage());
             });
 
-            new Thread(saveTask).start();
+            TaskExecutor.getInstance().submitDetached(saveTask);
         });
     }
 
@@ -216,7 +217,7 @@ public class ProductManagementController {
                 showError("Failed to update product", updateTask.getException().getMessage());
             });
 
-            new Thread(updateTask).start();
+            TaskExecutor.getInstance().submitDetached(updateTask);
         });
     }
 
@@ -248,7 +249,7 @@ public class ProductManagementController {
                 showError("Failed to delete product", deleteTask.getException().getMessage());
             });
 
-            new Thread(deleteTask).start();
+            TaskExecutor.getInstance().submitDetached(deleteTask);
         }
     }
 
@@ -308,7 +309,7 @@ public class ProductManagementController {
                             variants.remove(variant);
                             showInfo("Success", "Variant deleted");
                         });
-                        new Thread(deleteTask).start();
+                        TaskExecutor.getInstance().submitDetached(deleteTask);
                     }
                 });
             }
@@ -331,7 +332,7 @@ public class ProductManagementController {
             }
         };
         loadVariantsTask.setOnSucceeded(e -> variants.addAll(loadVariantsTask.getValue()));
-        new Thread(loadVariantsTask).start();
+        TaskExecutor.getInstance().submit(this, loadVariantsTask);
 
         // Add variant button
         JFXButton addVariantBtn = new JFXButton("+ Add Variant");
@@ -350,7 +351,7 @@ public class ProductManagementController {
                     variants.add(saveTask.getValue());
                     showInfo("Success", "Variant added successfully");
                 });
-                new Thread(saveTask).start();
+                TaskExecutor.getInstance().submitDetached(saveTask);
             });
         });
 
@@ -392,7 +393,7 @@ public class ProductManagementController {
                 supplierCombo.setValue(product.getSupplier());
             }
         });
-        new Thread(loadSuppliersTask).start();
+        TaskExecutor.getInstance().submit(this, loadSuppliersTask);
 
         GridPane grid = new GridPane();
         grid.setHgap(10);
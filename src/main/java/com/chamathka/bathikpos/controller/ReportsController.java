@@ -1,9 +1,17 @@
 package com.chamathka.bathikpos.controller;
 
 import com.chamathka.bathikpos.BatikPOSApplication;
+import com.chamathka.bathikpos.entity.ProductVariant;
+import com.chamathka.bathikpos.service.ProductService;
+import com.chamathka.bathikpos.service.ReorderService;
+import com.chamathka.bathikpos.service.ReorderService.ReorderSettings;
+import com.chamathka.bathikpos.service.ReorderService.ReorderSuggestion;
 import com.chamathka.bathikpos.service.ReportService;
 import com.chamathka.bathikpos.service.ReportService.*;
+import com.chamathka.bathikpos.service.StockLedgerService;
+import com.chamathka.bathikpos.service.StockLedgerService.LedgerDiscrepancy;
 import com.chamathka.bathikpos.util.SessionManager;
+import com.chamathka.bathikpos.util.TaskExecutor;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -19,6 +27,7 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -38,13 +47,29 @@ public class ReportsController {
     @FXML private TableView<LowStockReportItem> lowStockTable;
     @FXML private Label lowStockCountLabel;
 
+    // Reorder Suggestions
+    @FXML private TableView<ReorderSuggestion> reorderTable;
+    @FXML private Label reorderStatusLabel;
+
+    // Stock Ledger
+    @FXML private Label ledgerStatusLabel;
+    @FXML private TextField ledgerSkuField;
+    @FXML private DatePicker ledgerAsOfDate;
+    @FXML private TextField adjustQuantityField;
+    @FXML private TextField adjustNoteField;
+    @FXML private Label ledgerResultLabel;
+    @FXML private TableView<LedgerDiscrepancy> ledgerDiscrepancyTable;
+
     // Sales Report
     @FXML private DatePicker salesStartDate;
     @FXML private DatePicker salesEndDate;
     @FXML private Label salesReportStatus;
+    @FXML private Button cancelSalesReportButton;
     @FXML private Label totalSalesLabel;
     @FXML private Label totalTransactionsLabel;
     @FXML private Label totalDiscountLabel;
+    @FXML private Label totalRefundsCaption;
+    @FXML private Label totalRefundsLabel;
     @FXML private Label avgTransactionLabel;
     @FXML private TableView<SalesUserSummary> salesByUserTable;
     @FXML private TableView<SalesCustomerSummary> salesByCustomerTable;
@@ -54,6 +79,7 @@ public class ReportsController {
     @FXML private DatePicker profitStartDate;
     @FXML private DatePicker profitEndDate;
     @FXML private Label profitReportStatus;
+    @FXML private Button cancelProfitReportButton;
     @FXML private Label totalRevenueLabel;
     @FXML private Label totalCostLabel;
     @FXML private Label totalProfitLabel;
@@ -64,10 +90,19 @@ public class ReportsController {
     @FXML private TableView<TopCustomerWithRank> topCustomersTable;
 
     private final ReportService reportService;
+    private final ReorderService reorderService;
+    private final StockLedgerService stockLedgerService;
+    private final ProductService productService;
     private final SessionManager sessionManager;
 
+    private Task<SalesReportSummary> salesReportTask;
+    private Task<ProfitReportSummary> profitReportTask;
+
     public ReportsController() {
         this.reportService = new ReportService();
+        this.reorderService = new ReorderService();
+        this.stockLedgerService = new StockLedgerService();
+        this.productService = new ProductService();
         this.sessionManager = SessionManager.getInstance();
     }
 
@@ -122,7 +157,220 @@ public class ReportsController {
             showError("Report Error", "Failed to load low stock report");
         });
 
-        new Thread(loadTask).start();
+        TaskExecutor.getInstance().submit(this, loadTask);
+    }
+
+    // ==================== REORDER SUGGESTIONS ====================
+
+    @FXML
+    private void handleCalculateReorder() {
+        reorderStatusLabel.setText("Calculating...");
+
+        Task<List<ReorderSuggestion>> task = new Task<>() {
+            @Override
+            protected List<ReorderSuggestion> call() {
+                return reorderService.getReorderSuggestions(new ReorderSettings());
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            List<ReorderSuggestion> suggestions = task.getValue();
+            reorderTable.setItems(FXCollections.observableArrayList(suggestions));
+            long toReview = suggestions.stream().filter(ReorderSuggestion::needsReview).count();
+            reorderStatusLabel.setText(String.format("%d variants need reordering, %d to review manually",
+                    suggestions.size() - toReview, toReview));
+            logger.info("Loaded {} reorder suggestions", suggestions.size());
+        });
+
+        task.setOnFailed(e -> {
+            logger.error("Failed to calculate reorder suggestions", task.getException());
+            reorderStatusLabel.setText("Calculation failed");
+            showError("Report Error", "Failed to calculate reorder suggestions");
+        });
+
+        TaskExecutor.getInstance().submit(this, task);
+    }
+
+    @FXML
+    private void handleCreateReorderGRNs() {
+        List<ReorderSuggestion> suggestions = reorderTable.getItems();
+        if (suggestions == null || suggestions.isEmpty()) {
+            showWarning("No Suggestions", "Please calculate reorder suggestions first");
+            return;
+        }
+
+        Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmation.setTitle("Create Pending GRNs");
+        confirmation.setHeaderText("Create pending GRNs from suggestions?");
+        long toReview = suggestions.stream().filter(ReorderSuggestion::needsReview).count();
+        confirmation.setContentText(String.format(
+                "%d items will be grouped into one pending GRN per supplier. "
+                        + "%d items flagged for review are left out; order them manually.",
+                suggestions.size() - toReview, toReview));
+
+        Optional<ButtonType> result = confirmation.showAndWait();
+        if (result.isEmpty() || result.get() != ButtonType.OK) {
+            return;
+        }
+
+        List<ReorderSuggestion> toOrder = List.copyOf(suggestions);
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() {
+                return reorderService.createPendingGRNs(toOrder).size();
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            showInfo("Pending GRNs Created",
+                    String.format("%d pending GRN(s) created. Review and confirm them in the GRN module.",
+                            task.getValue()));
+        });
+
+        task.setOnFailed(e -> {
+            logger.error("Failed to create pending GRNs", task.getException());
+            showError("GRN Error", "Failed to create pending GRNs: " + task.getException().getMessage());
+        });
+
+        TaskExecutor.getInstance().submitDetached(task);
+    }
+
+    // ==================== STOCK LEDGER ====================
+
+    @FXML
+    private void handleCheckLedger() {
+        ledgerStatusLabel.setText("Checking ledger...");
+
+        Task<List<LedgerDiscrepancy>> task = new Task<>() {
+            @Override
+            protected List<LedgerDiscrepancy> call() {
+                return stockLedgerService.checkConsistency();
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            List<LedgerDiscrepancy> discrepancies = task.getValue();
+            ledgerDiscrepancyTable.setItems(FXCollections.observableArrayList(discrepancies));
+            ledgerStatusLabel.setText(discrepancies.isEmpty()
+                    ? "Ledger matches stock for all variants"
+                    : String.format("%d variants differ from the ledger", discrepancies.size()));
+        });
+
+        task.setOnFailed(e -> {
+            logger.error("Failed to check stock ledger", task.getException());
+            ledgerStatusLabel.setText("Check failed");
+            showError("Ledger Error", "Failed to check stock ledger: " + task.getException().getMessage());
+        });
+
+        TaskExecutor.getInstance().submit(this, task);
+    }
+
+    @FXML
+    private void handleTakeStockSnapshot() {
+        ledgerStatusLabel.setText("Taking snapshot...");
+
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() {
+                sessionManager.requireAdmin();
+                stockLedgerService.recordOpeningBalances();
+                return stockLedgerService.createSnapshots();
+            }
+        };
+
+        task.setOnSucceeded(e ->
+                ledgerStatusLabel.setText(String.format("Snapshot taken for %d variants", task.getValue())));
+
+        task.setOnFailed(e -> {
+            logger.error("Failed to take stock snapshot", task.getException());
+            ledgerStatusLabel.setText("Snapshot failed");
+            showError("Ledger Error", "Failed to take stock snapshot: " + task.getException().getMessage());
+        });
+
+        TaskExecutor.getInstance().submitDetached(task);
+    }
+
+    @FXML
+    private void handleStockAsOf() {
+        String sku = ledgerSkuField.getText().trim();
+        LocalDate date = ledgerAsOfDate.getValue();
+        if (sku.isEmpty() || date == null) {
+            showWarning("Missing Input", "Please enter a SKU and select a date");
+            return;
+        }
+
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() {
+                ProductVariant variant = productService.findVariantByItemCode(sku);
+                if (variant == null) {
+                    throw new IllegalArgumentException("No variant with SKU " + sku);
+                }
+                return stockLedgerService.getStockAsOf(variant.getVariantId(), date.plusDays(1).atStartOfDay());
+            }
+        };
+
+        task.setOnSucceeded(e ->
+                ledgerResultLabel.setText(String.format("%s: %d in stock at end of %s", sku, task.getValue(), date)));
+
+        task.setOnFailed(e -> {
+            logger.error("Failed to get stock as of date", task.getException());
+            ledgerResultLabel.setText("");
+            showError("Ledger Error", task.getException().getMessage());
+        });
+
+        TaskExecutor.getInstance().submit(this, task);
+    }
+
+    @FXML
+    private void handleAdjustStock() {
+        String sku = ledgerSkuField.getText().trim();
+        String note = adjustNoteField.getText().trim();
+        int quantityChange;
+        try {
+            quantityChange = Integer.parseInt(adjustQuantityField.getText().trim());
+        } catch (NumberFormatException ex) {
+            showWarning("Invalid Quantity", "Please enter a whole number, negative to remove stock");
+            return;
+        }
+        if (sku.isEmpty() || note.isEmpty() || quantityChange == 0) {
+            showWarning("Missing Input", "Please enter a SKU, a non-zero quantity and a reason");
+            return;
+        }
+
+        Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmation.setTitle("Adjust Stock");
+        confirmation.setHeaderText(String.format("Adjust %s by %+d?", sku, quantityChange));
+        confirmation.setContentText("Reason: " + note);
+        Optional<ButtonType> result = confirmation.showAndWait();
+        if (result.isEmpty() || result.get() != ButtonType.OK) {
+            return;
+        }
+
+        Task<ProductVariant> task = new Task<>() {
+            @Override
+            protected ProductVariant call() {
+                ProductVariant variant = productService.findVariantByItemCode(sku);
+                if (variant == null) {
+                    throw new IllegalArgumentException("No variant with SKU " + sku);
+                }
+                return stockLedgerService.adjustStock(variant.getVariantId(), quantityChange, note);
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            ledgerResultLabel.setText(String.format("%s adjusted by %+d, new stock: %d",
+                    sku, quantityChange, task.getValue().getQuantityInStock()));
+            adjustQuantityField.clear();
+            adjustNoteField.clear();
+        });
+
+        task.setOnFailed(e -> {
+            logger.error("Failed to adjust stock", task.getException());
+            showError("Adjustment Failed", task.getException().getMessage());
+        });
+
+        TaskExecutor.getInstance().submitDetached(task);
     }
 
     // ==================== SALES REPORT ====================
@@ -142,12 +390,24 @@ public class ReportsController {
             return;
         }
 
+        if (salesReportTask != null) {
+            salesReportTask.cancel();
+        }
         salesReportStatus.setText("Generating report...");
 
+        // Computed month by month in parallel; partial results are shown as they arrive
         Task<SalesReportSummary> reportTask = new Task<>() {
             @Override
             protected SalesReportSummary call() {
-                return reportService.getSalesReport(startDate, endDate);
+                return reportService.getSalesReportPartitioned(startDate, endDate,
+                        (partial, completed, total) -> Platform.runLater(() -> {
+                            if (!isCancelled()) {
+                                displaySalesReport(partial);
+                                salesReportStatus.setText(String.format(
+                                        "Generating report... %d of %d months", completed, total));
+                            }
+                        }),
+                        this::isCancelled);
             }
         };
 
@@ -156,24 +416,43 @@ public class ReportsController {
             displaySalesReport(summary);
             salesReportStatus.setText(String.format("Report generated: %s to %s",
                     startDate, endDate));
+            cancelSalesReportButton.setDisable(true);
             logger.info("Generated sales report: {} transactions, total: {}",
                     summary.getTotalTransactions(), summary.getTotalSales());
         });
 
+        reportTask.setOnCancelled(e -> {
+            salesReportStatus.setText("Report generation cancelled");
+            cancelSalesReportButton.setDisable(true);
+            logger.info("Sales report generation cancelled");
+        });
+
         reportTask.setOnFailed(e -> {
             logger.error("Failed to generate sales report", reportTask.getException());
             salesReportStatus.setText("Report generation failed");
+            cancelSalesReportButton.setDisable(true);
             showError("Report Error", "Failed to generate sales report");
         });
 
-        new Thread(reportTask).start();
+        salesReportTask = reportTask;
+        cancelSalesReportButton.setDisable(false);
+        TaskExecutor.getInstance().submit(this, reportTask);
+    }
+
+    @FXML
+    private void handleCancelSalesReport() {
+        if (salesReportTask != null && salesReportTask.isRunning()) {
+            salesReportTask.cancel();
+        }
     }
 
     private void displaySalesReport(SalesReportSummary summary) {
         // Update summary cards
-        totalSalesLabel.setText(String.format("LKR %.2f", summary.getTotalSales()));
+        totalSalesLabel.setText(String.format("LKR %.2f", summary.getNetSales()));
         totalTransactionsLabel.setText(String.valueOf(summary.getTotalTransactions()));
         totalDiscountLabel.setText(String.format("LKR %.2f", summary.getTotalDiscount()));
+        totalRefundsCaption.setText(String.format("Refunds (%d returns)", summary.getTotalReturns()));
+        totalRefundsLabel.setText(String.format("LKR %.2f", summary.getTotalRefunds()));
 
         BigDecimal avgTransaction = summary.getTotalTransactions() > 0
                 ? summary.getTotalSales().divide(
@@ -215,12 +494,24 @@ public class ReportsController {
             return;
         }
 
+        if (profitReportTask != null) {
+            profitReportTask.cancel();
+        }
         profitReportStatus.setText("Generating report...");
 
+        // Computed month by month in parallel; partial results are shown as they arrive
         Task<ProfitReportSummary> reportTask = new Task<>() {
             @Override
             protected ProfitReportSummary call() {
-                return reportService.getProfitReport(startDate, endDate);
+                return reportService.getProfitReportPartitioned(startDate, endDate,
+                        (partial, completed, total) -> Platform.runLater(() -> {
+                            if (!isCancelled()) {
+                                displayProfitReport(partial);
+                                profitReportStatus.setText(String.format(
+                                        "Generating report... %d of %d months", completed, total));
+                            }
+                        }),
+                        this::isCancelled);
             }
         };
 
@@ -229,17 +520,34 @@ public class ReportsController {
             displayProfitReport(summary);
             profitReportStatus.setText(String.format("Report generated: %s to %s",
                     startDate, endDate));
+            cancelProfitReportButton.setDisable(true);
             logger.info("Generated profit report: Revenue: {}, Cost: {}, Profit: {}",
                     summary.getTotalRevenue(), summary.getTotalCost(), summary.getTotalProfit());
         });
 
+        reportTask.setOnCancelled(e -> {
+            profitReportStatus.setText("Report generation cancelled");
+            cancelProfitReportButton.setDisable(true);
+            logger.info("Profit report generation cancelled");
+        });
+
         reportTask.setOnFailed(e -> {
             logger.error("Failed to generate profit report", reportTask.getException());
             profitReportStatus.setText("Report generation failed");
+            cancelProfitReportButton.setDisable(true);
             showError("Report Error", "Failed to generate profit report");
         });
 
-        new Thread(reportTask).start();
+        profitReportTask = reportTask;
+        cancelProfitReportButton.setDisable(false);
+        TaskExecutor.getInstance().submit(this, reportTask);
+    }
+
+    @FXML
+    private void handleCancelProfitReport() {
+        if (profitReportTask != null && profitReportTask.isRunning()) {
+            profitReportTask.cancel();
+        }
     }
 
     private void displayProfitReport(ProfitReportSummary summary) {
@@ -293,7 +601,7 @@ public class ReportsController {
             showError("Report Error", "Failed to load top customers report");
         });
 
-        new Thread(loadTask).start();
+        TaskExecutor.getInstance().submit(this, loadTask);
     }
 
     // ==================== NAVIGATION ====================
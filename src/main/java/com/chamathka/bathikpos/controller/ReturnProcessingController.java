@@ -1,11 +1,14 @@
 package com.chamathka.bathikpos.controller;
 
 import com.chamathka.bathikpos.BatikPOSApplication;
-import com.chamathka.bathikpos.dao.SaleDAO;
+import com.chamathka.bathikpos.entity.Return;
+import com.chamathka.bathikpos.entity.ReturnItem;
 import com.chamathka.bathikpos.entity.Sale;
 import com.chamathka.bathikpos.entity.SaleItem;
 import com.chamathka.bathikpos.service.ReturnService;
+import com.chamathka.bathikpos.util.ReceiptCode;
 import com.chamathka.bathikpos.util.SessionManager;
+import com.chamathka.bathikpos.util.TaskExecutor;
 import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXTextField;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -51,15 +54,14 @@ public class ReturnProcessingController {
     @FXML private Label refundAmountLabel;
     @FXML private JFXButton processReturnButton;
 
-    private final SaleDAO saleDAO;
     private final ReturnService returnService;
     private final SessionManager sessionManager;
 
     private Sale currentSale;
+    private Map<Long, Integer> returnedQuantities = Collections.emptyMap();
     private final ObservableList<ReturnItemRow> returnItems;
 
     public ReturnProcessingController() {
-        this.saleDAO = new SaleDAO();
         this.returnService = new ReturnService();
         this.sessionManager = SessionManager.getInstance();
         this.returnItems = FXCollections.observableArrayList();
@@ -76,7 +78,7 @@ public class ReturnProcessingController {
 
         // Set up return quantity column with spinner
         TableColumn<ReturnItemRow, Integer> returnQtyColumn =
-                (TableColumn<ReturnItemRow, Integer>) saleItemsTable.getColumns().get(7);
+                (TableColumn<ReturnItemRow, Integer>) saleItemsTable.getColumns().get(8);
         returnQtyColumn.setCellFactory(col -> new ReturnQuantityCell());
 
         // Bind table to observable list
@@ -93,25 +95,29 @@ public class ReturnProcessingController {
         String receiptId = receiptIdField.getText().trim();
 
         if (receiptId.isEmpty()) {
-            showWarning("Invalid Input", "Please enter a sale ID");
+            showWarning("Invalid Input", "Please scan a receipt or enter a sale ID");
             return;
         }
 
-        // Validate that it's a number
-        Long saleId;
-        try {
-            saleId = Long.parseLong(receiptId);
-        } catch (NumberFormatException e) {
-            showWarning("Invalid Input", "Sale ID must be a number");
+        // Accept a scanned receipt code or a typed sale ID
+        Optional<Long> parsedId = ReceiptCode.parseSaleId(receiptId);
+        if (parsedId.isEmpty()) {
+            showWarning("Invalid Input", "Not a valid receipt code or sale ID: " + receiptId);
             return;
         }
+        Long saleId = parsedId.get();
 
         searchStatusLabel.setText("Searching...");
 
         Task<Optional<Sale>> searchTask = new Task<>() {
             @Override
             protected Optional<Sale> call() {
-                return saleDAO.findById(saleId);
+                // Sale, lines, variants, products and customer in one query
+                Optional<Sale> sale = returnService.findSaleByReceiptCode(receiptId);
+                if (sale.isPresent()) {
+                    returnedQuantities = returnService.getReturnedQuantities(saleId);
+                }
+                return sale;
             }
         };
 
@@ -136,7 +142,7 @@ public class ReturnProcessingController {
             showError("Search Error", "Failed to search for sale");
         });
 
-        new Thread(searchTask).start();
+        TaskExecutor.getInstance().submit(this, searchTask);
     }
 
     private void displaySaleDetails(Sale sale) {
@@ -147,7 +153,7 @@ public class ReturnProcessingController {
         returnItemsSection.setManaged(true);
 
         // Update sale details
-        saleReceiptIdLabel.setText(String.valueOf(sale.getSaleId()));
+        saleReceiptIdLabel.setText(String.format("%d (%s)", sale.getSaleId(), ReceiptCode.format(sale.getSaleId())));
         saleDateLabel.setText(sale.getSaleTimestamp().format(DATE_FORMATTER));
         customerLabel.setText(sale.getCustomer() != null
                 ? sale.getCustomer().getName()
@@ -157,7 +163,8 @@ public class ReturnProcessingController {
         // Populate items table
         returnItems.clear();
         for (SaleItem saleItem : sale.getItems()) {
-            returnItems.add(new ReturnItemRow(saleItem));
+            returnItems.add(new ReturnItemRow(saleItem,
+                    returnedQuantities.getOrDefault(saleItem.getSaleItemId(), 0)));
         }
 
         // Reset refund amount
@@ -197,10 +204,10 @@ public class ReturnProcessingController {
 
         // Validate quantities
         for (ReturnItemRow row : selectedItems) {
-            if (row.getReturnQuantity() > row.getQuantitySold()) {
+            if (row.getReturnQuantity() > row.getReturnableQuantity()) {
                 showWarning("Invalid Quantity",
-                        String.format("Return quantity for %s cannot exceed sold quantity (%d)",
-                                row.getProductName(), row.getQuantitySold()));
+                        String.format("Return quantity for %s cannot exceed the returnable quantity (%d of %d sold)",
+                                row.getProductName(), row.getReturnableQuantity(), row.getQuantitySold()));
                 return;
             }
         }
@@ -223,37 +230,32 @@ public class ReturnProcessingController {
 
         Optional<ButtonType> result = confirmation.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            processReturn(selectedItems, refundAmount);
+            processReturn(selectedItems);
         }
     }
 
-    private void processReturn(List<ReturnItemRow> selectedItems, BigDecimal refundAmount) {
-        Task<Void> returnTask = new Task<>() {
+    private void processReturn(List<ReturnItemRow> selectedItems) {
+        Task<Return> returnTask = new Task<>() {
             @Override
-            protected Void call() {
-                // Create list of SaleItems with return quantities
-                List<SaleItem> returnedItems = selectedItems.stream()
-                        .map(row -> {
-                            SaleItem returnItem = new SaleItem();
-                            returnItem.setVariant(row.getSaleItem().getVariant());
-                            returnItem.setQuantitySold(row.getReturnQuantity()); // Use return quantity
-                            return returnItem;
-                        })
+            protected Return call() {
+                // Create list of ReturnItems referencing the returned sale lines
+                List<ReturnItem> returnedItems = selectedItems.stream()
+                        .map(row -> new ReturnItem(row.getSaleItem(), row.getReturnQuantity()))
                         .collect(Collectors.toList());
 
                 // Process return using service (ATOMIC transaction)
-                returnService.processReturn(currentSale.getSaleId(), returnedItems);
-                return null;
+                return returnService.processReturn(currentSale.getSaleId(), returnedItems);
             }
         };
 
         returnTask.setOnSucceeded(e -> {
+            Return saleReturn = returnTask.getValue();
             showSuccess("Return Processed",
-                    String.format("Return processed successfully!\n\nRefund Amount: LKR %.2f\n\nStock has been restored.",
-                            refundAmount));
+                    String.format("Return #%d processed successfully!\n\nRefund Amount: LKR %.2f\n\nStock has been restored.",
+                            saleReturn.getReturnId(), saleReturn.getRefundAmount()));
 
-            logger.info("Return processed for sale: {}, Refund: {}",
-                    currentSale.getSaleId(), refundAmount);
+            logger.info("Return {} processed for sale: {}, Refund: {}",
+                    saleReturn.getReturnId(), currentSale.getSaleId(), saleReturn.getRefundAmount());
 
             // Clear the form
             receiptIdField.clear();
@@ -266,7 +268,7 @@ public class ReturnProcessingController {
             showError("Return Failed", "Failed to process return: " + returnTask.getException().getMessage());
         });
 
-        new Thread(returnTask).start();
+        TaskExecutor.getInstance().submitDetached(returnTask);
     }
 
     private void updateRefundAmount() {
@@ -391,7 +393,7 @@ public class ReturnProcessingController {
             } else {
                 ReturnItemRow row = getTableRow().getItem();
                 spinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(
-                        0, row.getQuantitySold(), row.getReturnQuantity()));
+                        0, row.getReturnableQuantity(), row.getReturnQuantity()));
                 setGraphic(spinner);
             }
         }
@@ -404,11 +406,13 @@ public class ReturnProcessingController {
      */
     public static class ReturnItemRow {
         private final SaleItem saleItem;
+        private final int alreadyReturned;
         private final SimpleBooleanProperty selected;
         private final SimpleIntegerProperty returnQuantity;
 
-        public ReturnItemRow(SaleItem saleItem) {
+        public ReturnItemRow(SaleItem saleItem, int alreadyReturned) {
             this.saleItem = saleItem;
+            this.alreadyReturned = alreadyReturned;
             this.selected = new SimpleBooleanProperty(false);
             this.returnQuantity = new SimpleIntegerProperty(0);
         }
@@ -462,6 +466,14 @@ public class ReturnProcessingController {
             return saleItem.getQuantitySold();
         }
 
+        public int getAlreadyReturned() {
+            return alreadyReturned;
+        }
+
+        public int getReturnableQuantity() {
+            return saleItem.getQuantitySold() - alreadyReturned;
+        }
+
         public BigDecimal getPriceAtSale() {
             return saleItem.getPriceAtSale();
         }
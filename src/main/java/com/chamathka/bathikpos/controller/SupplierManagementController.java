@@ -3,6 +3,7 @@ package com.chamathka.bathikpos.controller;
 import com.chamathka.bathikpos.BatikPOSApplication;
 import com.chamathka.bathikpos.entity.Supplier;
 import com.chamathka.bathikpos.service.SupplierService;
+import com.chamathka.bathikpos.util.TaskExecutor;
 import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXTextField;
 import javafx.application.Platform;
@@ -97,7 +98,7 @@ public class SupplierManagementController {
             showError("Failed to load suppliers", loadTask.getException().getMessage());
         });
 
-        new Thread(loadTask).start();
+        TaskExecutor.getInstance().submit(this, loadTask);
     }
 
     @FXML
@@ -127,7 +128,7 @@ public class SupplierManagementController {
             showError("Search failed", searchTask.getException().getMessage());
         });
 
-        new Thread(searchTask).start();
+        TaskExecutor.getInstance().submit(this, searchTask);
     }
 
     @FXML
@@ -156,7 +157,7 @@ public class SupplierManagementController {
                 showError("Failed to add supplier", saveTask.getException().getMessage());
             });
 
-            new Thread(saveTask).start();
+            TaskExecutor.getInstance().submitDetached(saveTask);
         });
     }
 
@@ -187,7 +188,7 @@ public class SupplierManagementController {
                 showError("Failed to update supplier", updateTask.getException().getMessage());
             });
 
-            new Thread(updateTask).start();
+            TaskExecutor.getInstance().submitDetached(updateTask);
         });
     }
 
@@ -220,7 +221,7 @@ public class SupplierManagementController {
                 showError("Failed to delete supplier", deleteTask.getException().getMessage());
             });
 
-            new Thread(deleteTask).start();
+            TaskExecutor.getInstance().submitDetached(deleteTask);
         }
     }
 
@@ -1,5 +1,6 @@
 package com.chamathka.bathikpos.dao;
 
+import com.chamathka.bathikpos.util.CancellationScope;
 import com.chamathka.bathikpos.util.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
@@ -142,4 +143,35 @@ public abstract class BaseDAO<T, ID> {
     protected Session getSession() {
         return HibernateUtil.getSessionFactory().openSession();
     }
+
+    /**
+     * Get a new read-only Hibernate session.
+     * Entities loaded through it are not dirty-checked, which keeps large
+     * report queries cheap. Use it for queries that never write.
+     * Inside a CancellationScope the session's queries can be cancelled.
+     * IMPORTANT: Remember to close the session after use.
+     * @return A new read-only Hibernate session
+     */
+    protected Session getReadOnlySession() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.setDefaultReadOnly(true);
+        CancellationScope.register(session);
+        return session;
+    }
+
+    /**
+     * Get a new read-only session on the reporting database (a replica, or a
+     * separate pool on the primary). Use it for reports, dashboards and searches
+     * so they never hold the connections checkout needs; results may lag the
+     * primary slightly, so never use it for reads that follow a write.
+     * Inside a CancellationScope the session's queries can be cancelled.
+     * IMPORTANT: Remember to close the session after use.
+     * @return A new read-only Hibernate session on the reporting database
+     */
+    protected Session getReportingSession() {
+        Session session = HibernateUtil.getReportingSessionFactory().openSession();
+        session.setDefaultReadOnly(true);
+        CancellationScope.register(session);
+        return session;
+    }
 }
@@ -0,0 +1,171 @@
+package com.chamathka.bathikpos.dao;
+
+import com.chamathka.bathikpos.entity.ChangeLog;
+import org.hibernate.Session;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DAO class for ChangeLog entity operations.
+ * Entries are written by the services inside their business transactions;
+ * the sync agent reads them here in sequence order, together with flat
+ * projections of the changed rows in the column order of ChangeBatch.Table.
+ */
+public class ChangeLogDAO extends BaseDAO<ChangeLog, Long> {
+
+    public ChangeLogDAO() {
+        super(ChangeLog.class);
+    }
+
+    /**
+     * Find the entries after a sequence number, in order.
+     * Only entries recorded before the cut-off are returned, so a transaction that
+     * took an earlier changeId but has not committed yet is never skipped.
+     * @param afterChangeId The last sequence number already shipped
+     * @param recordedBefore The cut-off time
+     * @param limit Maximum number of entries
+     * @return List of entries
+     */
+    public List<ChangeLog> findAfter(long afterChangeId, LocalDateTime recordedBefore, int limit) {
+        try (Session session = getReadOnlySession()) {
+            return session.createQuery(
+                    "FROM ChangeLog c WHERE c.changeId > :afterChangeId AND c.recordedAt < :recordedBefore " +
+                    "ORDER BY c.changeId", ChangeLog.class)
+                .setParameter("afterChangeId", afterChangeId)
+                .setParameter("recordedBefore", recordedBefore)
+                .setMaxResults(limit)
+                .list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding change log entries: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete shipped entries older than a cut-off.
+     * @param session The open session
+     * @param upToChangeId The last sequence number acknowledged by head office
+     * @param before The cut-off (exclusive)
+     * @return Number of rows deleted
+     */
+    public int deleteAcknowledged(Session session, long upToChangeId, LocalDateTime before) {
+        return session.createMutationQuery(
+                "DELETE FROM ChangeLog c WHERE c.changeId <= :upToChangeId AND c.recordedAt < :before")
+            .setParameter("upToChangeId", upToChangeId)
+            .setParameter("before", before)
+            .executeUpdate();
+    }
+
+    // ==================== ROW PROJECTIONS ====================
+
+    /**
+     * Project sales for replication.
+     * @param saleIds The sale IDs
+     * @return Rows of [saleId, saleTimestamp, totalAmount, discountAmount, paymentType, customerId, cashier]
+     */
+    public List<Object[]> findSaleRows(Collection<Long> saleIds) {
+        return project("SELECT s.saleId, s.saleTimestamp, s.totalAmount, s.discountAmount, s.paymentType, " +
+            "c.customerId, u.username FROM Sale s LEFT JOIN s.customer c LEFT JOIN s.user u " +
+            "WHERE s.saleId IN (:ids)", saleIds);
+    }
+
+    /**
+     * Project the lines of sales for replication.
+     * @param saleIds The sale IDs
+     * @return Rows of [saleItemId, saleId, itemCode, quantitySold, priceAtSale]
+     */
+    public List<Object[]> findSaleItemRows(Collection<Long> saleIds) {
+        return project("SELECT i.saleItemId, i.sale.saleId, v.itemCode, i.quantitySold, i.priceAtSale " +
+            "FROM SaleItem i JOIN i.variant v WHERE i.sale.saleId IN (:ids)", saleIds);
+    }
+
+    /**
+     * Project returns for replication.
+     * @param returnIds The return IDs
+     * @return Rows of [returnId, saleId, returnTimestamp, refundAmount]
+     */
+    public List<Object[]> findReturnRows(Collection<Long> returnIds) {
+        return project("SELECT r.returnId, r.sale.saleId, r.returnTimestamp, r.refundAmount " +
+            "FROM Return r WHERE r.returnId IN (:ids)", returnIds);
+    }
+
+    /**
+     * Project the lines of returns for replication.
+     * @param returnIds The return IDs
+     * @return Rows of [returnItemId, returnId, saleItemId, itemCode, quantityReturned, refundPrice]
+     */
+    public List<Object[]> findReturnItemRows(Collection<Long> returnIds) {
+        return project("SELECT i.returnItemId, i.saleReturn.returnId, i.saleItem.saleItemId, v.itemCode, " +
+            "i.quantityReturned, i.refundPrice FROM ReturnItem i JOIN i.variant v " +
+            "WHERE i.saleReturn.returnId IN (:ids)", returnIds);
+    }
+
+    /**
+     * Project GRNs for replication.
+     * @param grnIds The GRN IDs
+     * @return Rows of [grnId, supplierName, supplierInvoiceNo, grnTimestamp, totalCost]
+     */
+    public List<Object[]> findGRNRows(Collection<Long> grnIds) {
+        return project("SELECT g.grnId, s.supplierName, g.supplierInvoiceNo, g.grnTimestamp, g.totalCost " +
+            "FROM GRN g JOIN g.supplier s WHERE g.grnId IN (:ids)", grnIds);
+    }
+
+    /**
+     * Project the lines of GRNs for replication.
+     * @param grnIds The GRN IDs
+     * @return Rows of [grnItemId, grnId, itemCode, quantityReceived, costPrice]
+     */
+    public List<Object[]> findGRNItemRows(Collection<Long> grnIds) {
+        return project("SELECT i.grnItemId, i.grn.grnId, v.itemCode, i.quantityReceived, i.costPrice " +
+            "FROM GRNItem i JOIN i.variant v WHERE i.grn.grnId IN (:ids)", grnIds);
+    }
+
+    /**
+     * Project the ledger movements written by documents of one type.
+     * Uses idx_movement_reference.
+     * @param movementType StockMovement.TYPE_SALE, TYPE_RETURN or TYPE_GRN
+     * @param referenceIds The document IDs
+     * @return Rows of [movementId, itemCode, movementType, quantityChange, referenceId, movementTimestamp]
+     */
+    public List<Object[]> findMovementRowsByReference(String movementType, Collection<Long> referenceIds) {
+        if (referenceIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try (Session session = getReadOnlySession()) {
+            return session.createQuery(
+                    "SELECT m.movementId, v.itemCode, m.movementType, m.quantityChange, m.referenceId, " +
+                    "m.movementTimestamp FROM StockMovement m JOIN m.variant v " +
+                    "WHERE m.movementType = :movementType AND m.referenceId IN (:ids)", Object[].class)
+                .setParameter("movementType", movementType)
+                .setParameterList("ids", referenceIds)
+                .list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error projecting " + movementType + " movements: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Project ledger movements by ID (adjustments and opening balances).
+     * @param movementIds The movement IDs
+     * @return Rows of [movementId, itemCode, movementType, quantityChange, referenceId, movementTimestamp]
+     */
+    public List<Object[]> findMovementRows(Collection<Long> movementIds) {
+        return project("SELECT m.movementId, v.itemCode, m.movementType, m.quantityChange, m.referenceId, " +
+            "m.movementTimestamp FROM StockMovement m JOIN m.variant v WHERE m.movementId IN (:ids)", movementIds);
+    }
+
+    private List<Object[]> project(String hql, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try (Session session = getReadOnlySession()) {
+            return session.createQuery(hql, Object[].class)
+                .setParameterList("ids", ids)
+                .list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error projecting rows for replication: " + e.getMessage(), e);
+        }
+    }
+}
\ No newline at end of file
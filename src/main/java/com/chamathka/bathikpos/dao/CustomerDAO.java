@@ -4,14 +4,21 @@ import com.chamathka.bathikpos.entity.Customer;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * DAO class for Customer entity operations.
  */
 public class CustomerDAO extends BaseDAO<Customer, Long> {
 
+    // Properties that RFM cut points may be taken over (each has its own index)
+    private static final Set<String> RFM_PROPERTIES = Set.of("lastPurchaseTimestamp", "visitCount", "totalPurchases");
+
     public CustomerDAO() {
         super(Customer.class);
     }
@@ -38,7 +45,7 @@ public class CustomerDAO extends BaseDAO<Customer, Long> {
      * @return List of matching customers
      */
     public List<Customer> searchByName(String searchTerm) {
-        try (Session session = getSession()) {
+        try (Session session = getReportingSession()) {
             Query<Customer> query = session.createQuery(
                 "FROM Customer WHERE LOWER(name) LIKE LOWER(:term) ORDER BY name", Customer.class);
             query.setParameter("term", "%" + searchTerm + "%");
@@ -48,13 +55,46 @@ public class CustomerDAO extends BaseDAO<Customer, Long> {
         }
     }
 
+    /**
+     * Get the fields needed by the in-memory customer lookup index.
+     * Each row is [customerId, name, phoneNumber, visitCount].
+     * @return One row per customer
+     */
+    public List<Object[]> getLookupProjection() {
+        try (Session session = getReadOnlySession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT c.customerId, c.name, c.phoneNumber, c.visitCount FROM Customer c", Object[].class);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error loading customer lookup data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the lookup index fields of the customers added after a known ID,
+     * so the index can pick up customers registered on other tills.
+     * @param customerId Highest customer ID already indexed
+     * @return One row per newer customer, as in {@link #getLookupProjection()}
+     */
+    public List<Object[]> getLookupProjectionAfter(long customerId) {
+        try (Session session = getReadOnlySession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT c.customerId, c.name, c.phoneNumber, c.visitCount FROM Customer c " +
+                "WHERE c.customerId > :customerId", Object[].class);
+            query.setParameter("customerId", customerId);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error loading new customer lookup data: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get top customers by total purchases.
      * @param limit Maximum number of customers to return
      * @return List of top customers
      */
     public List<Customer> getTopCustomers(int limit) {
-        try (Session session = getSession()) {
+        try (Session session = getReportingSession()) {
             Query<Customer> query = session.createQuery(
                 "FROM Customer ORDER BY totalPurchases DESC", Customer.class);
             query.setMaxResults(limit);
@@ -63,4 +103,166 @@ public class CustomerDAO extends BaseDAO<Customer, Long> {
             throw new RuntimeException("Error getting top customers: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Get top customers by total purchases as a lightweight projection.
+     * Sorting and limiting happen in the database using idx_total_purchases,
+     * and the average purchase per visit is computed in SQL.
+     * Each row is [name, phoneNumber, visitCount, totalPurchases, avgPurchase].
+     * @param limit Maximum number of customers to return
+     * @return List of projected rows, highest total purchases first
+     */
+    public List<Object[]> getTopCustomerStats(int limit) {
+        try (Session session = getReportingSession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT c.name, c.phoneNumber, c.visitCount, c.totalPurchases, " +
+                "CASE WHEN c.visitCount > 0 THEN ROUND(c.totalPurchases / c.visitCount, 2) ELSE 0 END " +
+                "FROM Customer c WHERE c.totalPurchases > 0 " +
+                "ORDER BY c.totalPurchases DESC", Object[].class);
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting top customer stats: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Find customers in an RFM segment, biggest spenders first.
+     * Uses idx_customer_segment_purchases.
+     * @param segment The segment (one of the Customer.SEGMENT_ constants)
+     * @param limit Maximum number of customers to return
+     * @return List of customers in the segment
+     */
+    public List<Customer> findBySegment(String segment, int limit) {
+        try (Session session = getSession()) {
+            Query<Customer> query = session.createQuery(
+                "FROM Customer c WHERE c.segment = :segment ORDER BY c.totalPurchases DESC", Customer.class);
+            query.setParameter("segment", segment);
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding customers by segment: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Count customers per RFM segment in one GROUP BY.
+     * Each row is [segment, count]; customers not yet bucketed have a null segment.
+     * @return One row per segment
+     */
+    public List<Object[]> getSegmentCounts() {
+        try (Session session = getReportingSession()) {
+            return session.createQuery(
+                "SELECT c.segment, COUNT(c) FROM Customer c GROUP BY c.segment", Object[].class).list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error counting customers by segment: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the lowest and highest customer IDs, for splitting work into ID ranges.
+     * @return Array of [min ID, max ID] (both null if there are no customers)
+     */
+    public Object[] getCustomerIdRange() {
+        try (Session session = getSession()) {
+            return session.createQuery(
+                "SELECT MIN(c.customerId), MAX(c.customerId) FROM Customer c", Object[].class)
+                .uniqueResult();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting customer ID range: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the quantile cut points of an RFM input over customers who have purchased.
+     * Each cut point is read with one ORDER BY ... LIMIT 1 OFFSET n query on the
+     * property's index, so no customer rows are loaded.
+     * @param property One of lastPurchaseTimestamp, visitCount or totalPurchases
+     * @param buckets Number of buckets (5 for quintiles)
+     * @return The buckets - 1 ascending cut points (empty if nobody has purchased)
+     */
+    public List<Object> getQuantileCutPoints(String property, int buckets) {
+        if (!RFM_PROPERTIES.contains(property)) {
+            throw new IllegalArgumentException("Not an RFM property: " + property);
+        }
+        try (Session session = getReadOnlySession()) {
+            String where = "FROM Customer c WHERE c.visitCount > 0 AND c.lastPurchaseTimestamp IS NOT NULL";
+            long total = session.createQuery("SELECT COUNT(c) " + where, Long.class).uniqueResult();
+
+            List<Object> cutPoints = new ArrayList<>(buckets - 1);
+            if (total == 0) {
+                return cutPoints;
+            }
+            for (int k = 1; k < buckets; k++) {
+                cutPoints.add(session.createQuery(
+                        "SELECT c." + property + " " + where + " ORDER BY c." + property, Object.class)
+                    .setFirstResult((int) (total * k / buckets))
+                    .setMaxResults(1)
+                    .uniqueResult());
+            }
+            return cutPoints;
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting RFM cut points: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the RFM inputs and current scores of the customers in an ID range.
+     * Each row is [customerId, lastPurchaseTimestamp, visitCount, totalPurchases,
+     * recencyScore, frequencyScore, monetaryScore, segment].
+     * @param fromId First customer ID (inclusive)
+     * @param toId Last customer ID (inclusive)
+     * @return One row per customer in the range
+     */
+    public List<Object[]> getRfmInputs(long fromId, long toId) {
+        try (Session session = getReadOnlySession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT c.customerId, c.lastPurchaseTimestamp, c.visitCount, c.totalPurchases, " +
+                "c.recencyScore, c.frequencyScore, c.monetaryScore, c.segment " +
+                "FROM Customer c WHERE c.customerId BETWEEN :fromId AND :toId", Object[].class);
+            query.setParameter("fromId", fromId);
+            query.setParameter("toId", toId);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error loading RFM inputs: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Record a purchase against a customer in the caller's checkout transaction.
+     * A single UPDATE increments the counters in the database, so concurrent sales
+     * for the same customer cannot overwrite each other's totals.
+     * @param session The open session
+     * @param customerId The customer ID
+     * @param amount The sale total
+     * @param timestamp The sale time
+     * @return Number of rows updated (0 if the customer no longer exists)
+     */
+    public int recordPurchase(Session session, Long customerId, BigDecimal amount, LocalDateTime timestamp) {
+        return session.createMutationQuery(
+                "UPDATE Customer c SET c.visitCount = c.visitCount + 1, " +
+                "c.totalPurchases = c.totalPurchases + :amount, c.lastPurchaseTimestamp = :timestamp " +
+                "WHERE c.customerId = :customerId")
+            .setParameter("amount", amount)
+            .setParameter("timestamp", timestamp)
+            .setParameter("customerId", customerId)
+            .executeUpdate();
+    }
+
+    /**
+     * Take a refund off a customer's total purchases in the caller's return transaction,
+     * with the same single-UPDATE semantics as {@link #recordPurchase}. The total never goes below zero.
+     * @param session The open session
+     * @param customerId The customer ID
+     * @param amount The refund amount
+     * @return Number of rows updated (0 if the customer no longer exists)
+     */
+    public int deductPurchaseAmount(Session session, Long customerId, BigDecimal amount) {
+        return session.createMutationQuery(
+                "UPDATE Customer c SET c.totalPurchases = CASE WHEN c.totalPurchases > :amount " +
+                "THEN c.totalPurchases - :amount ELSE 0 END WHERE c.customerId = :customerId")
+            .setParameter("amount", amount)
+            .setParameter("customerId", customerId)
+            .executeUpdate();
+    }
 }
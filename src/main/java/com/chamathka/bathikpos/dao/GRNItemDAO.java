@@ -30,4 +30,22 @@ public class GRNItemDAO extends BaseDAO<GRNItem, Long> {
             throw new RuntimeException("Error finding GRN items: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Get the weighted average cost price per variant over all confirmed GRNs.
+     * Each row is [variantId, averageCostPrice].
+     * @return One row per variant that has been received
+     */
+    public List<Object[]> getAverageCostByVariant() {
+        try (Session session = getReportingSession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT gi.variant.variantId, " +
+                "SUM(gi.costPrice * gi.quantityReceived) / SUM(gi.quantityReceived) " +
+                "FROM GRNItem gi WHERE gi.grn.status = 'CONFIRMED' " +
+                "GROUP BY gi.variant.variantId", Object[].class);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting average cost by variant: " + e.getMessage(), e);
+        }
+    }
 }
@@ -0,0 +1,143 @@
+package com.chamathka.bathikpos.dao;
+
+import com.chamathka.bathikpos.entity.OutboxEvent;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DAO class for OutboxEvent entity operations.
+ * Entries are written by the services inside their business transactions;
+ * the dispatcher claims due entries here and records the outcome through the
+ * session-scoped update methods.
+ */
+public class OutboxDAO extends BaseDAO<OutboxEvent, Long> {
+
+    public OutboxDAO() {
+        super(OutboxEvent.class);
+    }
+
+    /**
+     * Claim up to a batch of due pending entries for one dispatcher, oldest first.
+     * Candidates are read with idx_outbox_due, then claimed with one conditional
+     * UPDATE that only takes entries no other dispatcher holds a live claim on,
+     * so two tills polling at once never process the same entry. Only the
+     * entries this claim won are returned.
+     * @param claimToken Unique token of this claim
+     * @param now The current time
+     * @param leaseUntil When the claim lapses if the outcome is never recorded
+     * @param limit Maximum number of entries
+     * @return The claimed entries
+     */
+    public List<OutboxEvent> claimDue(String claimToken, LocalDateTime now, LocalDateTime leaseUntil, int limit) {
+        Transaction transaction = null;
+        try (Session session = getSession()) {
+            transaction = session.beginTransaction();
+            List<Long> candidates = session.createQuery(
+                    "SELECT o.outboxId FROM OutboxEvent o WHERE o.status = :status AND o.nextAttemptAt <= :now " +
+                    "AND (o.claimedUntil IS NULL OR o.claimedUntil < :now) ORDER BY o.outboxId", Long.class)
+                .setParameter("status", OutboxEvent.STATUS_PENDING)
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .list();
+            if (candidates.isEmpty()) {
+                transaction.commit();
+                return Collections.emptyList();
+            }
+
+            session.createMutationQuery(
+                    "UPDATE OutboxEvent o SET o.claimedBy = :claimToken, o.claimedUntil = :leaseUntil " +
+                    "WHERE o.outboxId IN (:outboxIds) AND o.status = :status " +
+                    "AND (o.claimedUntil IS NULL OR o.claimedUntil < :now)")
+                .setParameter("claimToken", claimToken)
+                .setParameter("leaseUntil", leaseUntil)
+                .setParameterList("outboxIds", candidates)
+                .setParameter("status", OutboxEvent.STATUS_PENDING)
+                .setParameter("now", now)
+                .executeUpdate();
+            transaction.commit();
+
+            return session.createQuery(
+                    "FROM OutboxEvent o WHERE o.claimedBy = :claimToken ORDER BY o.outboxId", OutboxEvent.class)
+                .setParameter("claimToken", claimToken)
+                .setReadOnly(true)
+                .list();
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error claiming due outbox entries: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Count outbox entries per status.
+     * Each row is [status, count].
+     * @return One row per status
+     */
+    public List<Object[]> getStatusCounts() {
+        try (Session session = getReadOnlySession()) {
+            return session.createQuery(
+                "SELECT o.status, COUNT(o) FROM OutboxEvent o GROUP BY o.status", Object[].class).list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error counting outbox entries: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Mark entries as processed in one UPDATE, releasing their claim.
+     * @param session The open session
+     * @param outboxIds The entry IDs
+     * @param processedAt The processing time
+     * @return Number of rows updated
+     */
+    public int markDone(Session session, Collection<Long> outboxIds, LocalDateTime processedAt) {
+        return session.createMutationQuery(
+                "UPDATE OutboxEvent o SET o.status = :status, o.processedAt = :processedAt, o.lastError = NULL, " +
+                "o.claimedBy = NULL, o.claimedUntil = NULL WHERE o.outboxId IN (:outboxIds)")
+            .setParameter("status", OutboxEvent.STATUS_DONE)
+            .setParameter("processedAt", processedAt)
+            .setParameterList("outboxIds", outboxIds)
+            .executeUpdate();
+    }
+
+    /**
+     * Record a failed attempt, either rescheduling the entry or giving up on it, and release its claim.
+     * @param session The open session
+     * @param outboxId The entry ID
+     * @param status STATUS_PENDING to retry, STATUS_FAILED to give up
+     * @param nextAttemptAt When to retry
+     * @param error The failure message
+     * @return Number of rows updated
+     */
+    public int recordFailure(Session session, Long outboxId, String status, LocalDateTime nextAttemptAt, String error) {
+        return session.createMutationQuery(
+                "UPDATE OutboxEvent o SET o.attempts = o.attempts + 1, o.status = :status, " +
+                "o.nextAttemptAt = :nextAttemptAt, o.lastError = :error, o.claimedBy = NULL, o.claimedUntil = NULL " +
+                "WHERE o.outboxId = :outboxId")
+            .setParameter("status", status)
+            .setParameter("nextAttemptAt", nextAttemptAt)
+            .setParameter("error", error)
+            .setParameter("outboxId", outboxId)
+            .executeUpdate();
+    }
+
+    /**
+     * Delete processed entries older than a cut-off.
+     * @param session The open session
+     * @param before The cut-off (exclusive)
+     * @return Number of rows deleted
+     */
+    public int deleteDoneBefore(Session session, LocalDateTime before) {
+        return session.createMutationQuery(
+                "DELETE FROM OutboxEvent o WHERE o.status = :status AND o.processedAt < :before")
+            .setParameter("status", OutboxEvent.STATUS_DONE)
+            .setParameter("before", before)
+            .executeUpdate();
+    }
+}
\ No newline at end of file
@@ -51,7 +51,7 @@ public class ProductDAO extends BaseDAO<Product, Long> {
      * @return List of matching products
      */
     public List<Product> searchByName(String searchTerm) {
-        try (Session session = getSession()) {
+        try (Session session = getReportingSession()) {
             Query<Product> query = session.createQuery(
                 "FROM Product WHERE LOWER(name) LIKE LOWER(:term) ORDER BY name", Product.class);
             query.setParameter("term", "%" + searchTerm + "%");
@@ -4,7 +4,11 @@ import com.chamathka.bathikpos.entity.ProductVariant;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -49,12 +53,45 @@ public class ProductVariantDAO extends BaseDAO<ProductVariant, Long> {
         }
     }
 
+    /**
+     * Get a map of every item code (SKU) to its variant ID.
+     * Used to resolve bulk imports in memory instead of one query per line.
+     * @return Map of item code to variant ID
+     */
+    public Map<String, Long> getVariantIdsByItemCode() {
+        try (Session session = getSession()) {
+            List<Object[]> rows = session.createQuery(
+                "SELECT v.itemCode, v.variantId FROM ProductVariant v", Object[].class).list();
+            Map<String, Long> idsByCode = new HashMap<>(rows.size() * 2);
+            for (Object[] row : rows) {
+                idsByCode.put((String) row[0], (Long) row[1]);
+            }
+            return idsByCode;
+        } catch (Exception e) {
+            throw new RuntimeException("Error loading variant item codes: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the lowest and highest variant IDs, for splitting work into ID ranges.
+     * @return Array of [min ID, max ID] (both null if there are no variants)
+     */
+    public Object[] getVariantIdRange() {
+        try (Session session = getSession()) {
+            return session.createQuery(
+                "SELECT MIN(v.variantId), MAX(v.variantId) FROM ProductVariant v", Object[].class)
+                .uniqueResult();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting variant ID range: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get all variants with low stock (at or below threshold).
      * @return List of low stock variants
      */
     public List<ProductVariant> getLowStockVariants() {
-        try (Session session = getSession()) {
+        try (Session session = getReportingSession()) {
             Query<ProductVariant> query = session.createQuery(
                 "FROM ProductVariant v WHERE v.quantityInStock <= v.lowStockThreshold " +
                 "ORDER BY v.quantityInStock ASC", ProductVariant.class);
@@ -64,12 +101,28 @@ public class ProductVariantDAO extends BaseDAO<ProductVariant, Long> {
         }
     }
 
+    /**
+     * Get the IDs of all variants with low stock (at or below threshold).
+     * Lightweight alternative to {@link #getLowStockVariants()} when only the set is needed.
+     * @return List of low stock variant IDs
+     */
+    public List<Long> getLowStockVariantIds() {
+        try (Session session = getReportingSession()) {
+            Query<Long> query = session.createQuery(
+                "SELECT v.variantId FROM ProductVariant v WHERE v.quantityInStock <= v.lowStockThreshold",
+                Long.class);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting low stock variant IDs: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get all variants that are out of stock.
      * @return List of out-of-stock variants
      */
     public List<ProductVariant> getOutOfStockVariants() {
-        try (Session session = getSession()) {
+        try (Session session = getReportingSession()) {
             Query<ProductVariant> query = session.createQuery(
                 "FROM ProductVariant v WHERE v.quantityInStock = 0 ORDER BY v.itemCode",
                 ProductVariant.class);
@@ -85,7 +138,7 @@ public class ProductVariantDAO extends BaseDAO<ProductVariant, Long> {
      * @return List of matching variants
      */
     public List<ProductVariant> searchVariants(String searchTerm) {
-        try (Session session = getSession()) {
+        try (Session session = getReportingSession()) {
             Query<ProductVariant> query = session.createQuery(
                 "FROM ProductVariant v WHERE " +
                 "LOWER(v.itemCode) LIKE LOWER(:term) OR " +
@@ -112,4 +165,79 @@ public class ProductVariantDAO extends BaseDAO<ProductVariant, Long> {
             throw new RuntimeException("Error getting in-stock variants: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Get the variants among the given IDs that are in stock, with their product.
+     * Used to add items that came back into stock to a list already on screen.
+     * @param variantIds The variant IDs
+     * @return List of in-stock variants, ordered like getInStockVariants()
+     */
+    public List<ProductVariant> findInStockByIds(Collection<Long> variantIds) {
+        if (variantIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (Session session = getSession()) {
+            Query<ProductVariant> query = session.createQuery(
+                "FROM ProductVariant v JOIN FETCH v.product " +
+                "WHERE v.variantId IN (:ids) AND v.quantityInStock > 0 " +
+                "ORDER BY v.product.name, v.itemCode", ProductVariant.class);
+            query.setParameterList("ids", variantIds);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting in-stock variants by ID: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get a flat stock projection of every variant for bulk calculations.
+     * Each row is [variantId, itemCode, productName, size, color, quantityInStock,
+     * lowStockThreshold, supplierId, supplierName]; supplier columns may be null.
+     * @return One row per variant
+     */
+    public List<Object[]> getStockProjection() {
+        try (Session session = getReportingSession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT v.variantId, v.itemCode, p.name, v.attributeSize, v.attributeColor, " +
+                "v.quantityInStock, v.lowStockThreshold, s.supplierId, s.supplierName " +
+                "FROM ProductVariant v JOIN v.product p LEFT JOIN p.supplier s", Object[].class);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting stock projection: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Take stock off a variant in the caller's transaction.
+     * A single conditional UPDATE decrements the level in the database, so
+     * concurrent checkouts on any till can neither lose an update nor oversell.
+     * @param session The open session
+     * @param variantId The variant ID
+     * @param quantity Units to take off (positive)
+     * @return Number of rows updated (0 if the variant is gone or has fewer units in stock)
+     */
+    public int deductStock(Session session, Long variantId, int quantity) {
+        return session.createMutationQuery(
+                "UPDATE ProductVariant v SET v.quantityInStock = v.quantityInStock - :quantity " +
+                "WHERE v.variantId = :variantId AND v.quantityInStock >= :quantity")
+            .setParameter("quantity", quantity)
+            .setParameter("variantId", variantId)
+            .executeUpdate();
+    }
+
+    /**
+     * Put stock back on a variant in the caller's transaction, with the same
+     * single-UPDATE semantics as {@link #deductStock}.
+     * @param session The open session
+     * @param variantId The variant ID
+     * @param quantity Units to add (positive)
+     * @return Number of rows updated (0 if the variant no longer exists)
+     */
+    public int addStock(Session session, Long variantId, int quantity) {
+        return session.createMutationQuery(
+                "UPDATE ProductVariant v SET v.quantityInStock = v.quantityInStock + :quantity " +
+                "WHERE v.variantId = :variantId")
+            .setParameter("quantity", quantity)
+            .setParameter("variantId", variantId)
+            .executeUpdate();
+    }
 }
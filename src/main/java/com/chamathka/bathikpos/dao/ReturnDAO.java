@@ -0,0 +1,131 @@
+package com.chamathka.bathikpos.dao;
+
+import com.chamathka.bathikpos.entity.Return;
+import com.chamathka.bathikpos.entity.ReturnItem;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DAO class for Return entity operations.
+ */
+public class ReturnDAO extends BaseDAO<Return, Long> {
+
+    public ReturnDAO() {
+        super(Return.class);
+    }
+
+    /**
+     * Get the quantity already returned for each line of a sale.
+     * @param saleId The sale ID
+     * @return Map of sale item ID to total quantity returned (lines never returned are absent)
+     */
+    public Map<Long, Integer> getReturnedQuantities(Long saleId) {
+        try (Session session = getReadOnlySession()) {
+            return getReturnedQuantities(session, saleId);
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting returned quantities: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the quantity already returned for each line of a sale, using the caller's
+     * session so the check runs inside the return transaction.
+     * One GROUP BY over the returns of the sale (idx_return_sale).
+     * @param session The open session
+     * @param saleId The sale ID
+     * @return Map of sale item ID to total quantity returned (lines never returned are absent)
+     */
+    public Map<Long, Integer> getReturnedQuantities(Session session, Long saleId) {
+        List<Object[]> rows = session.createQuery(
+            "SELECT ri.saleItem.saleItemId, SUM(ri.quantityReturned) FROM ReturnItem ri " +
+            "WHERE ri.saleReturn.sale.saleId = :saleId GROUP BY ri.saleItem.saleItemId", Object[].class)
+            .setParameter("saleId", saleId)
+            .list();
+        Map<Long, Integer> returned = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            returned.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return returned;
+    }
+
+    /**
+     * Get the number of returns and their total refund amount for a date range.
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Array of [count (Long), total refund amount (BigDecimal), highest return ID (Long, null if none)]
+     */
+    public Object[] getReturnCountAndRefundTotal(LocalDateTime startDate, LocalDateTime endDate) {
+        try (Session session = getReportingSession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT COUNT(r), COALESCE(SUM(r.refundAmount), 0), MAX(r.returnId) FROM Return r " +
+                "WHERE r.returnTimestamp BETWEEN :start AND :end", Object[].class);
+            query.setParameter("start", startDate);
+            query.setParameter("end", endDate);
+            return query.uniqueResult();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting refund total: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Find the items of all returns within a date range, with their return,
+     * variant and product loaded, for netting returns out of the profit report.
+     * @param startDate Start date
+     * @param endDate End date
+     * @return List of return items, newest first
+     */
+    public List<ReturnItem> findItemsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        try (Session session = getReportingSession()) {
+            Query<ReturnItem> query = session.createQuery(
+                "SELECT ri FROM ReturnItem ri JOIN FETCH ri.saleReturn r " +
+                "JOIN FETCH ri.variant v JOIN FETCH v.product " +
+                "WHERE r.returnTimestamp BETWEEN :start AND :end ORDER BY r.returnTimestamp DESC",
+                ReturnItem.class);
+            query.setParameter("start", startDate);
+            query.setParameter("end", endDate);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding return items by date range: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the distinct customers of the sales behind a set of returns
+     * (returns against sales without a customer are skipped).
+     * @param returnIds The return IDs
+     * @return The customer IDs
+     */
+    public List<Long> findCustomerIds(Collection<Long> returnIds) {
+        try (Session session = getReadOnlySession()) {
+            return session.createQuery(
+                "SELECT DISTINCT r.sale.customer.customerId FROM Return r WHERE r.returnId IN (:returnIds)",
+                Long.class)
+                .setParameterList("returnIds", returnIds)
+                .list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding customers of returns: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Find all returns against a sale.
+     * @param saleId The sale ID
+     * @return List of returns, oldest first
+     */
+    public List<Return> findBySaleId(Long saleId) {
+        try (Session session = getSession()) {
+            Query<Return> query = session.createQuery(
+                "FROM Return r WHERE r.sale.saleId = :saleId ORDER BY r.returnTimestamp", Return.class);
+            query.setParameter("saleId", saleId);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding returns by sale: " + e.getMessage(), e);
+        }
+    }
+}
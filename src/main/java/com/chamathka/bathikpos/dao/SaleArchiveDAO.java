@@ -0,0 +1,64 @@
+package com.chamathka.bathikpos.dao;
+
+import com.chamathka.bathikpos.entity.Sale;
+import com.chamathka.bathikpos.entity.SaleArchive;
+import com.chamathka.bathikpos.util.SaleArchiveSegment;
+import org.hibernate.LockMode;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO class for SaleArchive entity operations.
+ * Each row is one archived month; the sales in it are read back as detached
+ * Sale objects so reports can combine them with live sales.
+ */
+public class SaleArchiveDAO extends BaseDAO<SaleArchive, LocalDate> {
+
+    public SaleArchiveDAO() {
+        super(SaleArchive.class);
+    }
+
+    /**
+     * Find archived sales within a date range.
+     * Only the archived months overlapping the range are read and decompressed.
+     * @param startDate Start date
+     * @param endDate End date
+     * @return List of archived sales in the date range, newest first
+     */
+    public List<Sale> findSalesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        try (Session session = getReportingSession()) {
+            Query<SaleArchive> query = session.createQuery(
+                "FROM SaleArchive a WHERE a.archiveMonth BETWEEN :firstMonth AND :lastMonth " +
+                "ORDER BY a.archiveMonth DESC", SaleArchive.class);
+            query.setParameter("firstMonth", startDate.toLocalDate().withDayOfMonth(1));
+            query.setParameter("lastMonth", endDate.toLocalDate().withDayOfMonth(1));
+
+            List<Sale> sales = new ArrayList<>();
+            for (SaleArchive archive : query.list()) {
+                List<Sale> monthSales = SaleArchiveSegment.decode(archive.getPayload())
+                    .getSalesBetween(startDate, endDate);
+                for (int i = monthSales.size() - 1; i >= 0; i--) {
+                    sales.add(monthSales.get(i));
+                }
+            }
+            return sales;
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding archived sales by date range: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Find an archived month and lock it for update.
+     * @param session The open session, in a transaction
+     * @param month First day of the month
+     * @return The archived month, or null if nothing was archived for it yet
+     */
+    public SaleArchive findForUpdate(Session session, LocalDate month) {
+        return session.get(SaleArchive.class, month, LockMode.PESSIMISTIC_WRITE);
+    }
+}
\ No newline at end of file
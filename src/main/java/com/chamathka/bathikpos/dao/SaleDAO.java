@@ -1,12 +1,15 @@
 package com.chamathka.bathikpos.dao;
 
+import com.chamathka.bathikpos.entity.ChangeLog;
 import com.chamathka.bathikpos.entity.Sale;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * DAO class for Sale entity operations.
@@ -17,6 +20,29 @@ public class SaleDAO extends BaseDAO<Sale, Long> {
         super(Sale.class);
     }
 
+    /**
+     * Find a sale with everything the returns desk and receipt reprint display:
+     * its user, customer, lines, variants and products, loaded in one query.
+     * @param saleId The sale ID
+     * @return Optional containing the fully loaded sale if found, empty otherwise
+     */
+    public Optional<Sale> findSaleWithLinesForReturn(Long saleId) {
+        try (Session session = getReadOnlySession()) {
+            Query<Sale> query = session.createQuery(
+                "SELECT DISTINCT s FROM Sale s " +
+                "JOIN FETCH s.user " +
+                "LEFT JOIN FETCH s.customer " +
+                "LEFT JOIN FETCH s.items i " +
+                "LEFT JOIN FETCH i.variant v " +
+                "LEFT JOIN FETCH v.product " +
+                "WHERE s.saleId = :saleId", Sale.class);
+            query.setParameter("saleId", saleId);
+            return query.uniqueResultOptional();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding sale with lines: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Find sales within a date range.
      * @param startDate Start date
@@ -24,7 +50,7 @@ public class SaleDAO extends BaseDAO<Sale, Long> {
      * @return List of sales in the date range
      */
     public List<Sale> findByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        try (Session session = getSession()) {
+        try (Session session = getReportingSession()) {
             Query<Sale> query = session.createQuery(
                 "FROM Sale WHERE saleTimestamp BETWEEN :start AND :end ORDER BY saleTimestamp DESC",
                 Sale.class);
@@ -36,6 +62,45 @@ public class SaleDAO extends BaseDAO<Sale, Long> {
         }
     }
 
+    /**
+     * Find sales within a date range that were saved after a given sale ID.
+     * Used to fetch only the new sales since a cached report's watermark.
+     * @param startDate Start date
+     * @param endDate End date
+     * @param afterSaleId Only sales with a greater ID are returned
+     * @return List of new sales in the date range
+     */
+    public List<Sale> findByDateRangeAfterId(LocalDateTime startDate, LocalDateTime endDate, long afterSaleId) {
+        try (Session session = getReportingSession()) {
+            Query<Sale> query = session.createQuery(
+                "FROM Sale WHERE saleId > :afterId AND saleTimestamp BETWEEN :start AND :end " +
+                "ORDER BY saleTimestamp DESC", Sale.class);
+            query.setParameter("afterId", afterSaleId);
+            query.setParameter("start", startDate);
+            query.setParameter("end", endDate);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding new sales by date range: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the stamps cached report results are checked against: the newest sale
+     * ID, the newest return ID and the number of confirmed GRNs. Two of the three
+     * are read from the primary key indexes, so this is cheap enough for every lookup.
+     * @return Array of [max sale ID, max return ID, confirmed GRN count] (the IDs are null if there are none)
+     */
+    public Object[] getReportDataVersions() {
+        try (Session session = getReportingSession()) {
+            return session.createQuery(
+                "SELECT MAX(s.saleId), (SELECT MAX(r.returnId) FROM Return r), " +
+                "(SELECT COUNT(g) FROM GRN g WHERE g.status = 'CONFIRMED') FROM Sale s", Object[].class)
+                .uniqueResult();
+        } catch (Exception e) {
+            throw new RuntimeException("Error reading report data versions: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Find sales by customer.
      * @param customerId The customer ID
@@ -53,6 +118,22 @@ public class SaleDAO extends BaseDAO<Sale, Long> {
         }
     }
 
+    /**
+     * Get the distinct customers of a set of sales (sales without a customer are skipped).
+     * @param saleIds The sale IDs
+     * @return The customer IDs
+     */
+    public List<Long> findCustomerIds(Collection<Long> saleIds) {
+        try (Session session = getReadOnlySession()) {
+            return session.createQuery(
+                "SELECT DISTINCT s.customer.customerId FROM Sale s WHERE s.saleId IN (:saleIds)", Long.class)
+                .setParameterList("saleIds", saleIds)
+                .list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding customers of sales: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Find sales by user (cashier).
      * @param userId The user ID
@@ -77,7 +158,7 @@ public class SaleDAO extends BaseDAO<Sale, Long> {
      * @return Total sales amount
      */
     public BigDecimal getTotalSalesAmount(LocalDateTime startDate, LocalDateTime endDate) {
-        try (Session session = getSession()) {
+        try (Session session = getReportingSession()) {
             Query<BigDecimal> query = session.createQuery(
                 "SELECT COALESCE(SUM(s.totalAmount), 0) FROM Sale s " +
                 "WHERE s.saleTimestamp BETWEEN :start AND :end", BigDecimal.class);
@@ -89,6 +170,26 @@ public class SaleDAO extends BaseDAO<Sale, Long> {
         }
     }
 
+    /**
+     * Get the number of sales, their total amount and the highest sale ID for a
+     * date range in one query.
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Array of [count (Long), total amount (BigDecimal), max sale ID (Long, null if none)]
+     */
+    public Object[] getSalesCountAndTotal(LocalDateTime startDate, LocalDateTime endDate) {
+        try (Session session = getReportingSession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT COUNT(s), COALESCE(SUM(s.totalAmount), 0), MAX(s.saleId) FROM Sale s " +
+                "WHERE s.saleTimestamp >= :start AND s.saleTimestamp < :end", Object[].class);
+            query.setParameter("start", startDate);
+            query.setParameter("end", endDate);
+            return query.uniqueResult();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting sales count and total: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get today's sales.
      * @return List of today's sales
@@ -98,4 +199,83 @@ public class SaleDAO extends BaseDAO<Sale, Long> {
         LocalDateTime endOfDay = startOfDay.plusDays(1);
         return findByDateRange(startOfDay, endOfDay);
     }
+    // ==================== ARCHIVING ====================
+
+    /**
+     * Get the time of the oldest sale before a cut-off.
+     * @param before The cut-off (exclusive)
+     * @return The oldest sale time, or null if there is none
+     */
+    public LocalDateTime findOldestSaleTimestampBefore(LocalDateTime before) {
+        try (Session session = getReadOnlySession()) {
+            return session.createQuery(
+                "SELECT MIN(s.saleTimestamp) FROM Sale s WHERE s.saleTimestamp < :before", LocalDateTime.class)
+                .setParameter("before", before)
+                .uniqueResult();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding oldest sale: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Project the sales in a time range that can be archived: those without a
+     * return against them and not waiting in the change log for head office.
+     * @param session The open session
+     * @param start Start of the range (inclusive)
+     * @param end End of the range (exclusive)
+     * @param shippedUpTo Last change-log sequence head office acknowledged; sales logged
+     *                    after it are held back. Long.MAX_VALUE when nothing is shipped
+     * @param limit Maximum number of sales
+     * @return Rows of [saleId, saleTimestamp, userId, username, customerId, customerName,
+     *         customerPhone, totalAmount, discountAmount, paymentType], in sale ID order
+     */
+    public List<Object[]> findArchivableSaleRows(Session session, LocalDateTime start, LocalDateTime end,
+                                                 long shippedUpTo, int limit) {
+        return session.createQuery(
+                "SELECT s.saleId, s.saleTimestamp, u.userId, u.username, c.customerId, c.name, c.phoneNumber, " +
+                "s.totalAmount, s.discountAmount, s.paymentType " +
+                "FROM Sale s JOIN s.user u LEFT JOIN s.customer c " +
+                "WHERE s.saleTimestamp >= :start AND s.saleTimestamp < :end " +
+                "AND NOT EXISTS (SELECT r.returnId FROM Return r WHERE r.sale = s) " +
+                "AND NOT EXISTS (SELECT l.changeId FROM ChangeLog l " +
+                "WHERE l.changeType = :saleType AND l.entityId = s.saleId AND l.changeId > :shippedUpTo) " +
+                "ORDER BY s.saleId", Object[].class)
+            .setParameter("start", start)
+            .setParameter("end", end)
+            .setParameter("saleType", ChangeLog.TYPE_SALE)
+            .setParameter("shippedUpTo", shippedUpTo)
+            .setMaxResults(limit)
+            .list();
+    }
+
+    /**
+     * Project the lines of sales for archiving.
+     * @param session The open session
+     * @param saleIds The sale IDs
+     * @return Rows of [saleItemId, saleId, variantId, itemCode, productName, attributeSize,
+     *         attributeColor, quantitySold, priceAtSale]
+     */
+    public List<Object[]> findArchivableItemRows(Session session, Collection<Long> saleIds) {
+        return session.createQuery(
+                "SELECT i.saleItemId, i.sale.saleId, v.variantId, v.itemCode, p.name, v.attributeSize, " +
+                "v.attributeColor, i.quantitySold, i.priceAtSale " +
+                "FROM SaleItem i JOIN i.variant v JOIN v.product p WHERE i.sale.saleId IN (:ids)", Object[].class)
+            .setParameterList("ids", saleIds)
+            .list();
+    }
+
+    /**
+     * Delete sales and their lines.
+     * @param session The open session
+     * @param saleIds The sale IDs
+     * @return Number of sales deleted
+     */
+    public int deleteSales(Session session, Collection<Long> saleIds) {
+        session.createMutationQuery("DELETE FROM SaleItem i WHERE i.sale.saleId IN (:ids)")
+            .setParameterList("ids", saleIds)
+            .executeUpdate();
+        return session.createMutationQuery("DELETE FROM Sale s WHERE s.saleId IN (:ids)")
+            .setParameterList("ids", saleIds)
+            .executeUpdate();
+    }
 }
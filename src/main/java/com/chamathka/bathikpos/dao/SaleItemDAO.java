@@ -4,6 +4,7 @@ import com.chamathka.bathikpos.entity.SaleItem;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -47,4 +48,27 @@ public class SaleItemDAO extends BaseDAO<SaleItem, Long> {
             throw new RuntimeException("Error finding sale items by variant: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Get units sold per variant over two trailing windows in one set-based query.
+     * Each row is [variantId, unitsSinceShort, unitsSinceLong].
+     * @param shortSince Start of the short window
+     * @param longSince Start of the long window (must be before shortSince)
+     * @return One row per variant sold since longSince
+     */
+    public List<Object[]> sumQuantitySoldByVariant(LocalDateTime shortSince, LocalDateTime longSince) {
+        try (Session session = getReportingSession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT si.variant.variantId, " +
+                "SUM(CASE WHEN si.sale.saleTimestamp >= :shortSince THEN si.quantitySold ELSE 0 END), " +
+                "SUM(si.quantitySold) " +
+                "FROM SaleItem si WHERE si.sale.saleTimestamp >= :longSince " +
+                "GROUP BY si.variant.variantId", Object[].class);
+            query.setParameter("shortSince", shortSince);
+            query.setParameter("longSince", longSince);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error summing quantity sold by variant: " + e.getMessage(), e);
+        }
+    }
 }
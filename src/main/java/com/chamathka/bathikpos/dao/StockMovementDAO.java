@@ -0,0 +1,123 @@
+package com.chamathka.bathikpos.dao;
+
+import com.chamathka.bathikpos.entity.StockMovement;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DAO class for StockMovement (stock ledger) entity operations.
+ * The ledger is append-only; movements are written by the services inside
+ * their own transactions, so this DAO only reads.
+ */
+public class StockMovementDAO extends BaseDAO<StockMovement, Long> {
+
+    public StockMovementDAO() {
+        super(StockMovement.class);
+    }
+
+    /**
+     * Find the ledger entries of a variant, newest first.
+     * @param variantId The variant ID
+     * @param limit Maximum number of entries
+     * @return List of movements
+     */
+    public List<StockMovement> findByVariantId(Long variantId, int limit) {
+        try (Session session = getReadOnlySession()) {
+            Query<StockMovement> query = session.createQuery(
+                "FROM StockMovement m WHERE m.variant.variantId = :variantId ORDER BY m.movementId DESC",
+                StockMovement.class);
+            query.setParameter("variantId", variantId);
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding stock movements: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the highest movement ID recorded before a point in time.
+     * @param before The cut-off timestamp (exclusive)
+     * @return The highest movement ID, or 0 if there is none
+     */
+    public long getMaxMovementIdBefore(LocalDateTime before) {
+        try (Session session = getReadOnlySession()) {
+            Query<Long> query = session.createQuery(
+                "SELECT COALESCE(MAX(m.movementId), 0) FROM StockMovement m WHERE m.movementTimestamp < :before",
+                Long.class);
+            query.setParameter("before", before);
+            return query.uniqueResult();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting max movement ID: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sum the stock changes per variant for a range of movement IDs.
+     * @param afterMovementId Lower bound (exclusive)
+     * @param upToMovementId Upper bound (inclusive)
+     * @return List of [variantId (Long), quantity change (Long)]
+     */
+    public List<Object[]> sumChangesByVariant(long afterMovementId, long upToMovementId) {
+        try (Session session = getReadOnlySession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT m.variant.variantId, SUM(m.quantityChange) FROM StockMovement m " +
+                "WHERE m.movementId > :afterId AND m.movementId <= :upToId " +
+                "GROUP BY m.variant.variantId", Object[].class);
+            query.setParameter("afterId", afterMovementId);
+            query.setParameter("upToId", upToMovementId);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error summing stock movements: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sum the stock changes of one variant after a movement ID up to a point in time.
+     * @param variantId The variant ID
+     * @param afterMovementId Lower bound (exclusive)
+     * @param upTo The timestamp up to which movements are included
+     * @return The net quantity change
+     */
+    public long sumChangesForVariant(Long variantId, long afterMovementId, LocalDateTime upTo) {
+        try (Session session = getReadOnlySession()) {
+            Query<Long> query = session.createQuery(
+                "SELECT COALESCE(SUM(m.quantityChange), 0) FROM StockMovement m " +
+                "WHERE m.variant.variantId = :variantId AND m.movementId > :afterId " +
+                "AND m.movementTimestamp <= :upTo", Long.class);
+            query.setParameter("variantId", variantId);
+            query.setParameter("afterId", afterMovementId);
+            query.setParameter("upTo", upTo);
+            return query.uniqueResult();
+        } catch (Exception e) {
+            throw new RuntimeException("Error summing variant stock movements: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compare the stored stock with the full ledger balance for a range of variant IDs.
+     * Runs as one statement, so both sides are read from the same consistent view.
+     * @param fromVariantId Lower bound (inclusive)
+     * @param toVariantId Upper bound (inclusive)
+     * @return List of [variantId, itemCode, productName, quantityInStock, ledgerBalance (Long)]
+     *         for variants where the two differ
+     */
+    public List<Object[]> findLedgerMismatches(long fromVariantId, long toVariantId) {
+        try (Session session = getReadOnlySession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT v.variantId, v.itemCode, v.product.name, v.quantityInStock, " +
+                "COALESCE((SELECT SUM(m.quantityChange) FROM StockMovement m WHERE m.variant = v), 0) " +
+                "FROM ProductVariant v WHERE v.variantId BETWEEN :fromId AND :toId " +
+                "AND v.quantityInStock <> " +
+                "COALESCE((SELECT SUM(m.quantityChange) FROM StockMovement m WHERE m.variant = v), 0) " +
+                "ORDER BY v.variantId", Object[].class);
+            query.setParameter("fromId", fromVariantId);
+            query.setParameter("toId", toVariantId);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error checking stock ledger: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.chamathka.bathikpos.dao;
+
+import com.chamathka.bathikpos.entity.StockSnapshot;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DAO class for StockSnapshot entity operations.
+ */
+public class StockSnapshotDAO extends BaseDAO<StockSnapshot, Long> {
+
+    public StockSnapshotDAO() {
+        super(StockSnapshot.class);
+    }
+
+    /**
+     * Get the highest ledger entry covered by any snapshot.
+     * Every snapshot run covers the ledger up to one cut-off, so this is the
+     * cut-off of the last run.
+     * @return The highest lastMovementId, or 0 if no snapshot exists
+     */
+    public long getLastSnapshotMovementId() {
+        try (Session session = getReadOnlySession()) {
+            Query<Long> query = session.createQuery(
+                "SELECT COALESCE(MAX(s.lastMovementId), 0) FROM StockSnapshot s", Long.class);
+            return query.uniqueResult();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting last snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the latest snapshot quantity of every variant that has one.
+     * @return List of [variantId (Long), quantityInStock (Integer)]
+     */
+    public List<Object[]> getLatestQuantities() {
+        try (Session session = getReadOnlySession()) {
+            Query<Object[]> query = session.createQuery(
+                "SELECT s.variant.variantId, s.quantityInStock FROM StockSnapshot s " +
+                "WHERE s.snapshotId IN (SELECT MAX(s2.snapshotId) FROM StockSnapshot s2 GROUP BY s2.variant)",
+                Object[].class);
+            return query.list();
+        } catch (Exception e) {
+            throw new RuntimeException("Error getting latest snapshots: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Find the latest snapshot of a variant taken at or before a point in time.
+     * @param variantId The variant ID
+     * @param at The point in time
+     * @return Optional containing the snapshot if found
+     */
+    public Optional<StockSnapshot> findLatestAtOrBefore(Long variantId, LocalDateTime at) {
+        try (Session session = getReadOnlySession()) {
+            Query<StockSnapshot> query = session.createQuery(
+                "FROM StockSnapshot s WHERE s.variant.variantId = :variantId " +
+                "AND s.snapshotTimestamp <= :at ORDER BY s.snapshotTimestamp DESC, s.snapshotId DESC",
+                StockSnapshot.class);
+            query.setParameter("variantId", variantId);
+            query.setParameter("at", at);
+            query.setMaxResults(1);
+            return query.uniqueResultOptional();
+        } catch (Exception e) {
+            throw new RuntimeException("Error finding stock snapshot: " + e.getMessage(), e);
+        }
+    }
+}
@@ -21,7 +21,7 @@ public class SupplierDAO extends BaseDAO<Supplier, Long> {
      * @return List of matching suppliers
      */
     public List<Supplier> searchByName(String searchTerm) {
-        try (Session session = getSession()) {
+        try (Session session = getReportingSession()) {
             Query<Supplier> query = session.createQuery(
                 "FROM Supplier WHERE LOWER(supplierName) LIKE LOWER(:term) ORDER BY supplierName",
                 Supplier.class);
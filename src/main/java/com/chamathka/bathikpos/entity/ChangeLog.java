@@ -0,0 +1,102 @@
+package com.chamathka.bathikpos.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entity class representing one entry in the branch change log.
+ * Checkout, returns, GRN confirmation and stock adjustments append an entry in
+ * their own transaction; the sync agent ships the entries to head office in
+ * changeId order, and changeId is the sequence head office acknowledges.
+ * Entries are never updated; acknowledged ones are purged after a while.
+ */
+@Entity
+@Table(name = "ChangeLog")
+public class ChangeLog {
+
+    public static final String TYPE_SALE = "SALE";
+    public static final String TYPE_RETURN = "RETURN";
+    public static final String TYPE_GRN = "GRN";
+    public static final String TYPE_STOCK_MOVEMENT = "STOCK_MOVEMENT"; // Adjustments; document movements ship with their document
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "changeId")
+    private Long changeId;
+
+    @Column(name = "changeType", nullable = false, length = 20)
+    private String changeType;
+
+    @Column(name = "entityId", nullable = false)
+    private Long entityId; // Sale ID, Return ID, GRN ID or movement ID depending on changeType
+
+    @Column(name = "recordedAt", nullable = false)
+    private LocalDateTime recordedAt;
+
+    // Constructors
+    public ChangeLog() {
+        this.recordedAt = LocalDateTime.now();
+    }
+
+    public ChangeLog(String changeType, Long entityId) {
+        this();
+        this.changeType = changeType;
+        this.entityId = entityId;
+    }
+
+    // Getters and Setters
+    public Long getChangeId() {
+        return changeId;
+    }
+
+    public void setChangeId(Long changeId) {
+        this.changeId = changeId;
+    }
+
+    public String getChangeType() {
+        return changeType;
+    }
+
+    public void setChangeType(String changeType) {
+        this.changeType = changeType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public LocalDateTime getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(LocalDateTime recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChangeLog that = (ChangeLog) o;
+        return Objects.equals(changeId, that.changeId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(changeId);
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeLog{" +
+                "changeId=" + changeId +
+                ", changeType='" + changeType + '\'' +
+                ", entityId=" + entityId +
+                '}';
+    }
+}
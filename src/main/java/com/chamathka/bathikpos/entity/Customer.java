@@ -2,18 +2,35 @@ package com.chamathka.bathikpos.entity;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
 
 /**
  * Entity class representing a Customer in the CRM system.
- * Tracks customer information and purchase history.
+ * Tracks customer information and purchase history, plus recency/frequency/monetary
+ * (RFM) quintile scores and the segment derived from them.
  */
 @Entity
 @Table(name = "Customer", indexes = {
-    @Index(name = "idx_phone", columnList = "phoneNumber")
+    @Index(name = "idx_total_purchases", columnList = "totalPurchases"),
+    @Index(name = "idx_customer_visits", columnList = "visitCount"),
+    @Index(name = "idx_customer_last_purchase", columnList = "lastPurchaseTimestamp"),
+    @Index(name = "idx_customer_segment_purchases", columnList = "segment, totalPurchases")
 })
 public class Customer {
 
+    public static final String SEGMENT_CHAMPION = "CHAMPION";
+    public static final String SEGMENT_LOYAL = "LOYAL";
+    public static final String SEGMENT_NEW = "NEW";
+    public static final String SEGMENT_PROMISING = "PROMISING";
+    public static final String SEGMENT_AT_RISK = "AT_RISK";
+    public static final String SEGMENT_LOST = "LOST";
+    public static final String SEGMENT_PROSPECT = "PROSPECT"; // No purchases yet
+
+    public static final List<String> SEGMENTS = List.of(SEGMENT_CHAMPION, SEGMENT_LOYAL, SEGMENT_NEW,
+            SEGMENT_PROMISING, SEGMENT_AT_RISK, SEGMENT_LOST, SEGMENT_PROSPECT);
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "customerId")
@@ -28,12 +45,30 @@ public class Customer {
     @Column(name = "email", length = 100)
     private String email;
 
-    @Column(name = "totalPurchases", nullable = false, precision = 10, scale = 2)
+    // The purchase history below is written only by checkout, returns and the
+    // segmentation job through bulk updates, so merging a customer edited on
+    // screen cannot put back an older value
+    @Column(name = "totalPurchases", nullable = false, precision = 10, scale = 2, updatable = false)
     private BigDecimal totalPurchases = BigDecimal.ZERO;
 
-    @Column(name = "visitCount", nullable = false)
+    @Column(name = "visitCount", nullable = false, updatable = false)
     private Integer visitCount = 0;
 
+    @Column(name = "lastPurchaseTimestamp", updatable = false)
+    private LocalDateTime lastPurchaseTimestamp;
+
+    @Column(name = "recencyScore", updatable = false)
+    private Integer recencyScore; // 1-5 quintile, null until the first purchase
+
+    @Column(name = "frequencyScore", updatable = false)
+    private Integer frequencyScore;
+
+    @Column(name = "monetaryScore", updatable = false)
+    private Integer monetaryScore;
+
+    @Column(name = "segment", length = 20, updatable = false)
+    private String segment = SEGMENT_PROSPECT;
+
     // Constructors
     public Customer() {
     }
@@ -95,7 +130,54 @@ public class Customer {
         this.visitCount = visitCount;
     }
 
+    public LocalDateTime getLastPurchaseTimestamp() {
+        return lastPurchaseTimestamp;
+    }
+
+    public void setLastPurchaseTimestamp(LocalDateTime lastPurchaseTimestamp) {
+        this.lastPurchaseTimestamp = lastPurchaseTimestamp;
+    }
+
+    public Integer getRecencyScore() {
+        return recencyScore;
+    }
+
+    public void setRecencyScore(Integer recencyScore) {
+        this.recencyScore = recencyScore;
+    }
+
+    public Integer getFrequencyScore() {
+        return frequencyScore;
+    }
+
+    public void setFrequencyScore(Integer frequencyScore) {
+        this.frequencyScore = frequencyScore;
+    }
+
+    public Integer getMonetaryScore() {
+        return monetaryScore;
+    }
+
+    public void setMonetaryScore(Integer monetaryScore) {
+        this.monetaryScore = monetaryScore;
+    }
+
+    public String getSegment() {
+        return segment;
+    }
+
+    public void setSegment(String segment) {
+        this.segment = segment;
+    }
+
     // Utility methods
+    public String getRfmCode() {
+        if (recencyScore == null || frequencyScore == null || monetaryScore == null) {
+            return "-";
+        }
+        return recencyScore + "-" + frequencyScore + "-" + monetaryScore;
+    }
+
     public void incrementVisitCount() {
         this.visitCount++;
     }
@@ -13,9 +13,9 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "GRN", indexes = {
-    @Index(name = "idx_supplier", columnList = "supplier_id"),
-    @Index(name = "idx_timestamp", columnList = "grnTimestamp"),
-    @Index(name = "idx_status", columnList = "status")
+    @Index(name = "idx_grn_supplier", columnList = "supplier_id"),
+    @Index(name = "idx_grn_timestamp", columnList = "grnTimestamp"),
+    @Index(name = "idx_grn_status_timestamp", columnList = "status, grnTimestamp")
 })
 public class GRN {
 
@@ -11,7 +11,7 @@ import java.util.Objects;
 @Entity
 @Table(name = "GRNItem", indexes = {
     @Index(name = "idx_grn", columnList = "grn_id"),
-    @Index(name = "idx_variant", columnList = "variant_id")
+    @Index(name = "idx_grnitem_variant", columnList = "variant_id")
 })
 public class GRNItem {
 
@@ -0,0 +1,187 @@
+package com.chamathka.bathikpos.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entity class representing one entry in the transactional outbox.
+ * Checkout and returns write an entry in their own transaction, so a committed
+ * business change always has its follow-up work recorded. The OutboxDispatcher
+ * picks entries up after commit and runs the non-critical consumers, retrying
+ * failures with a back-off. A dispatcher claims entries (claimedBy, claimedUntil)
+ * before running them, so only one till processes each entry.
+ */
+@Entity
+@Table(name = "OutboxEvent", indexes = {
+    @Index(name = "idx_outbox_due", columnList = "status, nextAttemptAt, outboxId")
+})
+public class OutboxEvent {
+
+    public static final String TYPE_SALE_COMPLETED = "SALE_COMPLETED";
+    public static final String TYPE_RETURN_PROCESSED = "RETURN_PROCESSED";
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED"; // Gave up after the maximum number of attempts
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "outboxId")
+    private Long outboxId;
+
+    @Column(name = "eventType", nullable = false, length = 30)
+    private String eventType;
+
+    @Column(name = "aggregateId", nullable = false)
+    private Long aggregateId; // Sale ID or Return ID depending on eventType
+
+    @Column(name = "status", nullable = false, length = 10)
+    private String status = STATUS_PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "createdAt", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "nextAttemptAt", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "processedAt")
+    private LocalDateTime processedAt;
+
+    @Column(name = "lastError", length = 500)
+    private String lastError;
+
+    @Column(name = "claimedBy", length = 36)
+    private String claimedBy; // Claim token of the dispatcher processing the entry
+
+    @Column(name = "claimedUntil")
+    private LocalDateTime claimedUntil; // End of the claim's lease
+
+    // Constructors
+    public OutboxEvent() {
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public OutboxEvent(String eventType, Long aggregateId) {
+        this();
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+    }
+
+    // Getters and Setters
+    public Long getOutboxId() {
+        return outboxId;
+    }
+
+    public void setOutboxId(Long outboxId) {
+        this.outboxId = outboxId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(Long aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    public LocalDateTime getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(LocalDateTime claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OutboxEvent that = (OutboxEvent) o;
+        return Objects.equals(outboxId, that.outboxId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(outboxId);
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "outboxId=" + outboxId +
+                ", eventType='" + eventType + '\'' +
+                ", aggregateId=" + aggregateId +
+                ", status='" + status + '\'' +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
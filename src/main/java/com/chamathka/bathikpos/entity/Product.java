@@ -12,7 +12,7 @@ import java.util.Objects;
 @Entity
 @Table(name = "Product", indexes = {
     @Index(name = "idx_category", columnList = "category"),
-    @Index(name = "idx_supplier", columnList = "supplier_id")
+    @Index(name = "idx_product_supplier", columnList = "supplier_id")
 })
 public class Product {
 
@@ -10,7 +10,6 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "ProductVariant", indexes = {
-    @Index(name = "idx_item_code", columnList = "itemCode"),
     @Index(name = "idx_product", columnList = "product_id"),
     @Index(name = "idx_stock", columnList = "quantityInStock")
 })
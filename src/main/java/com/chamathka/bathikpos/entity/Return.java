@@ -0,0 +1,138 @@
+package com.chamathka.bathikpos.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Entity class representing a Return (refund document against a Sale).
+ * Header table for the items returned in one return transaction.
+ * Stored as SaleReturn because RETURN is a reserved word in MySQL.
+ */
+@Entity
+@Table(name = "SaleReturn", indexes = {
+    @Index(name = "idx_return_sale", columnList = "sale_id"),
+    @Index(name = "idx_return_timestamp_refund", columnList = "returnTimestamp, refundAmount")
+})
+public class Return {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "returnId")
+    private Long returnId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sale_id", nullable = false, foreignKey = @ForeignKey(name = "fk_return_sale"))
+    private Sale sale;
+
+    @Column(name = "returnTimestamp", nullable = false)
+    private LocalDateTime returnTimestamp;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false, foreignKey = @ForeignKey(name = "fk_return_user"))
+    private User user;
+
+    @Column(name = "refundAmount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal refundAmount = BigDecimal.ZERO;
+
+    @OneToMany(mappedBy = "saleReturn", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    private List<ReturnItem> items = new ArrayList<>();
+
+    // Constructors
+    public Return() {
+        this.returnTimestamp = LocalDateTime.now();
+    }
+
+    public Return(Sale sale, User user) {
+        this.sale = sale;
+        this.user = user;
+        this.returnTimestamp = LocalDateTime.now();
+        this.refundAmount = BigDecimal.ZERO;
+    }
+
+    // Getters and Setters
+    public Long getReturnId() {
+        return returnId;
+    }
+
+    public void setReturnId(Long returnId) {
+        this.returnId = returnId;
+    }
+
+    public Sale getSale() {
+        return sale;
+    }
+
+    public void setSale(Sale sale) {
+        this.sale = sale;
+    }
+
+    public LocalDateTime getReturnTimestamp() {
+        return returnTimestamp;
+    }
+
+    public void setReturnTimestamp(LocalDateTime returnTimestamp) {
+        this.returnTimestamp = returnTimestamp;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public BigDecimal getRefundAmount() {
+        return refundAmount;
+    }
+
+    public void setRefundAmount(BigDecimal refundAmount) {
+        this.refundAmount = refundAmount;
+    }
+
+    public List<ReturnItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ReturnItem> items) {
+        this.items = items;
+    }
+
+    // Helper methods
+    public void addItem(ReturnItem item) {
+        items.add(item);
+        item.setSaleReturn(this);
+    }
+
+    public void recalculateRefundAmount() {
+        this.refundAmount = items.stream()
+                .map(ReturnItem::getLineTotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Return that = (Return) o;
+        return Objects.equals(returnId, that.returnId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(returnId);
+    }
+
+    @Override
+    public String toString() {
+        return "Return{" +
+                "returnId=" + returnId +
+                ", returnTimestamp=" + returnTimestamp +
+                ", refundAmount=" + refundAmount +
+                '}';
+    }
+}
@@ -0,0 +1,127 @@
+package com.chamathka.bathikpos.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Entity class representing a line item in a Return.
+ * Points back at the SaleItem it refunds, so the quantity already returned
+ * for a sale line can be summed before accepting another return.
+ */
+@Entity
+@Table(name = "ReturnItem", indexes = {
+    @Index(name = "idx_returnitem_return", columnList = "return_id"),
+    @Index(name = "idx_returnitem_saleitem", columnList = "sale_item_id"),
+    @Index(name = "idx_returnitem_variant", columnList = "variant_id")
+})
+public class ReturnItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "returnItemId")
+    private Long returnItemId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "return_id", nullable = false, foreignKey = @ForeignKey(name = "fk_returnitem_return"))
+    private Return saleReturn;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sale_item_id", nullable = false, foreignKey = @ForeignKey(name = "fk_returnitem_saleitem"))
+    private SaleItem saleItem;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "variant_id", nullable = false, foreignKey = @ForeignKey(name = "fk_returnitem_variant"))
+    private ProductVariant variant;
+
+    @Column(name = "quantityReturned", nullable = false)
+    private Integer quantityReturned;
+
+    @Column(name = "refundPrice", nullable = false, precision = 10, scale = 2)
+    private BigDecimal refundPrice; // The priceAtSale of the returned sale line
+
+    // Constructors
+    public ReturnItem() {
+    }
+
+    public ReturnItem(SaleItem saleItem, Integer quantityReturned) {
+        this.saleItem = saleItem;
+        this.quantityReturned = quantityReturned;
+    }
+
+    // Getters and Setters
+    public Long getReturnItemId() {
+        return returnItemId;
+    }
+
+    public void setReturnItemId(Long returnItemId) {
+        this.returnItemId = returnItemId;
+    }
+
+    public Return getSaleReturn() {
+        return saleReturn;
+    }
+
+    public void setSaleReturn(Return saleReturn) {
+        this.saleReturn = saleReturn;
+    }
+
+    public SaleItem getSaleItem() {
+        return saleItem;
+    }
+
+    public void setSaleItem(SaleItem saleItem) {
+        this.saleItem = saleItem;
+    }
+
+    public ProductVariant getVariant() {
+        return variant;
+    }
+
+    public void setVariant(ProductVariant variant) {
+        this.variant = variant;
+    }
+
+    public Integer getQuantityReturned() {
+        return quantityReturned;
+    }
+
+    public void setQuantityReturned(Integer quantityReturned) {
+        this.quantityReturned = quantityReturned;
+    }
+
+    public BigDecimal getRefundPrice() {
+        return refundPrice;
+    }
+
+    public void setRefundPrice(BigDecimal refundPrice) {
+        this.refundPrice = refundPrice;
+    }
+
+    // Utility method
+    public BigDecimal getLineTotal() {
+        return refundPrice.multiply(new BigDecimal(quantityReturned));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ReturnItem that = (ReturnItem) o;
+        return Objects.equals(returnItemId, that.returnItemId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(returnItemId);
+    }
+
+    @Override
+    public String toString() {
+        return "ReturnItem{" +
+                "returnItemId=" + returnItemId +
+                ", quantityReturned=" + quantityReturned +
+                ", refundPrice=" + refundPrice +
+                '}';
+    }
+}
@@ -13,7 +13,7 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "Sale", indexes = {
-    @Index(name = "idx_timestamp", columnList = "saleTimestamp"),
+    @Index(name = "idx_sale_timestamp_totals", columnList = "saleTimestamp, totalAmount"),
     @Index(name = "idx_user", columnList = "user_id"),
     @Index(name = "idx_customer", columnList = "customer_id")
 })
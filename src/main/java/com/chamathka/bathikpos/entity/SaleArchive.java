@@ -0,0 +1,118 @@
+package com.chamathka.bathikpos.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entity class representing one archived month of sales.
+ * The sales and their lines are stored as one compressed block in payload
+ * (see SaleArchiveSegment); the counts and total are kept as columns so the
+ * archive can be summarised without decompressing it.
+ */
+@Entity
+@Table(name = "SaleArchive")
+public class SaleArchive {
+
+    @Id
+    @Column(name = "archiveMonth")
+    private LocalDate archiveMonth; // First day of the month
+
+    @Column(name = "saleCount", nullable = false)
+    private Integer saleCount;
+
+    @Column(name = "itemCount", nullable = false)
+    private Integer itemCount;
+
+    @Column(name = "totalAmount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(name = "archivedAt", nullable = false)
+    private LocalDateTime archivedAt;
+
+    @Lob
+    @Column(name = "payload", nullable = false)
+    private byte[] payload;
+
+    // Constructors
+    public SaleArchive() {
+    }
+
+    public SaleArchive(LocalDate archiveMonth) {
+        this.archiveMonth = archiveMonth;
+    }
+
+    // Getters and Setters
+    public LocalDate getArchiveMonth() {
+        return archiveMonth;
+    }
+
+    public void setArchiveMonth(LocalDate archiveMonth) {
+        this.archiveMonth = archiveMonth;
+    }
+
+    public Integer getSaleCount() {
+        return saleCount;
+    }
+
+    public void setSaleCount(Integer saleCount) {
+        this.saleCount = saleCount;
+    }
+
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(LocalDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SaleArchive that = (SaleArchive) o;
+        return Objects.equals(archiveMonth, that.archiveMonth);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(archiveMonth);
+    }
+
+    @Override
+    public String toString() {
+        return "SaleArchive{" +
+                "archiveMonth=" + archiveMonth +
+                ", saleCount=" + saleCount +
+                ", itemCount=" + itemCount +
+                ", totalAmount=" + totalAmount +
+                '}';
+    }
+}
@@ -11,7 +11,7 @@ import java.util.Objects;
 @Entity
 @Table(name = "SaleItem", indexes = {
     @Index(name = "idx_sale", columnList = "sale_id"),
-    @Index(name = "idx_variant", columnList = "variant_id")
+    @Index(name = "idx_saleitem_variant", columnList = "variant_id")
 })
 public class SaleItem {
 
@@ -0,0 +1,156 @@
+package com.chamathka.bathikpos.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entity class representing one entry in the append-only stock ledger.
+ * Every change to a variant's quantityInStock is recorded here in the same
+ * transaction, so the stock level can be audited and reconstructed.
+ * Rows are never updated or deleted.
+ */
+@Entity
+@Table(name = "StockMovement", indexes = {
+    @Index(name = "idx_movement_variant", columnList = "variant_id, movementId"),
+    @Index(name = "idx_movement_timestamp", columnList = "movementTimestamp"),
+    @Index(name = "idx_movement_reference", columnList = "movementType, referenceId")
+})
+public class StockMovement {
+
+    public static final String TYPE_SALE = "SALE";
+    public static final String TYPE_RETURN = "RETURN";
+    public static final String TYPE_GRN = "GRN";
+    public static final String TYPE_ADJUSTMENT = "ADJUSTMENT";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "movementId")
+    private Long movementId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "variant_id", nullable = false, foreignKey = @ForeignKey(name = "fk_movement_variant"))
+    private ProductVariant variant;
+
+    @Column(name = "movementType", nullable = false, length = 20)
+    private String movementType; // "SALE", "RETURN", "GRN" or "ADJUSTMENT"
+
+    @Column(name = "quantityChange", nullable = false)
+    private Integer quantityChange; // Signed: negative for stock out
+
+    @Column(name = "referenceId")
+    private Long referenceId; // Sale ID, Return ID or GRN ID, null for adjustments
+
+    @Column(name = "note", length = 255)
+    private String note;
+
+    @Column(name = "movementTimestamp", nullable = false)
+    private LocalDateTime movementTimestamp;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", foreignKey = @ForeignKey(name = "fk_movement_user"))
+    private User user;
+
+    // Constructors
+    public StockMovement() {
+        this.movementTimestamp = LocalDateTime.now();
+    }
+
+    public StockMovement(ProductVariant variant, String movementType, Integer quantityChange,
+                         Long referenceId, User user) {
+        this.variant = variant;
+        this.movementType = movementType;
+        this.quantityChange = quantityChange;
+        this.referenceId = referenceId;
+        this.user = user;
+        this.movementTimestamp = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getMovementId() {
+        return movementId;
+    }
+
+    public void setMovementId(Long movementId) {
+        this.movementId = movementId;
+    }
+
+    public ProductVariant getVariant() {
+        return variant;
+    }
+
+    public void setVariant(ProductVariant variant) {
+        this.variant = variant;
+    }
+
+    public String getMovementType() {
+        return movementType;
+    }
+
+    public void setMovementType(String movementType) {
+        this.movementType = movementType;
+    }
+
+    public Integer getQuantityChange() {
+        return quantityChange;
+    }
+
+    public void setQuantityChange(Integer quantityChange) {
+        this.quantityChange = quantityChange;
+    }
+
+    public Long getReferenceId() {
+        return referenceId;
+    }
+
+    public void setReferenceId(Long referenceId) {
+        this.referenceId = referenceId;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    public LocalDateTime getMovementTimestamp() {
+        return movementTimestamp;
+    }
+
+    public void setMovementTimestamp(LocalDateTime movementTimestamp) {
+        this.movementTimestamp = movementTimestamp;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StockMovement that = (StockMovement) o;
+        return Objects.equals(movementId, that.movementId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(movementId);
+    }
+
+    @Override
+    public String toString() {
+        return "StockMovement{" +
+                "movementId=" + movementId +
+                ", movementType='" + movementType + '\'' +
+                ", quantityChange=" + quantityChange +
+                ", referenceId=" + referenceId +
+                '}';
+    }
+}
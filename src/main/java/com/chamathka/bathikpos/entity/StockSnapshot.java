@@ -0,0 +1,111 @@
+package com.chamathka.bathikpos.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entity class representing a periodic per-variant stock snapshot.
+ * A snapshot is the ledger balance of a variant up to and including
+ * lastMovementId, so stock as of any date is one snapshot plus the
+ * movements recorded after it.
+ */
+@Entity
+@Table(name = "StockSnapshot", indexes = {
+    @Index(name = "idx_snapshot_variant", columnList = "variant_id, snapshotTimestamp")
+})
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "snapshotId")
+    private Long snapshotId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "variant_id", nullable = false, foreignKey = @ForeignKey(name = "fk_snapshot_variant"))
+    private ProductVariant variant;
+
+    @Column(name = "snapshotTimestamp", nullable = false)
+    private LocalDateTime snapshotTimestamp;
+
+    @Column(name = "quantityInStock", nullable = false)
+    private Integer quantityInStock;
+
+    @Column(name = "lastMovementId", nullable = false)
+    private Long lastMovementId; // Highest ledger entry included in quantityInStock
+
+    // Constructors
+    public StockSnapshot() {
+    }
+
+    public StockSnapshot(ProductVariant variant, LocalDateTime snapshotTimestamp,
+                         Integer quantityInStock, Long lastMovementId) {
+        this.variant = variant;
+        this.snapshotTimestamp = snapshotTimestamp;
+        this.quantityInStock = quantityInStock;
+        this.lastMovementId = lastMovementId;
+    }
+
+    // Getters and Setters
+    public Long getSnapshotId() {
+        return snapshotId;
+    }
+
+    public void setSnapshotId(Long snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
+    public ProductVariant getVariant() {
+        return variant;
+    }
+
+    public void setVariant(ProductVariant variant) {
+        this.variant = variant;
+    }
+
+    public LocalDateTime getSnapshotTimestamp() {
+        return snapshotTimestamp;
+    }
+
+    public void setSnapshotTimestamp(LocalDateTime snapshotTimestamp) {
+        this.snapshotTimestamp = snapshotTimestamp;
+    }
+
+    public Integer getQuantityInStock() {
+        return quantityInStock;
+    }
+
+    public void setQuantityInStock(Integer quantityInStock) {
+        this.quantityInStock = quantityInStock;
+    }
+
+    public Long getLastMovementId() {
+        return lastMovementId;
+    }
+
+    public void setLastMovementId(Long lastMovementId) {
+        this.lastMovementId = lastMovementId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StockSnapshot that = (StockSnapshot) o;
+        return Objects.equals(snapshotId, that.snapshotId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(snapshotId);
+    }
+
+    @Override
+    public String toString() {
+        return "StockSnapshot{" +
+                "snapshotId=" + snapshotId +
+                ", quantityInStock=" + quantityInStock +
+                ", lastMovementId=" + lastMovementId +
+                '}';
+    }
+}
@@ -8,9 +8,7 @@ import java.util.Objects;
  * Stores login credentials and role information (ADMIN or CASHIER).
  */
 @Entity
-@Table(name = "User", indexes = {
-    @Index(name = "idx_username", columnList = "username")
-})
+@Table(name = "User")
 public class User {
 
     @Id
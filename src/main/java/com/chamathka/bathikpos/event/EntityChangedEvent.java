@@ -0,0 +1,35 @@
+package com.chamathka.bathikpos.event;
+
+/**
+ * Published after a CRUD operation on a master-data entity
+ * (Customer, Product, ProductVariant, Supplier) commits.
+ */
+public class EntityChangedEvent {
+
+    public enum ChangeType { CREATED, UPDATED, DELETED }
+
+    private final Object entity;
+    private final ChangeType changeType;
+
+    public EntityChangedEvent(Object entity, ChangeType changeType) {
+        this.entity = entity;
+        this.changeType = changeType;
+    }
+
+    public Object getEntity() { return entity; }
+    public ChangeType getChangeType() { return changeType; }
+
+    /**
+     * Check whether this event concerns an entity of the given type.
+     * @param type The entity class
+     * @return true if the entity is an instance of the type
+     */
+    public boolean isAbout(Class<?> type) {
+        return type.isInstance(entity);
+    }
+
+    @Override
+    public String toString() {
+        return "EntityChangedEvent{" + changeType + " " + entity + '}';
+    }
+}
\ No newline at end of file
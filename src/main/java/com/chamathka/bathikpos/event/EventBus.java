@@ -0,0 +1,84 @@
+package com.chamathka.bathikpos.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Singleton in-process event bus.
+ * Services publish domain events after their transactions commit; aggregators
+ * and screens subscribe to keep derived state current without polling the database.
+ *
+ * Events are delivered synchronously on the publishing thread, so subscribers
+ * must be quick and must hand UI work to the JavaFX thread themselves.
+ */
+public class EventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventBus.class);
+    private static EventBus instance;
+
+    private final Map<Class<?>, List<Consumer<Object>>> subscribers = new ConcurrentHashMap<>();
+
+    private EventBus() {
+        // Private constructor for singleton
+    }
+
+    /**
+     * Get the EventBus instance
+     * @return EventBus instance
+     */
+    public static synchronized EventBus getInstance() {
+        if (instance == null) {
+            instance = new EventBus();
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribe to events of a type (and its subtypes).
+     * @param eventType The event class
+     * @param handler The handler to call for each event
+     * @return A subscription that removes the handler when closed
+     */
+    public <E> Subscription subscribe(Class<E> eventType, Consumer<? super E> handler) {
+        Consumer<Object> wrapper = event -> handler.accept(eventType.cast(event));
+        List<Consumer<Object>> handlers =
+                subscribers.computeIfAbsent(eventType, type -> new CopyOnWriteArrayList<>());
+        handlers.add(wrapper);
+        return () -> handlers.remove(wrapper);
+    }
+
+    /**
+     * Publish an event to every subscriber of its type or any supertype.
+     * A failing subscriber is logged and does not affect the others or the publisher.
+     * @param event The event to publish
+     */
+    public void publish(Object event) {
+        for (Map.Entry<Class<?>, List<Consumer<Object>>> entry : subscribers.entrySet()) {
+            if (!entry.getKey().isInstance(event)) {
+                continue;
+            }
+            for (Consumer<Object> handler : entry.getValue()) {
+                try {
+                    handler.accept(event);
+                } catch (Exception e) {
+                    logger.error("Event subscriber failed for {}", event, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handle for removing a subscription.
+     */
+    @FunctionalInterface
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.chamathka.bathikpos.event;
+
+import java.util.Map;
+
+/**
+ * Published after a GRN confirmation transaction commits.
+ */
+public class GRNConfirmedEvent extends StockChangeEvent {
+
+    private final Long grnId;
+
+    public GRNConfirmedEvent(Long grnId, Map<Long, StockLevel> stockLevels) {
+        super(stockLevels);
+        this.grnId = grnId;
+    }
+
+    public Long getGrnId() { return grnId; }
+
+    @Override
+    public String toString() {
+        return "GRNConfirmedEvent{grnId=" + grnId + '}';
+    }
+}
\ No newline at end of file
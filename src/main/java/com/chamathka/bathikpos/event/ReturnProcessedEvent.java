@@ -0,0 +1,36 @@
+package com.chamathka.bathikpos.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Published after a return transaction commits.
+ */
+public class ReturnProcessedEvent extends StockChangeEvent {
+
+    private final Long saleId;
+    private final Long returnId;
+    private final LocalDateTime returnTimestamp;
+    private final BigDecimal refundAmount;
+
+    public ReturnProcessedEvent(Long saleId, Long returnId, LocalDateTime returnTimestamp,
+                                BigDecimal refundAmount, Map<Long, StockLevel> stockLevels) {
+        super(stockLevels);
+        this.saleId = saleId;
+        this.returnId = returnId;
+        this.returnTimestamp = returnTimestamp;
+        this.refundAmount = refundAmount;
+    }
+
+    public Long getSaleId() { return saleId; }
+    public Long getReturnId() { return returnId; }
+    public LocalDateTime getReturnTimestamp() { return returnTimestamp; }
+    public BigDecimal getRefundAmount() { return refundAmount; }
+
+    @Override
+    public String toString() {
+        return "ReturnProcessedEvent{saleId=" + saleId + ", returnId=" + returnId
+                + ", refundAmount=" + refundAmount + '}';
+    }
+}
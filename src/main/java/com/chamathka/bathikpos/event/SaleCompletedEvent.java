@@ -0,0 +1,32 @@
+package com.chamathka.bathikpos.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Published after a checkout transaction commits.
+ */
+public class SaleCompletedEvent extends StockChangeEvent {
+
+    private final Long saleId;
+    private final LocalDateTime saleTimestamp;
+    private final BigDecimal totalAmount;
+
+    public SaleCompletedEvent(Long saleId, LocalDateTime saleTimestamp, BigDecimal totalAmount,
+                              Map<Long, StockLevel> stockLevels) {
+        super(stockLevels);
+        this.saleId = saleId;
+        this.saleTimestamp = saleTimestamp;
+        this.totalAmount = totalAmount;
+    }
+
+    public Long getSaleId() { return saleId; }
+    public LocalDateTime getSaleTimestamp() { return saleTimestamp; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+
+    @Override
+    public String toString() {
+        return "SaleCompletedEvent{saleId=" + saleId + ", totalAmount=" + totalAmount + '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.chamathka.bathikpos.event;
+
+import java.util.Map;
+
+/**
+ * Published after a manual stock adjustment commits.
+ */
+public class StockAdjustedEvent extends StockChangeEvent {
+
+    private final Long variantId;
+    private final int quantityChange;
+
+    public StockAdjustedEvent(Long variantId, int quantityChange, Map<Long, StockLevel> stockLevels) {
+        super(stockLevels);
+        this.variantId = variantId;
+        this.quantityChange = quantityChange;
+    }
+
+    public Long getVariantId() { return variantId; }
+    public int getQuantityChange() { return quantityChange; }
+
+    @Override
+    public String toString() {
+        return "StockAdjustedEvent{variantId=" + variantId + ", quantityChange=" + quantityChange + '}';
+    }
+}
\ No newline at end of file
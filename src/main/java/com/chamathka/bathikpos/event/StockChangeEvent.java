@@ -0,0 +1,46 @@
+package com.chamathka.bathikpos.event;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Base class for events that change stock levels.
+ * Carries the stock level of every affected variant AFTER the change,
+ * so subscribers can update derived state without querying the database.
+ */
+public abstract class StockChangeEvent {
+
+    private final Map<Long, StockLevel> stockLevels;
+
+    protected StockChangeEvent(Map<Long, StockLevel> stockLevels) {
+        this.stockLevels = Collections.unmodifiableMap(stockLevels);
+    }
+
+    /**
+     * Get the new stock levels keyed by variant ID.
+     * @return Map of variant ID to stock level
+     */
+    public Map<Long, StockLevel> getStockLevels() {
+        return stockLevels;
+    }
+
+    /**
+     * Stock level of one variant after a change.
+     */
+    public static final class StockLevel {
+        private final int quantityInStock;
+        private final int lowStockThreshold;
+
+        public StockLevel(int quantityInStock, int lowStockThreshold) {
+            this.quantityInStock = quantityInStock;
+            this.lowStockThreshold = lowStockThreshold;
+        }
+
+        public int getQuantityInStock() { return quantityInStock; }
+        public int getLowStockThreshold() { return lowStockThreshold; }
+
+        public boolean isLowStock() {
+            return quantityInStock <= lowStockThreshold;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,393 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.dao.CustomerDAO;
+import com.chamathka.bathikpos.entity.Customer;
+import com.chamathka.bathikpos.event.EntityChangedEvent;
+import com.chamathka.bathikpos.event.EventBus;
+import com.chamathka.bathikpos.util.SessionManager;
+import com.chamathka.bathikpos.util.TaskExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Singleton in-memory index for customer type-ahead.
+ * Holds a normalized phone-number prefix index and a name token index over a
+ * lightweight projection of every customer, loaded with one query on first use
+ * and kept current from the customer change events, so the POS picker never
+ * loads the full customer list.
+ *
+ * Other tills' changes do not raise events here, so a search first reads the
+ * customers above the highest indexed customer ID (at most every
+ * DELTA_INTERVAL_MILLIS), which picks up customers registered elsewhere; edits
+ * and deletions made on other tills are picked up by a full reload in the
+ * background every FULL_RELOAD_MILLIS.
+ *
+ * Results are ranked by visit count, so regulars come first. Visit counts are
+ * refreshed when a customer is edited or the index is reloaded, not on every sale.
+ */
+public class CustomerLookupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerLookupService.class);
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final long DELTA_INTERVAL_MILLIS = 5_000;
+    private static final long FULL_RELOAD_MILLIS = 15 * 60_000;
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingInt((Entry e) -> e.visitCount).reversed()
+            .thenComparing(e -> e.name, String.CASE_INSENSITIVE_ORDER);
+
+    private static CustomerLookupService instance;
+
+    private final CustomerDAO customerDAO;
+    private final SessionManager sessionManager;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // State below is guarded by "lock"
+    private boolean loaded;
+    private final Map<Long, Entry> entriesById = new HashMap<>();
+    private final NavigableMap<String, Entry> phoneIndex = new TreeMap<>();
+    private final NavigableMap<String, Entry> nameTokenIndex = new TreeMap<>();
+
+    // Refresh bookkeeping, read without the lock; the high-water mark is only written under it
+    private volatile long highWaterId;
+    private volatile long lastDeltaCheck;
+    private volatile long lastFullLoad;
+    private volatile boolean reloading;
+
+    private CustomerLookupService() {
+        this.customerDAO = new CustomerDAO();
+        this.sessionManager = SessionManager.getInstance();
+        EventBus.getInstance().subscribe(EntityChangedEvent.class, this::onEntityChanged);
+    }
+
+    /**
+     * Get the CustomerLookupService instance
+     * @return CustomerLookupService instance
+     */
+    public static synchronized CustomerLookupService getInstance() {
+        if (instance == null) {
+            instance = new CustomerLookupService();
+        }
+        return instance;
+    }
+
+    /**
+     * Load the index if it has not been loaded yet.
+     * Call from a background thread to keep the first search instant.
+     */
+    public void warmUp() {
+        sessionManager.requireAuthentication();
+        ensureLoaded();
+    }
+
+    /**
+     * Find the best matching customers for type-ahead input.
+     * Input made of digits (and phone punctuation) matches phone number prefixes,
+     * with or without the +94 country code; anything else matches name words by
+     * prefix, every typed word having to match.
+     * @param query The typed text
+     * @param limit Maximum number of matches to return
+     * @return Matching customers, most frequent visitors first. The returned objects
+     *         are references holding only customerId, name and phoneNumber.
+     */
+    public List<Customer> search(String query, int limit) {
+        sessionManager.requireAuthentication();
+        if (query == null || query.isBlank() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        ensureLoaded();
+        refreshIfStale();
+
+        lock.readLock().lock();
+        try {
+            Collection<Entry> matches = isPhoneQuery(query)
+                    ? matchPhone(query)
+                    : matchName(tokenize(query));
+            return matches.stream()
+                    .sorted(RANKING)
+                    .limit(limit)
+                    .map(Entry::toCustomer)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== MATCHING ====================
+
+    private Collection<Entry> matchPhone(String query) {
+        String digits = normalizePhone(query);
+        Map<Long, Entry> matches = new HashMap<>();
+        collectPrefix(phoneIndex, digits, matches);
+        if (digits.startsWith("94")) {
+            // "+9477..." typed with the country code: also search the local "077..." form
+            collectPrefix(phoneIndex, "0" + digits.substring(2), matches);
+        }
+        return matches.values();
+    }
+
+    private Collection<Entry> matchName(List<String> queryTokens) {
+        if (queryTokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Scan the index for the most selective (longest) word, then check the rest per entry
+        String leading = Collections.max(queryTokens, Comparator.comparingInt(String::length));
+        Map<Long, Entry> candidates = new HashMap<>();
+        collectPrefix(nameTokenIndex, leading, candidates);
+
+        List<Entry> matches = new ArrayList<>();
+        for (Entry entry : candidates.values()) {
+            if (queryTokens.stream().allMatch(entry::hasTokenWithPrefix)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    private static void collectPrefix(NavigableMap<String, Entry> index, String prefix, Map<Long, Entry> into) {
+        if (prefix.isEmpty()) {
+            return;
+        }
+        for (Entry entry : index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            into.put(entry.customerId, entry);
+        }
+    }
+
+    // ==================== INDEX MAINTENANCE ====================
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            List<Object[]> rows = customerDAO.getLookupProjection();
+            putAll(rows);
+            loaded = true;
+            lastDeltaCheck = startTime;
+            lastFullLoad = startTime;
+            logger.info("Customer lookup index loaded: {} customers in {} ms",
+                    rows.size(), System.currentTimeMillis() - startTime);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Pick up other tills' changes: customers added since the last check, and
+     * a full reload in the background once the index is old.
+     */
+    private void refreshIfStale() {
+        long now = System.currentTimeMillis();
+        if (now - lastFullLoad > FULL_RELOAD_MILLIS && !reloading) {
+            reloading = true;
+            TaskExecutor.getInstance().execute(this::reload);
+        }
+        if (now - lastDeltaCheck < DELTA_INTERVAL_MILLIS) {
+            return;
+        }
+        lastDeltaCheck = now;
+
+        List<Object[]> rows = customerDAO.getLookupProjectionAfter(highWaterId);
+        if (rows.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            putAll(rows);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Customer lookup index picked up {} new customers", rows.size());
+    }
+
+    private void reload() {
+        try {
+            long startTime = System.currentTimeMillis();
+            List<Object[]> rows = customerDAO.getLookupProjection();
+            lock.writeLock().lock();
+            try {
+                entriesById.clear();
+                phoneIndex.clear();
+                nameTokenIndex.clear();
+                highWaterId = 0;
+                putAll(rows);
+                lastFullLoad = startTime;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.debug("Customer lookup index reloaded: {} customers in {} ms",
+                    rows.size(), System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            logger.error("Failed to reload customer lookup index", e);
+        } finally {
+            reloading = false;
+        }
+    }
+
+    /**
+     * Index projection rows, replacing existing entries. Must be called while holding the write lock.
+     */
+    private void putAll(List<Object[]> rows) {
+        long highest = highWaterId;
+        for (Object[] row : rows) {
+            Long customerId = (Long) row[0];
+            remove(customerId);
+            put(new Entry(customerId, (String) row[1], (String) row[2],
+                    row[3] != null ? ((Number) row[3]).intValue() : 0));
+            highest = Math.max(highest, customerId);
+        }
+        highWaterId = highest;
+    }
+
+    private void onEntityChanged(EntityChangedEvent event) {
+        if (!event.isAbout(Customer.class)) {
+            return;
+        }
+        Customer customer = (Customer) event.getEntity();
+
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                // The next load reads the committed change from the database
+                return;
+            }
+            remove(customer.getCustomerId());
+            if (event.getChangeType() != EntityChangedEvent.ChangeType.DELETED) {
+                put(new Entry(customer.getCustomerId(), customer.getName(), customer.getPhoneNumber(),
+                        customer.getVisitCount() != null ? customer.getVisitCount() : 0));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Entry entry) {
+        entriesById.put(entry.customerId, entry);
+        if (!entry.normalizedPhone.isEmpty()) {
+            phoneIndex.put(entry.normalizedPhone + KEY_SEPARATOR + entry.customerId, entry);
+        }
+        for (String token : entry.tokens) {
+            nameTokenIndex.put(token + KEY_SEPARATOR + entry.customerId, entry);
+        }
+    }
+
+    private void remove(Long customerId) {
+        Entry entry = entriesById.remove(customerId);
+        if (entry == null) {
+            return;
+        }
+        phoneIndex.remove(entry.normalizedPhone + KEY_SEPARATOR + customerId);
+        for (String token : entry.tokens) {
+            nameTokenIndex.remove(token + KEY_SEPARATOR + customerId);
+        }
+    }
+
+    // ==================== NORMALIZATION ====================
+
+    private static boolean isPhoneQuery(String query) {
+        boolean hasDigit = false;
+        for (char c : query.trim().toCharArray()) {
+            if (Character.isDigit(c)) {
+                hasDigit = true;
+            } else if (c != '+' && c != '-' && c != ' ' && c != '(' && c != ')') {
+                return false;
+            }
+        }
+        return hasDigit;
+    }
+
+    /**
+     * Reduce a phone number to digits, writing +94 numbers in the local 0 form.
+     */
+    static String normalizePhone(String phone) {
+        if (phone == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (char c : phone.toCharArray()) {
+            if (Character.isDigit(c)) {
+                digits.append(c);
+            }
+        }
+        if (digits.length() == 11 && digits.charAt(0) == '9' && digits.charAt(1) == '4') {
+            return "0" + digits.substring(2);
+        }
+        return digits.toString();
+    }
+
+    /**
+     * Split a name into lower-case words without accents.
+     */
+    static List<String> tokenize(String name) {
+        if (name == null) {
+            return Collections.emptyList();
+        }
+        String folded = Normalizer.normalize(name, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // ==================== DATA CLASSES ====================
+
+    /**
+     * Immutable index entry for one customer.
+     */
+    private static final class Entry {
+        private final Long customerId;
+        private final String name;
+        private final String phoneNumber;
+        private final String normalizedPhone;
+        private final List<String> tokens;
+        private final int visitCount;
+
+        private Entry(Long customerId, String name, String phoneNumber, int visitCount) {
+            this.customerId = customerId;
+            this.name = name != null ? name : "";
+            this.phoneNumber = phoneNumber;
+            this.normalizedPhone = normalizePhone(phoneNumber);
+            this.tokens = tokenize(name);
+            this.visitCount = visitCount;
+        }
+
+        private boolean hasTokenWithPrefix(String prefix) {
+            for (String token : tokens) {
+                if (token.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Customer toCustomer() {
+            Customer customer = new Customer();
+            customer.setCustomerId(customerId);
+            customer.setName(name);
+            customer.setPhoneNumber(phoneNumber);
+            return customer;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,462 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.dao.CustomerDAO;
+import com.chamathka.bathikpos.entity.Customer;
+import com.chamathka.bathikpos.util.HibernateUtil;
+import com.chamathka.bathikpos.util.SessionManager;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.query.MutationQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Service for recency/frequency/monetary (RFM) customer segmentation.
+ *
+ * The RFM inputs (last purchase, visit count, total purchases) are kept current
+ * by atomic UPDATEs in the checkout and return transactions; the outbox then
+ * re-scores the customer against the current quintile cut points via {@link #rescore}.
+ * A nightly job recomputes the cut points from the indexes and re-buckets every
+ * customer in parallel ID ranges, writing only the rows whose scores changed.
+ * No step scans the Sale table or holds more than one range in memory.
+ */
+public class CustomerSegmentationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSegmentationService.class);
+
+    private static final int BUCKETS = 5;
+    private static final LocalTime NIGHTLY_RUN_TIME = LocalTime.of(2, 0);
+    private static final long RANGE_SIZE = 5000;
+    // Range updates use at most half of the connection pool, leaving the rest to checkout
+    private static final int BUCKET_THREADS = Math.min(4, Math.max(1, HibernateUtil.getMaximumPoolSize() / 2));
+    private static final int UPDATE_BATCH_SIZE = 500;
+
+    // The rules of classify() over the stored scores, for re-scoring in an UPDATE
+    private static final String SEGMENT_EXPRESSION = "CASE " +
+        "WHEN c.recencyScore >= 4 AND c.frequencyScore >= 4 AND c.monetaryScore >= 4 THEN '" + Customer.SEGMENT_CHAMPION + "' " +
+        "WHEN c.recencyScore >= 3 AND c.frequencyScore >= 4 THEN '" + Customer.SEGMENT_LOYAL + "' " +
+        "WHEN c.recencyScore >= 4 AND c.frequencyScore <= 2 THEN '" + Customer.SEGMENT_NEW + "' " +
+        "WHEN c.recencyScore >= 3 THEN '" + Customer.SEGMENT_PROMISING + "' " +
+        "WHEN c.frequencyScore >= 3 OR c.monetaryScore >= 3 THEN '" + Customer.SEGMENT_AT_RISK + "' " +
+        "ELSE '" + Customer.SEGMENT_LOST + "' END";
+
+    private static final ExecutorService BUCKET_EXECUTOR = Executors.newFixedThreadPool(BUCKET_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "rfm-bucketing");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static ScheduledExecutorService segmentationScheduler;
+    private static volatile Thresholds thresholds;
+
+    private final CustomerDAO customerDAO;
+    private final SessionManager sessionManager;
+
+    public CustomerSegmentationService() {
+        this.customerDAO = new CustomerDAO();
+        this.sessionManager = SessionManager.getInstance();
+    }
+
+    /**
+     * Start the background segmentation job. Safe to call more than once.
+     * Shortly after startup the cut points are loaded (with a full re-bucketing if
+     * customers have purchased but were never scored); after that the customers are
+     * re-bucketed every night.
+     */
+    public static synchronized void startSegmentationScheduler() {
+        if (segmentationScheduler != null) {
+            return;
+        }
+        segmentationScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rfm-segmentation");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CustomerSegmentationService segmentationService = new CustomerSegmentationService();
+        segmentationScheduler.schedule(() -> {
+            try {
+                segmentationService.initialize();
+            } catch (Exception e) {
+                logger.error("RFM segmentation startup failed", e);
+            }
+        }, 1, TimeUnit.MINUTES);
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime nextRun = now.toLocalDate().atTime(NIGHTLY_RUN_TIME);
+        if (!nextRun.isAfter(now)) {
+            nextRun = nextRun.plusDays(1);
+        }
+        segmentationScheduler.scheduleAtFixedRate(() -> {
+            try {
+                segmentationService.rebucketAll();
+            } catch (Exception e) {
+                logger.error("Nightly RFM re-bucketing failed", e);
+            }
+        }, Duration.between(now, nextRun).toMinutes(), TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+
+        logger.info("RFM re-bucketing scheduled nightly at {}", NIGHTLY_RUN_TIME);
+    }
+
+    /**
+     * Stop the background segmentation job.
+     */
+    public static synchronized void stopSegmentationScheduler() {
+        if (segmentationScheduler != null) {
+            segmentationScheduler.shutdownNow();
+            segmentationScheduler = null;
+        }
+    }
+
+    /**
+     * Re-score a customer whose RFM inputs have just changed.
+     * The scores are computed in an UPDATE against the cut points of the last
+     * bucketing run, so the customer row is never read into memory. Until cut
+     * points are loaded the scores are left for the next run.
+     * @param session The open session
+     * @param customerId The customer to re-score
+     */
+    public static void rescore(Session session, Long customerId) {
+        Thresholds current = thresholds;
+        if (current == null) {
+            return;
+        }
+
+        MutationQuery scoreUpdate = session.createMutationQuery(
+            "UPDATE Customer c SET " +
+            "c.recencyScore = " + scoreExpression("c.lastPurchaseTimestamp", "r", current.recency.size()) + ", " +
+            "c.frequencyScore = " + scoreExpression("c.visitCount", "f", current.frequency.size()) + ", " +
+            "c.monetaryScore = " + scoreExpression("c.totalPurchases", "m", current.monetary.size()) + " " +
+            "WHERE c.customerId = :customerId AND c.visitCount > 0 AND c.lastPurchaseTimestamp IS NOT NULL");
+        bindCutPoints(scoreUpdate, "r", current.recency);
+        bindCutPoints(scoreUpdate, "f", current.frequency);
+        bindCutPoints(scoreUpdate, "m", current.monetary);
+        scoreUpdate.setParameter("customerId", customerId);
+        if (scoreUpdate.executeUpdate() == 0) {
+            return;
+        }
+
+        session.createMutationQuery("UPDATE Customer c SET c.segment = " + SEGMENT_EXPRESSION +
+                " WHERE c.customerId = :customerId")
+            .setParameter("customerId", customerId)
+            .executeUpdate();
+    }
+
+    /**
+     * Re-score customers in one transaction. Used by the outbox handlers after
+     * checkouts and returns; idempotent, so redelivery is harmless.
+     * @param customerIds The customers to re-score
+     */
+    public void rescoreCustomers(Collection<Long> customerIds) {
+        if (customerIds.isEmpty()) {
+            return;
+        }
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            for (Long customerId : customerIds) {
+                rescore(session, customerId);
+            }
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error re-scoring customers: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Map RFM scores to a segment. SEGMENT_EXPRESSION applies the same rules in HQL.
+     * @return One of the Customer.SEGMENT_ constants
+     */
+    public static String classify(int recency, int frequency, int monetary) {
+        if (recency >= 4 && frequency >= 4 && monetary >= 4) {
+            return Customer.SEGMENT_CHAMPION;
+        }
+        if (recency >= 3 && frequency >= 4) {
+            return Customer.SEGMENT_LOYAL;
+        }
+        if (recency >= 4 && frequency <= 2) {
+            return Customer.SEGMENT_NEW;
+        }
+        if (recency >= 3) {
+            return Customer.SEGMENT_PROMISING;
+        }
+        if (frequency >= 3 || monetary >= 3) {
+            return Customer.SEGMENT_AT_RISK;
+        }
+        return Customer.SEGMENT_LOST;
+    }
+
+    /**
+     * Get customers in a segment for the Customer screen.
+     * @param segment The segment
+     * @param limit Maximum number of customers
+     * @return Customers in the segment, biggest spenders first
+     */
+    public List<Customer> getCustomersInSegment(String segment, int limit) {
+        sessionManager.requireAuthentication();
+        return customerDAO.findBySegment(segment, limit);
+    }
+
+    /**
+     * Count customers per segment. Customers never bucketed count as prospects.
+     * @return Map of segment to customer count, in Customer.SEGMENTS order
+     */
+    public Map<String, Long> getSegmentCounts() {
+        sessionManager.requireAuthentication();
+        Map<String, Long> counts = new LinkedHashMap<>();
+        Customer.SEGMENTS.forEach(segment -> counts.put(segment, 0L));
+        for (Object[] row : customerDAO.getSegmentCounts()) {
+            String segment = row[0] != null ? (String) row[0] : Customer.SEGMENT_PROSPECT;
+            counts.merge(segment, (Long) row[1], Long::sum);
+        }
+        return counts;
+    }
+
+    // ==================== BUCKETING ====================
+
+    /**
+     * Load the cut points, running a full re-bucketing first if some customers
+     * have purchased but were never scored (first run after an upgrade).
+     */
+    public void initialize() {
+        if (countUnscoredPurchasers() > 0) {
+            rebucketAll();
+        } else {
+            thresholds = loadThresholds();
+            logger.info("RFM cut points loaded: {}", thresholds);
+        }
+    }
+
+    /**
+     * Recompute the quintile cut points and re-score every customer.
+     * The customer ID space is split into ranges that are processed in parallel,
+     * each reading one projection and batch-updating only the changed rows.
+     * An update is skipped if the customer's visit count or total changed since
+     * the range was read; the checkout that changed it has already re-scored it.
+     * @return Number of customers whose scores changed
+     */
+    public int rebucketAll() {
+        long startTime = System.currentTimeMillis();
+
+        backfillLastPurchase();
+        Thresholds current = loadThresholds();
+        thresholds = current;
+
+        Object[] range = customerDAO.getCustomerIdRange();
+        if (range == null || range[0] == null) {
+            return 0;
+        }
+        long minId = (Long) range[0];
+        long maxId = (Long) range[1];
+
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (long from = minId; from <= maxId; from += RANGE_SIZE) {
+            long lo = from;
+            long hi = Math.min(maxId, from + RANGE_SIZE - 1);
+            futures.add(BUCKET_EXECUTOR.submit(() -> rebucketRange(lo, hi, current)));
+        }
+
+        int changed = 0;
+        try {
+            for (Future<Integer> future : futures) {
+                changed += future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("RFM re-bucketing interrupted");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Error re-bucketing customers: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        logger.info("RFM re-bucketing: {} customers changed across {} ranges in {} ms ({})",
+            changed, futures.size(), System.currentTimeMillis() - startTime, current);
+        return changed;
+    }
+
+    private int rebucketRange(long fromId, long toId, Thresholds current) {
+        List<Object[]> rows = customerDAO.getRfmInputs(fromId, toId);
+        List<Object[]> updates = new ArrayList<>();
+
+        for (Object[] row : rows) {
+            LocalDateTime lastPurchase = (LocalDateTime) row[1];
+            int visits = ((Number) row[2]).intValue();
+            BigDecimal total = (BigDecimal) row[3];
+
+            Integer recency = null;
+            Integer frequency = null;
+            Integer monetary = null;
+            String segment = Customer.SEGMENT_PROSPECT;
+            if (visits > 0 && lastPurchase != null) {
+                recency = score(lastPurchase, current.recency);
+                frequency = score(visits, current.frequency);
+                monetary = score(total, current.monetary);
+                segment = classify(recency, frequency, monetary);
+            }
+
+            if (!Objects.equals(recency, row[4]) || !Objects.equals(frequency, row[5])
+                    || !Objects.equals(monetary, row[6]) || !segment.equals(row[7])) {
+                updates.add(new Object[]{row[0], visits, total, recency, frequency, monetary, segment});
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            writeScores(updates);
+        }
+        return updates.size();
+    }
+
+    private void writeScores(List<Object[]> updates) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            session.doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "UPDATE Customer SET recencyScore = ?, frequencyScore = ?, monetaryScore = ?, segment = ? " +
+                        "WHERE customerId = ? AND visitCount = ? AND totalPurchases = ?")) {
+                    int pending = 0;
+                    for (Object[] update : updates) {
+                        statement.setObject(1, update[3]);
+                        statement.setObject(2, update[4]);
+                        statement.setObject(3, update[5]);
+                        statement.setString(4, (String) update[6]);
+                        statement.setLong(5, (Long) update[0]);
+                        statement.setInt(6, (Integer) update[1]);
+                        statement.setBigDecimal(7, (BigDecimal) update[2]);
+                        statement.addBatch();
+                        if (++pending == UPDATE_BATCH_SIZE) {
+                            statement.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) {
+                        statement.executeBatch();
+                    }
+                }
+            });
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error writing RFM scores: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fill in lastPurchaseTimestamp for customers who purchased before it was tracked.
+     * Runs as a single UPDATE using the Sale customer index; a no-op once filled.
+     */
+    private void backfillLastPurchase() {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            int updated = session.createMutationQuery(
+                    "UPDATE Customer c SET c.lastPurchaseTimestamp = " +
+                    "(SELECT MAX(s.saleTimestamp) FROM Sale s WHERE s.customer = c) " +
+                    "WHERE c.lastPurchaseTimestamp IS NULL AND c.visitCount > 0")
+                .executeUpdate();
+            transaction.commit();
+            if (updated > 0) {
+                logger.info("Backfilled last purchase time for {} customers", updated);
+            }
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error backfilling last purchase times: " + e.getMessage(), e);
+        }
+    }
+
+    private long countUnscoredPurchasers() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createQuery(
+                    "SELECT COUNT(c) FROM Customer c WHERE c.visitCount > 0 AND c.recencyScore IS NULL",
+                    Long.class)
+                .uniqueResult();
+        }
+    }
+
+    private Thresholds loadThresholds() {
+        List<LocalDateTime> recency = new ArrayList<>();
+        for (Object cut : customerDAO.getQuantileCutPoints("lastPurchaseTimestamp", BUCKETS)) {
+            recency.add((LocalDateTime) cut);
+        }
+        List<Integer> frequency = new ArrayList<>();
+        for (Object cut : customerDAO.getQuantileCutPoints("visitCount", BUCKETS)) {
+            frequency.add(((Number) cut).intValue());
+        }
+        List<BigDecimal> monetary = new ArrayList<>();
+        for (Object cut : customerDAO.getQuantileCutPoints("totalPurchases", BUCKETS)) {
+            monetary.add((BigDecimal) cut);
+        }
+        return new Thresholds(recency, frequency, monetary);
+    }
+
+    /**
+     * HQL equivalent of {@link #score}: 1 plus one for each cut point parameter the property exceeds.
+     */
+    private static String scoreExpression(String property, String prefix, int cutPoints) {
+        StringBuilder expression = new StringBuilder("(1");
+        for (int i = 0; i < cutPoints; i++) {
+            expression.append(" + CASE WHEN ").append(property).append(" > :").append(prefix).append(i)
+                .append(" THEN 1 ELSE 0 END");
+        }
+        return expression.append(")").toString();
+    }
+
+    private static void bindCutPoints(MutationQuery query, String prefix, List<?> cutPoints) {
+        for (int i = 0; i < cutPoints.size(); i++) {
+            query.setParameter(prefix + i, cutPoints.get(i));
+        }
+    }
+
+    /**
+     * Score a value against ascending cut points: 1 plus the number of cut points
+     * it exceeds, so ties at a cut point fall into the lower bucket.
+     */
+    private static <T extends Comparable<? super T>> int score(T value, List<T> cutPoints) {
+        int score = 1;
+        for (T cut : cutPoints) {
+            if (value.compareTo(cut) > 0) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    // ==================== DATA CLASSES ====================
+
+    /**
+     * Quintile cut points of the last bucketing run.
+     */
+    private static final class Thresholds {
+        private final List<LocalDateTime> recency;
+        private final List<Integer> frequency;
+        private final List<BigDecimal> monetary;
+
+        private Thresholds(List<LocalDateTime> recency, List<Integer> frequency, List<BigDecimal> monetary) {
+            this.recency = List.copyOf(recency);
+            this.frequency = List.copyOf(frequency);
+            this.monetary = List.copyOf(monetary);
+        }
+
+        @Override
+        public String toString() {
+            return "recency=" + recency + ", frequency=" + frequency + ", monetary=" + monetary;
+        }
+    }
+}
\ No newline at end of file
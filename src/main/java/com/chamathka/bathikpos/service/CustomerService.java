@@ -2,6 +2,8 @@ package com.chamathka.bathikpos.service;
 
 import com.chamathka.bathikpos.dao.CustomerDAO;
 import com.chamathka.bathikpos.entity.Customer;
+import com.chamathka.bathikpos.event.EntityChangedEvent;
+import com.chamathka.bathikpos.event.EventBus;
 import com.chamathka.bathikpos.util.SessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,7 +33,9 @@ public class CustomerService {
     public Customer createCustomer(Customer customer) {
         sessionManager.requireAuthentication();
         logger.info("Creating new customer: {}", customer.getName());
-        return customerDAO.save(customer);
+        Customer saved = customerDAO.save(customer);
+        EventBus.getInstance().publish(new EntityChangedEvent(saved, EntityChangedEvent.ChangeType.CREATED));
+        return saved;
     }
 
     /**
@@ -42,7 +46,9 @@ public class CustomerService {
     public Customer updateCustomer(Customer customer) {
         sessionManager.requireAuthentication();
         logger.info("Updating customer: {}", customer.getName());
-        return customerDAO.update(customer);
+        Customer updated = customerDAO.update(customer);
+        EventBus.getInstance().publish(new EntityChangedEvent(updated, EntityChangedEvent.ChangeType.UPDATED));
+        return updated;
     }
 
     /**
@@ -53,6 +59,7 @@ public class CustomerService {
         sessionManager.requireAuthentication();
         logger.info("Deleting customer: {}", customer.getName());
         customerDAO.delete(customer);
+        EventBus.getInstance().publish(new EntityChangedEvent(customer, EntityChangedEvent.ChangeType.DELETED));
     }
 
     /**
@@ -0,0 +1,413 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.dao.CustomerDAO;
+import com.chamathka.bathikpos.dao.ProductVariantDAO;
+import com.chamathka.bathikpos.dao.ReturnDAO;
+import com.chamathka.bathikpos.dao.SaleDAO;
+import com.chamathka.bathikpos.entity.Customer;
+import com.chamathka.bathikpos.entity.Product;
+import com.chamathka.bathikpos.entity.ProductVariant;
+import com.chamathka.bathikpos.event.EntityChangedEvent;
+import com.chamathka.bathikpos.event.EventBus;
+import com.chamathka.bathikpos.event.ReturnProcessedEvent;
+import com.chamathka.bathikpos.event.SaleCompletedEvent;
+import com.chamathka.bathikpos.event.StockChangeEvent;
+import com.chamathka.bathikpos.util.TaskExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Singleton aggregator for the live dashboard KPIs.
+ * Seeds its counters with a handful of aggregate queries once, then keeps them
+ * current from the events published by the write services, so opening the
+ * dashboard never re-runs count queries or loads entity lists.
+ *
+ * Events that arrive while a seed is running are buffered and replayed on top
+ * of it: stock levels are absolute so they are always safe to re-apply, and sales
+ * and returns are only replayed if their ID is above the highest ID the seed counted.
+ *
+ * Events only cover this till, so the counters are reseeded from the database
+ * whenever the dashboard is shown and every REFRESH_INTERVAL_SECONDS while it is
+ * watched, to pick up other tills' sales, returns and stock changes.
+ * Today's revenue is net of today's refunds, matching the sales report.
+ */
+public class DashboardMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardMetrics.class);
+    private static final long REFRESH_INTERVAL_SECONDS = 60;
+    private static DashboardMetrics instance;
+
+    private final ProductVariantDAO variantDAO;
+    private final CustomerDAO customerDAO;
+    private final SaleDAO saleDAO;
+    private final ReturnDAO returnDAO;
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    // State below is guarded by "this"
+    private boolean started;
+    private boolean seeded;
+    private boolean seeding;
+    private boolean reseedRequested;
+    private ScheduledExecutorService refreshScheduler;
+    private final List<Object> pendingEvents = new ArrayList<>();
+
+    private long totalVariants;
+    private final Set<Long> lowStockIds = new HashSet<>();
+    private long totalCustomers;
+    private LocalDate salesDay = LocalDate.now();
+    private long lastSeededSaleId;
+    private long lastSeededReturnId;
+    private long todayTransactions;
+    private BigDecimal todaySales = BigDecimal.ZERO;
+    private BigDecimal todayRefunds = BigDecimal.ZERO;
+
+    private DashboardMetrics() {
+        this.variantDAO = new ProductVariantDAO();
+        this.customerDAO = new CustomerDAO();
+        this.saleDAO = new SaleDAO();
+        this.returnDAO = new ReturnDAO();
+    }
+
+    /**
+     * Get the DashboardMetrics instance
+     * @return DashboardMetrics instance
+     */
+    public static synchronized DashboardMetrics getInstance() {
+        if (instance == null) {
+            instance = new DashboardMetrics();
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribe to domain events and seed the counters in the background.
+     * Safe to call repeatedly; later calls only retry a seed that failed.
+     */
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            EventBus bus = EventBus.getInstance();
+            bus.subscribe(StockChangeEvent.class, this::onEvent);
+            bus.subscribe(EntityChangedEvent.class, this::onEvent);
+
+            refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "dashboard-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refreshScheduler.scheduleWithFixedDelay(() -> {
+                if (!listeners.isEmpty()) {
+                    refresh();
+                }
+            }, REFRESH_INTERVAL_SECONDS, REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        if (!seeded && !seeding) {
+            requestSeed();
+        }
+    }
+
+    /**
+     * Reseed the counters from the database in the background, picking up
+     * changes made by other tills. Listeners receive the new snapshot.
+     * Does nothing before the first seed, which start() already runs.
+     */
+    public synchronized void refresh() {
+        if (started && seeded) {
+            requestSeed();
+        }
+    }
+
+    /**
+     * Register a listener for KPI changes.
+     * The listener is called on the publishing thread; UI listeners must hand off
+     * to the JavaFX thread. If the counters are already seeded, the current snapshot
+     * is delivered immediately.
+     * @param listener The listener
+     * @return A subscription that removes the listener when closed
+     */
+    public EventBus.Subscription addListener(Consumer<Snapshot> listener) {
+        listeners.add(listener);
+        Snapshot current = getSnapshot();
+        if (current != null) {
+            listener.accept(current);
+        }
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * Get the current KPI values.
+     * @return The current snapshot, or null if the counters are not seeded yet
+     */
+    public synchronized Snapshot getSnapshot() {
+        if (!seeded) {
+            return null;
+        }
+        rollOverIfNewDay();
+        return new Snapshot(totalVariants, lowStockIds.size(), totalCustomers,
+                todayTransactions, todaySales, todayRefunds);
+    }
+
+    // ==================== EVENT HANDLING ====================
+
+    private void onEvent(Object event) {
+        Snapshot snapshot;
+        synchronized (this) {
+            if (seeding) {
+                pendingEvents.add(event);
+                if (event instanceof EntityChangedEvent) {
+                    reseedRequested = true;
+                }
+                return;
+            }
+            if (!seeded) {
+                return;
+            }
+            if (!apply(event)) {
+                return;
+            }
+            snapshot = getSnapshot();
+        }
+        notifyListeners(snapshot);
+    }
+
+    /**
+     * Apply an event to the counters. Must be called while holding the lock.
+     * @return true if the counters may have changed
+     */
+    private boolean apply(Object event) {
+        if (event instanceof StockChangeEvent) {
+            ((StockChangeEvent) event).getStockLevels()
+                    .forEach((variantId, level) -> updateLowStock(variantId, level.isLowStock()));
+            if (event instanceof SaleCompletedEvent) {
+                applySale((SaleCompletedEvent) event);
+            } else if (event instanceof ReturnProcessedEvent) {
+                applyReturn((ReturnProcessedEvent) event);
+            }
+            return true;
+        }
+
+        if (event instanceof EntityChangedEvent) {
+            EntityChangedEvent change = (EntityChangedEvent) event;
+            EntityChangedEvent.ChangeType type = change.getChangeType();
+
+            if (change.isAbout(Customer.class)) {
+                if (type == EntityChangedEvent.ChangeType.CREATED) {
+                    totalCustomers++;
+                } else if (type == EntityChangedEvent.ChangeType.DELETED) {
+                    totalCustomers = Math.max(0, totalCustomers - 1);
+                }
+                return type != EntityChangedEvent.ChangeType.UPDATED;
+            }
+
+            if (change.isAbout(ProductVariant.class)) {
+                ProductVariant variant = (ProductVariant) change.getEntity();
+                if (type == EntityChangedEvent.ChangeType.DELETED) {
+                    totalVariants = Math.max(0, totalVariants - 1);
+                    lowStockIds.remove(variant.getVariantId());
+                    return true;
+                }
+                if (type == EntityChangedEvent.ChangeType.CREATED) {
+                    totalVariants++;
+                }
+                updateLowStock(variant.getVariantId(), variant.isLowStock());
+                return true;
+            }
+
+            if (change.isAbout(Product.class) && type == EntityChangedEvent.ChangeType.DELETED) {
+                // Deleting a product cascades to its variants; recount rather than guess
+                requestSeed();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void updateLowStock(Long variantId, boolean lowStock) {
+        if (lowStock) {
+            lowStockIds.add(variantId);
+        } else {
+            lowStockIds.remove(variantId);
+        }
+    }
+
+    private void applySale(SaleCompletedEvent sale) {
+        rollOverIfNewDay();
+        if (sale.getSaleId() != null && sale.getSaleId() <= lastSeededSaleId) {
+            // Already counted by the seed query
+            return;
+        }
+        LocalDateTime timestamp = sale.getSaleTimestamp();
+        if (timestamp != null && !timestamp.toLocalDate().equals(salesDay)) {
+            return;
+        }
+        todayTransactions++;
+        if (sale.getTotalAmount() != null) {
+            todaySales = todaySales.add(sale.getTotalAmount());
+        }
+    }
+
+    private void applyReturn(ReturnProcessedEvent processed) {
+        rollOverIfNewDay();
+        if (processed.getReturnId() != null && processed.getReturnId() <= lastSeededReturnId) {
+            // Already counted by the seed query
+            return;
+        }
+        LocalDateTime timestamp = processed.getReturnTimestamp();
+        if (timestamp != null && !timestamp.toLocalDate().equals(salesDay)) {
+            return;
+        }
+        if (processed.getRefundAmount() != null) {
+            todayRefunds = todayRefunds.add(processed.getRefundAmount());
+        }
+    }
+
+    private void rollOverIfNewDay() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(salesDay)) {
+            logger.info("Dashboard sales counters reset for {}", today);
+            salesDay = today;
+            todayTransactions = 0;
+            todaySales = BigDecimal.ZERO;
+            todayRefunds = BigDecimal.ZERO;
+        }
+    }
+
+    private void notifyListeners(Snapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        for (Consumer<Snapshot> listener : listeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (Exception e) {
+                logger.error("Dashboard metrics listener failed", e);
+            }
+        }
+    }
+
+    // ==================== SEEDING ====================
+
+    private synchronized void requestSeed() {
+        if (seeding) {
+            reseedRequested = true;
+            return;
+        }
+        seeding = true;
+        TaskExecutor.getInstance().execute(this::seed);
+    }
+
+    private void seed() {
+        long startTime = System.currentTimeMillis();
+        try {
+            LocalDate today = LocalDate.now();
+            long variants = variantDAO.count();
+            List<Long> lowStock = variantDAO.getLowStockVariantIds();
+            long customers = customerDAO.count();
+            Object[] sales = saleDAO.getSalesCountAndTotal(today.atStartOfDay(), today.plusDays(1).atStartOfDay());
+            Object[] returns = returnDAO.getReturnCountAndRefundTotal(today.atStartOfDay(), today.atTime(LocalTime.MAX));
+
+            Snapshot snapshot;
+            synchronized (this) {
+                totalVariants = variants;
+                lowStockIds.clear();
+                lowStockIds.addAll(lowStock);
+                totalCustomers = customers;
+                salesDay = today;
+                todayTransactions = ((Number) sales[0]).longValue();
+                todaySales = new BigDecimal(sales[1].toString());
+                lastSeededSaleId = sales[2] != null ? ((Number) sales[2]).longValue() : 0L;
+                todayRefunds = new BigDecimal(returns[1].toString());
+                lastSeededReturnId = returns[2] != null ? ((Number) returns[2]).longValue() : 0L;
+
+                // Replay events that raced the seed queries; entity changes trigger a reseed instead
+                for (Object event : pendingEvents) {
+                    if (!(event instanceof EntityChangedEvent)) {
+                        apply(event);
+                    }
+                }
+                pendingEvents.clear();
+
+                seeded = true;
+                seeding = false;
+                snapshot = getSnapshot();
+                if (reseedRequested) {
+                    reseedRequested = false;
+                    requestSeed();
+                }
+            }
+
+            logger.debug("Dashboard metrics seeded in {} ms: {}", System.currentTimeMillis() - startTime, snapshot);
+            notifyListeners(snapshot);
+
+        } catch (Exception e) {
+            logger.error("Failed to seed dashboard metrics", e);
+            synchronized (this) {
+                seeding = false;
+                reseedRequested = false;
+                pendingEvents.clear();
+            }
+        }
+    }
+
+    // ==================== DATA CLASSES ====================
+
+    /**
+     * Immutable KPI values at one point in time.
+     */
+    public static final class Snapshot {
+        private final long totalProducts;
+        private final long lowStockCount;
+        private final long totalCustomers;
+        private final long todayTransactions;
+        private final BigDecimal todaySales;
+        private final BigDecimal todayRefunds;
+
+        private Snapshot(long totalProducts, long lowStockCount, long totalCustomers,
+                         long todayTransactions, BigDecimal todaySales, BigDecimal todayRefunds) {
+            this.totalProducts = totalProducts;
+            this.lowStockCount = lowStockCount;
+            this.totalCustomers = totalCustomers;
+            this.todayTransactions = todayTransactions;
+            this.todaySales = todaySales;
+            this.todayRefunds = todayRefunds;
+        }
+
+        public long getTotalProducts() { return totalProducts; }
+        public long getLowStockCount() { return lowStockCount; }
+        public long getTotalCustomers() { return totalCustomers; }
+        public long getTodayTransactions() { return todayTransactions; }
+        public BigDecimal getTodaySales() { return todaySales; }
+        public BigDecimal getTodayRefunds() { return todayRefunds; }
+
+        /** @return Today's sales net of today's refunds */
+        public BigDecimal getTodayRevenue() {
+            return todaySales.subtract(todayRefunds);
+        }
+
+        public BigDecimal getAverageBasket() {
+            if (todayTransactions == 0) {
+                return BigDecimal.ZERO;
+            }
+            return todaySales.divide(BigDecimal.valueOf(todayTransactions), 2, RoundingMode.HALF_UP);
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{products=" + totalProducts + ", lowStock=" + lowStockCount
+                    + ", customers=" + totalCustomers + ", todayTransactions=" + todayTransactions
+                    + ", todaySales=" + todaySales + ", todayRefunds=" + todayRefunds + '}';
+        }
+    }
+}
\ No newline at end of file
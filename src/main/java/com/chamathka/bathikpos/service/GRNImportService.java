@@ -0,0 +1,271 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.dao.ProductVariantDAO;
+import com.chamathka.bathikpos.entity.GRN;
+import com.chamathka.bathikpos.entity.GRNItem;
+import com.chamathka.bathikpos.entity.ProductVariant;
+import com.chamathka.bathikpos.entity.Supplier;
+import com.chamathka.bathikpos.util.SessionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service for importing supplier invoices from CSV into pending GRNs.
+ * Each line holds itemCode, quantity and cost price. An optional header line is
+ * recognised by its first column name (sku or itemCode, any case) and skipped;
+ * any other first line is validated like the rest.
+ *
+ * The file is streamed line by line and SKUs are resolved through an in-memory
+ * map loaded with one query. Every line is validated before anything is written:
+ * if any line fails, nothing is saved and the per-line error report is returned.
+ */
+public class GRNImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GRNImportService.class);
+    private static final int COLUMN_COUNT = 3;
+    private static final Set<String> ITEM_CODE_HEADERS = Set.of("sku", "itemcode");
+
+    private final ProductVariantDAO variantDAO;
+    private final GRNService grnService;
+    private final SessionManager sessionManager;
+
+    public GRNImportService() {
+        this.variantDAO = new ProductVariantDAO();
+        this.grnService = new GRNService();
+        this.sessionManager = SessionManager.getInstance();
+    }
+
+    /**
+     * Import a supplier invoice CSV as a pending GRN.
+     *
+     * @param supplier The supplier the invoice is from
+     * @param supplierInvoiceNo The supplier's invoice number (optional)
+     * @param csv Reader over the CSV content
+     * @return The import result with the saved GRN, or the per-line errors
+     * @throws SecurityException if user is not an Admin
+     */
+    public ImportResult importSupplierInvoice(Supplier supplier, String supplierInvoiceNo, Reader csv) {
+        sessionManager.requireAdmin();
+        if (supplier == null) {
+            throw new IllegalArgumentException("Supplier is required");
+        }
+        long startTime = System.currentTimeMillis();
+
+        Map<String, Long> variantIds = variantDAO.getVariantIdsByItemCode();
+        List<GRNItem> items = new ArrayList<>();
+        List<LineError> errors = new ArrayList<>();
+        int lineNumber = 0;
+
+        try (BufferedReader reader = new BufferedReader(csv)) {
+            String line;
+            boolean firstLine = true;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1); // UTF-8 byte order mark written by spreadsheet tools
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                List<String> columns = parseCsvLine(line);
+                if (firstLine && isHeader(columns)) {
+                    firstLine = false;
+                    continue;
+                }
+                firstLine = false;
+
+                String error = validateLine(columns, variantIds);
+                if (error != null) {
+                    errors.add(new LineError(lineNumber, line, error));
+                    continue;
+                }
+
+                ProductVariant variant = new ProductVariant();
+                variant.setVariantId(variantIds.get(columns.get(0)));
+                variant.setItemCode(columns.get(0));
+                items.add(new GRNItem(null, variant,
+                        Integer.parseInt(columns.get(1)), new BigDecimal(columns.get(2))));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading invoice file: " + e.getMessage(), e);
+        }
+
+        if (errors.isEmpty() && items.isEmpty()) {
+            errors.add(new LineError(lineNumber, "", "The file does not contain any invoice lines"));
+        }
+
+        if (!errors.isEmpty()) {
+            logger.warn("Invoice import rejected: {} of {} lines failed validation", errors.size(), lineNumber);
+            return new ImportResult(null, lineNumber, 0, errors, System.currentTimeMillis() - startTime);
+        }
+
+        GRN grn = new GRN();
+        grn.setSupplier(supplier);
+        grn.setSupplierInvoiceNo(supplierInvoiceNo);
+        items.forEach(item -> item.setGrn(grn));
+        grn.setItems(items);
+
+        GRN saved = grnService.savePendingGRNBatched(grn);
+        long elapsed = System.currentTimeMillis() - startTime;
+        logger.info("Imported invoice {} from {} as pending GRN {} ({} items in {} ms)",
+                supplierInvoiceNo, supplier.getSupplierName(), saved.getGrnId(), items.size(), elapsed);
+        return new ImportResult(saved, lineNumber, items.size(), errors, elapsed);
+    }
+
+    /**
+     * Validate one parsed line.
+     * @return The error message, or null if the line is valid
+     */
+    private String validateLine(List<String> columns, Map<String, Long> variantIds) {
+        if (columns.size() != COLUMN_COUNT) {
+            return String.format("Expected %d columns (itemCode, quantity, cost) but found %d",
+                    COLUMN_COUNT, columns.size());
+        }
+
+        String itemCode = columns.get(0);
+        if (itemCode.isEmpty()) {
+            return "Item code is missing";
+        }
+        if (!variantIds.containsKey(itemCode)) {
+            return "Unknown item code '" + itemCode + "'";
+        }
+
+        try {
+            if (Integer.parseInt(columns.get(1)) <= 0) {
+                return "Quantity must be greater than zero";
+            }
+        } catch (NumberFormatException e) {
+            return "Quantity '" + columns.get(1) + "' is not a whole number";
+        }
+
+        try {
+            BigDecimal cost = new BigDecimal(columns.get(2));
+            if (cost.signum() < 0) {
+                return "Cost must not be negative";
+            }
+            if (cost.stripTrailingZeros().scale() > 2) {
+                return "Cost '" + columns.get(2) + "' has more than 2 decimal places";
+            }
+        } catch (NumberFormatException e) {
+            return "Cost '" + columns.get(2) + "' is not a valid amount";
+        }
+
+        return null;
+    }
+
+    /**
+     * Check whether a first line is a header, by the name of its item code column.
+     * Spaces and underscores are ignored, so "Item Code" and "item_code" match too.
+     */
+    private boolean isHeader(List<String> columns) {
+        String name = columns.get(0).replaceAll("[\\s_]", "").toLowerCase(Locale.ROOT);
+        return ITEM_CODE_HEADERS.contains(name);
+    }
+
+    /**
+     * Split a CSV line into trimmed columns, honouring double-quoted fields.
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> columns = new ArrayList<>(COLUMN_COUNT);
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == ',' && !inQuotes) {
+                columns.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        columns.add(current.toString().trim());
+        return columns;
+    }
+
+    // ==================== DATA CLASSES ====================
+
+    /**
+     * Result of an invoice import.
+     */
+    public static class ImportResult {
+        private final GRN grn;
+        private final int linesRead;
+        private final int itemsImported;
+        private final List<LineError> errors;
+        private final long elapsedMillis;
+
+        public ImportResult(GRN grn, int linesRead, int itemsImported, List<LineError> errors, long elapsedMillis) {
+            this.grn = grn;
+            this.linesRead = linesRead;
+            this.itemsImported = itemsImported;
+            this.errors = Collections.unmodifiableList(errors);
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public GRN getGrn() { return grn; }
+        public int getLinesRead() { return linesRead; }
+        public int getItemsImported() { return itemsImported; }
+        public List<LineError> getErrors() { return errors; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+
+        /**
+         * Format the errors as one line per rejected invoice line.
+         * @return The error report
+         */
+        public String getErrorReport() {
+            StringBuilder report = new StringBuilder();
+            for (LineError error : errors) {
+                report.append("Line ").append(error.getLineNumber()).append(": ")
+                      .append(error.getMessage());
+                if (!error.getContent().isEmpty()) {
+                    report.append("  [").append(error.getContent()).append(']');
+                }
+                report.append('\n');
+            }
+            return report.toString();
+        }
+    }
+
+    /**
+     * Validation error for one invoice line.
+     */
+    public static class LineError {
+        private final int lineNumber;
+        private final String content;
+        private final String message;
+
+        public LineError(int lineNumber, String content, String message) {
+            this.lineNumber = lineNumber;
+            this.content = content;
+            this.message = message;
+        }
+
+        public int getLineNumber() { return lineNumber; }
+        public String getContent() { return content; }
+        public String getMessage() { return message; }
+    }
+}
\ No newline at end of file
@@ -4,7 +4,12 @@ import com.chamathka.bathikpos.dao.GRNDAO;
 import com.chamathka.bathikpos.dao.ProductVariantDAO;
 import com.chamathka.bathikpos.entity.GRN;
 import com.chamathka.bathikpos.entity.GRNItem;
+import com.chamathka.bathikpos.entity.ChangeLog;
 import com.chamathka.bathikpos.entity.ProductVariant;
+import com.chamathka.bathikpos.entity.StockMovement;
+import com.chamathka.bathikpos.event.EventBus;
+import com.chamathka.bathikpos.event.GRNConfirmedEvent;
+import com.chamathka.bathikpos.event.StockChangeEvent.StockLevel;
 import com.chamathka.bathikpos.util.HibernateUtil;
 import com.chamathka.bathikpos.util.SessionManager;
 import org.hibernate.Session;
@@ -12,8 +17,12 @@ import org.hibernate.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.PreparedStatement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service class for GRN (Goods Received Note) operations.
@@ -23,6 +32,8 @@ import java.util.List;
 public class GRNService {
 
     private static final Logger logger = LoggerFactory.getLogger(GRNService.class);
+    private static final int ITEM_BATCH_SIZE = 500;
+
     private final GRNDAO grnDAO;
     private final ProductVariantDAO variantDAO;
     private final SessionManager sessionManager;
@@ -38,8 +49,10 @@ public class GRNService {
      * This is a CRITICAL ATOMIC TRANSACTION that:
      * 1. Saves the GRN header
      * 2. Saves all GRNItems
-     * 3. Adds quantities to ProductVariant stock
+     * 3. Adds quantities to ProductVariant stock and records them in the stock ledger
      * 4. Updates GRN status to "CONFIRMED"
+     * 5. Records an outbox entry; non-critical follow-up work runs after commit
+     * 6. Appends the GRN to the change log shipped to head office
      *
      * As per SRS: If ANY part fails, the ENTIRE operation is rolled back.
      * This is the ONLY way costPrice is recorded in the system.
@@ -68,6 +81,7 @@ public class GRNService {
             session.persist(grn);
 
             // Step 3: Save all GRNItems and add stock ATOMICALLY
+            Map<Long, StockLevel> stockLevels = new HashMap<>();
             for (GRNItem item : grn.getItems()) {
                 // Get fresh variant from session
                 ProductVariant variant = session.get(ProductVariant.class, item.getVariant().getVariantId());
@@ -75,21 +89,31 @@ public class GRNService {
                     throw new IllegalStateException("Product variant not found: " + item.getVariant().getItemCode());
                 }
 
-                // Add stock to variant
-                variant.addStock(item.getQuantityReceived());
-                session.merge(variant);
+                // Add stock to variant in the database
+                variantDAO.addStock(session, variant.getVariantId(), item.getQuantityReceived());
+                session.refresh(variant);
 
                 // Save GRN item (this records the critical costPrice)
                 item.setGrn(grn);
                 session.persist(item);
 
+                // Record the movement in the stock ledger
+                session.persist(new StockMovement(variant, StockMovement.TYPE_GRN,
+                    item.getQuantityReceived(), grn.getGrnId(), sessionManager.getCurrentUser()));
+                stockLevels.put(variant.getVariantId(),
+                    new StockLevel(variant.getQuantityInStock(), variant.getLowStockThreshold()));
+
                 logger.debug("Added {} units of {} at cost {} (new stock: {})",
                     item.getQuantityReceived(), variant.getItemCode(),
                     item.getCostPrice(), variant.getQuantityInStock());
             }
 
+            // Step 4: Record the change for head office
+            session.persist(new ChangeLog(ChangeLog.TYPE_GRN, grn.getGrnId()));
+
             // Commit the transaction - ALL OR NOTHING!
             transaction.commit();
+            EventBus.getInstance().publish(new GRNConfirmedEvent(grn.getGrnId(), stockLevels));
 
             logger.info("GRN confirmed successfully. GRN ID: {}, Total Cost: {}",
                 grn.getGrnId(), grn.getTotalCost());
@@ -105,6 +129,113 @@ public class GRNService {
         }
     }
 
+    /**
+     * Confirm an existing pending GRN - ATOMIC TRANSACTION.
+     *
+     * The draft and its items are loaded with one fetch-join, the status is flipped
+     * with a conditional UPDATE (so a second confirmation of the same GRN fails
+     * instead of adding the stock twice), and all stock increments are applied with
+     * a single set-based UPDATE. The number of round trips does not grow with the
+     * number of items.
+     *
+     * @param grnId The ID of the pending GRN
+     * @return The confirmed GRN
+     * @throws SecurityException if user is not an Admin
+     */
+    public GRN confirmPendingGRN(Long grnId) {
+        // Enforce Admin access (as per SRS - only Admin can process GRNs)
+        sessionManager.requireAdmin();
+
+        logger.info("Starting confirmation of pending GRN: {}", grnId);
+
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+
+            // Step 1: Load the draft with its supplier and items in one query
+            GRN grn = session.createQuery(
+                    "SELECT DISTINCT g FROM GRN g JOIN FETCH g.supplier " +
+                    "LEFT JOIN FETCH g.items i LEFT JOIN FETCH i.variant " +
+                    "WHERE g.grnId = :grnId", GRN.class)
+                .setParameter("grnId", grnId)
+                .uniqueResult();
+            if (grn == null) {
+                throw new IllegalArgumentException("GRN not found: " + grnId);
+            }
+            if (grn.getItems().isEmpty()) {
+                throw new IllegalStateException("GRN " + grnId + " has no items");
+            }
+            session.detach(grn);
+            grn.recalculateTotalCost();
+
+            // Step 2: Flip the status - only succeeds if the GRN is still PENDING
+            LocalDateTime confirmedAt = LocalDateTime.now();
+            int flipped = session.createMutationQuery(
+                    "UPDATE GRN g SET g.status = 'CONFIRMED', g.grnTimestamp = :now, " +
+                    "g.totalCost = :totalCost, g.user = :user " +
+                    "WHERE g.grnId = :grnId AND g.status = 'PENDING'")
+                .setParameter("now", confirmedAt)
+                .setParameter("totalCost", grn.getTotalCost())
+                .setParameter("user", sessionManager.getCurrentUser())
+                .setParameter("grnId", grnId)
+                .executeUpdate();
+            if (flipped == 0) {
+                throw new IllegalStateException("GRN " + grnId + " is not pending (already confirmed?)");
+            }
+
+            // Step 3: Add stock for every item in one set-based UPDATE
+            int updatedVariants = session.createMutationQuery(
+                    "UPDATE ProductVariant v SET v.quantityInStock = v.quantityInStock + " +
+                    "(SELECT CAST(SUM(i.quantityReceived) AS Integer) FROM GRNItem i WHERE i.grn.grnId = :grnId AND i.variant = v) " +
+                    "WHERE v.variantId IN (SELECT i.variant.variantId FROM GRNItem i WHERE i.grn.grnId = :grnId)")
+                .setParameter("grnId", grnId)
+                .executeUpdate();
+
+            // Step 4: Record one ledger movement per item with a single INSERT ... SELECT
+            session.createMutationQuery(
+                    "INSERT INTO StockMovement (variant, movementType, quantityChange, referenceId, movementTimestamp, user) " +
+                    "SELECT i.variant, 'GRN', i.quantityReceived, i.grn.grnId, local datetime, i.grn.user " +
+                    "FROM GRNItem i WHERE i.grn.grnId = :grnId")
+                .setParameter("grnId", grnId)
+                .executeUpdate();
+
+            // Step 5: Read back the new stock levels for subscribers
+            Map<Long, StockLevel> stockLevels = new HashMap<>();
+            List<Object[]> levels = session.createQuery(
+                    "SELECT v.variantId, v.quantityInStock, v.lowStockThreshold FROM ProductVariant v " +
+                    "WHERE v.variantId IN (SELECT i.variant.variantId FROM GRNItem i WHERE i.grn.grnId = :grnId)",
+                    Object[].class)
+                .setParameter("grnId", grnId)
+                .list();
+            for (Object[] row : levels) {
+                stockLevels.put((Long) row[0], new StockLevel((Integer) row[1], (Integer) row[2]));
+            }
+
+            // Step 6: Record the change for head office
+            session.persist(new ChangeLog(ChangeLog.TYPE_GRN, grnId));
+
+            // Commit the transaction - ALL OR NOTHING!
+            transaction.commit();
+            EventBus.getInstance().publish(new GRNConfirmedEvent(grnId, stockLevels));
+
+            grn.setStatus("CONFIRMED");
+            grn.setGrnTimestamp(confirmedAt);
+            grn.setUser(sessionManager.getCurrentUser());
+
+            logger.info("Pending GRN confirmed successfully. GRN ID: {}, Items: {}, Variants: {}, Total Cost: {}",
+                grnId, grn.getItems().size(), updatedVariants, grn.getTotalCost());
+
+            return grn;
+
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+                logger.error("Pending GRN confirmation FAILED and ROLLED BACK", e);
+            }
+            throw new RuntimeException("GRN confirmation failed: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Save a pending GRN (not yet confirmed).
      * This allows Admin to create a GRN draft and confirm it later.
@@ -120,6 +251,75 @@ public class GRNService {
         return grnDAO.save(grn);
     }
 
+    /**
+     * Save a large pending GRN (e.g. an imported supplier invoice) in ONE transaction.
+     * The header is persisted through Hibernate and the items are written with a
+     * single JDBC batch, since the IDENTITY key on GRNItem prevents Hibernate from
+     * batching the inserts itself. Items only need variant references with IDs.
+     *
+     * @param grn The GRN with its items
+     * @return The saved GRN
+     */
+    public GRN savePendingGRNBatched(GRN grn) {
+        sessionManager.requireAdmin();
+
+        List<GRNItem> items = grn.getItems();
+        grn.setStatus("PENDING");
+        grn.setUser(sessionManager.getCurrentUser());
+        grn.recalculateTotalCost();
+
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+
+            // Step 1: Save the GRN header without cascading to the items
+            grn.setItems(new ArrayList<>());
+            session.persist(grn);
+            session.flush();
+
+            // Step 2: Insert all items in JDBC batches
+            Long grnId = grn.getGrnId();
+            session.doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO GRNItem (grn_id, variant_id, quantityReceived, costPrice) VALUES (?, ?, ?, ?)")) {
+                    int pending = 0;
+                    for (GRNItem item : items) {
+                        statement.setLong(1, grnId);
+                        statement.setLong(2, item.getVariant().getVariantId());
+                        statement.setInt(3, item.getQuantityReceived());
+                        statement.setBigDecimal(4, item.getCostPrice());
+                        statement.addBatch();
+                        if (++pending == ITEM_BATCH_SIZE) {
+                            statement.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) {
+                        statement.executeBatch();
+                    }
+                }
+            });
+
+            // Commit the transaction - ALL OR NOTHING!
+            transaction.commit();
+
+            logger.info("Pending GRN saved with {} items in batches. GRN ID: {}, Total Cost: {}",
+                items.size(), grnId, grn.getTotalCost());
+
+            return grn;
+
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+                logger.error("Pending GRN save FAILED and ROLLED BACK", e);
+            }
+            throw new RuntimeException("Pending GRN save failed: " + e.getMessage(), e);
+        } finally {
+            items.forEach(item -> item.setGrn(grn));
+            grn.setItems(items);
+        }
+    }
+
     /**
      * Get all pending GRNs.
      * @return List of pending GRNs
@@ -0,0 +1,207 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.util.ChangeBatch;
+import com.chamathka.bathikpos.util.ChangeBatch.Table;
+import com.chamathka.bathikpos.util.ChangeBatch.ValueType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Head-office node backed by a plain JDBC database.
+ * Stands in for the central server: point it at a local H2 file or a separate
+ * MySQL schema and the sync agent talks to it exactly as it would to head office.
+ *
+ * Every batch is applied in one transaction with JDBC batch INSERTs, and the
+ * branch's acknowledged sequence (hq_sync_cursor) moves forward in the same
+ * transaction, so a batch is applied exactly once however often it is sent.
+ * The hq_ tables are created on first use.
+ */
+public class JdbcCentralNode implements ReplicationService.CentralNode {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcCentralNode.class);
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private volatile boolean schemaReady;
+
+    public JdbcCentralNode(String url, String username, String password) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public long getAcknowledgedSequence(String branchId) {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(
+                 "SELECT lastSequence FROM hq_sync_cursor WHERE branchId = ?")) {
+            statement.setString(1, branchId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0L;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading sync cursor: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long apply(byte[] compressedBatch) {
+        ChangeBatch batch = ChangeBatch.decode(compressedBatch);
+        String branchId = batch.getBranchId();
+
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            try {
+                long cursor = lockCursor(connection, branchId);
+                if (batch.getLastSequence() <= cursor) {
+                    // Already applied - the acknowledgement was lost, so just repeat it
+                    connection.rollback();
+                    logger.debug("Batch ({}, {}] of {} already applied",
+                        batch.getAfterSequence(), batch.getLastSequence(), branchId);
+                    return cursor;
+                }
+                if (batch.getAfterSequence() != cursor) {
+                    throw new IllegalStateException(String.format(
+                        "Batch for %s starts after %d but head office has %d",
+                        branchId, batch.getAfterSequence(), cursor));
+                }
+
+                for (Table table : Table.values()) {
+                    insertRows(connection, branchId, table, batch.getRows(table));
+                }
+
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "UPDATE hq_sync_cursor SET lastSequence = ?, updatedAt = ? WHERE branchId = ?")) {
+                    statement.setLong(1, batch.getLastSequence());
+                    statement.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                    statement.setString(3, branchId);
+                    statement.executeUpdate();
+                }
+
+                connection.commit();
+                return batch.getLastSequence();
+
+            } catch (Exception e) {
+                connection.rollback();
+                logger.error("Applying batch for {} FAILED and ROLLED BACK", branchId, e);
+                throw e;
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error applying change batch: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the branch's cursor with a row lock, creating it on the first batch.
+     */
+    private long lockCursor(Connection connection, String branchId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT lastSequence FROM hq_sync_cursor WHERE branchId = ? FOR UPDATE")) {
+            statement.setString(1, branchId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getLong(1);
+                }
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO hq_sync_cursor (branchId, lastSequence, updatedAt) VALUES (?, 0, ?)")) {
+            statement.setString(1, branchId);
+            statement.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            statement.executeUpdate();
+        }
+        return 0L;
+    }
+
+    private void insertRows(Connection connection, String branchId, Table table, List<Object[]> rows)
+            throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = table.getColumns();
+        List<ValueType> types = table.getTypes();
+        String sql = "INSERT INTO " + table.getCentralName() + " (branchId, " + String.join(", ", columns) +
+            ") VALUES (?" + ", ?".repeat(columns.size()) + ")";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int pending = 0;
+            for (Object[] row : rows) {
+                statement.setString(1, branchId);
+                for (int i = 0; i < row.length; i++) {
+                    bind(statement, i + 2, types.get(i), row[i]);
+                }
+                statement.addBatch();
+                if (++pending == INSERT_BATCH_SIZE) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement statement, int index, ValueType type, Object value)
+            throws SQLException {
+        if (value == null) {
+            statement.setNull(index, switch (type) {
+                case LONG -> Types.BIGINT;
+                case INT -> Types.INTEGER;
+                case DECIMAL -> Types.DECIMAL;
+                case STRING -> Types.VARCHAR;
+                case TIMESTAMP -> Types.TIMESTAMP;
+            });
+            return;
+        }
+        switch (type) {
+            case LONG -> statement.setLong(index, (Long) value);
+            case INT -> statement.setInt(index, (Integer) value);
+            case DECIMAL -> statement.setBigDecimal(index, (BigDecimal) value);
+            case STRING -> statement.setString(index, (String) value);
+            case TIMESTAMP -> statement.setTimestamp(index, Timestamp.valueOf((LocalDateTime) value));
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, username, password);
+        if (!schemaReady) {
+            try {
+                createSchema(connection);
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            schemaReady = true;
+        }
+        return connection;
+    }
+
+    /**
+     * Create the hq_ tables if they do not exist. Each table is keyed by branch
+     * and the branch-local ID of its first column.
+     */
+    private static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS hq_sync_cursor (" +
+                "branchId VARCHAR(50) NOT NULL PRIMARY KEY, lastSequence BIGINT NOT NULL, updatedAt TIMESTAMP NOT NULL)");
+            for (Table table : Table.values()) {
+                StringBuilder ddl = new StringBuilder("CREATE TABLE IF NOT EXISTS ")
+                    .append(table.getCentralName()).append(" (branchId VARCHAR(50) NOT NULL");
+                for (int i = 0; i < table.getColumns().size(); i++) {
+                    ddl.append(", ").append(table.getColumns().get(i)).append(' ')
+                        .append(table.getTypes().get(i).getSqlType());
+                }
+                ddl.append(", PRIMARY KEY (branchId, ").append(table.getColumns().get(0)).append("))");
+                statement.execute(ddl.toString());
+            }
+        }
+    }
+}
\ No newline at end of file
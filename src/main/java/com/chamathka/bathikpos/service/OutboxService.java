@@ -0,0 +1,295 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.dao.OutboxDAO;
+import com.chamathka.bathikpos.dao.ReturnDAO;
+import com.chamathka.bathikpos.dao.SaleDAO;
+import com.chamathka.bathikpos.entity.OutboxEvent;
+import com.chamathka.bathikpos.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Service for the transactional outbox.
+ * Checkout and returns persist an OutboxEvent in their own transaction and
+ * call {@link #wakeUp()} after commit. A single background dispatcher then hands
+ * the due entries, in batches per event type, to the registered handlers, so
+ * follow-up work such as loyalty re-scoring never lengthens the business
+ * transaction.
+ *
+ * Every till runs a dispatcher against the shared outbox, so each batch is
+ * claimed first for CLAIM_LEASE_SECONDS; the other tills skip claimed entries,
+ * and entries of a till that stopped mid-batch are claimed again once the
+ * lease has run out.
+ *
+ * Delivery is at least once: a batch that fails is retried entry by entry, and
+ * an entry that keeps failing is retried with exponential back-off before it is
+ * marked FAILED. Handlers must therefore be idempotent.
+ */
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    private static final int DISPATCH_BATCH_SIZE = 100;
+    private static final long POLL_INTERVAL_SECONDS = 5;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+    private static final int RETENTION_DAYS = 7;
+    private static final long CLAIM_LEASE_SECONDS = 300;
+
+    private static final Map<String, List<OutboxHandler>> HANDLERS = new ConcurrentHashMap<>();
+    private static final AtomicBoolean WAKE_UP_PENDING = new AtomicBoolean();
+
+    private static ScheduledExecutorService dispatcher;
+
+    private final OutboxDAO outboxDAO;
+
+    public OutboxService() {
+        this.outboxDAO = new OutboxDAO();
+    }
+
+    /**
+     * Start the background dispatcher and register the built-in handlers.
+     * Safe to call more than once. Entries left over from a previous run are
+     * picked up by the first poll.
+     */
+    public static synchronized void startDispatcher() {
+        if (dispatcher != null) {
+            return;
+        }
+        registerDefaultHandlers();
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        OutboxService outboxService = new OutboxService();
+        dispatcher.scheduleWithFixedDelay(outboxService::dispatchSafely,
+            POLL_INTERVAL_SECONDS, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        dispatcher.scheduleWithFixedDelay(() -> {
+            try {
+                outboxService.purgeProcessed();
+            } catch (Exception e) {
+                logger.error("Outbox purge failed", e);
+            }
+        }, 60, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+
+        logger.info("Outbox dispatcher started (poll every {} s)", POLL_INTERVAL_SECONDS);
+    }
+
+    /**
+     * Stop the background dispatcher. Undispatched entries stay in the outbox.
+     */
+    public static synchronized void stopDispatcher() {
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+            dispatcher = null;
+        }
+    }
+
+    /**
+     * Ask the dispatcher to run now rather than at the next poll.
+     * Call after committing a transaction that wrote outbox entries. Cheap and
+     * non-blocking; wake-ups that arrive while one is queued are coalesced.
+     */
+    public static synchronized void wakeUp() {
+        if (dispatcher != null && WAKE_UP_PENDING.compareAndSet(false, true)) {
+            OutboxService outboxService = new OutboxService();
+            dispatcher.execute(() -> {
+                WAKE_UP_PENDING.set(false);
+                outboxService.dispatchSafely();
+            });
+        }
+    }
+
+    /**
+     * Register a handler for an event type.
+     * Handlers run on the dispatcher thread, in registration order.
+     * @param eventType One of the OutboxEvent.TYPE_ constants
+     * @param handler The handler
+     */
+    public static void registerHandler(String eventType, OutboxHandler handler) {
+        HANDLERS.computeIfAbsent(eventType, type -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    private static void registerDefaultHandlers() {
+        if (!HANDLERS.isEmpty()) {
+            return;
+        }
+        CustomerSegmentationService segmentationService = new CustomerSegmentationService();
+        SaleDAO saleDAO = new SaleDAO();
+        ReturnDAO returnDAO = new ReturnDAO();
+
+        // Loyalty: re-score the RFM segment of the customers behind the sales and returns
+        registerHandler(OutboxEvent.TYPE_SALE_COMPLETED,
+            saleIds -> segmentationService.rescoreCustomers(saleDAO.findCustomerIds(saleIds)));
+        registerHandler(OutboxEvent.TYPE_RETURN_PROCESSED,
+            returnIds -> segmentationService.rescoreCustomers(returnDAO.findCustomerIds(returnIds)));
+    }
+
+    // ==================== DISPATCH ====================
+
+    private void dispatchSafely() {
+        try {
+            dispatchDue();
+        } catch (Exception e) {
+            logger.error("Outbox dispatch failed", e);
+        }
+    }
+
+    /**
+     * Dispatch every due entry.
+     * @return Number of entries processed successfully
+     */
+    public int dispatchDue() {
+        int dispatched = 0;
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> due = outboxDAO.claimDue(UUID.randomUUID().toString(), now,
+                now.plusSeconds(CLAIM_LEASE_SECONDS), DISPATCH_BATCH_SIZE);
+            if (due.isEmpty()) {
+                return dispatched;
+            }
+
+            Map<String, List<OutboxEvent>> byType = due.stream()
+                .collect(Collectors.groupingBy(OutboxEvent::getEventType, LinkedHashMap::new, Collectors.toList()));
+
+            List<Long> done = new ArrayList<>();
+            Map<OutboxEvent, Exception> failed = new LinkedHashMap<>();
+            for (Map.Entry<String, List<OutboxEvent>> entry : byType.entrySet()) {
+                List<OutboxHandler> handlers = HANDLERS.getOrDefault(entry.getKey(), Collections.emptyList());
+                List<OutboxEvent> events = entry.getValue();
+                try {
+                    runHandlers(handlers, events);
+                    events.forEach(event -> done.add(event.getOutboxId()));
+                } catch (Exception batchFailure) {
+                    // Isolate the failing entries so the rest of the batch still goes through
+                    for (OutboxEvent event : events) {
+                        try {
+                            runHandlers(handlers, List.of(event));
+                            done.add(event.getOutboxId());
+                        } catch (Exception e) {
+                            failed.put(event, e);
+                        }
+                    }
+                }
+            }
+
+            recordOutcome(done, failed);
+            dispatched += done.size();
+            logger.debug("Outbox dispatched {} entries, {} failed", done.size(), failed.size());
+
+            if (due.size() < DISPATCH_BATCH_SIZE) {
+                // Short batch: nothing more due, or another till claimed the rest
+                return dispatched;
+            }
+        }
+    }
+
+    private void runHandlers(List<OutboxHandler> handlers, List<OutboxEvent> events) throws Exception {
+        List<Long> aggregateIds = events.stream()
+            .map(OutboxEvent::getAggregateId)
+            .distinct()
+            .collect(Collectors.toList());
+        for (OutboxHandler handler : handlers) {
+            handler.handle(aggregateIds);
+        }
+    }
+
+    private void recordOutcome(List<Long> done, Map<OutboxEvent, Exception> failed) {
+        LocalDateTime now = LocalDateTime.now();
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            if (!done.isEmpty()) {
+                outboxDAO.markDone(session, done, now);
+            }
+            for (Map.Entry<OutboxEvent, Exception> entry : failed.entrySet()) {
+                OutboxEvent event = entry.getKey();
+                int attempts = event.getAttempts() + 1;
+                boolean giveUp = attempts >= MAX_ATTEMPTS;
+                long backoffSeconds = Math.min(MAX_BACKOFF_SECONDS, POLL_INTERVAL_SECONDS << attempts);
+                String error = String.valueOf(entry.getValue().getMessage());
+
+                outboxDAO.recordFailure(session, event.getOutboxId(),
+                    giveUp ? OutboxEvent.STATUS_FAILED : OutboxEvent.STATUS_PENDING,
+                    now.plusSeconds(backoffSeconds),
+                    error.length() > 500 ? error.substring(0, 500) : error);
+
+                if (giveUp) {
+                    logger.error("Outbox entry {} FAILED after {} attempts", event, attempts, entry.getValue());
+                } else {
+                    logger.warn("Outbox entry {} failed (attempt {}), retrying in {} s: {}",
+                        event, attempts, backoffSeconds, error);
+                }
+            }
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error recording outbox outcome: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete processed entries past the retention period.
+     * @return Number of entries deleted
+     */
+    public int purgeProcessed() {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            int deleted = outboxDAO.deleteDoneBefore(session, LocalDateTime.now().minusDays(RETENTION_DAYS));
+            transaction.commit();
+            if (deleted > 0) {
+                logger.info("Purged {} processed outbox entries", deleted);
+            }
+            return deleted;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error purging outbox: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Count outbox entries per status, for diagnostics.
+     * @return Map of status to entry count
+     */
+    public Map<String, Long> getStatusCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : outboxDAO.getStatusCounts()) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    // ==================== HANDLERS ====================
+
+    /**
+     * Consumer of outbox entries of one event type.
+     */
+    @FunctionalInterface
+    public interface OutboxHandler {
+        /**
+         * Process a batch of entries. Must be idempotent: an entry may be delivered again
+         * if the batch or the outcome update fails.
+         * @param aggregateIds The distinct aggregate IDs (Sale or Return IDs) of the entries
+         */
+        void handle(List<Long> aggregateIds) throws Exception;
+    }
+}
\ No newline at end of file
@@ -4,10 +4,13 @@ import com.chamathka.bathikpos.dao.ProductDAO;
 import com.chamathka.bathikpos.dao.ProductVariantDAO;
 import com.chamathka.bathikpos.entity.Product;
 import com.chamathka.bathikpos.entity.ProductVariant;
+import com.chamathka.bathikpos.event.EntityChangedEvent;
+import com.chamathka.bathikpos.event.EventBus;
 import com.chamathka.bathikpos.util.SessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -59,6 +62,7 @@ public class ProductService {
         sessionManager.requireAdmin();
         logger.info("Deleting product: {}", product.getName());
         productDAO.delete(product);
+        EventBus.getInstance().publish(new EntityChangedEvent(product, EntityChangedEvent.ChangeType.DELETED));
     }
 
     /**
@@ -110,7 +114,9 @@ public class ProductService {
         sessionManager.requireAdmin();
         logger.info("Creating new variant: {} for product: {}",
             variant.getItemCode(), variant.getProduct().getName());
-        return variantDAO.save(variant);
+        ProductVariant saved = variantDAO.save(variant);
+        EventBus.getInstance().publish(new EntityChangedEvent(saved, EntityChangedEvent.ChangeType.CREATED));
+        return saved;
     }
 
     /**
@@ -121,7 +127,9 @@ public class ProductService {
     public ProductVariant updateVariant(ProductVariant variant) {
         sessionManager.requireAdmin();
         logger.info("Updating variant: {}", variant.getItemCode());
-        return variantDAO.update(variant);
+        ProductVariant updated = variantDAO.update(variant);
+        EventBus.getInstance().publish(new EntityChangedEvent(updated, EntityChangedEvent.ChangeType.UPDATED));
+        return updated;
     }
 
     /**
@@ -132,6 +140,7 @@ public class ProductService {
         sessionManager.requireAdmin();
         logger.info("Deleting variant: {}", variant.getItemCode());
         variantDAO.delete(variant);
+        EventBus.getInstance().publish(new EntityChangedEvent(variant, EntityChangedEvent.ChangeType.DELETED));
     }
 
     /**
@@ -178,6 +187,15 @@ public class ProductService {
         return variantDAO.getInStockVariants();
     }
 
+    /**
+     * Get the variants among the given IDs that are in stock.
+     * @param variantIds The variant IDs
+     * @return List of in-stock variants
+     */
+    public List<ProductVariant> getInStockVariantsByIds(Collection<Long> variantIds) {
+        return variantDAO.findInStockByIds(variantIds);
+    }
+
     /**
      * Get all variants with low stock.
      * @return List of low-stock variants
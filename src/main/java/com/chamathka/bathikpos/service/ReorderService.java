@@ -0,0 +1,295 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.dao.GRNItemDAO;
+import com.chamathka.bathikpos.dao.ProductVariantDAO;
+import com.chamathka.bathikpos.dao.SaleItemDAO;
+import com.chamathka.bathikpos.entity.GRN;
+import com.chamathka.bathikpos.entity.GRNItem;
+import com.chamathka.bathikpos.entity.ProductVariant;
+import com.chamathka.bathikpos.entity.Supplier;
+import com.chamathka.bathikpos.util.SessionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Service for sales-velocity-driven reorder suggestions.
+ * Extends the low stock report: instead of only comparing stock with the static
+ * threshold, it projects days of cover from recent sales and suggests order
+ * quantities per supplier that can be saved as pending GRNs.
+ * Variants with no recent sales or no GRN cost history are still listed but
+ * flagged for manual review, and are never put into a pending GRN draft.
+ *
+ * All inputs are loaded with three set-based queries and the calculation runs
+ * over primitive per-variant arrays, so it scales to tens of thousands of SKUs.
+ */
+public class ReorderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReorderService.class);
+
+    private final ProductVariantDAO variantDAO;
+    private final SaleItemDAO saleItemDAO;
+    private final GRNItemDAO grnItemDAO;
+    private final GRNService grnService;
+    private final SessionManager sessionManager;
+
+    public ReorderService() {
+        this.variantDAO = new ProductVariantDAO();
+        this.saleItemDAO = new SaleItemDAO();
+        this.grnItemDAO = new GRNItemDAO();
+        this.grnService = new GRNService();
+        this.sessionManager = SessionManager.getInstance();
+    }
+
+    /**
+     * Calculate reorder suggestions for every variant that will run out before
+     * a new delivery could arrive.
+     * @param settings Velocity windows, lead time and cover target
+     * @return Suggestions ordered by supplier, most urgent first
+     */
+    public List<ReorderSuggestion> getReorderSuggestions(ReorderSettings settings) {
+        sessionManager.requireAdmin();
+        long startTime = System.currentTimeMillis();
+
+        // Step 1: Flat stock projection into primitive arrays
+        List<Object[]> stockRows = variantDAO.getStockProjection();
+        int count = stockRows.size();
+        Map<Long, Integer> indexById = new HashMap<>(count * 2);
+        int[] stock = new int[count];
+        int[] threshold = new int[count];
+        for (int i = 0; i < count; i++) {
+            Object[] row = stockRows.get(i);
+            indexById.put((Long) row[0], i);
+            stock[i] = ((Number) row[5]).intValue();
+            threshold[i] = ((Number) row[6]).intValue();
+        }
+
+        // Step 2: Units sold per variant over both windows (one GROUP BY query)
+        LocalDateTime now = LocalDateTime.now();
+        double[] velocity = new double[count];
+        List<Object[]> salesRows = saleItemDAO.sumQuantitySoldByVariant(
+                now.minusDays(settings.getShortWindowDays()),
+                now.minusDays(settings.getLongWindowDays()));
+        for (Object[] row : salesRows) {
+            Integer index = indexById.get((Long) row[0]);
+            if (index == null) {
+                continue;
+            }
+            double shortRate = ((Number) row[1]).doubleValue() / settings.getShortWindowDays();
+            double longRate = ((Number) row[2]).doubleValue() / settings.getLongWindowDays();
+            velocity[index] = settings.getShortWindowWeight() * shortRate
+                    + (1 - settings.getShortWindowWeight()) * longRate;
+        }
+
+        // Step 3: Average cost per variant for the GRN drafts (one GROUP BY query)
+        BigDecimal[] unitCost = new BigDecimal[count];
+        for (Object[] row : grnItemDAO.getAverageCostByVariant()) {
+            Integer index = indexById.get((Long) row[0]);
+            if (index != null && row[1] != null) {
+                unitCost[index] = new BigDecimal(row[1].toString()).setScale(2, RoundingMode.HALF_UP);
+            }
+        }
+
+        // Step 4: Reorder point = safety stock (threshold) + demand during lead time
+        List<ReorderSuggestion> suggestions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double reorderPoint = threshold[i] + velocity[i] * settings.getLeadTimeDays();
+            if (stock[i] > reorderPoint) {
+                continue;
+            }
+
+            double orderUpTo = threshold[i]
+                    + velocity[i] * (settings.getLeadTimeDays() + settings.getTargetCoverDays());
+            int quantity = Math.max(1, (int) Math.ceil(orderUpTo - stock[i]));
+            double daysOfCover = velocity[i] > 0 ? stock[i] / velocity[i] : Double.POSITIVE_INFINITY;
+
+            // Below threshold without recent sales (possibly dead stock), or no cost to order at
+            String reviewReason = velocity[i] <= 0 ? "No recent sales"
+                    : unitCost[i] == null ? "No cost history" : null;
+
+            Object[] row = stockRows.get(i);
+            suggestions.add(new ReorderSuggestion(
+                    (Long) row[7],
+                    (String) row[8],
+                    (Long) row[0],
+                    (String) row[1],
+                    (String) row[2],
+                    (String) row[3],
+                    (String) row[4],
+                    stock[i],
+                    velocity[i],
+                    daysOfCover,
+                    quantity,
+                    unitCost[i],
+                    reviewReason
+            ));
+        }
+
+        suggestions.sort(Comparator
+                .comparing((ReorderSuggestion s) -> s.getSupplierName() != null ? s.getSupplierName() : "")
+                .thenComparingDouble(ReorderSuggestion::getDaysOfCover));
+
+        logger.info("Calculated {} reorder suggestions across {} variants in {} ms",
+                suggestions.size(), count, System.currentTimeMillis() - startTime);
+        return suggestions;
+    }
+
+    /**
+     * Save reorder suggestions as one pending GRN per supplier.
+     * Variants without a supplier and suggestions flagged for review are skipped.
+     * @param suggestions The suggestions to order
+     * @return The saved pending GRNs
+     */
+    public List<GRN> createPendingGRNs(List<ReorderSuggestion> suggestions) {
+        sessionManager.requireAdmin();
+
+        Map<Long, GRN> grnBySupplier = new LinkedHashMap<>();
+        int skipped = 0;
+        for (ReorderSuggestion suggestion : suggestions) {
+            if (suggestion.getSupplierId() == null || suggestion.needsReview()) {
+                skipped++;
+                continue;
+            }
+
+            GRN grn = grnBySupplier.computeIfAbsent(suggestion.getSupplierId(), supplierId -> {
+                Supplier supplier = new Supplier();
+                supplier.setSupplierId(supplierId);
+                supplier.setSupplierName(suggestion.getSupplierName());
+                GRN draft = new GRN();
+                draft.setSupplier(supplier);
+                return draft;
+            });
+
+            ProductVariant variant = new ProductVariant();
+            variant.setVariantId(suggestion.getVariantId());
+            variant.setItemCode(suggestion.getSku());
+            grn.addItem(new GRNItem(grn, variant, suggestion.getSuggestedQuantity(), suggestion.getUnitCost()));
+        }
+
+        List<GRN> saved = new ArrayList<>();
+        for (GRN grn : grnBySupplier.values()) {
+            saved.add(grnService.savePendingGRN(grn));
+        }
+
+        logger.info("Created {} pending GRNs from {} reorder suggestions ({} skipped for review or no supplier)",
+                saved.size(), suggestions.size(), skipped);
+        return saved;
+    }
+
+    // ==================== DATA CLASSES ====================
+
+    /**
+     * Parameters for the reorder calculation.
+     */
+    public static class ReorderSettings {
+        private final int shortWindowDays;
+        private final int longWindowDays;
+        private final double shortWindowWeight;
+        private final int leadTimeDays;
+        private final int targetCoverDays;
+
+        /**
+         * Default settings: 14/60 day windows weighted 60/40, 7 day lead time, 30 days of cover.
+         */
+        public ReorderSettings() {
+            this(14, 60, 0.6, 7, 30);
+        }
+
+        public ReorderSettings(int shortWindowDays, int longWindowDays, double shortWindowWeight,
+                               int leadTimeDays, int targetCoverDays) {
+            if (shortWindowDays <= 0 || longWindowDays < shortWindowDays) {
+                throw new IllegalArgumentException("Windows must satisfy 0 < short <= long");
+            }
+            if (shortWindowWeight < 0 || shortWindowWeight > 1) {
+                throw new IllegalArgumentException("Short window weight must be between 0 and 1");
+            }
+            this.shortWindowDays = shortWindowDays;
+            this.longWindowDays = longWindowDays;
+            this.shortWindowWeight = shortWindowWeight;
+            this.leadTimeDays = leadTimeDays;
+            this.targetCoverDays = targetCoverDays;
+        }
+
+        public int getShortWindowDays() { return shortWindowDays; }
+        public int getLongWindowDays() { return longWindowDays; }
+        public double getShortWindowWeight() { return shortWindowWeight; }
+        public int getLeadTimeDays() { return leadTimeDays; }
+        public int getTargetCoverDays() { return targetCoverDays; }
+    }
+
+    /**
+     * Reorder suggestion for one variant.
+     */
+    public static class ReorderSuggestion {
+        private final Long supplierId;
+        private final String supplierName;
+        private final Long variantId;
+        private final String sku;
+        private final String productName;
+        private final String size;
+        private final String color;
+        private final int currentStock;
+        private final double velocityPerDay;
+        private final double daysOfCover;
+        private final int suggestedQuantity;
+        private final BigDecimal unitCost;
+        private final String reviewReason;
+
+        /**
+         * @param unitCost Average GRN cost, or null if the variant has never been received
+         * @param reviewReason Why the suggestion must be reviewed manually, or null
+         */
+        public ReorderSuggestion(Long supplierId, String supplierName, Long variantId, String sku,
+                                 String productName, String size, String color, int currentStock,
+                                 double velocityPerDay, double daysOfCover, int suggestedQuantity,
+                                 BigDecimal unitCost, String reviewReason) {
+            this.supplierId = supplierId;
+            this.supplierName = supplierName;
+            this.variantId = variantId;
+            this.sku = sku;
+            this.productName = productName;
+            this.size = size;
+            this.color = color;
+            this.currentStock = currentStock;
+            this.velocityPerDay = velocityPerDay;
+            this.daysOfCover = daysOfCover;
+            this.suggestedQuantity = suggestedQuantity;
+            this.unitCost = unitCost;
+            this.reviewReason = reviewReason;
+        }
+
+        public Long getSupplierId() { return supplierId; }
+        public String getSupplierName() { return supplierName; }
+        public Long getVariantId() { return variantId; }
+        public String getSku() { return sku; }
+        public String getProductName() { return productName; }
+        public String getSize() { return size; }
+        public String getColor() { return color; }
+        public int getCurrentStock() { return currentStock; }
+        public double getVelocityPerDay() { return velocityPerDay; }
+        public double getDaysOfCover() { return daysOfCover; }
+        public int getSuggestedQuantity() { return suggestedQuantity; }
+        public BigDecimal getUnitCost() { return unitCost; }
+        public String getReviewReason() { return reviewReason; }
+
+        public boolean needsReview() {
+            return reviewReason != null;
+        }
+
+        public String getUnitCostDisplay() {
+            return unitCost != null ? unitCost.toPlainString() : "Unknown";
+        }
+
+        public String getVelocityDisplay() {
+            return String.format("%.2f", velocityPerDay);
+        }
+
+        public String getDaysOfCoverDisplay() {
+            return Double.isInfinite(daysOfCover) ? "No sales" : String.format("%.1f", daysOfCover);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.dao.ChangeLogDAO;
+import com.chamathka.bathikpos.entity.ChangeLog;
+import com.chamathka.bathikpos.entity.StockMovement;
+import com.chamathka.bathikpos.util.ChangeBatch;
+import com.chamathka.bathikpos.util.ChangeBatch.Table;
+import com.chamathka.bathikpos.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sync agent that replicates the branch change log to head office.
+ *
+ * Sales, returns, GRN confirmations and stock adjustments append a ChangeLog
+ * entry in their own transaction. The agent asks head office for the last
+ * sequence it acknowledged, reads the entries after it in order, and ships
+ * them as compressed batches of flattened rows (see ChangeBatch). Head office
+ * applies a batch and moves its acknowledgement in one transaction, so the
+ * agent resumes from the right place after a restart or a lost reply and a
+ * batch sent twice is only applied once.
+ *
+ * Enabled by -Dbatikpos.sync.url (JDBC URL of the central database, or of a
+ * local stand-in such as an H2 file), with -Dbatikpos.sync.user,
+ * -Dbatikpos.sync.password and -Dbatikpos.sync.branch (this branch's ID).
+ * Each can also be set as an environment variable, e.g. BATIKPOS_SYNC_URL.
+ *
+ * The change log is written whether or not sync is enabled, so a branch can be
+ * connected later. Without a sync agent nothing acknowledges the entries, so a
+ * daily job deletes the ones older than the retention period instead.
+ */
+public class ReplicationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationService.class);
+
+    private static final long SYNC_INTERVAL_SECONDS = 60;
+    private static final int SYNC_BATCH_SIZE = 500;
+    private static final int RETENTION_DAYS = 7;
+
+    /**
+     * Entries younger than this are left for the next run. IDENTITY keys can commit
+     * out of order, so this keeps in-flight transactions from being skipped.
+     */
+    private static final long SAFETY_LAG_SECONDS = 30;
+
+    private static ScheduledExecutorService syncAgent;
+    private static volatile ReplicationService runningAgent;
+
+    private final ChangeLogDAO changeLogDAO;
+    private final String branchId;
+    private final CentralNode centralNode;
+    private volatile long lastAcknowledged;
+
+    public ReplicationService(String branchId, CentralNode centralNode) {
+        this.changeLogDAO = new ChangeLogDAO();
+        this.branchId = branchId;
+        this.centralNode = centralNode;
+    }
+
+    /**
+     * Start the background sync agent if a central database is configured,
+     * or else the daily purge of expired change log entries.
+     * Safe to call more than once.
+     */
+    public static synchronized void startSyncAgent() {
+        if (syncAgent != null) {
+            return;
+        }
+        String url = setting("url", "");
+        syncAgent = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sync-agent");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (url.isBlank()) {
+            syncAgent.scheduleWithFixedDelay(() -> {
+                try {
+                    purgeExpired();
+                } catch (Exception e) {
+                    logger.error("Change log purge failed", e);
+                }
+            }, 60, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+            logger.info("Head-office sync disabled (no batikpos.sync.url); change log kept for {} days",
+                RETENTION_DAYS);
+            return;
+        }
+        String branchId = setting("branch", "MAIN");
+        CentralNode centralNode = new JdbcCentralNode(url, setting("user", ""), setting("password", ""));
+
+        ReplicationService replicationService = new ReplicationService(branchId, centralNode);
+        runningAgent = replicationService;
+        syncAgent.scheduleWithFixedDelay(() -> {
+            try {
+                replicationService.syncNow();
+            } catch (Exception e) {
+                // Nothing was acknowledged, so the next run resends from the same place
+                logger.warn("Head-office sync failed, retrying in {} s: {}", SYNC_INTERVAL_SECONDS, e.getMessage());
+            }
+        }, 10, SYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        syncAgent.scheduleWithFixedDelay(() -> {
+            try {
+                replicationService.purgeAcknowledged();
+            } catch (Exception e) {
+                logger.error("Change log purge failed", e);
+            }
+        }, 60, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+
+        logger.info("Head-office sync agent started for branch {} (every {} s)", branchId, SYNC_INTERVAL_SECONDS);
+    }
+
+    /**
+     * Read a sync setting from -Dbatikpos.sync.NAME or the BATIKPOS_SYNC_NAME environment variable.
+     */
+    private static String setting(String name, String defaultValue) {
+        String value = System.getProperty("batikpos.sync." + name,
+            System.getenv("BATIKPOS_SYNC_" + name.toUpperCase()));
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Stop the background sync agent. Unshipped entries stay in the change log.
+     */
+    public static synchronized void stopSyncAgent() {
+        if (syncAgent != null) {
+            syncAgent.shutdownNow();
+            syncAgent = null;
+            runningAgent = null;
+        }
+    }
+
+    /**
+     * Check whether head-office sync is configured.
+     * @return true if batikpos.sync.url is set
+     */
+    public static boolean isEnabled() {
+        return !setting("url", "").isBlank();
+    }
+
+    /**
+     * Get the last sequence head office acknowledged, as of the running agent's latest run.
+     * @return The sequence, 0 if no agent is running or it has not reached head office yet
+     */
+    public static long getAcknowledgedSequence() {
+        ReplicationService agent = runningAgent;
+        return agent != null ? agent.lastAcknowledged : 0;
+    }
+
+    /**
+     * Ship every settled change-log entry head office has not acknowledged yet.
+     * @return Number of entries shipped
+     */
+    public int syncNow() {
+        long acknowledged = centralNode.getAcknowledgedSequence(branchId);
+        lastAcknowledged = acknowledged;
+        int shipped = 0;
+        while (true) {
+            List<ChangeLog> entries = changeLogDAO.findAfter(acknowledged,
+                LocalDateTime.now().minusSeconds(SAFETY_LAG_SECONDS), SYNC_BATCH_SIZE);
+            if (entries.isEmpty()) {
+                return shipped;
+            }
+
+            long startTime = System.currentTimeMillis();
+            ChangeBatch batch = buildBatch(acknowledged, entries);
+            byte[] data = batch.encode();
+            acknowledged = centralNode.apply(data);
+            lastAcknowledged = acknowledged;
+            shipped += entries.size();
+
+            logger.info("Shipped changes ({}, {}] to head office: {} rows in {} bytes in {} ms",
+                batch.getAfterSequence(), batch.getLastSequence(), batch.getRowCount(), data.length,
+                System.currentTimeMillis() - startTime);
+
+            if (entries.size() < SYNC_BATCH_SIZE) {
+                return shipped;
+            }
+        }
+    }
+
+    /**
+     * Build the batch for a run of entries: the documents with their lines and
+     * ledger movements, and the adjustments, each read with one query per table.
+     */
+    private ChangeBatch buildBatch(long afterSequence, List<ChangeLog> entries) {
+        Map<String, Set<Long>> idsByType = new HashMap<>();
+        for (ChangeLog entry : entries) {
+            idsByType.computeIfAbsent(entry.getChangeType(), type -> new LinkedHashSet<>()).add(entry.getEntityId());
+        }
+        Set<Long> saleIds = idsByType.getOrDefault(ChangeLog.TYPE_SALE, Collections.emptySet());
+        Set<Long> returnIds = idsByType.getOrDefault(ChangeLog.TYPE_RETURN, Collections.emptySet());
+        Set<Long> grnIds = idsByType.getOrDefault(ChangeLog.TYPE_GRN, Collections.emptySet());
+        Set<Long> movementIds = idsByType.getOrDefault(ChangeLog.TYPE_STOCK_MOVEMENT, Collections.emptySet());
+
+        ChangeBatch batch = new ChangeBatch(branchId, afterSequence, entries.get(entries.size() - 1).getChangeId());
+        batch.addRows(Table.SALE, changeLogDAO.findSaleRows(saleIds));
+        batch.addRows(Table.SALE_ITEM, changeLogDAO.findSaleItemRows(saleIds));
+        batch.addRows(Table.SALE_RETURN, changeLogDAO.findReturnRows(returnIds));
+        batch.addRows(Table.RETURN_ITEM, changeLogDAO.findReturnItemRows(returnIds));
+        batch.addRows(Table.GRN, changeLogDAO.findGRNRows(grnIds));
+        batch.addRows(Table.GRN_ITEM, changeLogDAO.findGRNItemRows(grnIds));
+        batch.addRows(Table.STOCK_MOVEMENT, changeLogDAO.findMovementRowsByReference(StockMovement.TYPE_SALE, saleIds));
+        batch.addRows(Table.STOCK_MOVEMENT, changeLogDAO.findMovementRowsByReference(StockMovement.TYPE_RETURN, returnIds));
+        batch.addRows(Table.STOCK_MOVEMENT, changeLogDAO.findMovementRowsByReference(StockMovement.TYPE_GRN, grnIds));
+        batch.addRows(Table.STOCK_MOVEMENT, changeLogDAO.findMovementRows(movementIds));
+        return batch;
+    }
+
+    /**
+     * Delete acknowledged entries past the retention period.
+     * @return Number of entries deleted
+     */
+    public int purgeAcknowledged() {
+        long acknowledged = lastAcknowledged;
+        if (acknowledged == 0) {
+            return 0;
+        }
+        return purge(acknowledged);
+    }
+
+    /**
+     * Delete every entry past the retention period, shipped or not.
+     * For branches without head-office sync, where nothing acknowledges entries.
+     * @return Number of entries deleted
+     */
+    public static int purgeExpired() {
+        return purge(Long.MAX_VALUE);
+    }
+
+    private static int purge(long upToChangeId) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            int deleted = new ChangeLogDAO().deleteAcknowledged(session, upToChangeId,
+                LocalDateTime.now().minusDays(RETENTION_DAYS));
+            transaction.commit();
+            if (deleted > 0) {
+                logger.info("Purged {} change log entries older than {} days", deleted, RETENTION_DAYS);
+            }
+            return deleted;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error purging change log: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the last sequence head office acknowledged, as of the latest run.
+     * @return The sequence, 0 before the first run
+     */
+    public long getLastAcknowledged() {
+        return lastAcknowledged;
+    }
+
+    // ==================== CENTRAL NODE ====================
+
+    /**
+     * The head-office side of the replication.
+     */
+    public interface CentralNode {
+        /**
+         * Get the last change-log sequence applied for a branch.
+         * @param branchId The branch ID
+         * @return The sequence, 0 if nothing was applied yet
+         */
+        long getAcknowledgedSequence(String branchId);
+
+        /**
+         * Apply a batch from {@link ChangeBatch#encode()}. Must be idempotent: a batch
+         * that was already applied is acknowledged again without changes.
+         * @param compressedBatch The compressed batch
+         * @return The branch's acknowledged sequence after the batch
+         */
+        long apply(byte[] compressedBatch);
+    }
+}
\ No newline at end of file
@@ -2,6 +2,9 @@ package com.chamathka.bathikpos.service;
 
 import com.chamathka.bathikpos.dao.*;
 import com.chamathka.bathikpos.entity.*;
+import com.chamathka.bathikpos.util.CancellationScope;
+import com.chamathka.bathikpos.util.HibernateUtil;
+import com.chamathka.bathikpos.util.ReportCache;
 import com.chamathka.bathikpos.util.SessionManager;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
@@ -9,10 +12,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -23,16 +38,32 @@ public class ReportService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
 
+    // Bounded pool for partitioned reports, using at most half of the reporting connections
+    private static final int PARTITION_THREADS = Math.max(1, HibernateUtil.getReportingPoolSize() / 2);
+    private static final AtomicInteger PARTITION_THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService PARTITION_EXECUTOR = Executors.newFixedThreadPool(PARTITION_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "report-partition-" + PARTITION_THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final long CANCEL_POLL_MILLIS = 200;
+
     private final ProductVariantDAO productVariantDAO;
     private final SaleDAO saleDAO;
+    private final SaleArchiveDAO saleArchiveDAO;
     private final CustomerDAO customerDAO;
+    private final ReturnDAO returnDAO;
     private final SessionManager sessionManager;
+    private final ReportCache reportCache;
 
     public ReportService() {
         this.productVariantDAO = new ProductVariantDAO();
         this.saleDAO = new SaleDAO();
+        this.saleArchiveDAO = new SaleArchiveDAO();
         this.customerDAO = new CustomerDAO();
+        this.returnDAO = new ReturnDAO();
         this.sessionManager = SessionManager.getInstance();
+        this.reportCache = ReportCache.getInstance();
     }
 
     /**
@@ -61,6 +92,10 @@ public class ReportService {
 
     /**
      * Get sales report for a date range.
+     * Refunds for returns made within the range are netted out of the total.
+     * Results are cached per range. A closed historical range is served from the
+     * cache; a range that includes today only re-reads the sales saved after the
+     * cached watermark, and the refund aggregate only re-runs after a new return.
      */
     public SalesReportSummary getSalesReport(LocalDate startDate, LocalDate endDate) {
         sessionManager.requireAuthentication();
@@ -69,8 +104,57 @@ public class ReportService {
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
 
-        List<Sale> sales = saleDAO.findByDateRange(startDateTime, endDateTime);
+        String cacheKey = "SALES:" + startDate + ":" + endDate;
+        ReportCache.Versions versions = currentVersions();
+        ReportCache.Entry<SalesReportSummary> cached = reportCache.get(cacheKey, SalesReportSummary.class);
+
+        // Sales and returns fall in a range by their own timestamps, so a closed range never changes
+        if (cached != null && (cached.isClosedFor(endDate)
+                || (cached.getVersions().sameAs(versions) && cached.isWithinSafetyLag()))) {
+            logger.info("Serving cached sales report from {} to {}", startDate, endDate);
+            return cached.getValue();
+        }
+
+        List<Sale> sales;
+        long watermark;
+        if (cached == null) {
+            sales = findSales(startDateTime, endDateTime);
+            watermark = settledWatermark(sales, 0);
+        } else {
+            // Keep the settled sales and re-read everything saved after the watermark
+            List<Sale> delta = saleDAO.findByDateRangeAfterId(startDateTime, endDateTime, cached.getWatermark());
+            logger.info("Merging {} new sales into cached sales report", delta.size());
+            sales = new ArrayList<>(delta);
+            for (Sale sale : cached.getValue().getAllSales()) {
+                if (sale.getSaleId() <= cached.getWatermark()) {
+                    sales.add(sale);
+                }
+            }
+            watermark = settledWatermark(delta, cached.getWatermark());
+        }
+
+        // Refunds only change when a return is processed: one aggregate over the range
+        int totalReturns;
+        BigDecimal totalRefunds;
+        if (cached != null && cached.getVersions().sameReturns(versions) && cached.isWithinSafetyLag()) {
+            totalReturns = cached.getValue().getTotalReturns();
+            totalRefunds = cached.getValue().getTotalRefunds();
+        } else {
+            Object[] refunds = returnDAO.getReturnCountAndRefundTotal(startDateTime, endDateTime);
+            totalReturns = ((Number) refunds[0]).intValue();
+            totalRefunds = toBigDecimal(refunds[1]);
+        }
+
+        SalesReportSummary summary = buildSalesReport(startDate, endDate, sales, totalReturns, totalRefunds);
+        reportCache.put(cacheKey, summary, versions, watermark, sales.size());
+        return summary;
+    }
 
+    /**
+     * Aggregate a list of sales into a sales report summary.
+     */
+    private SalesReportSummary buildSalesReport(LocalDate startDate, LocalDate endDate, List<Sale> sales,
+                                                int totalReturns, BigDecimal totalRefunds) {
         // Calculate totals
         BigDecimal totalSales = sales.stream()
                 .map(Sale::getTotalAmount)
@@ -138,6 +222,8 @@ public class ReportService {
                 totalSales,
                 totalDiscount,
                 totalTransactions,
+                totalReturns,
+                totalRefunds,
                 new ArrayList<>(salesByUser.values()),
                 new ArrayList<>(salesByCustomer.values()),
                 salesByPaymentType,
@@ -148,6 +234,11 @@ public class ReportService {
     /**
      * Get profit report by calculating the difference between selling price and cost price.
      * This requires joining SaleItem (priceAtSale) with GRNItem (costPrice).
+     * Items returned within the range are added as negative lines, so their refund
+     * and cost are netted out of the totals.
+     * Results are cached like the sales report. A confirmed GRN changes the average
+     * cost prices and forces a full recalculation; return lines are few and are
+     * re-read whenever the sale lines are.
      */
     public ProfitReportSummary getProfitReport(LocalDate startDate, LocalDate endDate) {
         sessionManager.requireAdmin(); // Profit report is admin-only
@@ -156,19 +247,58 @@ public class ReportService {
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
 
-        List<Sale> sales = saleDAO.findByDateRange(startDateTime, endDateTime);
+        String cacheKey = "PROFIT:" + startDate + ":" + endDate;
+        ReportCache.Versions versions = currentVersions();
+        ReportCache.Entry<ProfitReportSummary> cached = reportCache.get(cacheKey, ProfitReportSummary.class);
+
+        boolean sameCosts = cached != null && cached.getVersions().sameStockCost(versions);
+        if (sameCosts && (cached.isClosedFor(endDate)
+                || (cached.getVersions().sameAs(versions) && cached.isWithinSafetyLag()))) {
+            logger.info("Serving cached profit report from {} to {}", startDate, endDate);
+            return cached.getValue();
+        }
 
+        List<ProfitReportItem> profitItems;
+        long watermark;
+        Map<Long, BigDecimal> costCache = new HashMap<>();
+        if (sameCosts) {
+            // Keep the settled sale lines and re-read the sales saved after the watermark
+            List<Sale> delta = saleDAO.findByDateRangeAfterId(startDateTime, endDateTime, cached.getWatermark());
+            logger.info("Merging {} new sales into cached profit report", delta.size());
+            profitItems = buildProfitItems(delta, costCache);
+            for (ProfitReportItem item : cached.getValue().getItems()) {
+                if (item.getSaleId() != null && item.getSaleId() <= cached.getWatermark()) {
+                    profitItems.add(item);
+                }
+            }
+            watermark = settledWatermark(delta, cached.getWatermark());
+        } else {
+            List<Sale> sales = findSales(startDateTime, endDateTime);
+            profitItems = buildProfitItems(sales, costCache);
+            watermark = settledWatermark(sales, 0);
+        }
+        profitItems.addAll(buildReturnProfitItems(
+                returnDAO.findItemsByDateRange(startDateTime, endDateTime), costCache));
+
+        ProfitReportSummary summary = buildProfitReport(startDate, endDate, profitItems);
+        reportCache.put(cacheKey, summary, versions, watermark, profitItems.size());
+        return summary;
+    }
+
+    /**
+     * Build profit line items for a list of sales.
+     * @param costCache Average cost per variant ID, filled as variants are first seen
+     */
+    private List<ProfitReportItem> buildProfitItems(List<Sale> sales, Map<Long, BigDecimal> costCache) {
         List<ProfitReportItem> profitItems = new ArrayList<>();
-        BigDecimal totalRevenue = BigDecimal.ZERO;
-        BigDecimal totalCost = BigDecimal.ZERO;
-        BigDecimal totalProfit = BigDecimal.ZERO;
 
         for (Sale sale : sales) {
             for (SaleItem saleItem : sale.getItems()) {
                 ProductVariant variant = saleItem.getVariant();
 
                 // Get average cost price from GRN items for this variant
-                BigDecimal avgCostPrice = getAverageCostPrice(variant);
+                BigDecimal avgCostPrice = costCache.computeIfAbsent(
+                        variant.getVariantId(), id -> getAverageCostPrice(variant));
 
                 // Calculate profit for this item
                 int quantity = saleItem.getQuantitySold();
@@ -177,11 +307,8 @@ public class ReportService {
                 BigDecimal cost = avgCostPrice.multiply(BigDecimal.valueOf(quantity));
                 BigDecimal profit = revenue.subtract(cost);
 
-                totalRevenue = totalRevenue.add(revenue);
-                totalCost = totalCost.add(cost);
-                totalProfit = totalProfit.add(profit);
-
                 profitItems.add(new ProfitReportItem(
+                        sale.getSaleId(),
                         sale.getSaleTimestamp(),
                         variant.getProduct().getName(),
                         variant.getItemCode(),
@@ -197,29 +324,378 @@ public class ReportService {
             }
         }
 
-        // Calculate profit margin
-        BigDecimal profitMargin = totalRevenue.compareTo(BigDecimal.ZERO) > 0
+        return profitItems;
+    }
+
+    /**
+     * Build negative profit line items for returned items: the refund is taken
+     * off revenue and the restocked units off cost.
+     * @param costCache Average cost per variant ID, filled as variants are first seen
+     */
+    private List<ProfitReportItem> buildReturnProfitItems(List<ReturnItem> returnItems,
+                                                          Map<Long, BigDecimal> costCache) {
+        List<ProfitReportItem> profitItems = new ArrayList<>();
+
+        for (ReturnItem returnItem : returnItems) {
+            ProductVariant variant = returnItem.getVariant();
+            BigDecimal avgCostPrice = costCache.computeIfAbsent(
+                    variant.getVariantId(), id -> getAverageCostPrice(variant));
+
+            int quantity = -returnItem.getQuantityReturned();
+            BigDecimal refundPrice = returnItem.getRefundPrice();
+            BigDecimal revenue = refundPrice.multiply(BigDecimal.valueOf(quantity));
+            BigDecimal cost = avgCostPrice.multiply(BigDecimal.valueOf(quantity));
+
+            profitItems.add(new ProfitReportItem(
+                    null,
+                    returnItem.getSaleReturn().getReturnTimestamp(),
+                    variant.getProduct().getName() + " (Return)",
+                    variant.getItemCode(),
+                    variant.getAttributeSize(),
+                    variant.getAttributeColor(),
+                    quantity,
+                    avgCostPrice,
+                    refundPrice,
+                    revenue,
+                    cost,
+                    revenue.subtract(cost)
+            ));
+        }
+
+        return profitItems;
+    }
+
+    /**
+     * Total a list of profit line items into a profit report summary.
+     */
+    private ProfitReportSummary buildProfitReport(LocalDate startDate, LocalDate endDate,
+                                                  List<ProfitReportItem> profitItems) {
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        BigDecimal totalProfit = BigDecimal.ZERO;
+
+        for (ProfitReportItem item : profitItems) {
+            totalRevenue = totalRevenue.add(item.getRevenue());
+            totalCost = totalCost.add(item.getCost());
+            totalProfit = totalProfit.add(item.getProfit());
+        }
+
+        return new ProfitReportSummary(
+                startDate,
+                endDate,
+                totalRevenue,
+                totalCost,
+                totalProfit,
+                profitMargin(totalRevenue, totalProfit),
+                profitItems
+        );
+    }
+
+    /**
+     * Calculate the profit margin as a percentage of revenue.
+     */
+    private static BigDecimal profitMargin(BigDecimal totalRevenue, BigDecimal totalProfit) {
+        return totalRevenue.compareTo(BigDecimal.ZERO) > 0
                 ? totalProfit.divide(totalRevenue, 4, BigDecimal.ROUND_HALF_UP)
                         .multiply(BigDecimal.valueOf(100))
                 : BigDecimal.ZERO;
+    }
 
+    /**
+     * Find the sales in a date range, live and archived, newest first.
+     * New sales are never archived, so the watermark deltas only read the live table.
+     */
+    private List<Sale> findSales(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        List<Sale> sales = saleDAO.findByDateRange(startDateTime, endDateTime);
+        List<Sale> archived = saleArchiveDAO.findSalesByDateRange(startDateTime, endDateTime);
+        if (!archived.isEmpty()) {
+            sales = new ArrayList<>(sales);
+            sales.addAll(archived);
+            sales.sort(Comparator.comparing(Sale::getSaleTimestamp).reversed());
+        }
+        return sales;
+    }
+
+    /**
+     * Read the data versions report results are cached against.
+     */
+    private ReportCache.Versions currentVersions() {
+        Object[] versions = saleDAO.getReportDataVersions();
+        return new ReportCache.Versions(toLong(versions[0]), toLong(versions[1]), toLong(versions[2]));
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * Highest ID among the sales older than the safety lag, used as the cache
+     * watermark. Sales saved after it are re-read on the next lookup, so one whose
+     * transaction commits late with a lower ID is still picked up.
+     * @param floor The previous watermark
+     */
+    private static long settledWatermark(List<Sale> sales, long floor) {
+        LocalDateTime settled = LocalDateTime.now().minusSeconds(ReportCache.SAFETY_LAG_SECONDS);
+        return sales.stream()
+                .filter(sale -> sale.getSaleTimestamp().isBefore(settled))
+                .mapToLong(Sale::getSaleId)
+                .reduce(floor, Math::max);
+    }
+
+    // ==================== PARTITIONED REPORTS ====================
+
+    /**
+     * Generate a sales report for a long date range by splitting it into monthly
+     * partitions that are computed in parallel. Each partition uses its own
+     * read-only session and its own cache entry, so closed months are reused
+     * across runs.
+     * @param listener Receives the combined report after each partition finishes
+     * @param cancelled Polled while partitions run; when true the running queries are cancelled
+     * @throws CancellationException if the generation was cancelled
+     */
+    public SalesReportSummary getSalesReportPartitioned(LocalDate startDate, LocalDate endDate,
+                                                        PartitionListener<SalesReportSummary> listener,
+                                                        BooleanSupplier cancelled) {
+        sessionManager.requireAuthentication();
+        logger.info("Generating partitioned sales report from {} to {}", startDate, endDate);
+
+        return runPartitioned(startDate, endDate,
+                partition -> getSalesReport(partition.start, partition.end),
+                (combined, partition, part) -> mergeSalesReport(startDate, endDate, combined, partition, part),
+                listener, cancelled);
+    }
+
+    /**
+     * Generate a profit report for a long date range by splitting it into monthly
+     * partitions that are computed in parallel.
+     * @param listener Receives the combined report after each partition finishes
+     * @param cancelled Polled while partitions run; when true the running queries are cancelled
+     * @throws CancellationException if the generation was cancelled
+     */
+    public ProfitReportSummary getProfitReportPartitioned(LocalDate startDate, LocalDate endDate,
+                                                          PartitionListener<ProfitReportSummary> listener,
+                                                          BooleanSupplier cancelled) {
+        sessionManager.requireAdmin(); // Profit report is admin-only
+        logger.info("Generating partitioned profit report from {} to {}", startDate, endDate);
+
+        return runPartitioned(startDate, endDate,
+                partition -> getProfitReport(partition.start, partition.end),
+                (combined, partition, part) -> mergeProfitReport(startDate, endDate, combined, partition, part),
+                listener, cancelled);
+    }
+
+    /**
+     * Run a report over monthly partitions on the bounded partition pool.
+     * Each finished partition is merged into the running result once, in the
+     * position of its month, matching the DESC ordering of a single query.
+     * The partitions' sessions share a CancellationScope, so cancelling (or a
+     * failed partition) stops the statements still running, not just the
+     * partitions that have not started.
+     */
+    private <T> T runPartitioned(LocalDate startDate, LocalDate endDate,
+                                 Function<Partition, T> compute,
+                                 PartitionMerge<T> merge,
+                                 PartitionListener<T> listener,
+                                 BooleanSupplier cancelled) {
+        List<Partition> partitions = partitionByMonth(startDate, endDate);
+        CompletionService<T> completionService = new ExecutorCompletionService<>(PARTITION_EXECUTOR);
+        CancellationScope scope = new CancellationScope();
+        Map<Future<T>, Partition> futures = new LinkedHashMap<>();
+
+        for (Partition partition : partitions) {
+            futures.put(completionService.submit(() -> scope.run(() -> compute.apply(partition))), partition);
+        }
+
+        boolean finished = false;
+        try {
+            T combined = null;
+            for (int completed = 1; completed <= partitions.size(); completed++) {
+                Future<T> future;
+                do {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("Report generation cancelled");
+                    }
+                    future = completionService.poll(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } while (future == null);
+
+                combined = merge.merge(combined, futures.get(future), future.get());
+                if (listener != null) {
+                    listener.onPartitionComplete(combined, completed, partitions.size());
+                }
+            }
+            finished = true;
+            return combined;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Report generation interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Report partition failed: " + cause.getMessage(), cause);
+        } finally {
+            if (!finished) {
+                // Drop the partitions that have not started and stop the queries of those that have
+                for (Future<T> future : futures.keySet()) {
+                    future.cancel(true);
+                }
+                int cancelledQueries = scope.cancel();
+                logger.info("Partitioned report stopped, {} running queries cancelled", cancelledQueries);
+            }
+        }
+    }
+
+    /**
+     * Split a date range into calendar-month partitions clipped to the range.
+     */
+    private static List<Partition> partitionByMonth(LocalDate startDate, LocalDate endDate) {
+        List<Partition> partitions = new ArrayList<>();
+        LocalDate partitionStart = startDate;
+        while (!partitionStart.isAfter(endDate)) {
+            LocalDate monthEnd = partitionStart.withDayOfMonth(partitionStart.lengthOfMonth());
+            LocalDate partitionEnd = monthEnd.isBefore(endDate) ? monthEnd : endDate;
+            partitions.add(new Partition(partitionStart, partitionEnd));
+            partitionStart = partitionEnd.plusDays(1);
+        }
+        return partitions;
+    }
+
+    /**
+     * Merge one partition's sales report into the report combined so far.
+     * Totals and groupings are added to, and the partition's sales are spliced
+     * in at its month, so each partition is merged only once.
+     * @param combined The partitions merged so far, or null for the first one
+     */
+    private SalesReportSummary mergeSalesReport(LocalDate startDate, LocalDate endDate,
+                                                SalesReportSummary combined, Partition partition,
+                                                SalesReportSummary part) {
+        if (combined == null) {
+            return new SalesReportSummary(startDate, endDate, part.getTotalSales(), part.getTotalDiscount(),
+                    part.getTotalTransactions(), part.getTotalReturns(), part.getTotalRefunds(),
+                    part.getSalesByUser(), part.getSalesByCustomer(), part.getSalesByPaymentType(),
+                    part.getAllSales());
+        }
+
+        Map<String, SalesUserSummary> salesByUser = new LinkedHashMap<>();
+        for (SalesUserSummary summary : combined.getSalesByUser()) {
+            salesByUser.put(summary.getUsername(), summary);
+        }
+        for (SalesUserSummary summary : part.getSalesByUser()) {
+            salesByUser.merge(summary.getUsername(), summary, (a, b) -> new SalesUserSummary(
+                    a.getUsername(),
+                    a.getTransactionCount() + b.getTransactionCount(),
+                    a.getTotalAmount().add(b.getTotalAmount())));
+        }
+
+        Map<String, SalesCustomerSummary> salesByCustomer = new LinkedHashMap<>();
+        for (SalesCustomerSummary summary : combined.getSalesByCustomer()) {
+            salesByCustomer.put(summary.getCustomerName(), summary);
+        }
+        for (SalesCustomerSummary summary : part.getSalesByCustomer()) {
+            salesByCustomer.merge(summary.getCustomerName(), summary, (a, b) -> new SalesCustomerSummary(
+                    a.getCustomerName(),
+                    a.getPhoneNumber(),
+                    a.getTransactionCount() + b.getTransactionCount(),
+                    a.getTotalAmount().add(b.getTotalAmount())));
+        }
+
+        Map<String, BigDecimal> salesByPaymentType = new HashMap<>(combined.getSalesByPaymentType());
+        part.getSalesByPaymentType().forEach((type, amount) -> salesByPaymentType.merge(type, amount, BigDecimal::add));
+
+        return new SalesReportSummary(
+                startDate,
+                endDate,
+                combined.getTotalSales().add(part.getTotalSales()),
+                combined.getTotalDiscount().add(part.getTotalDiscount()),
+                combined.getTotalTransactions() + part.getTotalTransactions(),
+                combined.getTotalReturns() + part.getTotalReturns(),
+                combined.getTotalRefunds().add(part.getTotalRefunds()),
+                new ArrayList<>(salesByUser.values()),
+                new ArrayList<>(salesByCustomer.values()),
+                salesByPaymentType,
+                splicePartition(combined.getAllSales(), partition, part.getAllSales(), Sale::getSaleTimestamp)
+        );
+    }
+
+    /**
+     * Merge one partition's profit report into the report combined so far.
+     * @param combined The partitions merged so far, or null for the first one
+     */
+    private ProfitReportSummary mergeProfitReport(LocalDate startDate, LocalDate endDate,
+                                                  ProfitReportSummary combined, Partition partition,
+                                                  ProfitReportSummary part) {
+        if (combined == null) {
+            return new ProfitReportSummary(startDate, endDate, part.getTotalRevenue(), part.getTotalCost(),
+                    part.getTotalProfit(), part.getProfitMargin(), part.getItems());
+        }
+
+        BigDecimal totalRevenue = combined.getTotalRevenue().add(part.getTotalRevenue());
+        BigDecimal totalProfit = combined.getTotalProfit().add(part.getTotalProfit());
         return new ProfitReportSummary(
                 startDate,
                 endDate,
                 totalRevenue,
-                totalCost,
+                combined.getTotalCost().add(part.getTotalCost()),
                 totalProfit,
-                profitMargin,
-                profitItems
+                profitMargin(totalRevenue, totalProfit),
+                splicePartition(combined.getItems(), partition, part.getItems(), ProfitReportItem::getSaleDate)
         );
     }
 
+    /**
+     * Insert a partition's rows into the rows of the partitions merged so far.
+     * Partitions cover disjoint months and are kept newest first, so the rows go
+     * in as one block before the first row of an older month.
+     */
+    private static <E> List<E> splicePartition(List<E> combined, Partition partition, List<E> rows,
+                                               Function<E, LocalDateTime> timestamp) {
+        LocalDateTime partitionStart = partition.start.atStartOfDay();
+        int position = 0;
+        while (position < combined.size() && !timestamp.apply(combined.get(position)).isBefore(partitionStart)) {
+            position++;
+        }
+        List<E> spliced = new ArrayList<>(combined.size() + rows.size());
+        spliced.addAll(combined.subList(0, position));
+        spliced.addAll(rows);
+        spliced.addAll(combined.subList(position, combined.size()));
+        return spliced;
+    }
+
+    /**
+     * Merges a finished partition into the result combined so far.
+     */
+    private interface PartitionMerge<T> {
+        T merge(T combined, Partition partition, T part);
+    }
+
+    /**
+     * Callback for partial results of a partitioned report.
+     */
+    public interface PartitionListener<T> {
+        void onPartitionComplete(T combined, int completedPartitions, int totalPartitions);
+    }
+
+    /**
+     * A date range covering (part of) one calendar month.
+     */
+    private static final class Partition {
+        private final LocalDate start;
+        private final LocalDate end;
+
+        private Partition(LocalDate start, LocalDate end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
     /**
      * Calculate average cost price for a variant from GRN items.
      * Uses weighted average based on quantities received.
      */
     private BigDecimal getAverageCostPrice(ProductVariant variant) {
-        try (Session session = com.chamathka.bathikpos.util.HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.getReportingSessionFactory().openSession()) {
+            CancellationScope.register(session);
             String hql = "SELECT gi FROM GRNItem gi " +
                         "WHERE gi.variant.variantId = :variantId " +
                         "AND gi.grn.status = 'CONFIRMED'";
@@ -258,25 +734,31 @@ public class ReportService {
         sessionManager.requireAuthentication();
         logger.info("Generating top {} customers report", limit);
 
-        List<Customer> allCustomers = customerDAO.findAll();
-
-        return allCustomers.stream()
-                .filter(customer -> customer.getTotalPurchases().compareTo(BigDecimal.ZERO) > 0)
-                .sorted((c1, c2) -> c2.getTotalPurchases().compareTo(c1.getTotalPurchases()))
-                .limit(limit)
-                .map(customer -> new TopCustomerReportItem(
-                        customer.getName(),
-                        customer.getPhoneNumber(),
-                        customer.getVisitCount(),
-                        customer.getTotalPurchases(),
-                        customer.getVisitCount() > 0
-                                ? customer.getTotalPurchases()
-                                    .divide(BigDecimal.valueOf(customer.getVisitCount()), 2, BigDecimal.ROUND_HALF_UP)
-                                : BigDecimal.ZERO
+        // Top-N is resolved by the database (ORDER BY totalPurchases DESC LIMIT n)
+        return customerDAO.getTopCustomerStats(limit).stream()
+                .map(row -> new TopCustomerReportItem(
+                        (String) row[0],
+                        (String) row[1],
+                        ((Number) row[2]).intValue(),
+                        toBigDecimal(row[3]),
+                        toBigDecimal(row[4]).setScale(2, RoundingMode.HALF_UP)
                 ))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Convert a numeric projection value to BigDecimal.
+     */
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        return new BigDecimal(value.toString());
+    }
+
     // ==================== REPORT DATA CLASSES ====================
 
     /**
@@ -321,6 +803,8 @@ public class ReportService {
         private final BigDecimal totalSales;
         private final BigDecimal totalDiscount;
         private final int totalTransactions;
+        private final int totalReturns;
+        private final BigDecimal totalRefunds;
         private final List<SalesUserSummary> salesByUser;
         private final List<SalesCustomerSummary> salesByCustomer;
         private final Map<String, BigDecimal> salesByPaymentType;
@@ -328,6 +812,7 @@ public class ReportService {
 
         public SalesReportSummary(LocalDate startDate, LocalDate endDate, BigDecimal totalSales,
                                 BigDecimal totalDiscount, int totalTransactions,
+                                int totalReturns, BigDecimal totalRefunds,
                                 List<SalesUserSummary> salesByUser,
                                 List<SalesCustomerSummary> salesByCustomer,
                                 Map<String, BigDecimal> salesByPaymentType,
@@ -337,6 +822,8 @@ public class ReportService {
             this.totalSales = totalSales;
             this.totalDiscount = totalDiscount;
             this.totalTransactions = totalTransactions;
+            this.totalReturns = totalReturns;
+            this.totalRefunds = totalRefunds;
             this.salesByUser = salesByUser;
             this.salesByCustomer = salesByCustomer;
             this.salesByPaymentType = salesByPaymentType;
@@ -349,10 +836,16 @@ public class ReportService {
         public BigDecimal getTotalSales() { return totalSales; }
         public BigDecimal getTotalDiscount() { return totalDiscount; }
         public int getTotalTransactions() { return totalTransactions; }
+        public int getTotalReturns() { return totalReturns; }
+        public BigDecimal getTotalRefunds() { return totalRefunds; }
         public List<SalesUserSummary> getSalesByUser() { return salesByUser; }
         public List<SalesCustomerSummary> getSalesByCustomer() { return salesByCustomer; }
         public Map<String, BigDecimal> getSalesByPaymentType() { return salesByPaymentType; }
         public List<Sale> getAllSales() { return allSales; }
+
+        public BigDecimal getNetSales() {
+            return totalSales.subtract(totalRefunds);
+        }
     }
 
     /**
@@ -435,6 +928,7 @@ public class ReportService {
      * Profit Report Item
      */
     public static class ProfitReportItem {
+        private final Long saleId;
         private final LocalDateTime saleDate;
         private final String productName;
         private final String sku;
@@ -447,10 +941,11 @@ public class ReportService {
         private final BigDecimal cost;
         private final BigDecimal profit;
 
-        public ProfitReportItem(LocalDateTime saleDate, String productName, String sku,
+        public ProfitReportItem(Long saleId, LocalDateTime saleDate, String productName, String sku,
                               String size, String color, int quantity,
                               BigDecimal costPrice, BigDecimal sellingPrice,
                               BigDecimal revenue, BigDecimal cost, BigDecimal profit) {
+            this.saleId = saleId;
             this.saleDate = saleDate;
             this.productName = productName;
             this.sku = sku;
@@ -464,6 +959,8 @@ public class ReportService {
             this.profit = profit;
         }
 
+        /** @return The sale the line belongs to, or null for a return line */
+        public Long getSaleId() { return saleId; }
         public LocalDateTime getSaleDate() { return saleDate; }
         public String getProductName() { return productName; }
         public String getSku() { return sku; }
@@ -1,18 +1,34 @@
 package com.chamathka.bathikpos.service;
 
+import com.chamathka.bathikpos.dao.CustomerDAO;
 import com.chamathka.bathikpos.dao.ProductVariantDAO;
+import com.chamathka.bathikpos.dao.ReturnDAO;
 import com.chamathka.bathikpos.dao.SaleDAO;
+import com.chamathka.bathikpos.entity.ChangeLog;
+import com.chamathka.bathikpos.entity.OutboxEvent;
 import com.chamathka.bathikpos.entity.ProductVariant;
+import com.chamathka.bathikpos.entity.Return;
+import com.chamathka.bathikpos.entity.ReturnItem;
 import com.chamathka.bathikpos.entity.Sale;
 import com.chamathka.bathikpos.entity.SaleItem;
+import com.chamathka.bathikpos.entity.StockMovement;
+import com.chamathka.bathikpos.event.EventBus;
+import com.chamathka.bathikpos.event.ReturnProcessedEvent;
+import com.chamathka.bathikpos.event.StockChangeEvent.StockLevel;
 import com.chamathka.bathikpos.util.HibernateUtil;
+import com.chamathka.bathikpos.util.ReceiptCode;
 import com.chamathka.bathikpos.util.SessionManager;
+import org.hibernate.LockMode;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Service class for Return operations.
@@ -23,66 +39,150 @@ public class ReturnService {
     private static final Logger logger = LoggerFactory.getLogger(ReturnService.class);
     private final SaleDAO saleDAO;
     private final ProductVariantDAO variantDAO;
+    private final ReturnDAO returnDAO;
+    private final CustomerDAO customerDAO;
     private final SessionManager sessionManager;
 
     public ReturnService() {
         this.saleDAO = new SaleDAO();
         this.variantDAO = new ProductVariantDAO();
+        this.returnDAO = new ReturnDAO();
+        this.customerDAO = new CustomerDAO();
         this.sessionManager = SessionManager.getInstance();
     }
 
     /**
-     * Process a return for specific items from a sale.
+     * Process a return for specific lines of a sale.
      * This is a CRITICAL ATOMIC TRANSACTION that:
-     * 1. Validates the sale exists
-     * 2. Adds the returned quantity back to ProductVariant stock
+     * 1. Validates the sale exists and locks it, so two returns of the same sale cannot interleave
+     * 2. Checks each line against the quantity already returned (one GROUP BY query)
+     * 3. Saves the Return document with its ReturnItems
+     * 4. Adds the returned quantity back to ProductVariant stock and records it in the stock ledger
+     * 5. Takes the refund off the customer's total purchases
+     * 6. Records an outbox entry; non-critical follow-up work runs after commit
+     * 7. Appends the return to the change log shipped to head office
      *
      * As per SRS UC-04: Only Admin can process returns.
      *
      * @param saleId The ID of the original sale
-     * @param returnedItems List of SaleItems being returned (with quantities)
+     * @param returnedItems ReturnItems referencing the returned SaleItems (by ID) with their quantities
+     * @return The saved Return
      * @throws SecurityException if user is not an Admin
      */
-    public void processReturn(Long saleId, List<SaleItem> returnedItems) {
+    public Return processReturn(Long saleId, List<ReturnItem> returnedItems) {
         // Enforce Admin access (as per SRS - only Admin can process returns)
         sessionManager.requireAdmin();
 
+        if (returnedItems == null || returnedItems.isEmpty()) {
+            throw new IllegalArgumentException("Return must contain at least one item");
+        }
+
         logger.info("Starting return process for Sale ID: {}", saleId);
 
         Transaction transaction = null;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             transaction = session.beginTransaction();
 
-            // Step 1: Validate the sale exists
-            Sale originalSale = session.get(Sale.class, saleId);
+            // Step 1: Validate the sale exists and lock it against concurrent returns
+            Sale originalSale = session.get(Sale.class, saleId, LockMode.PESSIMISTIC_WRITE);
             if (originalSale == null) {
                 throw new IllegalArgumentException("Sale not found: " + saleId);
             }
 
-            // Step 2: Process each returned item ATOMICALLY
-            for (SaleItem returnedItem : returnedItems) {
+            Map<Long, SaleItem> saleItemsById = new HashMap<>();
+            for (SaleItem saleItem : originalSale.getItems()) {
+                saleItemsById.put(saleItem.getSaleItemId(), saleItem);
+            }
+
+            // Step 2: Validate against the quantities already returned for this sale
+            Map<Long, Integer> alreadyReturned = returnDAO.getReturnedQuantities(session, saleId);
+            Map<Long, Integer> requested = new HashMap<>();
+            for (ReturnItem returnedItem : returnedItems) {
+                Long saleItemId = returnedItem.getSaleItem().getSaleItemId();
+                SaleItem saleItem = saleItemsById.get(saleItemId);
+                if (saleItem == null) {
+                    throw new IllegalArgumentException("Sale item " + saleItemId + " does not belong to sale " + saleId);
+                }
+                if (returnedItem.getQuantityReturned() == null || returnedItem.getQuantityReturned() <= 0) {
+                    throw new IllegalArgumentException("Return quantity must be greater than zero");
+                }
+
+                int total = requested.merge(saleItemId, returnedItem.getQuantityReturned(), Integer::sum);
+                int returnable = saleItem.getQuantitySold() - alreadyReturned.getOrDefault(saleItemId, 0);
+                if (total > returnable) {
+                    throw new IllegalStateException(String.format(
+                        "Cannot return %d of %s: only %d of %d sold remain returnable",
+                        total, saleItem.getVariant().getItemCode(), returnable, saleItem.getQuantitySold()));
+                }
+            }
+
+            // Step 3: Create the Return document
+            Return saleReturn = new Return(originalSale, sessionManager.getCurrentUser());
+
+            // Step 4: Process each returned item ATOMICALLY
+            Map<Long, StockLevel> stockLevels = new HashMap<>();
+            List<StockMovement> movements = new ArrayList<>();
+            for (ReturnItem returnedItem : returnedItems) {
+                SaleItem saleItem = saleItemsById.get(returnedItem.getSaleItem().getSaleItemId());
+                int quantity = returnedItem.getQuantityReturned();
+
                 // Get the variant and add stock back
                 ProductVariant variant = session.get(ProductVariant.class,
-                    returnedItem.getVariant().getVariantId());
+                    saleItem.getVariant().getVariantId());
 
                 if (variant == null) {
                     throw new IllegalStateException("Product variant not found: " +
-                        returnedItem.getVariant().getItemCode());
+                        saleItem.getVariant().getItemCode());
                 }
 
-                // Add the returned quantity back to stock
-                variant.addStock(returnedItem.getQuantitySold());
-                session.merge(variant);
+                // Refund at the price the item was sold for
+                ReturnItem returnItem = new ReturnItem(saleItem, quantity);
+                returnItem.setVariant(variant);
+                returnItem.setRefundPrice(saleItem.getPriceAtSale());
+                saleReturn.addItem(returnItem);
+
+                // Add the returned quantity back to stock in the database
+                variantDAO.addStock(session, variant.getVariantId(), quantity);
+                session.refresh(variant);
+
+                // Record the movement in the stock ledger once the Return has its ID
+                movements.add(new StockMovement(variant, StockMovement.TYPE_RETURN,
+                    quantity, null, sessionManager.getCurrentUser()));
+                stockLevels.put(variant.getVariantId(),
+                    new StockLevel(variant.getQuantityInStock(), variant.getLowStockThreshold()));
 
                 logger.debug("Returned {} units of {} (new stock: {})",
-                    returnedItem.getQuantitySold(), variant.getItemCode(),
-                    variant.getQuantityInStock());
+                    quantity, variant.getItemCode(), variant.getQuantityInStock());
+            }
+
+            // Step 5: Save the Return (cascades to its items), then its ledger movements
+            saleReturn.recalculateRefundAmount();
+            session.persist(saleReturn);
+            for (StockMovement movement : movements) {
+                movement.setReferenceId(saleReturn.getReturnId());
+                session.persist(movement);
+            }
+
+            // Step 6: Take the refund off the customer's purchases (if customer is attached)
+            if (originalSale.getCustomer() != null) {
+                Long customerId = originalSale.getCustomer().getCustomerId();
+                customerDAO.deductPurchaseAmount(session, customerId, saleReturn.getRefundAmount());
             }
 
+            // Step 7: Queue the follow-up work (loyalty re-scoring, ...) for the outbox dispatcher
+            // and record the change for head office
+            session.persist(new OutboxEvent(OutboxEvent.TYPE_RETURN_PROCESSED, saleReturn.getReturnId()));
+            session.persist(new ChangeLog(ChangeLog.TYPE_RETURN, saleReturn.getReturnId()));
+
             // Commit the transaction - ALL OR NOTHING!
             transaction.commit();
+            OutboxService.wakeUp();
+            EventBus.getInstance().publish(new ReturnProcessedEvent(saleId, saleReturn.getReturnId(),
+                saleReturn.getReturnTimestamp(), saleReturn.getRefundAmount(), stockLevels));
 
-            logger.info("Return processed successfully for Sale ID: {}", saleId);
+            logger.info("Return {} processed successfully for Sale ID: {}. Refund: {}",
+                saleReturn.getReturnId(), saleId, saleReturn.getRefundAmount());
+            return saleReturn;
 
         } catch (Exception e) {
             if (transaction != null) {
@@ -93,14 +193,36 @@ public class ReturnService {
         }
     }
 
+    /**
+     * Get the quantity already returned for each line of a sale.
+     * @param saleId The sale ID
+     * @return Map of sale item ID to quantity returned
+     */
+    public Map<Long, Integer> getReturnedQuantities(Long saleId) {
+        sessionManager.requireAdmin();
+        return returnDAO.getReturnedQuantities(saleId);
+    }
+
     /**
      * Find a sale by ID for return processing.
+     * The sale, its lines, variants, products and customer are loaded in one query.
      * @param saleId The sale ID
      * @return The Sale object with items
      */
     public Sale findSaleForReturn(Long saleId) {
         sessionManager.requireAdmin();
-        return saleDAO.findById(saleId)
+        return saleDAO.findSaleWithLinesForReturn(saleId)
             .orElseThrow(() -> new IllegalArgumentException("Sale not found: " + saleId));
     }
+
+    /**
+     * Find a sale for return processing from a scanned receipt barcode or a typed sale ID.
+     * @param receiptCode The receipt code (see {@link ReceiptCode}) or plain sale ID
+     * @return The fully loaded sale, or empty if the code is invalid or no such sale exists
+     */
+    public Optional<Sale> findSaleByReceiptCode(String receiptCode) {
+        sessionManager.requireAdmin();
+        return ReceiptCode.parseSaleId(receiptCode)
+            .flatMap(saleDAO::findSaleWithLinesForReturn);
+    }
 }
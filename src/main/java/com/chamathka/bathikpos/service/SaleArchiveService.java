@@ -0,0 +1,207 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.dao.SaleArchiveDAO;
+import com.chamathka.bathikpos.dao.SaleDAO;
+import com.chamathka.bathikpos.entity.Sale;
+import com.chamathka.bathikpos.entity.SaleArchive;
+import com.chamathka.bathikpos.util.HibernateUtil;
+import com.chamathka.bathikpos.util.SaleArchiveSegment;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the sales of closed years out of the live Sale and SaleItem tables
+ * into SaleArchive, one compressed row per calendar month.
+ *
+ * The live tables then only hold the years still being traded and reported
+ * on daily, which keeps their indexes small. Reports read the archived months
+ * a range needs alongside the live tables (see ReportService), so archiving
+ * never changes a report.
+ *
+ * The current year and the previous one stay live by default; set
+ * -Dbatikpos.archive.keepYears (or BATIKPOS_ARCHIVE_KEEP_YEARS) to change it,
+ * or to 0 to switch archiving off. Sales with a return against them are left
+ * live, and so are sales head office has not acknowledged yet when the sync
+ * agent is enabled (see ReplicationService).
+ */
+public class SaleArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SaleArchiveService.class);
+
+    private static final int ARCHIVE_BATCH_SIZE = 1000; // Sales per transaction
+    private static final long ARCHIVE_INTERVAL_HOURS = 24;
+
+    private static ScheduledExecutorService archiveScheduler;
+
+    private final SaleDAO saleDAO;
+    private final SaleArchiveDAO saleArchiveDAO;
+
+    public SaleArchiveService() {
+        this.saleDAO = new SaleDAO();
+        this.saleArchiveDAO = new SaleArchiveDAO();
+    }
+
+    /**
+     * Start the background archive job. Safe to call more than once.
+     */
+    public static synchronized void startArchiveScheduler() {
+        if (archiveScheduler != null) {
+            return;
+        }
+        if (getKeepYears() <= 0) {
+            logger.info("Sale archiving disabled (batikpos.archive.keepYears is 0)");
+            return;
+        }
+        archiveScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sale-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        SaleArchiveService archiveService = new SaleArchiveService();
+        archiveScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archiveService.archiveClosedYears();
+            } catch (Exception e) {
+                logger.error("Scheduled sale archiving failed", e);
+            }
+        }, 30, ARCHIVE_INTERVAL_HOURS * 60, TimeUnit.MINUTES);
+
+        logger.info("Sale archive job scheduled every {} hours, keeping {} years live",
+            ARCHIVE_INTERVAL_HOURS, getKeepYears());
+    }
+
+    /**
+     * Stop the background archive job.
+     */
+    public static synchronized void stopArchiveScheduler() {
+        if (archiveScheduler != null) {
+            archiveScheduler.shutdownNow();
+            archiveScheduler = null;
+        }
+    }
+
+    /**
+     * Get the number of years kept in the live tables, counting the current one.
+     * @return The number of years, 0 if archiving is off
+     */
+    public static int getKeepYears() {
+        String value = System.getProperty("batikpos.archive.keepYears", System.getenv("BATIKPOS_ARCHIVE_KEEP_YEARS"));
+        if (value == null || value.isBlank()) {
+            return 2;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Archive every sale made before the first live year, month by month.
+     * @return Number of sales archived
+     */
+    public int archiveClosedYears() {
+        int keepYears = getKeepYears();
+        if (keepYears <= 0) {
+            return 0;
+        }
+        LocalDateTime cutoff = LocalDate.now().withDayOfYear(1).minusYears(keepYears - 1).atStartOfDay();
+        LocalDateTime oldest = saleDAO.findOldestSaleTimestampBefore(cutoff);
+        if (oldest == null) {
+            return 0;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int archived = 0;
+        for (LocalDate month = oldest.toLocalDate().withDayOfMonth(1);
+             month.atStartOfDay().isBefore(cutoff); month = month.plusMonths(1)) {
+            int batch;
+            do {
+                batch = archiveBatch(month);
+                archived += batch;
+            } while (batch == ARCHIVE_BATCH_SIZE);
+        }
+
+        if (archived > 0) {
+            logger.info("Archived {} sales made before {} in {} ms", archived, cutoff.toLocalDate(),
+                System.currentTimeMillis() - startTime);
+        }
+        return archived;
+    }
+
+    /**
+     * Move up to one batch of a month's sales into its archive row - ATOMIC TRANSACTION.
+     * The sales are deleted first, so a second till archiving the same sales
+     * finds fewer rows to delete and rolls back instead of archiving them twice.
+     * @param month First day of the month
+     * @return Number of sales archived
+     */
+    private int archiveBatch(LocalDate month) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+
+            long shippedUpTo = ReplicationService.isEnabled()
+                ? ReplicationService.getAcknowledgedSequence() : Long.MAX_VALUE;
+            List<Object[]> saleRows = saleDAO.findArchivableSaleRows(session,
+                month.atStartOfDay(), month.plusMonths(1).atStartOfDay(), shippedUpTo, ARCHIVE_BATCH_SIZE);
+            if (saleRows.isEmpty()) {
+                transaction.commit();
+                return 0;
+            }
+
+            List<Long> saleIds = new ArrayList<>();
+            for (Object[] row : saleRows) {
+                saleIds.add((Long) row[0]);
+            }
+            Map<Long, List<Object[]>> itemRows = new HashMap<>();
+            for (Object[] row : saleDAO.findArchivableItemRows(session, saleIds)) {
+                itemRows.computeIfAbsent((Long) row[1], id -> new ArrayList<>()).add(row);
+            }
+            List<Sale> sales = new ArrayList<>();
+            for (Object[] row : saleRows) {
+                sales.add(SaleArchiveSegment.toSale(row, itemRows.getOrDefault((Long) row[0], List.of())));
+            }
+
+            int deleted = saleDAO.deleteSales(session, saleIds);
+            if (deleted != saleIds.size()) {
+                throw new IllegalStateException("Expected to archive " + saleIds.size() + " sales of " + month +
+                    " but " + deleted + " were still there; another till may be archiving");
+            }
+
+            SaleArchive archive = saleArchiveDAO.findForUpdate(session, month);
+            SaleArchiveSegment segment = archive != null
+                ? SaleArchiveSegment.decode(archive.getPayload())
+                : new SaleArchiveSegment(month);
+            segment.addSales(sales);
+            boolean firstBatch = archive == null;
+            if (firstBatch) {
+                archive = new SaleArchive(month);
+            }
+            archive.setSaleCount(segment.getSales().size());
+            archive.setItemCount(segment.getItemCount());
+            archive.setTotalAmount(segment.getTotalAmount());
+            archive.setArchivedAt(LocalDateTime.now());
+            archive.setPayload(segment.encode());
+            if (firstBatch) {
+                session.persist(archive);
+            }
+
+            transaction.commit();
+            logger.debug("Archived {} sales of {} ({} bytes for the month)", sales.size(), month,
+                archive.getPayload().length);
+            return sales.size();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error archiving sales of " + month + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -3,10 +3,15 @@ package com.chamathka.bathikpos.service;
 import com.chamathka.bathikpos.dao.CustomerDAO;
 import com.chamathka.bathikpos.dao.ProductVariantDAO;
 import com.chamathka.bathikpos.dao.SaleDAO;
-import com.chamathka.bathikpos.entity.Customer;
+import com.chamathka.bathikpos.entity.ChangeLog;
+import com.chamathka.bathikpos.entity.OutboxEvent;
 import com.chamathka.bathikpos.entity.ProductVariant;
 import com.chamathka.bathikpos.entity.Sale;
 import com.chamathka.bathikpos.entity.SaleItem;
+import com.chamathka.bathikpos.entity.StockMovement;
+import com.chamathka.bathikpos.event.EventBus;
+import com.chamathka.bathikpos.event.SaleCompletedEvent;
+import com.chamathka.bathikpos.event.StockChangeEvent.StockLevel;
 import com.chamathka.bathikpos.util.HibernateUtil;
 import com.chamathka.bathikpos.util.SessionManager;
 import org.hibernate.Session;
@@ -16,7 +21,9 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service class for Sale operations.
@@ -43,8 +50,10 @@ public class SaleService {
      * This is a CRITICAL ATOMIC TRANSACTION that:
      * 1. Saves the Sale
      * 2. Saves all SaleItems
-     * 3. Deducts stock from ProductVariants
+     * 3. Deducts stock from ProductVariants and records it in the stock ledger
      * 4. Updates Customer statistics (if customer is attached)
+     * 5. Records an outbox entry; non-critical follow-up work runs after commit
+     * 6. Appends the sale to the change log shipped to head office
      *
      * As per SRS: If ANY part fails, the ENTIRE operation is rolled back.
      *
@@ -80,36 +89,52 @@ public class SaleService {
             session.persist(sale);
 
             // Step 3: Save all SaleItems and deduct stock ATOMICALLY
+            Map<Long, StockLevel> stockLevels = new HashMap<>();
             for (SaleItem item : sale.getItems()) {
-                // Get fresh variant from session
+                // Deduct stock in the database; fails if another till sold the units since Step 1
                 ProductVariant variant = session.get(ProductVariant.class, item.getVariant().getVariantId());
-
-                // Deduct stock
-                variant.deductStock(item.getQuantitySold());
-                session.merge(variant);
+                if (variantDAO.deductStock(session, variant.getVariantId(), item.getQuantitySold()) == 0) {
+                    session.refresh(variant);
+                    throw new IllegalStateException(
+                        String.format("Insufficient stock for %s. Available: %d, Requested: %d",
+                            variant.getItemCode(), variant.getQuantityInStock(), item.getQuantitySold()));
+                }
+                session.refresh(variant);
 
                 // Save sale item
                 item.setSale(sale);
                 session.persist(item);
 
+                // Record the movement in the stock ledger
+                session.persist(new StockMovement(variant, StockMovement.TYPE_SALE,
+                    -item.getQuantitySold(), sale.getSaleId(), sessionManager.getCurrentUser()));
+                stockLevels.put(variant.getVariantId(),
+                    new StockLevel(variant.getQuantityInStock(), variant.getLowStockThreshold()));
+
                 logger.debug("Deducted {} units of {} (new stock: {})",
                     item.getQuantitySold(), variant.getItemCode(), variant.getQuantityInStock());
             }
 
-            // Step 4: Update customer statistics if customer is attached
+            // Step 4: Update customer statistics if customer is attached.
+            // Incremented in the database so concurrent sales for one customer don't lose updates.
             if (sale.getCustomer() != null) {
-                Customer customer = session.get(Customer.class, sale.getCustomer().getCustomerId());
-                if (customer != null) {
-                    customer.incrementVisitCount();
-                    customer.addPurchaseAmount(sale.getTotalAmount());
-                    session.merge(customer);
-                    logger.debug("Updated customer stats: {} (visits: {}, total: {})",
-                        customer.getName(), customer.getVisitCount(), customer.getTotalPurchases());
+                Long customerId = sale.getCustomer().getCustomerId();
+                if (customerDAO.recordPurchase(session, customerId, sale.getTotalAmount(), sale.getSaleTimestamp()) > 0) {
+                    logger.debug("Updated customer stats: {} (+{})", customerId, sale.getTotalAmount());
                 }
             }
 
+            // Step 5: Queue the follow-up work (loyalty re-scoring, ...) for the outbox dispatcher
+            session.persist(new OutboxEvent(OutboxEvent.TYPE_SALE_COMPLETED, sale.getSaleId()));
+
+            // Step 6: Record the change for head office
+            session.persist(new ChangeLog(ChangeLog.TYPE_SALE, sale.getSaleId()));
+
             // Commit the transaction - ALL OR NOTHING!
             transaction.commit();
+            OutboxService.wakeUp();
+            EventBus.getInstance().publish(new SaleCompletedEvent(
+                sale.getSaleId(), sale.getSaleTimestamp(), sale.getTotalAmount(), stockLevels));
 
             logger.info("Checkout completed successfully. Sale ID: {}, Total: {}",
                 sale.getSaleId(), sale.getTotalAmount());
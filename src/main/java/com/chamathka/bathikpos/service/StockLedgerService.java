@@ -0,0 +1,407 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.dao.ProductVariantDAO;
+import com.chamathka.bathikpos.dao.StockMovementDAO;
+import com.chamathka.bathikpos.dao.StockSnapshotDAO;
+import com.chamathka.bathikpos.entity.ChangeLog;
+import com.chamathka.bathikpos.entity.ProductVariant;
+import com.chamathka.bathikpos.entity.StockMovement;
+import com.chamathka.bathikpos.entity.StockSnapshot;
+import com.chamathka.bathikpos.event.EventBus;
+import com.chamathka.bathikpos.event.StockAdjustedEvent;
+import com.chamathka.bathikpos.event.StockChangeEvent.StockLevel;
+import com.chamathka.bathikpos.util.HibernateUtil;
+import com.chamathka.bathikpos.util.SessionManager;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Service for the append-only stock ledger.
+ *
+ * Checkout, return and GRN confirmation write a StockMovement for every stock
+ * change inside their own transactions; this service adds manual adjustments,
+ * periodic per-variant snapshots of the ledger balance, "stock as of" queries
+ * answered from one snapshot plus the movements after it, and a parallel
+ * consistency check of the ledger against ProductVariant.quantityInStock.
+ */
+public class StockLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLedgerService.class);
+
+    /** How often snapshots are taken in the background. */
+    private static final long SNAPSHOT_INTERVAL_HOURS = 6;
+
+    /**
+     * Movements younger than this are left for the next snapshot run. IDENTITY keys
+     * can commit out of order, so this keeps in-flight transactions out of the cut-off.
+     */
+    private static final long SNAPSHOT_SAFETY_LAG_MINUTES = 5;
+
+    private static final int CHECK_PARTITIONS = 4;
+    private static final int SNAPSHOT_BATCH_SIZE = 500;
+
+    // The check's range queries use at most half of the connection pool; extra partitions queue
+    private static final int CHECK_THREADS = Math.min(CHECK_PARTITIONS, Math.max(1, HibernateUtil.getMaximumPoolSize() / 2));
+    private static final ExecutorService CHECK_EXECUTOR = Executors.newFixedThreadPool(CHECK_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "ledger-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static ScheduledExecutorService snapshotScheduler;
+
+    private final ProductVariantDAO variantDAO;
+    private final StockMovementDAO movementDAO;
+    private final StockSnapshotDAO snapshotDAO;
+    private final SessionManager sessionManager;
+
+    public StockLedgerService() {
+        this.variantDAO = new ProductVariantDAO();
+        this.movementDAO = new StockMovementDAO();
+        this.snapshotDAO = new StockSnapshotDAO();
+        this.sessionManager = SessionManager.getInstance();
+    }
+
+    /**
+     * Start the background snapshot job. Safe to call more than once.
+     * Every run records opening balances for stock the ledger does not explain yet,
+     * so a variant that moved before the first run still reconciles.
+     */
+    public static synchronized void startSnapshotScheduler() {
+        if (snapshotScheduler != null) {
+            return;
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        StockLedgerService ledgerService = new StockLedgerService();
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                ledgerService.recordOpeningBalances();
+                ledgerService.createSnapshots();
+            } catch (Exception e) {
+                logger.error("Scheduled stock snapshot failed", e);
+            }
+        }, 1, SNAPSHOT_INTERVAL_HOURS * 60, TimeUnit.MINUTES);
+
+        logger.info("Stock snapshot job scheduled every {} hours", SNAPSHOT_INTERVAL_HOURS);
+    }
+
+    /**
+     * Stop the background snapshot job.
+     */
+    public static synchronized void stopSnapshotScheduler() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+            snapshotScheduler = null;
+        }
+    }
+
+    // ==================== ADJUSTMENTS ====================
+
+    /**
+     * Adjust the stock of a variant - ATOMIC TRANSACTION.
+     * Used for stock counts, damage and write-offs; the change is recorded as an
+     * ADJUSTMENT movement (and a change-log entry for head office) in the same transaction.
+     *
+     * @param variantId The variant ID
+     * @param quantityChange Signed change (negative removes stock)
+     * @param note Reason for the adjustment
+     * @return The variant with its new stock level
+     * @throws SecurityException if user is not an Admin
+     */
+    public ProductVariant adjustStock(Long variantId, int quantityChange, String note) {
+        sessionManager.requireAdmin();
+        if (quantityChange == 0) {
+            throw new IllegalArgumentException("Adjustment quantity must not be zero");
+        }
+
+        logger.info("Starting stock adjustment of {} for variant {}", quantityChange, variantId);
+
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+
+            ProductVariant variant = session.get(ProductVariant.class, variantId);
+            if (variant == null) {
+                throw new IllegalArgumentException("Product variant not found: " + variantId);
+            }
+            if (quantityChange > 0) {
+                variantDAO.addStock(session, variantId, quantityChange);
+            } else if (variantDAO.deductStock(session, variantId, -quantityChange) == 0) {
+                session.refresh(variant);
+                throw new IllegalStateException("Cannot deduct " + -quantityChange + " items. Only " +
+                    variant.getQuantityInStock() + " in stock.");
+            }
+            session.refresh(variant);
+
+            StockMovement movement = new StockMovement(variant, StockMovement.TYPE_ADJUSTMENT,
+                quantityChange, null, sessionManager.getCurrentUser());
+            movement.setNote(note);
+            session.persist(movement);
+            session.persist(new ChangeLog(ChangeLog.TYPE_STOCK_MOVEMENT, movement.getMovementId()));
+
+            // Commit the transaction - ALL OR NOTHING!
+            transaction.commit();
+            EventBus.getInstance().publish(new StockAdjustedEvent(variantId, quantityChange,
+                Map.of(variantId, new StockLevel(variant.getQuantityInStock(), variant.getLowStockThreshold()))));
+
+            logger.info("Stock adjusted for {} by {} (new stock: {})",
+                variant.getItemCode(), quantityChange, variant.getQuantityInStock());
+            return variant;
+
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+                logger.error("Stock adjustment FAILED and ROLLED BACK", e);
+            }
+            throw new RuntimeException("Stock adjustment failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Record an opening-balance ADJUSTMENT for every variant whose stock is not
+     * explained by its ledger and that has no opening balance yet: stock that
+     * existed before the ledger was introduced, or a variant created with stock.
+     * The balance is quantityInStock minus the movements already recorded, so a
+     * variant sold, returned or received before the first run still reconciles.
+     * Runs as a single INSERT ... SELECT, plus one more to add the new movements
+     * to the change log.
+     *
+     * Every till runs this against the shared database, so a run first locks the
+     * baseline row of schema_version until it commits: a second till waits, then
+     * finds the balances already recorded and logs none of them again.
+     * @return Number of opening balances recorded
+     */
+    public int recordOpeningBalances() {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            session.createNativeQuery("SELECT version FROM schema_version WHERE version = 1 FOR UPDATE", Integer.class)
+                .getResultList();
+            Long lastMovementId = session.createQuery(
+                    "SELECT COALESCE(MAX(m.movementId), 0) FROM StockMovement m", Long.class)
+                .getSingleResult();
+            int inserted = session.createMutationQuery(
+                    "INSERT INTO StockMovement (variant, movementType, quantityChange, note, movementTimestamp) " +
+                    "SELECT v, 'ADJUSTMENT', v.quantityInStock - COALESCE((SELECT CAST(SUM(m.quantityChange) AS Integer) " +
+                    "FROM StockMovement m WHERE m.variant = v), 0), 'Opening balance', local datetime " +
+                    "FROM ProductVariant v " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM StockMovement o WHERE o.variant = v " +
+                    "AND o.movementType = 'ADJUSTMENT' AND o.user IS NULL AND o.note = 'Opening balance') " +
+                    "AND v.quantityInStock <> COALESCE((SELECT CAST(SUM(m.quantityChange) AS Integer) " +
+                    "FROM StockMovement m WHERE m.variant = v), 0)")
+                .executeUpdate();
+            if (inserted > 0) {
+                // Opening balances are the only adjustments written without a user
+                session.createMutationQuery(
+                        "INSERT INTO ChangeLog (changeType, entityId, recordedAt) " +
+                        "SELECT 'STOCK_MOVEMENT', m.movementId, local datetime FROM StockMovement m " +
+                        "WHERE m.movementId > :lastMovementId AND m.movementType = 'ADJUSTMENT' " +
+                        "AND m.user IS NULL AND m.note = 'Opening balance'")
+                    .setParameter("lastMovementId", lastMovementId)
+                    .executeUpdate();
+            }
+            transaction.commit();
+            if (inserted > 0) {
+                logger.info("Recorded {} opening stock balances in the ledger", inserted);
+            }
+            return inserted;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error recording opening balances: " + e.getMessage(), e);
+        }
+    }
+
+    // ==================== SNAPSHOTS ====================
+
+    /**
+     * Take snapshots for every variant with ledger movements since the last run.
+     * Each run covers the ledger up to one cut-off movement ID, and variants without
+     * movements keep their previous snapshot, so snapshot + later movements is always
+     * the ledger balance.
+     * @return Number of snapshots written
+     */
+    public int createSnapshots() {
+        long startTime = System.currentTimeMillis();
+        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(SNAPSHOT_SAFETY_LAG_MINUTES);
+        long previousCutoff = snapshotDAO.getLastSnapshotMovementId();
+        long cutoff = movementDAO.getMaxMovementIdBefore(cutoffTime);
+        if (cutoff <= previousCutoff) {
+            logger.debug("No stock movements since the last snapshot");
+            return 0;
+        }
+
+        List<Object[]> deltas = movementDAO.sumChangesByVariant(previousCutoff, cutoff);
+        Map<Long, Integer> previous = new HashMap<>();
+        for (Object[] row : snapshotDAO.getLatestQuantities()) {
+            previous.put((Long) row[0], (Integer) row[1]);
+        }
+
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            session.doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO StockSnapshot (variant_id, snapshotTimestamp, quantityInStock, lastMovementId) " +
+                        "VALUES (?, ?, ?, ?)")) {
+                    int pending = 0;
+                    for (Object[] row : deltas) {
+                        Long variantId = (Long) row[0];
+                        long quantity = previous.getOrDefault(variantId, 0) + ((Number) row[1]).longValue();
+                        statement.setLong(1, variantId);
+                        statement.setTimestamp(2, Timestamp.valueOf(cutoffTime));
+                        statement.setInt(3, Math.toIntExact(quantity));
+                        statement.setLong(4, cutoff);
+                        statement.addBatch();
+                        if (++pending == SNAPSHOT_BATCH_SIZE) {
+                            statement.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) {
+                        statement.executeBatch();
+                    }
+                }
+            });
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error creating stock snapshots: " + e.getMessage(), e);
+        }
+
+        logger.info("Created {} stock snapshots up to movement {} in {} ms",
+            deltas.size(), cutoff, System.currentTimeMillis() - startTime);
+        return deltas.size();
+    }
+
+    /**
+     * Get the stock of a variant as it was at a point in time.
+     * Reads the latest snapshot at or before that time and adds the movements
+     * recorded after it, so the scan is bounded by one snapshot interval.
+     *
+     * @param variantId The variant ID
+     * @param at The point in time
+     * @return The stock level at that time according to the ledger
+     */
+    public long getStockAsOf(Long variantId, LocalDateTime at) {
+        sessionManager.requireAdmin();
+        Optional<StockSnapshot> snapshot = snapshotDAO.findLatestAtOrBefore(variantId, at);
+        long base = snapshot.map(StockSnapshot::getQuantityInStock).orElse(0);
+        long afterMovementId = snapshot.map(StockSnapshot::getLastMovementId).orElse(0L);
+        return base + movementDAO.sumChangesForVariant(variantId, afterMovementId, at);
+    }
+
+    /**
+     * Get the latest ledger entries of a variant.
+     * @param variantId The variant ID
+     * @param limit Maximum number of entries
+     * @return List of movements, newest first
+     */
+    public List<StockMovement> getMovements(Long variantId, int limit) {
+        sessionManager.requireAdmin();
+        return movementDAO.findByVariantId(variantId, limit);
+    }
+
+    // ==================== CONSISTENCY CHECK ====================
+
+    /**
+     * Verify the ledger against ProductVariant.quantityInStock.
+     * The variant ID space is split into ranges that are checked in parallel;
+     * each range is compared in a single statement.
+     *
+     * @return Variants whose stored stock differs from their ledger balance
+     */
+    public List<LedgerDiscrepancy> checkConsistency() {
+        sessionManager.requireAdmin();
+        long startTime = System.currentTimeMillis();
+
+        Object[] range = variantDAO.getVariantIdRange();
+        if (range == null || range[0] == null) {
+            return Collections.emptyList();
+        }
+        long minId = (Long) range[0];
+        long maxId = (Long) range[1];
+        long span = Math.max(1, (maxId - minId + CHECK_PARTITIONS) / CHECK_PARTITIONS);
+
+        List<Future<List<Object[]>>> futures = new ArrayList<>();
+        for (long from = minId; from <= maxId; from += span) {
+            long lo = from;
+            long hi = Math.min(maxId, from + span - 1);
+            futures.add(CHECK_EXECUTOR.submit(() -> movementDAO.findLedgerMismatches(lo, hi)));
+        }
+
+        List<LedgerDiscrepancy> discrepancies = new ArrayList<>();
+        try {
+            for (Future<List<Object[]>> future : futures) {
+                for (Object[] row : future.get()) {
+                    discrepancies.add(new LedgerDiscrepancy(
+                        (Long) row[0],
+                        (String) row[1],
+                        (String) row[2],
+                        (Integer) row[3],
+                        ((Number) row[4]).longValue()
+                    ));
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Consistency check interrupted");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Error checking stock ledger: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        logger.info("Stock ledger check: {} discrepancies across {} partitions in {} ms",
+            discrepancies.size(), futures.size(), System.currentTimeMillis() - startTime);
+        return discrepancies;
+    }
+
+    // ==================== DATA CLASSES ====================
+
+    /**
+     * A variant whose stored stock does not match its ledger balance.
+     */
+    public static class LedgerDiscrepancy {
+        private final Long variantId;
+        private final String sku;
+        private final String productName;
+        private final int quantityInStock;
+        private final long ledgerBalance;
+
+        public LedgerDiscrepancy(Long variantId, String sku, String productName,
+                                 int quantityInStock, long ledgerBalance) {
+            this.variantId = variantId;
+            this.sku = sku;
+            this.productName = productName;
+            this.quantityInStock = quantityInStock;
+            this.ledgerBalance = ledgerBalance;
+        }
+
+        public Long getVariantId() { return variantId; }
+        public String getSku() { return sku; }
+        public String getProductName() { return productName; }
+        public int getQuantityInStock() { return quantityInStock; }
+        public long getLedgerBalance() { return ledgerBalance; }
+
+        public long getDifference() {
+            return quantityInStock - ledgerBalance;
+        }
+    }
+}
\ No newline at end of file
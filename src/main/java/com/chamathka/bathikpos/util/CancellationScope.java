@@ -0,0 +1,94 @@
+package com.chamathka.bathikpos.util;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets long read-only work (a partitioned report) be stopped mid-query.
+ *
+ * Work run through {@link #run(Supplier)} has every read-only session it opens
+ * through the DAOs registered with the scope, on any number of threads.
+ * {@link #cancel()} then calls Session.cancelQuery() on each session still open,
+ * which cancels the statement running on it (JDBC Statement.cancel()), and
+ * any session opened after that fails with a CancellationException.
+ */
+public class CancellationScope {
+
+    private static final Logger logger = LoggerFactory.getLogger(CancellationScope.class);
+    private static final ThreadLocal<CancellationScope> CURRENT = new ThreadLocal<>();
+
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    /**
+     * Run work on this thread within the scope.
+     * @param work The work
+     * @return The work's result
+     * @throws CancellationException if the scope is or gets cancelled
+     */
+    public <T> T run(Supplier<T> work) {
+        CancellationScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Cancel the statements running in the scope and refuse new sessions.
+     * @return Number of sessions whose query was cancelled
+     */
+    public int cancel() {
+        cancelled = true;
+        int cancelledQueries = 0;
+        for (Session session : sessions) {
+            if (!session.isOpen()) {
+                continue;
+            }
+            try {
+                session.cancelQuery();
+                cancelledQueries++;
+            } catch (Exception e) {
+                // The query finished (or the session closed) in the meantime
+                logger.debug("Could not cancel query: {}", e.getMessage());
+            }
+        }
+        sessions.clear();
+        return cancelledQueries;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Register a session just opened on this thread with the current scope, if any.
+     * @param session The session
+     * @throws CancellationException if the current scope was cancelled
+     */
+    public static void register(Session session) {
+        CancellationScope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        if (scope.cancelled) {
+            session.close();
+            throw new CancellationException("Cancelled");
+        }
+        // Forget finished sessions so the scope does not keep their loaded entities alive
+        scope.sessions.removeIf(open -> !open.isOpen());
+        scope.sessions.add(session);
+    }
+}
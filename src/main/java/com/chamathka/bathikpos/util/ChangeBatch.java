@@ -0,0 +1,235 @@
+package com.chamathka.bathikpos.util;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One batch of branch changes on its way to head office.
+ *
+ * A batch covers the change-log sequence range (afterSequence, lastSequence]
+ * of one branch and carries the affected rows, flattened per table. Variants
+ * are identified by item code since IDs differ between branch databases.
+ *
+ * The wire format is a GZIP-compressed binary stream: a header, then for
+ * every table a row count followed by the rows, each value written according
+ * to its column type behind a null flag.
+ */
+public class ChangeBatch {
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Column value types of the wire format.
+     */
+    public enum ValueType {
+        LONG("BIGINT"),
+        INT("INT"),
+        DECIMAL("DECIMAL(12, 2)"),
+        STRING("VARCHAR(255)"),
+        TIMESTAMP("TIMESTAMP");
+
+        private final String sqlType;
+
+        ValueType(String sqlType) {
+            this.sqlType = sqlType;
+        }
+
+        public String getSqlType() {
+            return sqlType;
+        }
+    }
+
+    /**
+     * The replicated tables. The first column is the branch-local primary key.
+     */
+    public enum Table {
+        SALE("hq_sale",
+            "saleId", ValueType.LONG, "saleTimestamp", ValueType.TIMESTAMP, "totalAmount", ValueType.DECIMAL,
+            "discountAmount", ValueType.DECIMAL, "paymentType", ValueType.STRING,
+            "customerId", ValueType.LONG, "cashier", ValueType.STRING),
+        SALE_ITEM("hq_sale_item",
+            "saleItemId", ValueType.LONG, "saleId", ValueType.LONG, "itemCode", ValueType.STRING,
+            "quantitySold", ValueType.INT, "priceAtSale", ValueType.DECIMAL),
+        SALE_RETURN("hq_sale_return",
+            "returnId", ValueType.LONG, "saleId", ValueType.LONG, "returnTimestamp", ValueType.TIMESTAMP,
+            "refundAmount", ValueType.DECIMAL),
+        RETURN_ITEM("hq_return_item",
+            "returnItemId", ValueType.LONG, "returnId", ValueType.LONG, "saleItemId", ValueType.LONG,
+            "itemCode", ValueType.STRING, "quantityReturned", ValueType.INT, "refundPrice", ValueType.DECIMAL),
+        GRN("hq_grn",
+            "grnId", ValueType.LONG, "supplierName", ValueType.STRING, "supplierInvoiceNo", ValueType.STRING,
+            "grnTimestamp", ValueType.TIMESTAMP, "totalCost", ValueType.DECIMAL),
+        GRN_ITEM("hq_grn_item",
+            "grnItemId", ValueType.LONG, "grnId", ValueType.LONG, "itemCode", ValueType.STRING,
+            "quantityReceived", ValueType.INT, "costPrice", ValueType.DECIMAL),
+        STOCK_MOVEMENT("hq_stock_movement",
+            "movementId", ValueType.LONG, "itemCode", ValueType.STRING, "movementType", ValueType.STRING,
+            "quantityChange", ValueType.INT, "referenceId", ValueType.LONG, "movementTimestamp", ValueType.TIMESTAMP);
+
+        private final String centralName;
+        private final List<String> columns = new ArrayList<>();
+        private final List<ValueType> types = new ArrayList<>();
+
+        Table(String centralName, Object... columnsAndTypes) {
+            this.centralName = centralName;
+            for (int i = 0; i < columnsAndTypes.length; i += 2) {
+                columns.add((String) columnsAndTypes[i]);
+                types.add((ValueType) columnsAndTypes[i + 1]);
+            }
+        }
+
+        public String getCentralName() {
+            return centralName;
+        }
+
+        public List<String> getColumns() {
+            return Collections.unmodifiableList(columns);
+        }
+
+        public List<ValueType> getTypes() {
+            return Collections.unmodifiableList(types);
+        }
+    }
+
+    private final String branchId;
+    private final long afterSequence;
+    private final long lastSequence;
+    private final Map<Table, List<Object[]>> rows = new EnumMap<>(Table.class);
+
+    public ChangeBatch(String branchId, long afterSequence, long lastSequence) {
+        this.branchId = branchId;
+        this.afterSequence = afterSequence;
+        this.lastSequence = lastSequence;
+    }
+
+    /**
+     * Add rows to a table. Each row holds the table's columns in order.
+     * @param table The table
+     * @param tableRows The rows
+     */
+    public void addRows(Table table, List<Object[]> tableRows) {
+        if (!tableRows.isEmpty()) {
+            rows.computeIfAbsent(table, key -> new ArrayList<>()).addAll(tableRows);
+        }
+    }
+
+    /**
+     * Get the rows of a table.
+     * @param table The table
+     * @return The rows, empty if the batch has none
+     */
+    public List<Object[]> getRows(Table table) {
+        return rows.getOrDefault(table, Collections.emptyList());
+    }
+
+    /**
+     * Count the rows over all tables.
+     * @return Total row count
+     */
+    public int getRowCount() {
+        return rows.values().stream().mapToInt(List::size).sum();
+    }
+
+    public String getBranchId() {
+        return branchId;
+    }
+
+    public long getAfterSequence() {
+        return afterSequence;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    // ==================== WIRE FORMAT ====================
+
+    /**
+     * Serialize and compress the batch.
+     * @return The compressed bytes
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(bytes)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(branchId);
+            out.writeLong(afterSequence);
+            out.writeLong(lastSequence);
+            for (Table table : Table.values()) {
+                List<Object[]> tableRows = getRows(table);
+                out.writeInt(tableRows.size());
+                for (Object[] row : tableRows) {
+                    for (int i = 0; i < row.length; i++) {
+                        writeValue(out, table.types.get(i), row[i]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error encoding change batch: " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decompress and deserialize a batch.
+     * @param data The compressed bytes from {@link #encode()}
+     * @return The batch
+     */
+    public static ChangeBatch decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(data))))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported change batch version: " + version);
+            }
+            ChangeBatch batch = new ChangeBatch(in.readUTF(), in.readLong(), in.readLong());
+            for (Table table : Table.values()) {
+                int count = in.readInt();
+                List<Object[]> tableRows = new ArrayList<>(count);
+                for (int r = 0; r < count; r++) {
+                    Object[] row = new Object[table.types.size()];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = readValue(in, table.types.get(i));
+                    }
+                    tableRows.add(row);
+                }
+                batch.addRows(table, tableRows);
+            }
+            return batch;
+        } catch (IOException e) {
+            throw new RuntimeException("Error decoding change batch: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, ValueType type, Object value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value == null) {
+            return;
+        }
+        switch (type) {
+            case LONG -> out.writeLong(((Number) value).longValue());
+            case INT -> out.writeInt(((Number) value).intValue());
+            case DECIMAL -> out.writeUTF(((BigDecimal) value).toPlainString());
+            case STRING -> out.writeUTF((String) value);
+            case TIMESTAMP -> out.writeLong(Timestamp.valueOf((LocalDateTime) value).getTime());
+        }
+    }
+
+    private static Object readValue(DataInputStream in, ValueType type) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return switch (type) {
+            case LONG -> in.readLong();
+            case INT -> in.readInt();
+            case DECIMAL -> new BigDecimal(in.readUTF());
+            case STRING -> in.readUTF();
+            case TIMESTAMP -> new Timestamp(in.readLong()).toLocalDateTime();
+        };
+    }
+}
\ No newline at end of file
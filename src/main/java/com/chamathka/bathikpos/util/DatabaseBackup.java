@@ -0,0 +1,745 @@
+package com.chamathka.bathikpos.util;
+
+import org.hibernate.cfg.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Online backup and restore of the whole database.
+ *
+ * A backup reads every table inside one consistent-read transaction (a
+ * consistent snapshot on MySQL), so it sees a single point in time while tills
+ * keep trading: InnoDB serves the snapshot from its undo log and no table is
+ * locked. Tables are read through forward-only, read-only cursors (streamed row
+ * by row on MySQL) and each row is written to the file as it is read, so memory
+ * use does not depend on the size of the database.
+ *
+ * The file is a GZIP-compressed binary stream: a header with the schema
+ * version, then every table as its column names and types followed by its
+ * rows and row count, and finally the SHA-256 checksum of everything before it.
+ *
+ * A restore first reads the whole file to check the checksum, then migrates the
+ * target database to the backup's schema version and loads the tables, parents
+ * first, with batched inserts. The target must be empty. Run it with the app
+ * closed:
+ * {@code mvn exec:java -Dexec.mainClass="com.chamathka.bathikpos.util.DatabaseBackup" -Dexec.args="restore FILE"}
+ * ("backup FILE" and "verify FILE" work the same way).
+ */
+public class DatabaseBackup {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseBackup.class);
+
+    private static final String MAGIC = "BATIKPOS-BACKUP";
+    private static final int FORMAT_VERSION = 1;
+
+    /** Every table, each after the tables it references. */
+    private static final List<String> TABLES = List.of(
+            "User", "Customer", "Supplier", "Product", "ProductVariant", "GRN", "GRNItem",
+            "Sale", "SaleItem", "SaleReturn", "ReturnItem", "StockMovement", "StockSnapshot",
+            "OutboxEvent", "ChangeLog", "SaleArchive");
+
+    private static final int FETCH_SIZE = 1000; // Rows per round trip where the driver can't stream
+    private static final int BATCH_SIZE = 1000; // Rows per batched insert
+    private static final int COMMIT_INTERVAL = 50_000; // Rows per restore transaction
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Column value types of the backup format.
+     */
+    private enum ValueType { LONG, DECIMAL, DOUBLE, BOOLEAN, STRING, DATE, TIMESTAMP, BYTES }
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    public DatabaseBackup(String url, String username, String password) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Create a backup tool for the connection settings of a Hibernate configuration.
+     * @param config The configuration
+     * @return The backup tool
+     */
+    static DatabaseBackup forConfiguration(Configuration config) {
+        String driver = config.getProperty("hibernate.connection.driver_class");
+        if (driver != null) {
+            try {
+                Class.forName(driver);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("JDBC driver not found: " + driver, e);
+            }
+        }
+        String password = config.getProperty("hibernate.connection.password");
+        return new DatabaseBackup(config.getProperty("hibernate.connection.url"),
+                config.getProperty("hibernate.connection.username"), password != null ? password : "");
+    }
+
+    /**
+     * Create a backup tool for the database the application is configured to use.
+     * @return The backup tool
+     */
+    public static DatabaseBackup forCurrentDatabase() {
+        return forConfiguration(HibernateUtil.getConfiguration());
+    }
+
+    // ==================== BACKUP ====================
+
+    /**
+     * Write a consistent snapshot of every table to a file.
+     * The file only appears under its name once it is complete.
+     * @param file The backup file to create
+     * @return What was written
+     */
+    public Result backup(Path file) {
+        long startTime = System.currentTimeMillis();
+        Path partFile = file.resolveSibling(file.getFileName() + ".part");
+        long rows = 0;
+
+        try (Connection connection = DriverManager.getConnection(url, username, password)) {
+            boolean mysql = isMySQL(connection);
+            beginSnapshot(connection, mysql);
+
+            MessageDigest digest = sha256();
+            try (OutputStream fileOut = Files.newOutputStream(partFile);
+                 GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut, BUFFER_SIZE);
+                 DigestOutputStream digestOut = new DigestOutputStream(new BufferedOutputStream(gzipOut, BUFFER_SIZE), digest);
+                 DataOutputStream out = new DataOutputStream(digestOut)) {
+
+                out.writeUTF(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(readSchemaVersion(connection));
+                writeTimestamp(out, LocalDateTime.now());
+                for (String table : TABLES) {
+                    rows += writeTable(connection, mysql, table, out);
+                }
+                out.writeBoolean(false); // No more tables
+
+                out.flush();
+                digestOut.on(false);
+                byte[] checksum = digest.digest();
+                out.writeInt(checksum.length);
+                out.write(checksum);
+            } finally {
+                connection.rollback(); // Read-only: ends the snapshot
+            }
+
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
+            Result result = new Result(TABLES.size(), rows, Files.size(file), System.currentTimeMillis() - startTime);
+            logger.info("Backed up {} to {}", result, file);
+            return result;
+        } catch (SQLException | IOException e) {
+            try {
+                Files.deleteIfExists(partFile);
+            } catch (IOException ignored) {
+                // The error below is what matters
+            }
+            throw new RuntimeException("Error backing up database: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Start a read-only transaction that sees every table as of one point in time.
+     */
+    private static void beginSnapshot(Connection connection, boolean mysql) throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            if (mysql) {
+                connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+            } else {
+                statement.execute("SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL SNAPSHOT");
+                connection.setReadOnly(true);
+            }
+        }
+    }
+
+    private static long writeTable(Connection connection, boolean mysql, String table, DataOutputStream out)
+            throws SQLException, IOException {
+        long startTime = System.currentTimeMillis();
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Connector/J only streams rows one at a time with this fetch size; otherwise it buffers the whole table
+            statement.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery("SELECT * FROM " + table)) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                ValueType[] types = new ValueType[columnCount];
+
+                out.writeBoolean(true);
+                out.writeUTF(table);
+                out.writeInt(columnCount);
+                for (int i = 0; i < columnCount; i++) {
+                    types[i] = valueType(table, metaData.getColumnLabel(i + 1), metaData.getColumnType(i + 1));
+                    out.writeUTF(metaData.getColumnLabel(i + 1));
+                    out.writeByte(types[i].ordinal());
+                }
+
+                long rows = 0;
+                while (resultSet.next()) {
+                    out.writeBoolean(true);
+                    for (int i = 0; i < columnCount; i++) {
+                        writeValue(out, types[i], resultSet, i + 1);
+                    }
+                    rows++;
+                }
+                out.writeBoolean(false); // No more rows
+                out.writeLong(rows);
+                logger.debug("Backed up {} rows of {} in {} ms", rows, table, System.currentTimeMillis() - startTime);
+                return rows;
+            }
+        }
+    }
+
+    // ==================== VERIFY AND RESTORE ====================
+
+    /**
+     * Read a backup file end to end and check its checksum and row counts.
+     * @param file The backup file
+     * @return What the file contains
+     * @throws IllegalStateException if the file is damaged
+     */
+    public Result verify(Path file) {
+        long startTime = System.currentTimeMillis();
+        Header header = read(file, DISCARD);
+        try {
+            Result result = new Result(header.tables, header.rows, Files.size(file), System.currentTimeMillis() - startTime);
+            logger.info("Verified backup {} (schema version {}, taken {}): {}", file, header.schemaVersion,
+                    header.createdAt, result);
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException("Error verifying backup: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Load a backup into an empty database.
+     * The file is verified first, then the schema is migrated to the backup's
+     * version and the rows are inserted in batches.
+     * @param file The backup file
+     * @return What was loaded
+     * @throws IllegalStateException if the file is damaged, its schema version does
+     *         not match this application, or the target database is not empty
+     */
+    public Result restore(Path file) {
+        long startTime = System.currentTimeMillis();
+        Header header = read(file, DISCARD); // A damaged file fails here, before anything is written
+        int schemaVersion = header.schemaVersion;
+        int targetVersion = new SchemaMigrator(url, username, password).migrate();
+        if (schemaVersion != targetVersion) {
+            throw new IllegalStateException("Backup is at schema version " + schemaVersion +
+                    " but this application is at version " + targetVersion + "; restore it with a matching release");
+        }
+
+        try (Connection connection = DriverManager.getConnection(url, username, password)) {
+            boolean mysql = isMySQL(connection);
+            requireEmpty(connection);
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                if (mysql) {
+                    // Every row was valid when it was backed up; skip the per-row checks like mysqldump does
+                    statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+                    statement.execute("SET UNIQUE_CHECKS = 0");
+                }
+                BatchLoader loader = new BatchLoader(connection, mysql);
+                try {
+                    read(file, loader);
+                    loader.close();
+                    connection.commit();
+                } catch (RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    if (mysql) {
+                        statement.execute("SET UNIQUE_CHECKS = 1");
+                        statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+                    }
+                }
+            }
+
+            Result result = new Result(header.tables, header.rows, Files.size(file),
+                    System.currentTimeMillis() - startTime);
+            logger.info("Restored {} from {}", result, file);
+            return result;
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Error restoring database: " + e.getMessage() +
+                    " (the database may be partly restored; empty it before retrying)", e);
+        }
+    }
+
+    private static void requireEmpty(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : TABLES) {
+                try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                    resultSet.next();
+                    if (resultSet.getLong(1) > 0) {
+                        throw new IllegalStateException("Cannot restore into a database that has data (table " +
+                                table + " has " + resultSet.getLong(1) + " rows); restore into a new database");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the rows of each table with batched prepared statements,
+     * committing every COMMIT_INTERVAL rows.
+     */
+    private static class BatchLoader implements RowSink {
+
+        private final Connection connection;
+        private final boolean mysql;
+        private String table;
+        private ValueType[] types;
+        private PreparedStatement insert;
+        private int pending;
+        private long sinceCommit;
+
+        private BatchLoader(Connection connection, boolean mysql) {
+            this.connection = connection;
+            this.mysql = mysql;
+        }
+
+        @Override
+        public void startTable(String table, String[] columns, ValueType[] types) throws SQLException {
+            this.table = table;
+            this.types = types;
+            String placeholders = String.join(", ", Collections.nCopies(columns.length, "?"));
+            insert = connection.prepareStatement("INSERT INTO " + table + " (" + String.join(", ", columns) +
+                    ") VALUES (" + placeholders + ")");
+        }
+
+        @Override
+        public void row(Object[] values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                bindValue(insert, i + 1, types[i], values[i]);
+            }
+            insert.addBatch();
+            if (++pending == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void endTable(long rows) throws SQLException {
+            flush();
+            insert.close();
+            insert = null;
+            if (!mysql) {
+                restartIdentity(connection, table);
+            }
+            logger.debug("Restored {} rows of {}", rows, table);
+        }
+
+        private void flush() throws SQLException {
+            if (pending == 0) {
+                return;
+            }
+            insert.executeBatch();
+            sinceCommit += pending;
+            pending = 0;
+            if (sinceCommit >= COMMIT_INTERVAL) {
+                connection.commit();
+                sinceCommit = 0;
+            }
+        }
+
+        private void close() throws SQLException {
+            if (insert != null) {
+                insert.close();
+            }
+        }
+    }
+
+    /**
+     * Move an H2 identity column past the restored IDs. MySQL does this by itself.
+     */
+    private static void restartIdentity(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String identityColumn = null;
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, identifier(metaData, table), null)) {
+            while (columns.next()) {
+                if ("YES".equalsIgnoreCase(columns.getString("IS_AUTOINCREMENT"))) {
+                    identityColumn = columns.getString("COLUMN_NAME");
+                }
+            }
+        }
+        if (identityColumn == null) {
+            return;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(" + identityColumn + "), 0) FROM " + table)) {
+            resultSet.next();
+            long next = resultSet.getLong(1) + 1;
+            statement.execute("ALTER TABLE " + table + " ALTER COLUMN " + identityColumn + " RESTART WITH " + next);
+        }
+    }
+
+    // ==================== FILE FORMAT ====================
+
+    /**
+     * Receives the tables and rows of a backup as it is read.
+     */
+    private interface RowSink {
+        void startTable(String table, String[] columns, ValueType[] types) throws SQLException;
+
+        void row(Object[] values) throws SQLException;
+
+        void endTable(long rows) throws SQLException;
+    }
+
+    /** Reads a backup without doing anything with its rows. */
+    private static final RowSink DISCARD = new RowSink() {
+        @Override
+        public void startTable(String table, String[] columns, ValueType[] types) {
+        }
+
+        @Override
+        public void row(Object[] values) {
+        }
+
+        @Override
+        public void endTable(long rows) {
+        }
+    };
+
+    /**
+     * What a backup file says about itself.
+     */
+    private static class Header {
+        private int schemaVersion;
+        private LocalDateTime createdAt;
+        private int tables;
+        private long rows;
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        if (!MAGIC.equals(in.readUTF())) {
+            throw new IOException("Not a Batik POS backup");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported backup format version: " + version);
+        }
+        Header header = new Header();
+        header.schemaVersion = in.readInt();
+        header.createdAt = readTimestamp(in);
+        return header;
+    }
+
+    /**
+     * Read a whole backup, handing every row to the sink, and check its checksum.
+     */
+    private static Header read(Path file, RowSink sink) {
+        MessageDigest digest = sha256();
+        try (DataInputStream in = openForReading(file, digest)) {
+            Header header = readHeader(in);
+            while (in.readBoolean()) {
+                String table = in.readUTF();
+                int columnCount = in.readInt();
+                String[] columns = new String[columnCount];
+                ValueType[] types = new ValueType[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    columns[i] = in.readUTF();
+                    types[i] = ValueType.values()[in.readByte()];
+                }
+                sink.startTable(table, columns, types);
+
+                long rows = 0;
+                Object[] values = new Object[columnCount];
+                while (in.readBoolean()) {
+                    for (int i = 0; i < columnCount; i++) {
+                        values[i] = readValue(in, types[i]);
+                    }
+                    sink.row(values);
+                    rows++;
+                }
+                long expectedRows = in.readLong();
+                if (rows != expectedRows) {
+                    throw new IllegalStateException("Backup is damaged: " + table + " has " + rows +
+                            " rows, expected " + expectedRows);
+                }
+                sink.endTable(rows);
+                header.tables++;
+                header.rows += rows;
+            }
+
+            byte[] actual = digest.digest(); // Everything read so far
+            byte[] expected = new byte[in.readInt()];
+            in.readFully(expected);
+            if (!MessageDigest.isEqual(expected, actual)) {
+                throw new IllegalStateException("Backup is damaged: checksum mismatch");
+            }
+            return header;
+        } catch (EOFException e) {
+            throw new IllegalStateException("Backup is damaged: file ends early", e);
+        } catch (IOException | SQLException e) {
+            throw new RuntimeException("Error reading backup: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Open a backup for reading, updating the digest with every byte read.
+     */
+    private static DataInputStream openForReading(Path file, MessageDigest digest) throws IOException {
+        InputStream in = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE);
+        return new DataInputStream(new DigestInputStream(in, digest));
+    }
+
+    private static ValueType valueType(String table, String column, int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return ValueType.LONG;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return ValueType.DECIMAL;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                return ValueType.DOUBLE;
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return ValueType.BOOLEAN;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+                return ValueType.STRING;
+            case Types.DATE:
+                return ValueType.DATE;
+            case Types.TIMESTAMP:
+                return ValueType.TIMESTAMP;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return ValueType.BYTES;
+            default:
+                throw new IllegalStateException("Unsupported column type " + sqlType + " for " + table + "." + column);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, ValueType type, ResultSet resultSet, int column)
+            throws SQLException, IOException {
+        Object value = switch (type) {
+            case LONG -> resultSet.getLong(column);
+            case DECIMAL -> resultSet.getBigDecimal(column);
+            case DOUBLE -> resultSet.getDouble(column);
+            case BOOLEAN -> resultSet.getBoolean(column);
+            case STRING -> resultSet.getString(column);
+            case DATE -> resultSet.getObject(column, LocalDate.class);
+            case TIMESTAMP -> resultSet.getObject(column, LocalDateTime.class);
+            case BYTES -> resultSet.getBytes(column);
+        };
+        boolean present = !resultSet.wasNull() && value != null;
+        out.writeBoolean(present);
+        if (!present) {
+            return;
+        }
+        switch (type) {
+            case LONG -> out.writeLong((Long) value);
+            case DECIMAL -> out.writeUTF(((BigDecimal) value).toPlainString());
+            case DOUBLE -> out.writeDouble((Double) value);
+            case BOOLEAN -> out.writeBoolean((Boolean) value);
+            case STRING -> writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+            case DATE -> out.writeLong(((LocalDate) value).toEpochDay());
+            case TIMESTAMP -> writeTimestamp(out, (LocalDateTime) value);
+            case BYTES -> writeBytes(out, (byte[]) value);
+        }
+    }
+
+    private static Object readValue(DataInputStream in, ValueType type) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return switch (type) {
+            case LONG -> in.readLong();
+            case DECIMAL -> new BigDecimal(in.readUTF());
+            case DOUBLE -> in.readDouble();
+            case BOOLEAN -> in.readBoolean();
+            case STRING -> new String(readBytes(in), StandardCharsets.UTF_8);
+            case DATE -> LocalDate.ofEpochDay(in.readLong());
+            case TIMESTAMP -> readTimestamp(in);
+            case BYTES -> readBytes(in);
+        };
+    }
+
+    private static void bindValue(PreparedStatement statement, int index, ValueType type, Object value)
+            throws SQLException {
+        if (value == null) {
+            statement.setNull(index, switch (type) {
+                case LONG -> Types.BIGINT;
+                case DECIMAL -> Types.DECIMAL;
+                case DOUBLE -> Types.DOUBLE;
+                case BOOLEAN -> Types.BOOLEAN;
+                case STRING -> Types.VARCHAR;
+                case DATE -> Types.DATE;
+                case TIMESTAMP -> Types.TIMESTAMP;
+                case BYTES -> Types.VARBINARY;
+            });
+            return;
+        }
+        switch (type) {
+            case LONG -> statement.setLong(index, (Long) value);
+            case DECIMAL -> statement.setBigDecimal(index, (BigDecimal) value);
+            case DOUBLE -> statement.setDouble(index, (Double) value);
+            case BOOLEAN -> statement.setBoolean(index, (Boolean) value);
+            case STRING -> statement.setString(index, (String) value);
+            case DATE, TIMESTAMP -> statement.setObject(index, value);
+            case BYTES -> statement.setBytes(index, (byte[]) value);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime value) throws IOException {
+        // Seconds and nanos, so the microseconds of DATETIME(6) survive
+        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(value.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    // ==================== HELPERS ====================
+
+    private static boolean isMySQL(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+    }
+
+    private static int readSchemaVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * Convert an unquoted identifier to the case the database stores it in (H2 upper-cases them).
+     */
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase();
+        }
+        return metaData.storesLowerCaseIdentifiers() ? name.toLowerCase() : name;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ==================== RESULT ====================
+
+    /**
+     * Size and duration of a backup, verify or restore run.
+     */
+    public static class Result {
+
+        private final int tables;
+        private final long rows;
+        private final long bytes;
+        private final long millis;
+
+        public Result(int tables, long rows, long bytes, long millis) {
+            this.tables = tables;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+
+        public int getTables() {
+            return tables;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Get the size of the compressed backup file.
+         * @return Size in bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public double getRowsPerSecond() {
+            return millis == 0 ? rows : rows * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d rows in %d tables, %,.1f MB compressed, in %,d ms (%,.0f rows/s)",
+                    rows, tables, bytes / (1024.0 * 1024.0), millis, getRowsPerSecond());
+        }
+    }
+
+    /**
+     * Back up, verify or restore the configured database.
+     * @param args "backup FILE", "verify FILE" or "restore FILE"
+     */
+    public static void main(String[] args) {
+        if (args.length != 2 || !List.of("backup", "verify", "restore").contains(args[0])) {
+            System.err.println("Usage: DatabaseBackup backup|verify|restore FILE");
+            System.exit(2);
+        }
+        try {
+            DatabaseBackup databaseBackup = forCurrentDatabase();
+            Path file = Path.of(args[1]);
+            Result result = switch (args[0]) {
+                case "backup" -> databaseBackup.backup(file);
+                case "verify" -> databaseBackup.verify(file);
+                default -> databaseBackup.restore(file);
+            };
+            System.out.println(args[0] + " complete: " + result);
+        } catch (Exception e) {
+            logger.error("Database {} failed", args[0], e);
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,337 @@
+package com.chamathka.bathikpos.util;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Singleton exposing runtime diagnostics of the database layer: HikariCP pool
+ * state and connection-acquisition times, connection leak detection, and
+ * Hibernate Statistics (query counts, slowest queries, entity loads, cache hits).
+ *
+ * Disabled by default, and free when disabled: Hibernate's statistics, the pool
+ * metrics tracker and Hikari's leak detection are only switched on when the app
+ * starts with -Dbatikpos.diagnostics=true (or BATIKPOS_DIAGNOSTICS=true).
+ * Hikari logs a warning with the borrowing stack trace for every connection held
+ * longer than -Dbatikpos.diagnostics.leakThresholdMs (default 10 s).
+ */
+public class Diagnostics {
+
+    private static final Logger logger = LoggerFactory.getLogger(Diagnostics.class);
+
+    private static final boolean ENABLED = Boolean.parseBoolean(
+            System.getProperty("batikpos.diagnostics", System.getenv("BATIKPOS_DIAGNOSTICS")));
+    private static final long LEAK_THRESHOLD_MS = Long.getLong("batikpos.diagnostics.leakThresholdMs", 10_000);
+
+    /** Upper bounds (ms) of the acquisition-time histogram buckets; the last bucket is open-ended. */
+    private static final long[] ACQUIRE_BUCKET_MILLIS = {1, 5, 10, 50, 100, 500, 1000};
+
+    private static Diagnostics instance;
+
+    private final Map<String, SessionFactory> factories = new LinkedHashMap<>();
+    private final Map<String, PoolMetrics> pools = new LinkedHashMap<>();
+
+    private Diagnostics() {
+    }
+
+    /**
+     * Get the Diagnostics instance
+     * @return Diagnostics instance
+     */
+    public static synchronized Diagnostics getInstance() {
+        if (instance == null) {
+            instance = new Diagnostics();
+        }
+        return instance;
+    }
+
+    /**
+     * Check whether diagnostics were switched on at startup.
+     * @return true if enabled
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Get how long a connection may be held before it is reported as a possible leak.
+     * @return The threshold in milliseconds
+     */
+    public static long getLeakThresholdMillis() {
+        return LEAK_THRESHOLD_MS;
+    }
+
+    /**
+     * Add the diagnostics settings to a Hibernate configuration. No-op when disabled.
+     * @param config The configuration
+     */
+    static void configure(Configuration config) {
+        if (!ENABLED) {
+            return;
+        }
+        config.setProperty("hibernate.generate_statistics", "true");
+        config.setProperty("hibernate.hikari.leakDetectionThreshold", String.valueOf(LEAK_THRESHOLD_MS));
+    }
+
+    /**
+     * Start collecting diagnostics for a SessionFactory. No-op when disabled.
+     * @param name Display name of the factory ("primary", "reporting")
+     * @param factory The SessionFactory, built with {@link #configure(Configuration)} applied
+     */
+    synchronized void register(String name, SessionFactory factory) {
+        if (!ENABLED) {
+            return;
+        }
+        factories.put(name, factory);
+        try {
+            HikariDataSource dataSource = factory.unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry().requireService(ConnectionProvider.class)
+                    .unwrap(HikariDataSource.class);
+            PoolMetrics metrics = new PoolMetrics(name);
+            dataSource.setMetricsTrackerFactory((poolName, poolStats) -> metrics.bind(poolStats));
+            pools.put(name, metrics);
+        } catch (Exception e) {
+            logger.warn("Pool metrics unavailable for {}: {}", name, e.getMessage());
+        }
+        logger.info("Diagnostics enabled for {} (leak threshold {} ms)", name, LEAK_THRESHOLD_MS);
+    }
+
+    /**
+     * Get the metrics of every registered connection pool.
+     * @return The pool metrics, primary first
+     */
+    public synchronized List<PoolMetrics> getPools() {
+        return new ArrayList<>(pools.values());
+    }
+
+    /**
+     * Get Hibernate's statistics for every registered SessionFactory.
+     * @return Map of factory name to its Statistics, empty when disabled
+     */
+    public synchronized Map<String, Statistics> getStatistics() {
+        Map<String, Statistics> statistics = new LinkedHashMap<>();
+        factories.forEach((name, factory) -> statistics.put(name, factory.getStatistics()));
+        return statistics;
+    }
+
+    /**
+     * Get the queries with the highest maximum execution time, over all factories.
+     * @param limit Maximum number of queries
+     * @return The slowest queries, slowest first
+     */
+    public List<QuerySummary> getSlowestQueries(int limit) {
+        List<QuerySummary> queries = new ArrayList<>();
+        for (Statistics statistics : getStatistics().values()) {
+            for (String query : statistics.getQueries()) {
+                QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+                queries.add(new QuerySummary(query, queryStatistics.getExecutionCount(),
+                        queryStatistics.getExecutionAvgTime(), queryStatistics.getExecutionMaxTime(),
+                        queryStatistics.getExecutionRowCount()));
+            }
+        }
+        queries.sort(Comparator.comparingLong(QuerySummary::getMaxMillis).reversed());
+        return queries.size() > limit ? new ArrayList<>(queries.subList(0, limit)) : queries;
+    }
+
+    /**
+     * Clear all collected statistics and histograms.
+     */
+    public synchronized void reset() {
+        factories.values().forEach(factory -> factory.getStatistics().clear());
+        pools.values().forEach(PoolMetrics::reset);
+    }
+
+    // ==================== POOL METRICS ====================
+
+    /**
+     * Live state and timings of one HikariCP pool, fed by Hikari's metrics tracker.
+     */
+    public static class PoolMetrics implements IMetricsTracker {
+
+        private final String name;
+        private volatile PoolStats poolStats;
+        private final LongAdder[] acquireBuckets = new LongAdder[ACQUIRE_BUCKET_MILLIS.length + 1];
+        private final LongAdder acquireCount = new LongAdder();
+        private final LongAdder acquireTotalNanos = new LongAdder();
+        private final LongAccumulator acquireMaxNanos = new LongAccumulator(Long::max, 0);
+        private final LongAccumulator usageMaxMillis = new LongAccumulator(Long::max, 0);
+        private final LongAdder longHeldConnections = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        PoolMetrics(String name) {
+            this.name = name;
+            for (int i = 0; i < acquireBuckets.length; i++) {
+                acquireBuckets[i] = new LongAdder();
+            }
+        }
+
+        private PoolMetrics bind(PoolStats poolStats) {
+            this.poolStats = poolStats;
+            return this;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(elapsedAcquiredNanos);
+            int bucket = 0;
+            while (bucket < ACQUIRE_BUCKET_MILLIS.length && millis >= ACQUIRE_BUCKET_MILLIS[bucket]) {
+                bucket++;
+            }
+            acquireBuckets[bucket].increment();
+            acquireCount.increment();
+            acquireTotalNanos.add(elapsedAcquiredNanos);
+            acquireMaxNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageMaxMillis.accumulate(elapsedBorrowedMillis);
+            if (elapsedBorrowedMillis >= LEAK_THRESHOLD_MS) {
+                longHeldConnections.increment();
+            }
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        private void reset() {
+            for (LongAdder bucket : acquireBuckets) {
+                bucket.reset();
+            }
+            acquireCount.reset();
+            acquireTotalNanos.reset();
+            acquireMaxNanos.reset();
+            usageMaxMillis.reset();
+            longHeldConnections.reset();
+            timeouts.reset();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getActiveConnections() {
+            return poolStats != null ? poolStats.getActiveConnections() : 0;
+        }
+
+        public int getIdleConnections() {
+            return poolStats != null ? poolStats.getIdleConnections() : 0;
+        }
+
+        public int getPendingThreads() {
+            return poolStats != null ? poolStats.getPendingThreads() : 0;
+        }
+
+        public int getMaxConnections() {
+            return poolStats != null ? poolStats.getMaxConnections() : 0;
+        }
+
+        /**
+         * Get the acquisition-time histogram.
+         * @return Count per bucket, matching {@link #getAcquisitionBucketLabels()}
+         */
+        public long[] getAcquisitionHistogram() {
+            return Arrays.stream(acquireBuckets).mapToLong(LongAdder::sum).toArray();
+        }
+
+        /**
+         * Get the labels of the acquisition-time histogram buckets.
+         * @return Labels such as "&lt; 1 ms", "1-5 ms", ..., "&gt;= 1000 ms"
+         */
+        public static List<String> getAcquisitionBucketLabels() {
+            List<String> labels = new ArrayList<>();
+            long lower = 0;
+            for (long upper : ACQUIRE_BUCKET_MILLIS) {
+                labels.add(lower == 0 ? "< " + upper + " ms" : lower + "-" + upper + " ms");
+                lower = upper;
+            }
+            labels.add(">= " + lower + " ms");
+            return labels;
+        }
+
+        public long getAcquisitionCount() {
+            return acquireCount.sum();
+        }
+
+        public double getAverageAcquisitionMillis() {
+            long count = acquireCount.sum();
+            return count == 0 ? 0 : acquireTotalNanos.sum() / (count * 1_000_000.0);
+        }
+
+        public double getMaxAcquisitionMillis() {
+            return acquireMaxNanos.get() / 1_000_000.0;
+        }
+
+        public long getMaxUsageMillis() {
+            return usageMaxMillis.get();
+        }
+
+        /**
+         * Count connections returned after being held longer than the leak threshold.
+         * Connections still held past it are logged by Hikari as possible leaks.
+         * @return Number of long-held connections
+         */
+        public long getLongHeldConnections() {
+            return longHeldConnections.sum();
+        }
+
+        public long getTimeouts() {
+            return timeouts.sum();
+        }
+    }
+
+    /**
+     * Execution statistics of one query.
+     */
+    public static class QuerySummary {
+
+        private final String query;
+        private final long executions;
+        private final long avgMillis;
+        private final long maxMillis;
+        private final long rows;
+
+        public QuerySummary(String query, long executions, long avgMillis, long maxMillis, long rows) {
+            this.query = query;
+            this.executions = executions;
+            this.avgMillis = avgMillis;
+            this.maxMillis = maxMillis;
+            this.rows = rows;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public long getExecutions() {
+            return executions;
+        }
+
+        public long getAvgMillis() {
+            return avgMillis;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+    }
+}
\ No newline at end of file
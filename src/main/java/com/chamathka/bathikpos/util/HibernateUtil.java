@@ -5,41 +5,260 @@ import org.hibernate.cfg.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Utility class for managing Hibernate SessionFactory
  * Follows the Singleton pattern to ensure only one SessionFactory instance exists
+ *
+ * The configuration is read when the class loads; the SessionFactory itself is
+ * built on first use, so settings such as the pool size can be read without
+ * connecting to the database. The application starts that build in the
+ * background with bootstrapAsync() as soon as the login screen is shown.
+ *
+ * The database profile is chosen with -Dbatikpos.db.profile (or the
+ * BATIKPOS_DB_PROFILE environment variable): "mysql" (default) uses
+ * hibernate.cfg.xml as is, "embedded" overlays hibernate-embedded.properties
+ * to run on a local H2 file with no database server.
+ *
+ * The schema is managed by SchemaMigrator, which applies the versioned scripts
+ * in db/migration before the SessionFactory is built; Hibernate itself never
+ * changes or inspects the schema (hbm2ddl.auto is none).
+ *
+ * Reports, dashboards and searches use a second, read-only SessionFactory with
+ * its own small pool, so a long report cannot take the connections checkout
+ * needs. Point it at a MySQL replica with -Dbatikpos.db.replica.url (or
+ * BATIKPOS_DB_REPLICA_URL); without one it opens its own connections to the
+ * primary. Data read through it may lag the primary when a replica is used.
  */
 public class HibernateUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(HibernateUtil.class);
-    private static SessionFactory sessionFactory;
+    private static final int DEFAULT_POOL_SIZE = 10; // HikariCP default
+    private static final int DEFAULT_REPORTING_POOL_SIZE = 5;
 
-    static {
-        try {
-            // Create the SessionFactory from hibernate.cfg.xml
-            sessionFactory = new Configuration()
-                    .configure("hibernate.cfg.xml")
-                    .buildSessionFactory();
+    public static final String PROFILE_MYSQL = "mysql";
+    public static final String PROFILE_EMBEDDED = "embedded";
 
-            logger.info("Hibernate SessionFactory created successfully");
-        } catch (Exception e) {
-            logger.error("Failed to create SessionFactory", e);
-            throw new ExceptionInInitializerError("Failed to initialize Hibernate: " + e.getMessage());
-        }
-    }
+    private static final String profile = resolveProfile();
+    private static final Configuration configuration = createConfiguration();
+    private static volatile SessionFactory sessionFactory;
+    private static volatile SessionFactory reportingSessionFactory;
 
     /**
      * Get the SessionFactory instance
      * @return SessionFactory instance
      */
     public static SessionFactory getSessionFactory() {
-        return sessionFactory;
+        SessionFactory factory = sessionFactory;
+        if (factory == null) {
+            synchronized (HibernateUtil.class) {
+                factory = sessionFactory;
+                if (factory == null) {
+                    try {
+                        // Bring the schema up to date, then create the SessionFactory from hibernate.cfg.xml
+                        SchemaMigrator.forConfiguration(configuration).run(SchemaMigrator.getMode());
+                        factory = configuration.buildSessionFactory();
+                        sessionFactory = factory;
+                        Diagnostics.getInstance().register("primary", factory);
+                        logger.info("Hibernate SessionFactory created successfully");
+                    } catch (Exception e) {
+                        logger.error("Failed to create SessionFactory", e);
+                        throw new RuntimeException("Failed to initialize Hibernate: " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+        return factory;
+    }
+
+    /**
+     * Build the primary and reporting SessionFactories on a background thread,
+     * so the login screen can render while Hibernate bootstraps and the first
+     * login does not wait for it. Callers of getSessionFactory() in the meantime
+     * block until it is ready. Safe to call more than once.
+     * @return Completes when both factories are built, or exceptionally if the primary failed
+     */
+    public static CompletableFuture<Void> bootstrapAsync() {
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            long startTime = System.currentTimeMillis();
+            try {
+                getSessionFactory();
+                try {
+                    getReportingSessionFactory();
+                } catch (Exception e) {
+                    // Logged by getReportingSessionFactory(); the first report retries it
+                }
+                logger.info("Database bootstrapped in the background in {} ms", System.currentTimeMillis() - startTime);
+                ready.complete(null);
+            } catch (Exception e) {
+                // Logged by getSessionFactory(); the first login retries it and shows the error
+                ready.completeExceptionally(e);
+            }
+        }, "db-bootstrap");
+        thread.setDaemon(true);
+        thread.start();
+        return ready;
+    }
+
+    /**
+     * Get the read-only SessionFactory for reports, dashboards and searches.
+     * Never use it for writes or for reads that must see a write just committed.
+     * On the embedded profile this is the primary SessionFactory.
+     * @return Reporting SessionFactory instance
+     */
+    public static SessionFactory getReportingSessionFactory() {
+        if (isEmbedded()) {
+            return getSessionFactory();
+        }
+        SessionFactory factory = reportingSessionFactory;
+        if (factory == null) {
+            // The primary runs the schema migrations, so build it first
+            getSessionFactory();
+            synchronized (HibernateUtil.class) {
+                factory = reportingSessionFactory;
+                if (factory == null) {
+                    try {
+                        factory = createReportingConfiguration().buildSessionFactory();
+                        reportingSessionFactory = factory;
+                        Diagnostics.getInstance().register("reporting", factory);
+                        logger.info("Reporting SessionFactory created successfully");
+                    } catch (Exception e) {
+                        logger.error("Failed to create reporting SessionFactory", e);
+                        throw new RuntimeException("Failed to initialize reporting database: " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+        return factory;
     }
 
     /**
-     * Close the SessionFactory and release all resources
+     * Get the maximum number of pooled database connections.
+     * @return The configured HikariCP maximumPoolSize
+     */
+    public static int getMaximumPoolSize() {
+        String poolSize = configuration.getProperty("hibernate.hikari.maximumPoolSize");
+        return poolSize != null ? Integer.parseInt(poolSize.trim()) : DEFAULT_POOL_SIZE;
+    }
+
+    /**
+     * Get the maximum number of connections that reporting sessions can use.
+     * On the embedded database reports share the primary pool.
+     * @return The reporting pool size
+     */
+    public static int getReportingPoolSize() {
+        if (isEmbedded()) {
+            return getMaximumPoolSize();
+        }
+        return Integer.getInteger("batikpos.db.replica.poolSize", DEFAULT_REPORTING_POOL_SIZE);
+    }
+
+    /**
+     * Get the primary configuration, for tools that connect without Hibernate.
+     * @return The configuration
+     */
+    static Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Get the active database profile.
+     * @return PROFILE_MYSQL or PROFILE_EMBEDDED
+     */
+    public static String getProfile() {
+        return profile;
+    }
+
+    /**
+     * Check whether the app runs on the embedded database.
+     * @return true for the embedded profile
+     */
+    public static boolean isEmbedded() {
+        return PROFILE_EMBEDDED.equals(profile);
+    }
+
+    private static String resolveProfile() {
+        String selected = System.getProperty("batikpos.db.profile", System.getenv("BATIKPOS_DB_PROFILE"));
+        if (selected == null || selected.isBlank()) {
+            return PROFILE_MYSQL;
+        }
+        selected = selected.trim().toLowerCase();
+        if (!PROFILE_MYSQL.equals(selected) && !PROFILE_EMBEDDED.equals(selected)) {
+            throw new ExceptionInInitializerError("Unknown database profile: " + selected);
+        }
+        return selected;
+    }
+
+    private static Configuration createConfiguration() {
+        Configuration config = new Configuration().configure("hibernate.cfg.xml");
+        if (PROFILE_EMBEDDED.equals(profile)) {
+            Properties overrides = new Properties();
+            try (InputStream in = HibernateUtil.class.getResourceAsStream("/hibernate-embedded.properties")) {
+                if (in == null) {
+                    throw new IOException("hibernate-embedded.properties not found");
+                }
+                overrides.load(in);
+            } catch (IOException e) {
+                throw new ExceptionInInitializerError("Failed to load embedded profile: " + e.getMessage());
+            }
+
+            String dbDir = System.getProperty("batikpos.db.dir",
+                    Paths.get(System.getProperty("user.home"), ".batikpos").toString());
+            overrides.setProperty("hibernate.connection.url",
+                    overrides.getProperty("hibernate.connection.url").replace("${db.dir}", dbDir.replace('\\', '/')));
+            config.addProperties(overrides);
+        }
+        Diagnostics.configure(config);
+        QueryMonitor.configure(config);
+        logger.info("Database profile: {} ({})", profile, config.getProperty("hibernate.connection.url"));
+        return config;
+    }
+
+    /**
+     * Build the reporting configuration: the primary settings on a read-only pool
+     * of its own, optionally pointed at a replica, with no schema management.
+     */
+    private static Configuration createReportingConfiguration() {
+        Configuration config = createConfiguration();
+        String replicaUrl = setting("batikpos.db.replica.url", "BATIKPOS_DB_REPLICA_URL");
+        if (replicaUrl != null && !replicaUrl.isBlank()) {
+            config.setProperty("hibernate.connection.url", replicaUrl);
+            String user = setting("batikpos.db.replica.user", "BATIKPOS_DB_REPLICA_USER");
+            if (user != null) {
+                config.setProperty("hibernate.connection.username", user);
+                String password = setting("batikpos.db.replica.password", "BATIKPOS_DB_REPLICA_PASSWORD");
+                config.setProperty("hibernate.connection.password", password != null ? password : "");
+            }
+        }
+        config.setProperty("hibernate.hbm2ddl.auto", "none");
+        config.setProperty("hibernate.hikari.poolName", "reporting");
+        config.setProperty("hibernate.hikari.readOnly", "true");
+        config.setProperty("hibernate.hikari.minimumIdle", "1");
+        config.setProperty("hibernate.hikari.maximumPoolSize", String.valueOf(
+                Integer.getInteger("batikpos.db.replica.poolSize", DEFAULT_REPORTING_POOL_SIZE)));
+        logger.info("Reporting database: {}", replicaUrl != null && !replicaUrl.isBlank()
+                ? replicaUrl : "separate pool on the primary");
+        return config;
+    }
+
+    private static String setting(String property, String environmentVariable) {
+        return System.getProperty(property, System.getenv(environmentVariable));
+    }
+
+    /**
+     * Close the SessionFactories and release all resources
      */
     public static void shutdown() {
+        if (reportingSessionFactory != null && !reportingSessionFactory.isClosed()) {
+            logger.info("Shutting down reporting SessionFactory");
+            reportingSessionFactory.close();
+        }
         if (sessionFactory != null && !sessionFactory.isClosed()) {
             logger.info("Shutting down Hibernate SessionFactory");
             sessionFactory.close();
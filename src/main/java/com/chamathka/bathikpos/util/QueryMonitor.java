@@ -0,0 +1,280 @@
+package com.chamathka.bathikpos.util;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Counts and times the SQL statements of each unit of work (one service call),
+ * to catch N+1 query patterns and slow statements.
+ *
+ * A Hibernate StatementInspector sees every statement and a session event
+ * listener times its execution; both only do work on a thread with an open
+ * {@link UnitOfWork}. When a unit closes, a warning is logged if it ran more
+ * statements or took longer than its budget, or ran the same statement many
+ * times (the N+1 signature). Every task started from a screen through
+ * TaskExecutor is a unit of work.
+ *
+ * Budgets: -Dbatikpos.queries.maxStatements (default 50), -Dbatikpos.queries.maxMillis
+ * (default 1000), -Dbatikpos.queries.slowStatementMillis (default 500) and
+ * -Dbatikpos.queries.maxRepeats (default 10).
+ *
+ * For regression tests of hot paths:
+ * <pre>
+ * try (QueryMonitor.UnitOfWork unit = QueryMonitor.begin("profit report")) {
+ *     reportService.getProfitReport(start, end);
+ * }
+ * QueryMonitor.assertMaxQueries(3);
+ * </pre>
+ */
+public class QueryMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryMonitor.class);
+
+    private static final int MAX_STATEMENTS = Integer.getInteger("batikpos.queries.maxStatements", 50);
+    private static final long MAX_MILLIS = Long.getLong("batikpos.queries.maxMillis", 1000);
+    private static final long SLOW_STATEMENT_MILLIS = Long.getLong("batikpos.queries.slowStatementMillis", 500);
+    private static final int MAX_REPEATS = Integer.getInteger("batikpos.queries.maxRepeats", 10);
+
+    private static final ThreadLocal<Deque<UnitOfWork>> ACTIVE_UNITS = new ThreadLocal<>();
+    private static final ThreadLocal<UnitOfWork> LAST_COMPLETED = new ThreadLocal<>();
+    private static final ThreadLocal<String> CURRENT_SQL = new ThreadLocal<>(); // Last statement inspected
+
+    private QueryMonitor() {
+    }
+
+    /**
+     * Install the statement inspector and timing listener on a Hibernate configuration.
+     * @param config The configuration
+     */
+    static void configure(Configuration config) {
+        config.setStatementInspector(new Inspector());
+        config.setProperty(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, StatementTimer.class.getName());
+    }
+
+    /**
+     * Start a unit of work on this thread with the default budgets.
+     * Units nest; a statement counts towards every open unit.
+     * @param name Name shown in the warnings (e.g. the service call)
+     * @return The unit; close it when the call returns
+     */
+    public static UnitOfWork begin(String name) {
+        return begin(name, MAX_STATEMENTS, MAX_MILLIS);
+    }
+
+    /**
+     * Start a unit of work on this thread with its own budgets.
+     * @param name Name shown in the warnings
+     * @param maxStatements Statement budget
+     * @param maxMillis Latency budget in milliseconds
+     * @return The unit; close it when the call returns
+     */
+    public static UnitOfWork begin(String name, int maxStatements, long maxMillis) {
+        UnitOfWork unit = new UnitOfWork(name, maxStatements, maxMillis);
+        Deque<UnitOfWork> units = ACTIVE_UNITS.get();
+        if (units == null) {
+            units = new ArrayDeque<>();
+            ACTIVE_UNITS.set(units);
+        }
+        units.push(unit);
+        return unit;
+    }
+
+    /**
+     * Assert that the last unit of work closed on this thread ran at most the
+     * given number of statements. For tests.
+     * @param maxQueries The maximum number of statements
+     * @throws AssertionError if there is no closed unit or it ran more statements
+     */
+    public static void assertMaxQueries(int maxQueries) {
+        UnitOfWork unit = LAST_COMPLETED.get();
+        if (unit == null) {
+            throw new AssertionError("No unit of work has completed on this thread");
+        }
+        unit.assertMaxQueries(maxQueries);
+    }
+
+    /**
+     * Get the last unit of work closed on this thread.
+     * @return The unit, or null
+     */
+    public static UnitOfWork getLastCompleted() {
+        return LAST_COMPLETED.get();
+    }
+
+    // ==================== UNIT OF WORK ====================
+
+    /**
+     * The statements run by one service call.
+     */
+    public static class UnitOfWork implements AutoCloseable {
+
+        private final String name;
+        private final int maxStatements;
+        private final long maxMillis;
+        private final long startNanos = System.nanoTime();
+        private final Map<String, Integer> countsBySql = new HashMap<>();
+        private int statementCount;
+        private long statementNanos;
+        private long slowestStatementNanos;
+        private String slowestStatement;
+        private long elapsedNanos = -1;
+
+        private UnitOfWork(String name, int maxStatements, long maxMillis) {
+            this.name = name;
+            this.maxStatements = maxStatements;
+            this.maxMillis = maxMillis;
+        }
+
+        private void recordStatement(String sql) {
+            statementCount++;
+            countsBySql.merge(sql, 1, Integer::sum);
+        }
+
+        private void recordExecution(String sql, long nanos) {
+            statementNanos += nanos;
+            if (nanos > slowestStatementNanos) {
+                slowestStatementNanos = nanos;
+                slowestStatement = sql;
+            }
+        }
+
+        /**
+         * End the unit and log any budget it exceeded.
+         */
+        @Override
+        public void close() {
+            if (elapsedNanos >= 0) {
+                return;
+            }
+            elapsedNanos = System.nanoTime() - startNanos;
+            Deque<UnitOfWork> units = ACTIVE_UNITS.get();
+            if (units != null && units.remove(this) && units.isEmpty()) {
+                ACTIVE_UNITS.remove();
+                CURRENT_SQL.remove();
+            }
+            LAST_COMPLETED.set(this);
+
+            long elapsedMillis = getElapsedMillis();
+            if (statementCount > maxStatements || elapsedMillis > maxMillis) {
+                logger.warn("{} exceeded its query budget: {} statements (budget {}), {} ms (budget {} ms), " +
+                    "{} ms in the database", name, statementCount, maxStatements, elapsedMillis, maxMillis,
+                    getStatementMillis());
+            }
+            if (slowestStatementNanos / 1_000_000 >= SLOW_STATEMENT_MILLIS) {
+                logger.warn("{} ran a slow statement ({} ms): {}", name, slowestStatementNanos / 1_000_000, slowestStatement);
+            }
+            for (Map.Entry<String, Integer> entry : countsBySql.entrySet()) {
+                if (entry.getValue() > MAX_REPEATS) {
+                    logger.warn("{} ran the same statement {} times (possible N+1): {}",
+                        name, entry.getValue(), entry.getKey());
+                }
+            }
+        }
+
+        /**
+         * Assert that this unit ran at most the given number of statements.
+         * @param maxQueries The maximum number of statements
+         * @throws AssertionError if it ran more
+         */
+        public void assertMaxQueries(int maxQueries) {
+            if (statementCount > maxQueries) {
+                throw new AssertionError(String.format("%s ran %d statements, expected at most %d: %s",
+                    name, statementCount, maxQueries, countsBySql));
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getStatementCount() {
+            return statementCount;
+        }
+
+        /**
+         * Get how often each distinct statement ran.
+         * @return Map of SQL to execution count
+         */
+        public Map<String, Integer> getStatementCounts() {
+            return Collections.unmodifiableMap(countsBySql);
+        }
+
+        public long getStatementMillis() {
+            return statementNanos / 1_000_000;
+        }
+
+        public long getElapsedMillis() {
+            return (elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos) / 1_000_000;
+        }
+    }
+
+    // ==================== HIBERNATE HOOKS ====================
+
+    /**
+     * Counts every statement Hibernate prepares against the open units.
+     */
+    static class Inspector implements StatementInspector {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String inspect(String sql) {
+            Deque<UnitOfWork> units = ACTIVE_UNITS.get();
+            if (units != null) {
+                for (UnitOfWork unit : units) {
+                    unit.recordStatement(sql);
+                }
+                CURRENT_SQL.set(sql);
+            }
+            return sql;
+        }
+    }
+
+    /**
+     * Times statement execution. Hibernate creates one per session.
+     */
+    public static class StatementTimer extends BaseSessionEventListener {
+
+        private static final long serialVersionUID = 1L;
+
+        private long executeStartNanos;
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            executeStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            recordExecution();
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            executeStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcExecuteBatchEnd() {
+            recordExecution();
+        }
+
+        private void recordExecution() {
+            Deque<UnitOfWork> units = ACTIVE_UNITS.get();
+            if (units == null) {
+                return;
+            }
+            long nanos = System.nanoTime() - executeStartNanos;
+            String sql = CURRENT_SQL.get();
+            for (UnitOfWork unit : units) {
+                unit.recordExecution(sql, nanos);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.chamathka.bathikpos.util;
+
+import java.util.Optional;
+
+/**
+ * Utility class for the scannable receipt code printed on receipts.
+ * The code is "S", the sale ID zero-padded to 10 digits and a Luhn check digit
+ * (e.g. S00000001234), which encodes as a short Code 128 barcode. The check
+ * digit rejects misreads before they reach the database, and because the code
+ * carries the sale ID a scan resolves to a primary key lookup.
+ */
+public class ReceiptCode {
+
+    private static final String PREFIX = "S";
+    private static final int ID_DIGITS = 10;
+
+    /**
+     * Build the receipt code for a sale.
+     * @param saleId The sale ID
+     * @return The receipt code
+     */
+    public static String format(Long saleId) {
+        String digits = String.format("%0" + ID_DIGITS + "d", saleId);
+        return PREFIX + digits + checkDigit(digits);
+    }
+
+    /**
+     * Resolve scanned or typed input to a sale ID.
+     * Accepts a full receipt code (the prefix is optional and case-insensitive)
+     * or a plain sale ID typed at the counter.
+     * @param input The scanned or typed text
+     * @return The sale ID, or empty if the input is not a valid receipt code or sale ID
+     */
+    public static Optional<Long> parseSaleId(String input) {
+        if (input == null) {
+            return Optional.empty();
+        }
+        String code = input.trim();
+        boolean prefixed = code.regionMatches(true, 0, PREFIX, 0, PREFIX.length());
+        if (prefixed) {
+            code = code.substring(PREFIX.length());
+        }
+        if (code.isEmpty() || !code.chars().allMatch(Character::isDigit)) {
+            return Optional.empty();
+        }
+
+        try {
+            if (code.length() == ID_DIGITS + 1) {
+                // Full receipt code: verify the check digit
+                String digits = code.substring(0, ID_DIGITS);
+                if (checkDigit(digits) != code.charAt(ID_DIGITS) - '0') {
+                    return Optional.empty();
+                }
+                return Optional.of(Long.parseLong(digits));
+            }
+            if (prefixed) {
+                return Optional.empty();
+            }
+            return Optional.of(Long.parseLong(code));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Luhn (mod 10) check digit for a string of digits.
+     */
+    private static int checkDigit(String digits) {
+        int sum = 0;
+        boolean doubleIt = true;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubleIt) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubleIt = !doubleIt;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,187 @@
+package com.chamathka.bathikpos.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Singleton cache for generated report results.
+ * Entries are keyed by report type and parameters, and stamped with the data
+ * versions they were computed from. The versions are read from the database
+ * (newest sale and return IDs, number of confirmed GRNs), so checkouts, returns
+ * and GRNs from every till sharing the database invalidate a cached report.
+ *
+ * IDENTITY keys can commit out of order, so a sale with a lower ID can become
+ * visible after a higher one was read. A result therefore only counts sales
+ * older than SAFETY_LAG_SECONDS as settled, and an entry is served unchanged
+ * for at most that long; after that the sales past its watermark are re-read.
+ *
+ * The cache keeps the most recently used results, up to MAX_ENTRIES entries
+ * and MAX_ROWS rows (sales or report lines) in total.
+ */
+public class ReportCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportCache.class);
+
+    /** Longest a checkout or return transaction is expected to stay open. */
+    public static final long SAFETY_LAG_SECONDS = 30;
+
+    private static final int MAX_ENTRIES = 64;
+    private static final long MAX_ROWS = 200_000;
+
+    private static ReportCache instance;
+
+    private final LinkedHashMap<String, Entry<?>> entries = new LinkedHashMap<>(16, 0.75f, true); // LRU order
+    private long cachedRows;
+
+    private ReportCache() {
+        // Private constructor for singleton
+    }
+
+    /**
+     * Get the ReportCache instance
+     * @return ReportCache instance
+     */
+    public static synchronized ReportCache getInstance() {
+        if (instance == null) {
+            instance = new ReportCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Get a cached entry.
+     * @param key The cache key (report type and parameters)
+     * @param type The expected value type
+     * @return The entry, or null if nothing is cached under the key
+     */
+    public synchronized <T> Entry<T> get(String key, Class<T> type) {
+        Entry<?> entry = entries.get(key);
+        if (entry == null || !type.isInstance(entry.getValue())) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        Entry<T> typed = (Entry<T>) entry;
+        return typed;
+    }
+
+    /**
+     * Store a report result, evicting the least recently used results over the limits.
+     * @param key The cache key (report type and parameters)
+     * @param value The report result
+     * @param versions The versions read before the result was computed
+     * @param watermark Highest settled sale ID included in the result (0 if not applicable)
+     * @param rows Size of the result in sales or report lines
+     */
+    public synchronized <T> void put(String key, T value, Versions versions, long watermark, int rows) {
+        Entry<?> replaced = entries.remove(key);
+        if (replaced != null) {
+            cachedRows -= replaced.rows;
+        }
+        if (rows > MAX_ROWS) {
+            logger.debug("Report {} has {} rows, too large to cache", key, rows);
+            return;
+        }
+        entries.put(key, new Entry<>(value, versions, watermark, rows));
+        cachedRows += rows;
+
+        Iterator<Entry<?>> eldest = entries.values().iterator();
+        while ((entries.size() > MAX_ENTRIES || cachedRows > MAX_ROWS) && eldest.hasNext()) {
+            cachedRows -= eldest.next().rows;
+            eldest.remove();
+        }
+        logger.debug("Cached report {} at {} (watermark {}, {} rows)", key, versions, watermark, rows);
+    }
+
+    /**
+     * Remove all cached reports.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        cachedRows = 0;
+    }
+
+    /**
+     * Stamps of the data a report was computed from.
+     */
+    public static final class Versions {
+        private final long sales;
+        private final long returns;
+        private final long stockCost;
+
+        /**
+         * @param sales Newest sale ID
+         * @param returns Newest return ID
+         * @param stockCost Number of confirmed GRNs (each changes the average cost prices)
+         */
+        public Versions(long sales, long returns, long stockCost) {
+            this.sales = sales;
+            this.returns = returns;
+            this.stockCost = stockCost;
+        }
+
+        public long getSales() { return sales; }
+        public long getReturns() { return returns; }
+        public long getStockCost() { return stockCost; }
+
+        public boolean sameSales(Versions other) { return sales == other.sales; }
+        public boolean sameReturns(Versions other) { return returns == other.returns; }
+        public boolean sameStockCost(Versions other) { return stockCost == other.stockCost; }
+
+        public boolean sameAs(Versions other) {
+            return sameSales(other) && sameReturns(other) && sameStockCost(other);
+        }
+
+        @Override
+        public String toString() {
+            return "v[sales=" + sales + ", returns=" + returns + ", stockCost=" + stockCost + "]";
+        }
+    }
+
+    /**
+     * A cached report result with its version stamp and sale watermark.
+     */
+    public static final class Entry<T> {
+        private final T value;
+        private final Versions versions;
+        private final long watermark;
+        private final int rows;
+        private final LocalDateTime computedAt;
+
+        private Entry(T value, Versions versions, long watermark, int rows) {
+            this.value = value;
+            this.versions = versions;
+            this.watermark = watermark;
+            this.rows = rows;
+            this.computedAt = LocalDateTime.now();
+        }
+
+        public T getValue() { return value; }
+        public Versions getVersions() { return versions; }
+        public long getWatermark() { return watermark; }
+
+        /**
+         * Check whether the entry was computed after the given date had closed and
+         * every checkout or return timestamped on it had committed, meaning nothing
+         * new can fall inside a range ending on it.
+         */
+        public boolean isClosedFor(LocalDate endDate) {
+            return computedAt.isAfter(endDate.atTime(LocalTime.MAX).plusSeconds(SAFETY_LAG_SECONDS));
+        }
+
+        /**
+         * Check whether the entry may still be served unchanged when the versions
+         * match: a sale that was in flight when it was computed may have committed
+         * since, with a lower ID than the newest one, once the safety lag has passed.
+         */
+        public boolean isWithinSafetyLag() {
+            return computedAt.plusSeconds(SAFETY_LAG_SECONDS).isAfter(LocalDateTime.now());
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.chamathka.bathikpos.util;
+
+import com.chamathka.bathikpos.entity.*;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The sales of one archived month, as stored in SaleArchive.payload.
+ *
+ * Sales are held as detached Sale and SaleItem objects, so reports treat them
+ * like live ones. Their cashier, customer and variant are stand-ins carrying
+ * the IDs and the names reports print, captured when the month was archived;
+ * archived sales stay readable after a product or customer is deleted. A
+ * stand-in variant's selling price is the price it was sold at.
+ *
+ * The format is a GZIP-compressed binary stream: a header, then every sale
+ * followed by its lines, with nullable values behind a null flag.
+ */
+public class SaleArchiveSegment {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final LocalDate month;
+    private final List<Sale> sales = new ArrayList<>();
+
+    public SaleArchiveSegment(LocalDate month) {
+        this.month = month;
+    }
+
+    public LocalDate getMonth() {
+        return month;
+    }
+
+    /**
+     * Build a detached sale from flat rows.
+     * @param saleRow [saleId, saleTimestamp, userId, username, customerId, customerName,
+     *                customerPhone, totalAmount, discountAmount, paymentType]
+     * @param itemRows Rows of [saleItemId, saleId, variantId, itemCode, productName,
+     *                 attributeSize, attributeColor, quantitySold, priceAtSale]
+     * @return The sale with its lines
+     */
+    public static Sale toSale(Object[] saleRow, List<Object[]> itemRows) {
+        Sale sale = new Sale();
+        sale.setSaleId((Long) saleRow[0]);
+        sale.setSaleTimestamp((LocalDateTime) saleRow[1]);
+        sale.setUser(user((Long) saleRow[2], (String) saleRow[3]));
+        sale.setCustomer(saleRow[4] == null ? null : customer((Long) saleRow[4], (String) saleRow[5], (String) saleRow[6]));
+        sale.setTotalAmount((BigDecimal) saleRow[7]);
+        sale.setDiscountAmount((BigDecimal) saleRow[8]);
+        sale.setPaymentType((String) saleRow[9]);
+        for (Object[] row : itemRows) {
+            sale.addItem(item((Long) row[0], (Long) row[2], (String) row[3], (String) row[4], (String) row[5],
+                (String) row[6], ((Number) row[7]).intValue(), (BigDecimal) row[8]));
+        }
+        return sale;
+    }
+
+    /**
+     * Add sales to the month.
+     * @param newSales Detached sales, e.g. from {@link #toSale(Object[], List)}
+     */
+    public void addSales(Collection<Sale> newSales) {
+        sales.addAll(newSales);
+        sales.sort(Comparator.comparing(Sale::getSaleId));
+    }
+
+    /**
+     * Get every sale of the month, oldest first.
+     * @return The sales
+     */
+    public List<Sale> getSales() {
+        return Collections.unmodifiableList(sales);
+    }
+
+    /**
+     * Get the sales made within a time range.
+     * @param start Start of the range (inclusive)
+     * @param end End of the range (inclusive)
+     * @return The matching sales
+     */
+    public List<Sale> getSalesBetween(LocalDateTime start, LocalDateTime end) {
+        List<Sale> matching = new ArrayList<>();
+        for (Sale sale : sales) {
+            if (!sale.getSaleTimestamp().isBefore(start) && !sale.getSaleTimestamp().isAfter(end)) {
+                matching.add(sale);
+            }
+        }
+        return matching;
+    }
+
+    public int getItemCount() {
+        return sales.stream().mapToInt(sale -> sale.getItems().size()).sum();
+    }
+
+    public BigDecimal getTotalAmount() {
+        return sales.stream().map(Sale::getTotalAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    // ==================== STORAGE FORMAT ====================
+
+    /**
+     * Serialize and compress the month.
+     * @return The compressed bytes
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(bytes)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(month.toEpochDay());
+            out.writeInt(sales.size());
+            for (Sale sale : sales) {
+                out.writeLong(sale.getSaleId());
+                writeTimestamp(out, sale.getSaleTimestamp());
+                out.writeLong(sale.getUser().getUserId());
+                out.writeUTF(sale.getUser().getUsername());
+                Customer customer = sale.getCustomer();
+                out.writeBoolean(customer != null);
+                if (customer != null) {
+                    out.writeLong(customer.getCustomerId());
+                    writeString(out, customer.getName());
+                    writeString(out, customer.getPhoneNumber());
+                }
+                out.writeUTF(sale.getTotalAmount().toPlainString());
+                out.writeUTF(sale.getDiscountAmount().toPlainString());
+                out.writeUTF(sale.getPaymentType());
+
+                out.writeInt(sale.getItems().size());
+                for (SaleItem item : sale.getItems()) {
+                    ProductVariant variant = item.getVariant();
+                    out.writeLong(item.getSaleItemId());
+                    out.writeLong(variant.getVariantId());
+                    out.writeUTF(variant.getItemCode());
+                    writeString(out, variant.getProduct().getName());
+                    writeString(out, variant.getAttributeSize());
+                    writeString(out, variant.getAttributeColor());
+                    out.writeInt(item.getQuantitySold());
+                    out.writeUTF(item.getPriceAtSale().toPlainString());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error encoding archived sales: " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decompress and deserialize a month.
+     * @param data The compressed bytes from {@link #encode()}
+     * @return The month with its sales
+     */
+    public static SaleArchiveSegment decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(data))))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported sale archive version: " + version);
+            }
+            SaleArchiveSegment segment = new SaleArchiveSegment(LocalDate.ofEpochDay(in.readLong()));
+            int saleCount = in.readInt();
+            for (int s = 0; s < saleCount; s++) {
+                Sale sale = new Sale();
+                sale.setSaleId(in.readLong());
+                sale.setSaleTimestamp(readTimestamp(in));
+                sale.setUser(user(in.readLong(), in.readUTF()));
+                if (in.readBoolean()) {
+                    sale.setCustomer(customer(in.readLong(), readString(in), readString(in)));
+                }
+                sale.setTotalAmount(new BigDecimal(in.readUTF()));
+                sale.setDiscountAmount(new BigDecimal(in.readUTF()));
+                sale.setPaymentType(in.readUTF());
+
+                int itemCount = in.readInt();
+                for (int i = 0; i < itemCount; i++) {
+                    sale.addItem(item(in.readLong(), in.readLong(), in.readUTF(), readString(in), readString(in),
+                        readString(in), in.readInt(), new BigDecimal(in.readUTF())));
+                }
+                segment.sales.add(sale);
+            }
+            return segment;
+        } catch (IOException e) {
+            throw new RuntimeException("Error decoding archived sales: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime value) throws IOException {
+        // Seconds and nanos, so the microseconds of DATETIME(6) survive
+        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(value.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // ==================== STAND-INS ====================
+
+    private static User user(Long userId, String username) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setUsername(username);
+        return user;
+    }
+
+    private static Customer customer(Long customerId, String name, String phoneNumber) {
+        Customer customer = new Customer();
+        customer.setCustomerId(customerId);
+        customer.setName(name);
+        customer.setPhoneNumber(phoneNumber);
+        return customer;
+    }
+
+    private static SaleItem item(Long saleItemId, Long variantId, String itemCode, String productName,
+                                 String size, String color, int quantitySold, BigDecimal priceAtSale) {
+        Product product = new Product();
+        product.setName(productName);
+
+        ProductVariant variant = new ProductVariant();
+        variant.setVariantId(variantId);
+        variant.setProduct(product);
+        variant.setItemCode(itemCode);
+        variant.setAttributeSize(size);
+        variant.setAttributeColor(color);
+        variant.setSellingPrice(priceAtSale);
+
+        SaleItem item = new SaleItem();
+        item.setSaleItemId(saleItemId);
+        item.setVariant(variant);
+        item.setQuantitySold(quantitySold);
+        item.setPriceAtSale(priceAtSale);
+        return item;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,520 @@
+package com.chamathka.bathikpos.util;
+
+import org.hibernate.cfg.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Versioned schema migrations, run before the SessionFactory is built.
+ *
+ * The schema is defined by the scripts in src/main/resources/db/migration
+ * (V1__baseline.sql, V2__..., applied in version order). Each applied script is
+ * recorded in the schema_version table with the SHA-256 checksum of its text, so
+ * a startup only reads that table and the bundled scripts instead of inspecting
+ * every table the way hibernate.hbm2ddl.auto=update did.
+ *
+ * Modes, set with -Dbatikpos.db.migrate (or BATIKPOS_DB_MIGRATE):
+ * "migrate" (default) applies pending scripts; "validate" only checks that every
+ * bundled script is applied with an unchanged checksum and refuses to start
+ * otherwise, for installations where upgrades are run separately with
+ * {@code mvn exec:java -Dexec.mainClass="com.chamathka.bathikpos.util.SchemaMigrator"}.
+ *
+ * A database created by hbm2ddl before migrations existed is baselined: V1 is run
+ * over it creating only the tables, columns, indexes and foreign keys it lacks
+ * (a store that never ran the customer segmentation release has no RFM columns
+ * on Customer), and indexes left behind under old names are dropped. MySQL commits DDL immediately, so a
+ * script that fails part-way is not recorded and must be repaired by hand before
+ * a restart.
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    public static final String MODE_MIGRATE = "migrate";
+    public static final String MODE_VALIDATE = "validate";
+
+    private static final String MIGRATION_PATH = "/db/migration/";
+
+    /** Bundled scripts, in version order. Add new scripts at the end. */
+    private static final List<String> SCRIPTS = List.of(
+            "V1__baseline.sql",
+            "V2__covering_indexes.sql",
+            "V3__sale_archive.sql",
+            "V4__outbox_claims.sql");
+
+    /** Indexes hbm2ddl created under names the migrations no longer use (table, index). */
+    private static final String[][] LEGACY_INDEXES = {
+            {"GRN", "idx_timestamp"},
+            {"GRN", "idx_supplier"},
+            {"Product", "idx_supplier"},
+            {"Sale", "idx_timestamp"},
+            {"GRNItem", "idx_variant"},
+            {"SaleItem", "idx_variant"}
+    };
+
+    /** First words of the table elements in a CREATE TABLE that are not columns. */
+    private static final Set<String> TABLE_CONSTRAINT_KEYWORDS = Set.of(
+            "CONSTRAINT", "PRIMARY", "UNIQUE", "KEY", "INDEX", "FOREIGN");
+
+    private static final String LOCK_NAME = "batikpos_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    public SchemaMigrator(String url, String username, String password) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Create a migrator for the connection settings of a Hibernate configuration.
+     * @param config The configuration
+     * @return The migrator
+     */
+    static SchemaMigrator forConfiguration(Configuration config) {
+        String driver = config.getProperty("hibernate.connection.driver_class");
+        if (driver != null) {
+            try {
+                Class.forName(driver);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("JDBC driver not found: " + driver, e);
+            }
+        }
+        String password = config.getProperty("hibernate.connection.password");
+        return new SchemaMigrator(config.getProperty("hibernate.connection.url"),
+                config.getProperty("hibernate.connection.username"), password != null ? password : "");
+    }
+
+    /**
+     * Get the mode selected at startup.
+     * @return MODE_MIGRATE or MODE_VALIDATE
+     */
+    public static String getMode() {
+        String mode = System.getProperty("batikpos.db.migrate", System.getenv("BATIKPOS_DB_MIGRATE"));
+        if (mode == null || mode.isBlank()) {
+            return MODE_MIGRATE;
+        }
+        mode = mode.trim().toLowerCase();
+        if (!MODE_MIGRATE.equals(mode) && !MODE_VALIDATE.equals(mode)) {
+            throw new IllegalArgumentException("Unknown migration mode: " + mode);
+        }
+        return mode;
+    }
+
+    /**
+     * Bring the schema up to date, or only check it, depending on the mode.
+     * @param mode MODE_MIGRATE or MODE_VALIDATE
+     * @return The schema version after the run
+     */
+    public int run(String mode) {
+        return MODE_VALIDATE.equals(mode) ? validate() : migrate();
+    }
+
+    /**
+     * Apply every pending script, after checking the applied ones are unchanged.
+     * @return The schema version after the run
+     */
+    public int migrate() {
+        long startTime = System.currentTimeMillis();
+        List<Migration> migrations = loadMigrations();
+
+        try (Connection connection = DriverManager.getConnection(url, username, password)) {
+            boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+            if (mysql) {
+                lock(connection);
+            }
+            try {
+                boolean baseline = !tableExists(connection, "schema_version") && tableExists(connection, "Sale");
+                createVersionTable(connection);
+                Map<Integer, String> applied = readApplied(connection);
+                verifyChecksums(migrations, applied);
+
+                int version = applied.keySet().stream().max(Integer::compare).orElse(0);
+                for (Migration migration : migrations) {
+                    if (applied.containsKey(migration.version)) {
+                        continue;
+                    }
+                    boolean baselining = baseline && migration.version == 1;
+                    apply(connection, migration, baselining);
+                    if (baselining) {
+                        dropLegacyIndexes(connection);
+                    }
+                    version = migration.version;
+                }
+
+                logger.info("Database schema at version {} ({} ms)", version, System.currentTimeMillis() - startTime);
+                return version;
+            } finally {
+                if (mysql) {
+                    unlock(connection);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error migrating database schema: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check that every bundled script is applied and unchanged, without changing the schema.
+     * @return The schema version
+     * @throws IllegalStateException if a script is pending or was changed after it was applied
+     */
+    public int validate() {
+        long startTime = System.currentTimeMillis();
+        List<Migration> migrations = loadMigrations();
+
+        try (Connection connection = DriverManager.getConnection(url, username, password)) {
+            if (!tableExists(connection, "schema_version")) {
+                throw new IllegalStateException("Database has no schema_version table; run the migrations first");
+            }
+            Map<Integer, String> applied = readApplied(connection);
+            verifyChecksums(migrations, applied);
+            for (Migration migration : migrations) {
+                if (!applied.containsKey(migration.version)) {
+                    throw new IllegalStateException("Migration " + migration.script + " has not been applied");
+                }
+            }
+            int version = migrations.get(migrations.size() - 1).version;
+            logger.info("Database schema validated at version {} ({} ms)", version,
+                    System.currentTimeMillis() - startTime);
+            return version;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error validating database schema: " + e.getMessage(), e);
+        }
+    }
+
+    // ==================== SCRIPTS ====================
+
+    private static List<Migration> loadMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        for (String script : SCRIPTS) {
+            try (InputStream in = SchemaMigrator.class.getResourceAsStream(MIGRATION_PATH + script)) {
+                if (in == null) {
+                    throw new IOException(script + " not found");
+                }
+                // Line endings do not change the checksum, so a checkout on Windows validates too
+                String sql = new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+                migrations.add(new Migration(script, sql));
+            } catch (IOException e) {
+                throw new RuntimeException("Error loading migration: " + e.getMessage(), e);
+            }
+        }
+        return migrations;
+    }
+
+    private static void verifyChecksums(List<Migration> migrations, Map<Integer, String> applied) {
+        for (Migration migration : migrations) {
+            String checksum = applied.get(migration.version);
+            if (checksum != null && !checksum.equals(migration.checksum)) {
+                throw new IllegalStateException("Migration " + migration.script +
+                        " was changed after it was applied (checksum " + checksum + ", now " + migration.checksum + ")");
+            }
+        }
+        int latest = migrations.get(migrations.size() - 1).version;
+        for (int version : applied.keySet()) {
+            if (version > latest) {
+                throw new IllegalStateException("Database schema is at version " + version +
+                        ", newer than this application (" + latest + ")");
+            }
+        }
+    }
+
+    /**
+     * Run one script and record it. When baselining, only the tables, columns,
+     * indexes and foreign keys the existing schema lacks are created.
+     */
+    private void apply(Connection connection, Migration migration, boolean baselining) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        logger.info("Applying migration {}{}", migration.script, baselining ? " over the existing schema" : "");
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : migration.statements()) {
+                if (baselining && (alreadyExists(connection, sql) || addMissingColumns(connection, statement, sql))) {
+                    continue;
+                }
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            logger.error("Migration {} FAILED; the schema may be partly migrated", migration.script, e);
+            throw e;
+        }
+
+        long executionMillis = System.currentTimeMillis() - startTime;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO schema_version (version, description, checksum, installedAt, executionMillis) " +
+                "VALUES (?, ?, ?, ?, ?)")) {
+            statement.setInt(1, migration.version);
+            statement.setString(2, baselining ? migration.description + " (baselined)" : migration.description);
+            statement.setString(3, migration.checksum);
+            statement.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            statement.setLong(5, executionMillis);
+            statement.executeUpdate();
+        }
+        logger.info("Migration {} applied in {} ms", migration.script, executionMillis);
+    }
+
+    /**
+     * Check whether the index or foreign key a statement creates is already there.
+     * Tables are checked by {@link #addMissingColumns}.
+     */
+    private static boolean alreadyExists(Connection connection, String sql) throws SQLException {
+        String[] words = sql.split("\\s+");
+        if (sql.regionMatches(true, 0, "CREATE INDEX", 0, 12)) {
+            // CREATE INDEX name ON table (...)
+            return indexExists(connection, words[4], words[2]);
+        }
+        if (sql.regionMatches(true, 0, "ALTER TABLE", 0, 11) && words[4].equalsIgnoreCase("CONSTRAINT")) {
+            // ALTER TABLE table ADD CONSTRAINT name FOREIGN KEY ...
+            return foreignKeyExists(connection, words[2], words[5]);
+        }
+        return false;
+    }
+
+    /**
+     * Bring an existing table up to its CREATE TABLE statement by adding the
+     * columns it lacks. Table constraints are left alone; the indexes and
+     * foreign keys are separate statements.
+     * @return true if the statement is a CREATE TABLE for a table that already exists
+     */
+    private static boolean addMissingColumns(Connection connection, Statement statement, String sql)
+            throws SQLException {
+        if (!sql.regionMatches(true, 0, "CREATE TABLE", 0, 12)) {
+            return false;
+        }
+        // CREATE TABLE IF NOT EXISTS table (...)
+        String table = sql.split("[\\s(]+")[5];
+        if (!tableExists(connection, table)) {
+            return false;
+        }
+        String elements = sql.substring(sql.indexOf('(') + 1, sql.lastIndexOf(')'));
+        for (String definition : splitElements(elements)) {
+            String column = definition.split("\\s+")[0];
+            if (TABLE_CONSTRAINT_KEYWORDS.contains(column.toUpperCase()) || columnExists(connection, table, column)) {
+                continue;
+            }
+            statement.execute("ALTER TABLE " + table + " ADD COLUMN " + definition);
+            logger.info("Added missing column {} to {}", column, table);
+        }
+        return true;
+    }
+
+    /**
+     * Split the element list of a CREATE TABLE at the commas outside parentheses,
+     * so DECIMAL(10,2) stays in one piece.
+     */
+    private static List<String> splitElements(String elements) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < elements.length(); i++) {
+            char c = elements.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(elements.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        parts.add(elements.substring(start).trim());
+        return parts;
+    }
+
+    private void dropLegacyIndexes(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String[] index : LEGACY_INDEXES) {
+                if (indexExists(connection, index[0], index[1])) {
+                    statement.execute("DROP INDEX " + index[1] + " ON " + index[0]);
+                    logger.info("Dropped legacy index {} on {}", index[1], index[0]);
+                }
+            }
+        }
+    }
+
+    // ==================== SCHEMA_VERSION ====================
+
+    private static void createVersionTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT NOT NULL PRIMARY KEY, description VARCHAR(200) NOT NULL, " +
+                    "checksum VARCHAR(64) NOT NULL, installedAt TIMESTAMP NOT NULL, executionMillis BIGINT NOT NULL)");
+        }
+    }
+
+    private static Map<Integer, String> readApplied(Connection connection) throws SQLException {
+        Map<Integer, String> applied = new TreeMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (resultSet.next()) {
+                applied.put(resultSet.getInt(1), resultSet.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Serialise migrations across tills starting at the same time against one MySQL server.
+     */
+    private static void lock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another till to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection connection) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        } catch (SQLException e) {
+            logger.warn("Failed to release the schema migration lock: {}", e.getMessage());
+        }
+    }
+
+    // ==================== METADATA ====================
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet resultSet = metaData.getTables(connection.getCatalog(), null,
+                identifier(metaData, table), new String[] {"TABLE"})) {
+            return resultSet.next();
+        }
+    }
+
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet resultSet = metaData.getColumns(connection.getCatalog(), null,
+                identifier(metaData, table), identifier(metaData, column))) {
+            return resultSet.next();
+        }
+    }
+
+    private static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet resultSet = metaData.getIndexInfo(connection.getCatalog(), null,
+                identifier(metaData, table), false, true)) {
+            while (resultSet.next()) {
+                if (index.equalsIgnoreCase(resultSet.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean foreignKeyExists(Connection connection, String table, String foreignKey)
+            throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet resultSet = metaData.getImportedKeys(connection.getCatalog(), null,
+                identifier(metaData, table))) {
+            while (resultSet.next()) {
+                if (foreignKey.equalsIgnoreCase(resultSet.getString("FK_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Convert an unquoted identifier to the case the database stores it in (H2 upper-cases them).
+     */
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase();
+        }
+        return metaData.storesLowerCaseIdentifiers() ? name.toLowerCase() : name;
+    }
+
+    // ==================== MIGRATION ====================
+
+    /**
+     * One versioned script, named V&lt;version&gt;__&lt;description&gt;.sql.
+     */
+    private static class Migration {
+
+        private final String script;
+        private final int version;
+        private final String description;
+        private final String sql;
+        private final String checksum;
+
+        private Migration(String script, String sql) {
+            int separator = script.indexOf("__");
+            if (!script.startsWith("V") || separator < 0 || !script.endsWith(".sql")) {
+                throw new IllegalArgumentException("Badly named migration: " + script);
+            }
+            this.script = script;
+            this.version = Integer.parseInt(script.substring(1, separator));
+            this.description = script.substring(separator + 2, script.length() - 4).replace('_', ' ');
+            this.sql = sql;
+            this.checksum = sha256(sql);
+        }
+
+        /**
+         * Split the script into statements: "--" comment lines are skipped and
+         * statements end with a semicolon at the end of a line.
+         */
+        private List<String> statements() {
+            List<String> statements = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            for (String line : sql.split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                current.append(trimmed).append(' ');
+                if (trimmed.endsWith(";")) {
+                    String statement = current.toString().trim();
+                    statements.add(statement.substring(0, statement.length() - 1));
+                    current.setLength(0);
+                }
+            }
+            if (!current.toString().isBlank()) {
+                statements.add(current.toString().trim());
+            }
+            return statements;
+        }
+
+        private static String sha256(String text) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(hash);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+
+    /**
+     * Apply pending migrations to the configured database and exit.
+     * Used to upgrade installations that start the app in validate mode.
+     * @param args Not used
+     */
+    public static void main(String[] args) {
+        try {
+            forConfiguration(HibernateUtil.getConfiguration()).migrate();
+        } catch (Exception e) {
+            logger.error("Schema migration failed", e);
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
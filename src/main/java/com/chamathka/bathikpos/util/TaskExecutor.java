@@ -0,0 +1,221 @@
+package com.chamathka.bathikpos.util;
+
+import javafx.concurrent.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Singleton executor for all background work started from the screens.
+ *
+ * Tasks run on named daemon threads, and at most half of the database pool
+ * runs at once; the other half is left to checkout and the background jobs,
+ * so a burst of screen loads queues instead of starving the pool. Screens
+ * submit their loads with {@link #submit(Object, Task)} and they are cancelled
+ * when the user navigates away; writes that must finish regardless of
+ * navigation use {@link #submitDetached(Task)}.
+ *
+ * Each task is a QueryMonitor unit of work, so a screen load that runs too many
+ * or too slow queries is logged.
+ *
+ * On JDK 21+ the tasks run on virtual threads (limited by a semaphore instead
+ * of a fixed pool). Set -Dbatikpos.tasks.virtual=false to force platform threads
+ * and -Dbatikpos.tasks.maxConcurrency=N to override the limit.
+ */
+public class TaskExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskExecutor.class);
+    private static final String THREAD_PREFIX = "ui-task-";
+    private static TaskExecutor instance;
+
+    private final ExecutorService executor;
+    private final Semaphore permits; // Only used with virtual threads; a fixed pool bounds itself
+    private final int maxConcurrency;
+    private final Map<Object, Set<Task<?>>> tasksByOwner = new IdentityHashMap<>();
+
+    private TaskExecutor() {
+        this.maxConcurrency = Integer.getInteger("batikpos.tasks.maxConcurrency",
+                Math.max(2, HibernateUtil.getMaximumPoolSize() / 2));
+
+        ExecutorService virtualExecutor = Boolean.parseBoolean(System.getProperty("batikpos.tasks.virtual", "true"))
+                ? createVirtualThreadExecutor()
+                : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.permits = new Semaphore(maxConcurrency);
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, THREAD_PREFIX + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.permits = null;
+        }
+
+        logger.info("Task executor started: {} threads, at most {} tasks at once",
+                virtualExecutor != null ? "virtual" : "platform", maxConcurrency);
+    }
+
+    /**
+     * Get the TaskExecutor instance
+     * @return TaskExecutor instance
+     */
+    public static synchronized TaskExecutor getInstance() {
+        if (instance == null) {
+            instance = new TaskExecutor();
+        }
+        return instance;
+    }
+
+    /**
+     * Run a task on behalf of a screen. The task is cancelled (or dropped if it
+     * has not started yet) when {@link #cancelAll(Object)} is called for the
+     * screen, so its handlers never touch a screen that is no longer shown.
+     * @param owner The screen's controller
+     * @param task The task
+     * @return The task, for chaining
+     */
+    public <T> Task<T> submit(Object owner, Task<T> task) {
+        synchronized (tasksByOwner) {
+            tasksByOwner.computeIfAbsent(owner, key -> new HashSet<>()).add(task);
+        }
+        dispatch(describe(task), () -> {
+            try {
+                task.run();
+            } finally {
+                forget(owner, task);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Run a task that must complete even if the user leaves the screen
+     * (saves, checkout, returns, login).
+     * @param task The task
+     * @return The task, for chaining
+     */
+    public <T> Task<T> submitDetached(Task<T> task) {
+        dispatch(describe(task), task);
+        return task;
+    }
+
+    /**
+     * Run plain background work (not tied to a screen) within the same limit.
+     * @param work The work to run
+     */
+    public void execute(Runnable work) {
+        dispatch("Background work", work);
+    }
+
+    /**
+     * Cancel every task submitted by a screen that has not finished yet.
+     * Called on navigation; safe to call with an owner that has no tasks.
+     * @param owner The screen's controller
+     * @return Number of tasks cancelled
+     */
+    public int cancelAll(Object owner) {
+        Set<Task<?>> tasks;
+        synchronized (tasksByOwner) {
+            tasks = tasksByOwner.remove(owner);
+        }
+        if (tasks == null) {
+            return 0;
+        }
+        int cancelled = 0;
+        for (Task<?> task : tasks) {
+            if (task.cancel(true)) {
+                cancelled++;
+            }
+        }
+        if (cancelled > 0) {
+            logger.debug("Cancelled {} tasks of {}", cancelled, owner.getClass().getSimpleName());
+        }
+        return cancelled;
+    }
+
+    /**
+     * Stop the executor, interrupting running tasks.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get the maximum number of tasks that run at once.
+     * @return The concurrency limit
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Run work on the executor as one QueryMonitor unit of work.
+     */
+    @SuppressWarnings("try") // The unit of work only has to be open while the work runs
+    private void dispatch(String name, Runnable work) {
+        Runnable monitored = () -> {
+            try (QueryMonitor.UnitOfWork unit = QueryMonitor.begin(name)) {
+                work.run();
+            }
+        };
+        if (permits == null) {
+            executor.execute(monitored);
+            return;
+        }
+        executor.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                monitored.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * Name a task for the query budget warnings: its title, or its class
+     * (e.g. "ReportsController$3", the third anonymous task of that screen).
+     */
+    private static String describe(Task<?> task) {
+        String title = task.getTitle();
+        if (title != null && !title.isEmpty()) {
+            return title;
+        }
+        String className = task.getClass().getName();
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private void forget(Object owner, Task<?> task) {
+        synchronized (tasksByOwner) {
+            Set<Task<?>> tasks = tasksByOwner.get(owner);
+            if (tasks != null && tasks.remove(task) && tasks.isEmpty()) {
+                tasksByOwner.remove(owner);
+            }
+        }
+    }
+
+    /**
+     * Create a thread-per-task executor of named virtual threads, or return null
+     * when the JDK has none. Looked up reflectively because the build targets Java 17.
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, THREAD_PREFIX, 1L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -30,6 +30,9 @@ module com.chamathka.bathikpos {
     // Open entity packages for Hibernate reflection
     opens com.chamathka.bathikpos.entity to org.hibernate.orm.core;
 
+    // Hibernate instantiates the statement timing listener
+    opens com.chamathka.bathikpos.util to org.hibernate.orm.core;
+
     // Export main application package
     exports com.chamathka.bathikpos;
     exports com.chamathka.bathikpos.controller;
@@ -0,0 +1,223 @@
+-- ============================================================
+-- Batik POS System - V1: baseline schema
+-- ============================================================
+-- The schema as it stood when versioned migrations replaced
+-- hibernate.hbm2ddl.auto=update. Runs on MySQL 8.0+ and on H2 in
+-- MySQL mode (embedded profile): index names are unique across the
+-- schema, and indexes and foreign keys are added with separate
+-- statements so an existing schema can be baselined one object at a time.
+--
+-- Never edit a migration once it has shipped; its checksum is
+-- recorded in schema_version. Add a new V<n>__description.sql instead.
+-- ============================================================
+
+-- Table 1: User
+CREATE TABLE IF NOT EXISTS User (
+    userId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(50) NOT NULL,
+    passwordHash VARCHAR(255) NOT NULL,
+    role VARCHAR(20) NOT NULL,
+    CONSTRAINT uk_user_username UNIQUE (username)
+);
+CREATE INDEX idx_username ON User (username);
+
+-- Table 2: Customer
+CREATE TABLE IF NOT EXISTS Customer (
+    customerId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    phoneNumber VARCHAR(20) NOT NULL,
+    email VARCHAR(100),
+    totalPurchases DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+    visitCount INT NOT NULL DEFAULT 0,
+    lastPurchaseTimestamp DATETIME(6) NULL,
+    recencyScore INT,
+    frequencyScore INT,
+    monetaryScore INT,
+    segment VARCHAR(20) DEFAULT 'PROSPECT',
+    CONSTRAINT uk_customer_phone UNIQUE (phoneNumber)
+);
+CREATE INDEX idx_phone ON Customer (phoneNumber);
+CREATE INDEX idx_total_purchases ON Customer (totalPurchases);
+CREATE INDEX idx_customer_visits ON Customer (visitCount);
+CREATE INDEX idx_customer_last_purchase ON Customer (lastPurchaseTimestamp);
+CREATE INDEX idx_customer_segment ON Customer (segment);
+
+-- Table 3: Supplier
+CREATE TABLE IF NOT EXISTS Supplier (
+    supplierId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    supplierName VARCHAR(100) NOT NULL,
+    contactPerson VARCHAR(100),
+    phone VARCHAR(20),
+    address VARCHAR(255)
+);
+CREATE INDEX idx_supplier_name ON Supplier (supplierName);
+
+-- Table 4: Product (Master)
+CREATE TABLE IF NOT EXISTS Product (
+    productId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    category VARCHAR(50) NOT NULL,
+    supplier_id BIGINT
+);
+CREATE INDEX idx_category ON Product (category);
+CREATE INDEX idx_product_supplier ON Product (supplier_id);
+
+-- Table 5: ProductVariant (Stocked Item)
+CREATE TABLE IF NOT EXISTS ProductVariant (
+    variantId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    itemCode VARCHAR(50) NOT NULL,
+    attribute_Size VARCHAR(50),
+    attribute_Color VARCHAR(50),
+    sellingPrice DECIMAL(10,2) NOT NULL,
+    quantityInStock INT NOT NULL DEFAULT 0,
+    lowStockThreshold INT NOT NULL DEFAULT 5,
+    CONSTRAINT uk_variant_item_code UNIQUE (itemCode)
+);
+CREATE INDEX idx_item_code ON ProductVariant (itemCode);
+CREATE INDEX idx_product ON ProductVariant (product_id);
+CREATE INDEX idx_stock ON ProductVariant (quantityInStock);
+
+-- Table 6: GRN (Goods Received Note)
+CREATE TABLE IF NOT EXISTS GRN (
+    grnId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    supplier_id BIGINT NOT NULL,
+    grnTimestamp DATETIME(6) NOT NULL,
+    supplierInvoiceNo VARCHAR(50),
+    totalCost DECIMAL(10,2) NOT NULL,
+    user_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING'
+);
+CREATE INDEX idx_grn_supplier ON GRN (supplier_id);
+CREATE INDEX idx_grn_timestamp ON GRN (grnTimestamp);
+CREATE INDEX idx_status ON GRN (status);
+
+-- Table 7: GRNItem
+CREATE TABLE IF NOT EXISTS GRNItem (
+    grnItemId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    grn_id BIGINT NOT NULL,
+    variant_id BIGINT NOT NULL,
+    quantityReceived INT NOT NULL,
+    costPrice DECIMAL(10,2) NOT NULL
+);
+CREATE INDEX idx_grn ON GRNItem (grn_id);
+CREATE INDEX idx_grnitem_variant ON GRNItem (variant_id);
+
+-- Table 8: Sale (Transaction)
+CREATE TABLE IF NOT EXISTS Sale (
+    saleId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    saleTimestamp DATETIME(6) NOT NULL,
+    user_id BIGINT NOT NULL,
+    customer_id BIGINT,
+    totalAmount DECIMAL(10,2) NOT NULL,
+    discountAmount DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+    paymentType VARCHAR(50) NOT NULL
+);
+CREATE INDEX idx_sale_timestamp ON Sale (saleTimestamp);
+CREATE INDEX idx_user ON Sale (user_id);
+CREATE INDEX idx_customer ON Sale (customer_id);
+
+-- Table 9: SaleItem
+CREATE TABLE IF NOT EXISTS SaleItem (
+    saleItemId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    sale_id BIGINT NOT NULL,
+    variant_id BIGINT NOT NULL,
+    quantitySold INT NOT NULL,
+    priceAtSale DECIMAL(10,2) NOT NULL
+);
+CREATE INDEX idx_sale ON SaleItem (sale_id);
+CREATE INDEX idx_saleitem_variant ON SaleItem (variant_id);
+
+-- Table 10: StockMovement (Append-only stock ledger)
+CREATE TABLE IF NOT EXISTS StockMovement (
+    movementId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    variant_id BIGINT NOT NULL,
+    movementType VARCHAR(20) NOT NULL,
+    quantityChange INT NOT NULL,
+    referenceId BIGINT,
+    note VARCHAR(255),
+    movementTimestamp DATETIME(6) NOT NULL,
+    user_id BIGINT
+);
+CREATE INDEX idx_movement_variant ON StockMovement (variant_id, movementId);
+CREATE INDEX idx_movement_timestamp ON StockMovement (movementTimestamp);
+CREATE INDEX idx_movement_reference ON StockMovement (movementType, referenceId);
+
+-- Table 11: StockSnapshot (Periodic per-variant ledger balances)
+CREATE TABLE IF NOT EXISTS StockSnapshot (
+    snapshotId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    variant_id BIGINT NOT NULL,
+    snapshotTimestamp DATETIME(6) NOT NULL,
+    quantityInStock INT NOT NULL,
+    lastMovementId BIGINT NOT NULL
+);
+CREATE INDEX idx_snapshot_variant ON StockSnapshot (variant_id, snapshotTimestamp);
+
+-- Table 12: SaleReturn (Return document against a Sale)
+CREATE TABLE IF NOT EXISTS SaleReturn (
+    returnId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    sale_id BIGINT NOT NULL,
+    returnTimestamp DATETIME(6) NOT NULL,
+    user_id BIGINT NOT NULL,
+    refundAmount DECIMAL(10,2) NOT NULL DEFAULT 0.00
+);
+CREATE INDEX idx_return_sale ON SaleReturn (sale_id);
+CREATE INDEX idx_return_timestamp ON SaleReturn (returnTimestamp);
+
+-- Table 13: ReturnItem
+CREATE TABLE IF NOT EXISTS ReturnItem (
+    returnItemId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    return_id BIGINT NOT NULL,
+    sale_item_id BIGINT NOT NULL,
+    variant_id BIGINT NOT NULL,
+    quantityReturned INT NOT NULL,
+    refundPrice DECIMAL(10,2) NOT NULL
+);
+CREATE INDEX idx_returnitem_return ON ReturnItem (return_id);
+CREATE INDEX idx_returnitem_saleitem ON ReturnItem (sale_item_id);
+CREATE INDEX idx_returnitem_variant ON ReturnItem (variant_id);
+
+-- Table 14: OutboxEvent (Post-commit work queued by transactions)
+CREATE TABLE IF NOT EXISTS OutboxEvent (
+    outboxId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    eventType VARCHAR(30) NOT NULL,
+    aggregateId BIGINT NOT NULL,
+    status VARCHAR(10) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    createdAt DATETIME(6) NOT NULL,
+    nextAttemptAt DATETIME(6) NOT NULL,
+    processedAt DATETIME(6) NULL,
+    lastError VARCHAR(500)
+);
+CREATE INDEX idx_outbox_due ON OutboxEvent (status, nextAttemptAt, outboxId);
+
+-- Table 15: ChangeLog (Ordered changes shipped to head office)
+CREATE TABLE IF NOT EXISTS ChangeLog (
+    changeId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    changeType VARCHAR(20) NOT NULL,
+    entityId BIGINT NOT NULL,
+    recordedAt DATETIME(6) NOT NULL
+);
+
+-- ============================================================
+-- Foreign keys, added after the indexes so each one reuses the
+-- index on its column instead of creating another
+-- ============================================================
+ALTER TABLE Product ADD CONSTRAINT fk_product_supplier FOREIGN KEY (supplier_id) REFERENCES Supplier (supplierId) ON DELETE SET NULL;
+ALTER TABLE ProductVariant ADD CONSTRAINT fk_variant_product FOREIGN KEY (product_id) REFERENCES Product (productId) ON DELETE CASCADE;
+ALTER TABLE GRN ADD CONSTRAINT fk_grn_supplier FOREIGN KEY (supplier_id) REFERENCES Supplier (supplierId) ON DELETE RESTRICT;
+ALTER TABLE GRN ADD CONSTRAINT fk_grn_user FOREIGN KEY (user_id) REFERENCES User (userId) ON DELETE RESTRICT;
+ALTER TABLE GRNItem ADD CONSTRAINT fk_grnitem_grn FOREIGN KEY (grn_id) REFERENCES GRN (grnId) ON DELETE CASCADE;
+ALTER TABLE GRNItem ADD CONSTRAINT fk_grnitem_variant FOREIGN KEY (variant_id) REFERENCES ProductVariant (variantId) ON DELETE RESTRICT;
+ALTER TABLE Sale ADD CONSTRAINT fk_sale_user FOREIGN KEY (user_id) REFERENCES User (userId) ON DELETE RESTRICT;
+ALTER TABLE Sale ADD CONSTRAINT fk_sale_customer FOREIGN KEY (customer_id) REFERENCES Customer (customerId) ON DELETE SET NULL;
+ALTER TABLE SaleItem ADD CONSTRAINT fk_saleitem_sale FOREIGN KEY (sale_id) REFERENCES Sale (saleId) ON DELETE CASCADE;
+ALTER TABLE SaleItem ADD CONSTRAINT fk_saleitem_variant FOREIGN KEY (variant_id) REFERENCES ProductVariant (variantId) ON DELETE RESTRICT;
+ALTER TABLE StockMovement ADD CONSTRAINT fk_movement_variant FOREIGN KEY (variant_id) REFERENCES ProductVariant (variantId) ON DELETE RESTRICT;
+ALTER TABLE StockMovement ADD CONSTRAINT fk_movement_user FOREIGN KEY (user_id) REFERENCES User (userId) ON DELETE SET NULL;
+ALTER TABLE StockSnapshot ADD CONSTRAINT fk_snapshot_variant FOREIGN KEY (variant_id) REFERENCES ProductVariant (variantId) ON DELETE CASCADE;
+ALTER TABLE SaleReturn ADD CONSTRAINT fk_return_sale FOREIGN KEY (sale_id) REFERENCES Sale (saleId) ON DELETE RESTRICT;
+ALTER TABLE SaleReturn ADD CONSTRAINT fk_return_user FOREIGN KEY (user_id) REFERENCES User (userId) ON DELETE RESTRICT;
+ALTER TABLE ReturnItem ADD CONSTRAINT fk_returnitem_return FOREIGN KEY (return_id) REFERENCES SaleReturn (returnId) ON DELETE CASCADE;
+ALTER TABLE ReturnItem ADD CONSTRAINT fk_returnitem_saleitem FOREIGN KEY (sale_item_id) REFERENCES SaleItem (saleItemId) ON DELETE RESTRICT;
+ALTER TABLE ReturnItem ADD CONSTRAINT fk_returnitem_variant FOREIGN KEY (variant_id) REFERENCES ProductVariant (variantId) ON DELETE RESTRICT;
@@ -0,0 +1,31 @@
+-- ============================================================
+-- Batik POS System - V2: composite and covering indexes
+-- ============================================================
+-- Each new index starts with the column of the index it replaces,
+-- so the old single-column index is dropped in the same step.
+-- Indexes that duplicate a UNIQUE constraint are dropped as well.
+-- ============================================================
+
+-- Daily/period sales totals (SaleDAO.getSalesCountAndTotal, getTotalSalesAmount)
+-- read only the index instead of every Sale row in the range
+CREATE INDEX idx_sale_timestamp_totals ON Sale (saleTimestamp, totalAmount);
+DROP INDEX idx_sale_timestamp ON Sale;
+
+-- Return count and refund total for a period (ReturnDAO.getReturnCountAndRefundTotal)
+CREATE INDEX idx_return_timestamp_refund ON SaleReturn (returnTimestamp, refundAmount);
+DROP INDEX idx_return_timestamp ON SaleReturn;
+
+-- Pending/confirmed GRN lists, newest first (GRNDAO.findByStatus)
+CREATE INDEX idx_grn_status_timestamp ON GRN (status, grnTimestamp);
+DROP INDEX idx_status ON GRN;
+
+-- Customers of a segment by spend (CustomerDAO.findBySegment)
+CREATE INDEX idx_customer_segment_purchases ON Customer (segment, totalPurchases);
+DROP INDEX idx_customer_segment ON Customer;
+
+-- Lookups by username, phone number and item code already use the
+-- index behind each column's UNIQUE constraint; these duplicates only
+-- slowed down inserts and updates
+DROP INDEX idx_username ON User;
+DROP INDEX idx_phone ON Customer;
+DROP INDEX idx_item_code ON ProductVariant;
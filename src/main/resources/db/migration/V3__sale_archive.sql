@@ -0,0 +1,18 @@
+-- ============================================================
+-- Batik POS System - V3: sale archive
+-- ============================================================
+-- Sales of closed years are moved out of Sale and SaleItem by
+-- SaleArchiveService. Each row holds one calendar month: its
+-- sales and their lines as one compressed block, plus totals.
+-- Reports read the archived months a date range needs next to
+-- the live tables, so the live tables only hold open years.
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS SaleArchive (
+    archiveMonth DATE PRIMARY KEY,
+    saleCount INT NOT NULL,
+    itemCount INT NOT NULL,
+    totalAmount DECIMAL(14,2) NOT NULL,
+    archivedAt DATETIME(6) NOT NULL,
+    payload LONGBLOB NOT NULL
+);
@@ -0,0 +1,12 @@
+-- ============================================================
+-- Batik POS System - V4: outbox claims
+-- ============================================================
+-- Every till runs an outbox dispatcher against the same
+-- database. A dispatcher now claims the entries it is about to
+-- process for a lease period, so the other tills skip them;
+-- entries whose lease ran out (a till that stopped mid-batch)
+-- can be claimed again.
+-- ============================================================
+
+ALTER TABLE OutboxEvent ADD COLUMN claimedBy VARCHAR(36) NULL;
+ALTER TABLE OutboxEvent ADD COLUMN claimedUntil DATETIME(6) NULL;
@@ -0,0 +1,51 @@
+package com.chamathka.bathikpos;
+
+import com.chamathka.bathikpos.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import java.util.function.Function;
+
+/**
+ * Base class for tests that run against the embedded H2 database.
+ * Maven sets the profile and a database under target/ (see the surefire
+ * configuration); a test started from an IDE falls back to the same settings.
+ * Tests share the database, so each one creates the rows it needs.
+ */
+public abstract class EmbeddedDatabaseTest {
+
+    static {
+        if (System.getProperty("batikpos.db.profile") == null) {
+            System.setProperty("batikpos.db.profile", "embedded");
+            System.setProperty("batikpos.db.dir", "target/test-db");
+        }
+    }
+
+    /**
+     * Run work in a transaction of its own and commit it.
+     * @param work The work
+     * @return The work's result
+     */
+    protected static <R> R inTransaction(Function<Session, R> work) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                R result = work.apply(session);
+                transaction.commit();
+                return result;
+            } catch (RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Get a value no other test run has used, for unique columns such as phone numbers.
+     * @param prefix Prefix of the value
+     * @return The prefix followed by a unique number
+     */
+    protected static String unique(String prefix) {
+        return prefix + Long.toString(System.nanoTime() % 1_000_000_000_000L, 36);
+    }
+}
@@ -0,0 +1,82 @@
+package com.chamathka.bathikpos.dao;
+
+import com.chamathka.bathikpos.EmbeddedDatabaseTest;
+import com.chamathka.bathikpos.entity.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Concurrent checkouts for one customer must not lose each other's updates:
+ * recordPurchase increments the counters in a single UPDATE instead of
+ * reading, changing and merging the customer, and an edit of the contact
+ * details merged meanwhile leaves the purchase history alone.
+ */
+class CustomerDAOConcurrencyTest extends EmbeddedDatabaseTest {
+
+    private static final int THREADS = 8;
+    private static final int PURCHASES_PER_THREAD = 25;
+    private static final BigDecimal AMOUNT = new BigDecimal("125.50");
+    private static final int EDITS = 50;
+
+    private final CustomerDAO customerDAO = new CustomerDAO();
+
+    @Test
+    void parallelPurchasesAreAllCounted() throws Exception {
+        Customer customer = new Customer("Concurrent Customer", unique("CC"), null);
+        Long customerId = inTransaction(session -> {
+            session.persist(customer);
+            return customer.getCustomerId();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < PURCHASES_PER_THREAD; i++) {
+                        // One transaction per purchase, as in checkout
+                        inTransaction(session -> customerDAO.recordPurchase(
+                                session, customerId, AMOUNT, LocalDateTime.now()));
+                    }
+                    return null;
+                }));
+            }
+            // The customer screen edits a copy loaded before the checkouts
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < EDITS; i++) {
+                    customer.setEmail("edit" + i + "@example.lk");
+                    customerDAO.update(customer);
+                }
+                return null;
+            }));
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Customer reloaded = customerDAO.findById(customerId).orElseThrow();
+        int purchases = THREADS * PURCHASES_PER_THREAD;
+        assertEquals(purchases, reloaded.getVisitCount());
+        assertEquals(0, AMOUNT.multiply(BigDecimal.valueOf(purchases)).compareTo(reloaded.getTotalPurchases()),
+                "totalPurchases was " + reloaded.getTotalPurchases());
+        assertNotNull(reloaded.getLastPurchaseTimestamp());
+        assertEquals("edit" + (EDITS - 1) + "@example.lk", reloaded.getEmail());
+    }
+}
@@ -0,0 +1,61 @@
+package com.chamathka.bathikpos.dao;
+
+import com.chamathka.bathikpos.EmbeddedDatabaseTest;
+import com.chamathka.bathikpos.entity.OutboxEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dispatchers on different tills must not claim the same outbox entries,
+ * and entries whose claim lapsed must become claimable again.
+ */
+class OutboxDAOClaimTest extends EmbeddedDatabaseTest {
+
+    // Claims run at a clock far ahead of the entries; other tests' pending entries may be
+    // claimed along with these, so the assertions only look at the entries created here
+    private static final LocalDateTime NOW = LocalDateTime.now().plusYears(50);
+    private static final int LIMIT = 10_000;
+
+    private final OutboxDAO outboxDAO = new OutboxDAO();
+
+    @Test
+    void claimedEntriesAreSkippedUntilTheLeaseLapses() {
+        Set<Long> created = inTransaction(session -> {
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < 3; i++) {
+                OutboxEvent event = new OutboxEvent(OutboxEvent.TYPE_SALE_COMPLETED, (long) i);
+                event.setNextAttemptAt(NOW.minusMinutes(1));
+                session.persist(event);
+                ids.add(event.getOutboxId());
+            }
+            return ids;
+        });
+
+        List<OutboxEvent> first = outboxDAO.claimDue("till-a", NOW, NOW.plusMinutes(5), LIMIT);
+        assertTrue(ids(first).containsAll(created), "First dispatcher claims the due entries");
+
+        List<OutboxEvent> second = outboxDAO.claimDue("till-b", NOW, NOW.plusMinutes(5), LIMIT);
+        assertTrue(ids(second).stream().noneMatch(created::contains), "Claimed entries are skipped");
+
+        List<OutboxEvent> afterLease = outboxDAO.claimDue("till-c", NOW.plusMinutes(6), NOW.plusMinutes(11), LIMIT);
+        assertTrue(ids(afterLease).containsAll(created), "Lapsed claims can be taken over");
+        assertEquals(Set.of("till-c"), afterLease.stream()
+                .filter(event -> created.contains(event.getOutboxId()))
+                .map(OutboxEvent::getClaimedBy)
+                .collect(Collectors.toSet()));
+
+        inTransaction(session -> outboxDAO.markDone(session, created, NOW));
+    }
+
+    private static Set<Long> ids(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::getOutboxId).collect(Collectors.toSet());
+    }
+}
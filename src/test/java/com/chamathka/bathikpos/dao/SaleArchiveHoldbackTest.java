@@ -0,0 +1,72 @@
+package com.chamathka.bathikpos.dao;
+
+import com.chamathka.bathikpos.EmbeddedDatabaseTest;
+import com.chamathka.bathikpos.entity.ChangeLog;
+import com.chamathka.bathikpos.entity.Sale;
+import com.chamathka.bathikpos.entity.User;
+import com.chamathka.bathikpos.service.ReplicationService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sales still in the change log are only held back from archiving until head
+ * office acknowledges them, and not at all when nothing ships them; without
+ * sync the change log is purged after the retention period.
+ */
+class SaleArchiveHoldbackTest extends EmbeddedDatabaseTest {
+
+    private static final LocalDateTime MONTH = LocalDateTime.of(1995, 3, 1, 0, 0);
+    private static final int LIMIT = 10_000;
+
+    private final SaleDAO saleDAO = new SaleDAO();
+
+    @Test
+    void unshippedSalesAreHeldBackOnlyUntilAcknowledged() {
+        long[] ids = inTransaction(session -> {
+            User cashier = new User(unique("archive"), "not-a-hash", "CASHIER");
+            session.persist(cashier);
+            Sale sale = new Sale(cashier, null, "CASH");
+            sale.setSaleTimestamp(MONTH.plusDays(9));
+            sale.setTotalAmount(new BigDecimal("2500.00"));
+            session.persist(sale);
+            ChangeLog entry = new ChangeLog(ChangeLog.TYPE_SALE, sale.getSaleId());
+            session.persist(entry);
+            return new long[] {sale.getSaleId(), entry.getChangeId()};
+        });
+        long saleId = ids[0];
+        long changeId = ids[1];
+
+        assertFalse(archivable(changeId - 1).contains(saleId), "Held back until head office acknowledges it");
+        assertTrue(archivable(changeId).contains(saleId), "Archivable once acknowledged");
+        assertTrue(archivable(Long.MAX_VALUE).contains(saleId), "Archivable when nothing is shipped");
+    }
+
+    @Test
+    void expiredEntriesArePurgedWithoutSync() {
+        Long[] ids = inTransaction(session -> {
+            ChangeLog expired = new ChangeLog(ChangeLog.TYPE_SALE, -1L);
+            expired.setRecordedAt(LocalDateTime.now().minusDays(30));
+            ChangeLog recent = new ChangeLog(ChangeLog.TYPE_SALE, -2L);
+            session.persist(expired);
+            session.persist(recent);
+            return new Long[] {expired.getChangeId(), recent.getChangeId()};
+        });
+
+        ReplicationService.purgeExpired();
+
+        ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+        assertTrue(changeLogDAO.findById(ids[0]).isEmpty(), "Entry past the retention period is purged");
+        assertTrue(changeLogDAO.findById(ids[1]).isPresent(), "Recent entry is kept");
+    }
+
+    private List<Long> archivable(long shippedUpTo) {
+        return inTransaction(session -> saleDAO.findArchivableSaleRows(session, MONTH, MONTH.plusMonths(1),
+                shippedUpTo, LIMIT).stream().map(row -> (Long) row[0]).toList());
+    }
+}
@@ -0,0 +1,91 @@
+package com.chamathka.bathikpos.dao;
+
+import com.chamathka.bathikpos.EmbeddedDatabaseTest;
+import com.chamathka.bathikpos.entity.Customer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark of the top customers report at 1M customers: the index-backed
+ * top-N projection against loading every customer and sorting in Java, as the
+ * report did before. Too slow for every build; run it with
+ * {@code mvn test -Dtest=TopCustomersBenchmarkTest -Dbatikpos.benchmark=true}
+ * (add -Dbatikpos.benchmark.customers=N for another size).
+ */
+@EnabledIfSystemProperty(named = "batikpos.benchmark", matches = "true")
+class TopCustomersBenchmarkTest extends EmbeddedDatabaseTest {
+
+    private static final int CUSTOMERS = Integer.getInteger("batikpos.benchmark.customers", 1_000_000);
+    private static final int LIMIT = 20;
+    private static final int RUNS = 5;
+    private static final String PHONE_PREFIX = "BM";
+
+    private final CustomerDAO customerDAO = new CustomerDAO();
+
+    @BeforeAll
+    static void insertCustomers() {
+        long startTime = System.currentTimeMillis();
+        inTransaction(session -> {
+            session.doWork(connection -> {
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO Customer (name, phoneNumber, totalPurchases, visitCount) VALUES (?, ?, ?, ?)")) {
+                    for (int i = 0; i < CUSTOMERS; i++) {
+                        insert.setString(1, "Benchmark Customer " + i);
+                        insert.setString(2, PHONE_PREFIX + i);
+                        // Spread totals so the top N are not simply the newest rows
+                        insert.setBigDecimal(3, BigDecimal.valueOf((i * 7919L) % 10_000_000, 2));
+                        insert.setInt(4, 1 + i % 50);
+                        insert.addBatch();
+                        if (i % 10_000 == 9_999) {
+                            insert.executeBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+            });
+            return null;
+        });
+        System.out.printf("Inserted %,d customers in %,d ms%n", CUSTOMERS, System.currentTimeMillis() - startTime);
+    }
+
+    @AfterAll
+    static void deleteCustomers() {
+        inTransaction(session -> session.createMutationQuery("DELETE FROM Customer WHERE phoneNumber LIKE :prefix")
+            .setParameter("prefix", PHONE_PREFIX + "%")
+            .executeUpdate());
+    }
+
+    @Test
+    void topNProjectionMatchesFullSort() {
+        customerDAO.getTopCustomerStats(LIMIT); // Warm up
+        long startNanos = System.nanoTime();
+        List<Object[]> top = null;
+        for (int i = 0; i < RUNS; i++) {
+            top = customerDAO.getTopCustomerStats(LIMIT);
+        }
+        long topNMillis = (System.nanoTime() - startNanos) / RUNS / 1_000_000;
+
+        startNanos = System.nanoTime();
+        List<BigDecimal> expected = customerDAO.findAll().stream()
+            .map(Customer::getTotalPurchases)
+            .filter(total -> total.signum() > 0)
+            .sorted(Comparator.reverseOrder())
+            .limit(LIMIT)
+            .collect(Collectors.toList());
+        long fullSortMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+        System.out.printf("Top %d of %,d customers: top-N projection %,d ms per run, load all and sort %,d ms%n",
+            LIMIT, CUSTOMERS, topNMillis, fullSortMillis);
+        assertEquals(expected, top.stream().map(row -> (BigDecimal) row[3]).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,128 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.EmbeddedDatabaseTest;
+import com.chamathka.bathikpos.dao.SaleDAO;
+import com.chamathka.bathikpos.entity.GRN;
+import com.chamathka.bathikpos.entity.GRNItem;
+import com.chamathka.bathikpos.entity.Product;
+import com.chamathka.bathikpos.entity.ProductVariant;
+import com.chamathka.bathikpos.entity.Sale;
+import com.chamathka.bathikpos.entity.SaleItem;
+import com.chamathka.bathikpos.entity.Supplier;
+import com.chamathka.bathikpos.entity.User;
+import com.chamathka.bathikpos.util.QueryMonitor;
+import com.chamathka.bathikpos.util.SessionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Statement budgets of the hot paths, so an N+1 pattern fails the build
+ * instead of showing up as a slow till.
+ */
+class QueryBudgetTest extends EmbeddedDatabaseTest {
+
+    private static final int LINES = 5;
+
+    private final SaleService saleService = new SaleService();
+    private final GRNService grnService = new GRNService();
+    private final SaleDAO saleDAO = new SaleDAO();
+
+    private User admin;
+    private Supplier supplier;
+    private List<ProductVariant> variants;
+
+    @BeforeEach
+    void createCatalogue() {
+        String code = unique("QB");
+        admin = new User(code, "not-a-hash", "ADMIN");
+        supplier = new Supplier("Supplier " + code, null, null, null);
+        variants = new ArrayList<>();
+        inTransaction(session -> {
+            session.persist(admin);
+            session.persist(supplier);
+            Product product = new Product("Sarong " + code, "Sarongs", supplier);
+            session.persist(product);
+            for (int i = 0; i < LINES; i++) {
+                ProductVariant variant = new ProductVariant(product, code + "-" + i, "M", "Blue",
+                        new BigDecimal("1500.00"));
+                variant.setQuantityInStock(100);
+                session.persist(variant);
+                variants.add(variant);
+            }
+            return null;
+        });
+        SessionManager.getInstance().setCurrentUser(admin);
+    }
+
+    @AfterEach
+    void logout() {
+        SessionManager.getInstance().logout();
+    }
+
+    @Test
+    void checkoutRunsAFixedNumberOfStatementsPerLine() {
+        Sale sale = new Sale(admin, null, "CASH");
+        for (ProductVariant variant : variants) {
+            sale.addItem(new SaleItem(sale, variant, 2, variant.getSellingPrice()));
+        }
+        sale.recalculateTotalAmount();
+
+        monitored("checkout", () -> saleService.processCheckout(sale));
+
+        // Per line: load the variant, deduct its stock, read the new level back,
+        // insert the line and its ledger movement; plus the sale, outbox and change log
+        QueryMonitor.assertMaxQueries(5 * LINES + 3);
+    }
+
+    @Test
+    void saleForReturnIsLoadedWithOneQuery() {
+        Sale sale = new Sale(admin, null, "CASH");
+        for (ProductVariant variant : variants) {
+            sale.addItem(new SaleItem(sale, variant, 1, variant.getSellingPrice()));
+        }
+        sale.recalculateTotalAmount();
+        Long saleId = saleService.processCheckout(sale).getSaleId();
+
+        Sale[] loaded = new Sale[1];
+        monitored("sale for return", () -> loaded[0] = saleDAO.findSaleWithLinesForReturn(saleId).orElseThrow());
+
+        QueryMonitor.assertMaxQueries(1);
+        // Everything the return screen shows was fetched by that query
+        assertEquals(LINES, loaded[0].getItems().size());
+        for (SaleItem item : loaded[0].getItems()) {
+            assertTrue(item.getVariant().getProduct().getName().startsWith("Sarong "));
+        }
+    }
+
+    @Test
+    void confirmingAPendingGRNDoesNotGrowWithItsItems() {
+        GRN draft = new GRN(supplier, admin, unique("INV"));
+        for (ProductVariant variant : variants) {
+            draft.addItem(new GRNItem(draft, variant, 10, new BigDecimal("900.00")));
+        }
+        Long grnId = grnService.savePendingGRN(draft).getGrnId();
+
+        monitored("confirm GRN", () -> grnService.confirmPendingGRN(grnId));
+
+        // Load the draft, flip its status, add the stock, write the ledger,
+        // read the stock levels back and record the change log entry
+        QueryMonitor.assertMaxQueries(6);
+    }
+
+    private static void monitored(String name, Runnable work) {
+        QueryMonitor.UnitOfWork unit = QueryMonitor.begin(name);
+        try {
+            work.run();
+        } finally {
+            unit.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.chamathka.bathikpos.service;
+
+import com.chamathka.bathikpos.EmbeddedDatabaseTest;
+import com.chamathka.bathikpos.entity.Product;
+import com.chamathka.bathikpos.entity.ProductVariant;
+import com.chamathka.bathikpos.entity.StockMovement;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Stock that predates the ledger must get exactly one opening balance that
+ * reconciles the ledger with quantityInStock, even if the variant was sold
+ * before the first run and several tills run it at once.
+ */
+class StockLedgerOpeningBalanceTest extends EmbeddedDatabaseTest {
+
+    private static final int TILLS = 4;
+
+    private final StockLedgerService ledgerService = new StockLedgerService();
+
+    @Test
+    void lateConcurrentRunsRecordOneReconcilingBalance() throws Exception {
+        Long variantId = inTransaction(session -> {
+            Product product = new Product("Saree " + unique("OB"), "Sarees", null);
+            session.persist(product);
+            ProductVariant variant = new ProductVariant(product, unique("OB"), "Free", "Red",
+                    new BigDecimal("8500.00"));
+            variant.setQuantityInStock(10); // Stock from before the ledger
+            session.persist(variant);
+            return variant.getVariantId();
+        });
+        // Sold before the first opening balance run
+        inTransaction(session -> {
+            ProductVariant variant = session.get(ProductVariant.class, variantId);
+            variant.setQuantityInStock(7);
+            session.persist(new StockMovement(variant, StockMovement.TYPE_SALE, -3, null, null));
+            return null;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(TILLS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < TILLS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return ledgerService.recordOpeningBalances();
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Integer> openingBalances = inTransaction(session -> session.createQuery(
+                "SELECT m.quantityChange FROM StockMovement m WHERE m.variant.variantId = :variantId " +
+                "AND m.note = 'Opening balance'", Integer.class)
+            .setParameter("variantId", variantId)
+            .list());
+        assertEquals(List.of(10), openingBalances);
+
+        Long ledgerBalance = inTransaction(session -> session.createQuery(
+                "SELECT SUM(m.quantityChange) FROM StockMovement m WHERE m.variant.variantId = :variantId", Long.class)
+            .setParameter("variantId", variantId)
+            .getSingleResult());
+        assertEquals(7L, ledgerBalance);
+
+        Long logged = inTransaction(session -> session.createQuery(
+                "SELECT COUNT(c) FROM ChangeLog c WHERE c.changeType = 'STOCK_MOVEMENT' AND c.entityId IN " +
+                "(SELECT m.movementId FROM StockMovement m WHERE m.variant.variantId = :variantId)", Long.class)
+            .setParameter("variantId", variantId)
+            .getSingleResult());
+        assertEquals(1L, logged, "The opening balance is logged once for head office");
+    }
+}
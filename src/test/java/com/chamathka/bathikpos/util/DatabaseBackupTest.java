@@ -0,0 +1,251 @@
+package com.chamathka.bathikpos.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Round trip of a backup: back up a populated database, verify the file and
+ * restore it into a new database, which must then hold the same rows.
+ * Runs on private H2 files; the number of sales can be raised with
+ * -Dbatikpos.backup.sales=N to measure throughput.
+ */
+class DatabaseBackupTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseBackupTest.class);
+
+    private static final int SALES = Integer.getInteger("batikpos.backup.sales", 2_000);
+    private static final int VARIANTS = 50;
+    private static final String USER = "sa";
+
+    /** Tables compared after the restore, with the column they are ordered by. */
+    private static final Map<String, String> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("User", "userId");
+        TABLES.put("Customer", "customerId");
+        TABLES.put("Supplier", "supplierId");
+        TABLES.put("Product", "productId");
+        TABLES.put("ProductVariant", "variantId");
+        TABLES.put("Sale", "saleId");
+        TABLES.put("SaleItem", "saleItemId");
+        TABLES.put("StockMovement", "movementId");
+        TABLES.put("ChangeLog", "changeId");
+        TABLES.put("SaleArchive", "archiveMonth");
+    }
+
+    @TempDir
+    static Path directory;
+
+    private static String sourceUrl;
+
+    @BeforeAll
+    static void populateSource() throws SQLException {
+        sourceUrl = url("source");
+        new SchemaMigrator(sourceUrl, USER, "").migrate();
+        try (Connection connection = DriverManager.getConnection(sourceUrl, USER, "")) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("INSERT INTO User (userId, username, passwordHash, role) VALUES (1, 'cashier', 'x', 'CASHIER')");
+                statement.execute("INSERT INTO Supplier (supplierId, supplierName) VALUES (1, 'Galle Handlooms')");
+                statement.execute("INSERT INTO Product (productId, name, category, supplier_id) VALUES (1, 'Sarong', 'Sarongs', 1)");
+            }
+            try (PreparedStatement variant = connection.prepareStatement(
+                    "INSERT INTO ProductVariant (variantId, product_id, itemCode, attribute_Size, attribute_Color, " +
+                    "sellingPrice, quantityInStock, lowStockThreshold) VALUES (?, 1, ?, ?, ?, ?, ?, 5)")) {
+                for (int v = 1; v <= VARIANTS; v++) {
+                    variant.setLong(1, v);
+                    variant.setString(2, "SAR-" + v);
+                    variant.setString(3, v % 3 == 0 ? null : "M");
+                    variant.setString(4, "Indigo");
+                    variant.setBigDecimal(5, new BigDecimal("1250.50"));
+                    variant.setInt(6, 1_000_000);
+                    variant.addBatch();
+                }
+                variant.executeBatch();
+            }
+            try (PreparedStatement customer = connection.prepareStatement(
+                    "INSERT INTO Customer (customerId, name, phoneNumber, email, totalPurchases, visitCount, " +
+                    "lastPurchaseTimestamp) VALUES (?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement sale = connection.prepareStatement(
+                    "INSERT INTO Sale (saleId, saleTimestamp, user_id, customer_id, totalAmount, discountAmount, " +
+                    "paymentType) VALUES (?, ?, 1, ?, ?, 0.00, 'CASH')");
+                 PreparedStatement item = connection.prepareStatement(
+                    "INSERT INTO SaleItem (sale_id, variant_id, quantitySold, priceAtSale) VALUES (?, ?, ?, 1250.50)");
+                 PreparedStatement movement = connection.prepareStatement(
+                    "INSERT INTO StockMovement (variant_id, movementType, quantityChange, referenceId, " +
+                    "movementTimestamp, user_id) VALUES (?, 'SALE', ?, ?, ?, 1)");
+                 PreparedStatement change = connection.prepareStatement(
+                    "INSERT INTO ChangeLog (changeType, entityId, recordedAt) VALUES ('SALE', ?, ?)")) {
+                LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0, 0, 123_456_000);
+                for (int s = 1; s <= SALES; s++) {
+                    LocalDateTime timestamp = start.plusSeconds(s * 37L);
+                    boolean withCustomer = s % 4 == 0;
+                    if (withCustomer) {
+                        customer.setLong(1, s);
+                        customer.setString(2, "Customer " + s + " සිංහල"); // Sinhala text
+                        customer.setString(3, "07" + s);
+                        customer.setString(4, s % 8 == 0 ? null : "c" + s + "@example.lk");
+                        customer.setBigDecimal(5, new BigDecimal("2501.00"));
+                        customer.setInt(6, 1);
+                        customer.setObject(7, timestamp);
+                        customer.addBatch();
+                    }
+                    sale.setLong(1, s);
+                    sale.setObject(2, timestamp);
+                    sale.setObject(3, withCustomer ? (Long) (long) s : null);
+                    sale.setBigDecimal(4, new BigDecimal("2501.00"));
+                    sale.addBatch();
+                    for (int line = 0; line < 2; line++) {
+                        int variantId = 1 + (s + line) % VARIANTS;
+                        item.setLong(1, s);
+                        item.setLong(2, variantId);
+                        item.setInt(3, 1);
+                        item.addBatch();
+                        movement.setLong(1, variantId);
+                        movement.setInt(2, -1);
+                        movement.setLong(3, s);
+                        movement.setObject(4, timestamp);
+                        movement.addBatch();
+                    }
+                    change.setLong(1, s);
+                    change.setObject(2, timestamp);
+                    change.addBatch();
+                    if (s % 1_000 == 0 || s == SALES) {
+                        customer.executeBatch();
+                        sale.executeBatch();
+                        item.executeBatch();
+                        movement.executeBatch();
+                        change.executeBatch();
+                    }
+                }
+            }
+            try (PreparedStatement archive = connection.prepareStatement(
+                    "INSERT INTO SaleArchive (archiveMonth, saleCount, itemCount, totalAmount, archivedAt, payload) " +
+                    "VALUES (?, 1, 2, 2501.00, ?, ?)")) {
+                archive.setObject(1, LocalDate.of(2021, 6, 1));
+                archive.setObject(2, LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+                archive.setBytes(3, new byte[] {0, 1, 2, (byte) 0xFF, 42});
+                archive.executeUpdate();
+            }
+            connection.commit();
+        }
+    }
+
+    @Test
+    void backupVerifiesAndRestoresIntoANewDatabase() throws SQLException {
+        Path file = directory.resolve("round-trip.bak");
+        DatabaseBackup.Result backedUp = new DatabaseBackup(sourceUrl, USER, "").backup(file);
+        DatabaseBackup.Result verified = new DatabaseBackup(sourceUrl, USER, "").verify(file);
+
+        String targetUrl = url("target");
+        DatabaseBackup.Result restored = new DatabaseBackup(targetUrl, USER, "").restore(file);
+        logger.debug("Backup {}, verify {}, restore {}", backedUp, verified, restored);
+
+        assertEquals(backedUp.getRows(), verified.getRows());
+        assertEquals(backedUp.getRows(), restored.getRows());
+        Map<String, Fingerprint> expected = fingerprints(sourceUrl);
+        Map<String, Fingerprint> actual = fingerprints(targetUrl);
+        for (String table : TABLES.keySet()) {
+            assertEquals(expected.get(table).rows, actual.get(table).rows, table + " row count");
+            assertArrayEquals(expected.get(table).checksum, actual.get(table).checksum, table + " checksum");
+        }
+
+        // The restored identity columns continue after the restored rows
+        try (Connection connection = DriverManager.getConnection(targetUrl, USER, "");
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO ChangeLog (changeType, entityId, recordedAt) " +
+                    "VALUES ('SALE', 0, CURRENT_TIMESTAMP)");
+        }
+
+        // A database that has data is refused
+        assertThrows(IllegalStateException.class, () -> new DatabaseBackup(targetUrl, USER, "").restore(file));
+    }
+
+    @Test
+    void damagedBackupIsRejected() throws IOException {
+        Path file = directory.resolve("damaged.bak");
+        new DatabaseBackup(sourceUrl, USER, "").backup(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+
+        assertThrows(RuntimeException.class, () -> new DatabaseBackup(sourceUrl, USER, "").verify(file));
+        String targetUrl = url("damaged-target");
+        assertThrows(RuntimeException.class, () -> new DatabaseBackup(targetUrl, USER, "").restore(file));
+    }
+
+    private static String url(String name) {
+        return "jdbc:h2:file:" + directory.resolve(name).toAbsolutePath() + ";MODE=MySQL;NON_KEYWORDS=USER,VALUE";
+    }
+
+    /**
+     * Count and hash every row of each table, in key order.
+     */
+    private static Map<String, Fingerprint> fingerprints(String url) throws SQLException {
+        Map<String, Fingerprint> fingerprints = new LinkedHashMap<>();
+        try (Connection connection = DriverManager.getConnection(url, USER, "");
+             Statement statement = connection.createStatement()) {
+            for (Map.Entry<String, String> table : TABLES.entrySet()) {
+                MessageDigest digest = sha256();
+                long rows = 0;
+                try (ResultSet resultSet = statement.executeQuery(
+                        "SELECT * FROM " + table.getKey() + " ORDER BY " + table.getValue())) {
+                    int columns = resultSet.getMetaData().getColumnCount();
+                    while (resultSet.next()) {
+                        for (int i = 1; i <= columns; i++) {
+                            Object value = resultSet.getObject(i);
+                            if (value instanceof Blob) {
+                                value = resultSet.getBytes(i);
+                            }
+                            String text = value instanceof byte[] ? HexFormat.of().formatHex((byte[]) value)
+                                    : String.valueOf(value);
+                            digest.update(text.getBytes(StandardCharsets.UTF_8));
+                            digest.update((byte) 0);
+                        }
+                        rows++;
+                    }
+                }
+                fingerprints.put(table.getKey(), new Fingerprint(rows, digest.digest()));
+            }
+        }
+        return fingerprints;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Fingerprint(long rows, byte[] checksum) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.chamathka.bathikpos.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A store upgrading from the schema hbm2ddl created must end up with the same
+ * tables and columns as a fresh install. Runs on a private in-memory database.
+ */
+class SchemaMigratorTest {
+
+    @Test
+    void baseliningAddsTheColumnsTheLegacySchemaLacks() throws SQLException {
+        String url = "jdbc:h2:mem:baseline;MODE=MySQL;NON_KEYWORDS=USER,VALUE";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            // Customer and Sale as hbm2ddl left them before the customer segmentation release
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE Customer (customerId BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                        "name VARCHAR(100) NOT NULL, phoneNumber VARCHAR(20) NOT NULL, email VARCHAR(100), " +
+                        "totalPurchases DECIMAL(10,2) NOT NULL, visitCount INT NOT NULL)");
+                statement.execute("CREATE TABLE Sale (saleId BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                        "saleTimestamp DATETIME(6) NOT NULL, user_id BIGINT NOT NULL, customer_id BIGINT, " +
+                        "totalAmount DECIMAL(10,2) NOT NULL, discountAmount DECIMAL(10,2) NOT NULL, " +
+                        "paymentType VARCHAR(50) NOT NULL)");
+                statement.execute("CREATE INDEX idx_timestamp ON Sale (saleTimestamp)");
+                statement.execute("INSERT INTO Customer (name, phoneNumber, totalPurchases, visitCount) " +
+                        "VALUES ('Nimal', '0771234567', 4500.00, 3)");
+            }
+
+            int version = new SchemaMigrator(url, "sa", "").migrate();
+            assertEquals(4, version);
+
+            for (String column : new String[] {"lastPurchaseTimestamp", "recencyScore", "frequencyScore",
+                    "monetaryScore", "segment"}) {
+                assertTrue(columnExists(connection, "CUSTOMER", column.toUpperCase()), column + " was added");
+            }
+            assertFalse(indexExists(connection, "SALE", "IDX_TIMESTAMP"), "Legacy index was dropped");
+            assertTrue(indexExists(connection, "SALE", "IDX_SALE_TIMESTAMP_TOTALS"), "Current index was created");
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(
+                         "SELECT name, visitCount, segment FROM Customer WHERE phoneNumber = '0771234567'")) {
+                assertTrue(resultSet.next(), "Existing rows are kept");
+                assertEquals(3, resultSet.getInt("visitCount"));
+                assertEquals("PROSPECT", resultSet.getString("segment"));
+            }
+
+            // A second start finds nothing to do
+            assertEquals(4, new SchemaMigrator(url, "sa", "").migrate());
+        }
+    }
+
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet resultSet = connection.getMetaData().getColumns(null, null, table, column)) {
+            return resultSet.next();
+        }
+    }
+
+    private static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        try (ResultSet resultSet = connection.getMetaData().getIndexInfo(null, null, table, false, true)) {
+            while (resultSet.next()) {
+                if (index.equals(resultSet.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}